@@ -9,7 +9,16 @@
  */
 package org.openmrs.module.radiology;
 
+import java.io.IOException;
+
+import org.openmrs.api.context.Context;
 import org.openmrs.module.BaseModuleActivator;
+import org.openmrs.module.DaemonToken;
+import org.openmrs.module.DaemonTokenAware;
+import org.openmrs.module.radiology.report.RadiologyReportTextIndex;
+import org.openmrs.module.radiology.report.template.ConceptSourceNameIndex;
+import org.openmrs.module.radiology.report.template.MrrtReportTemplateDirectoryWatcher;
+import org.openmrs.module.radiology.report.template.MrrtReportTemplateSearchIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -17,11 +26,21 @@ import org.slf4j.LoggerFactory;
  * This class contains the logic that is run every time this module is either started or shutdown
  */
 
-public class RadiologyActivator extends BaseModuleActivator {
+public class RadiologyActivator extends BaseModuleActivator implements DaemonTokenAware {
     
     
     private static final Logger log = LoggerFactory.getLogger(RadiologyActivator.class);
     
+    private DaemonToken daemonToken;
+    
+    /**
+     * @see DaemonTokenAware#setDaemonToken(DaemonToken)
+     */
+    @Override
+    public void setDaemonToken(DaemonToken token) {
+        this.daemonToken = token;
+    }
+    
     @Override
     public void willStart() {
         log.info("Trying to start up Radiology Module");
@@ -29,16 +48,51 @@ public class RadiologyActivator extends BaseModuleActivator {
     
     @Override
     public void started() {
+        getRadiologyProperties().startCaching();
+        getConceptSourceNameIndex().startCaching();
+        getMrrtReportTemplateSearchIndex().startCaching();
+        try {
+            getMrrtReportTemplateDirectoryWatcher().start(daemonToken);
+        }
+        catch (IOException e) {
+            log.error("Failed to watch report template watch directory", e);
+        }
         log.info("Radiology Module successfully started");
     }
     
     @Override
     public void willStop() {
         log.info("Trying to shut down Radiology Module");
+        getMrrtReportTemplateDirectoryWatcher().stop();
+        getRadiologyProperties().stopCaching();
+        getConceptSourceNameIndex().stopCaching();
+        getMrrtReportTemplateSearchIndex().stopCaching();
+        getRadiologyReportTextIndex().close();
     }
     
     @Override
     public void stopped() {
         log.info("Radiology Module successfully stopped");
     }
+    
+    private RadiologyProperties getRadiologyProperties() {
+        return Context.getRegisteredComponent("radiologyProperties", RadiologyProperties.class);
+    }
+    
+    private MrrtReportTemplateDirectoryWatcher getMrrtReportTemplateDirectoryWatcher() {
+        return Context.getRegisteredComponent("mrrtReportTemplateDirectoryWatcher",
+            MrrtReportTemplateDirectoryWatcher.class);
+    }
+    
+    private ConceptSourceNameIndex getConceptSourceNameIndex() {
+        return Context.getRegisteredComponent("conceptSourceNameIndex", ConceptSourceNameIndex.class);
+    }
+    
+    private MrrtReportTemplateSearchIndex getMrrtReportTemplateSearchIndex() {
+        return Context.getRegisteredComponent("mrrtReportTemplateSearchIndex", MrrtReportTemplateSearchIndex.class);
+    }
+    
+    private RadiologyReportTextIndex getRadiologyReportTextIndex() {
+        return Context.getRegisteredComponent("radiologyReportTextIndex", RadiologyReportTextIndex.class);
+    }
 }
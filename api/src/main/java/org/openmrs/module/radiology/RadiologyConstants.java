@@ -93,12 +93,41 @@ public class RadiologyConstants {
      */
     public static final String GP_NEXT_ACCESSION_NUMBER_SEED = "radiology.nextAccessionNumberSeed";
     
+    /**
+     * {@code GlobalProperty} property for the number of accession numbers a node reserves at once from
+     * {@link #GP_NEXT_ACCESSION_NUMBER_SEED}.
+     */
+    public static final String GP_ACCESSION_NUMBER_BLOCK_SIZE = "radiology.accessionNumberBlockSize";
+    
     /**
      * {@code GlobalProperty} property for the directory where report templates are stored.
      * Allowable values are absolute and relative paths.
      */
     public static final String GP_MRRT_REPORT_TEMPLATE_DIR = "radiology.reportTemplatesHome";
     
+    /**
+     * {@code GlobalProperty} property for the directory which is watched for report templates to be imported.
+     * Allowable values are absolute and relative paths, no directory is watched if it is not set.
+     */
+    public static final String GP_MRRT_REPORT_TEMPLATE_WATCH_DIR = "radiology.reportTemplatesWatchDirectory";
+    
+    /**
+     * {@code GlobalProperty} property for the maximum size in bytes of a report template file which is imported.
+     */
+    public static final String GP_MRRT_REPORT_TEMPLATE_MAX_SIZE = "radiology.reportTemplateMaxSize";
+    
+    /**
+     * {@code GlobalProperty} property for the size in bytes from which on radiology report bodies are stored compressed.
+     * Report bodies are stored uncompressed if it is not set.
+     */
+    public static final String GP_REPORT_BODY_COMPRESSION_THRESHOLD = "radiology.reportBodyCompressionThreshold";
+    
+    /**
+     * {@code GlobalProperty} property for the directory where the full text index over radiology report bodies is stored.
+     * Allowable values are absolute and relative paths.
+     */
+    public static final String GP_REPORT_TEXT_INDEX_DIR = "radiology.reportTextIndexHome";
+    
     private RadiologyConstants() {
         // Utility class not meant to be instantiated.
     }
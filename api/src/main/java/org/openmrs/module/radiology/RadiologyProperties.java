@@ -12,31 +12,62 @@ package org.openmrs.module.radiology;
 import java.io.File;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import org.apache.commons.lang3.StringUtils;
 import org.openmrs.CareSetting;
 import org.openmrs.ConceptClass;
 import org.openmrs.EncounterRole;
 import org.openmrs.EncounterType;
+import org.openmrs.GlobalProperty;
+import org.openmrs.OpenmrsObject;
 import org.openmrs.OrderType;
 import org.openmrs.VisitType;
+import org.openmrs.api.APIException;
 import org.openmrs.api.AdministrationService;
 import org.openmrs.api.ConceptService;
 import org.openmrs.api.EncounterService;
+import org.openmrs.api.GlobalPropertyListener;
 import org.openmrs.api.OrderService;
 import org.openmrs.api.VisitService;
 import org.openmrs.util.OpenmrsUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /**
  * Properties, mostly configured via GPs for this module.
+ * <p>
+ * Once {@link #startCaching()} is called the global properties and the metadata they resolve to are cached until a
+ * {@code radiology.*} global property changes. Metadata is cached by id and loaded with each call, so callers always get
+ * an object of their current session.
+ * </p>
  */
 @Component
-public class RadiologyProperties {
+public class RadiologyProperties implements GlobalPropertyListener {
     
     
+    private static final Logger log = LoggerFactory.getLogger(RadiologyProperties.class);
+    
+    private static final String GP_PREFIX = "radiology.";
+    
+    private static final String RESOLVED_ID_KEY_SUFFIX = "#id";
+    
+    private static final String RESOLVED_NAMES_KEY_SUFFIX = "#names";
+    
+    /**
+     * Resolved values by global property name, null while not caching. Invalidation replaces the whole map so that values
+     * resolved concurrently with a change end up in the discarded map.
+     */
+    private volatile ConcurrentMap<String, Object> cache;
+    
     @Autowired
     @Qualifier("adminService")
     private AdministrationService administrationService;
@@ -115,6 +146,73 @@ public class RadiologyProperties {
         return getGlobalProperty(RadiologyConstants.GP_DICOM_WEB_VIEWER_LOCAL_SERVER_NAME, false);
     }
     
+    /**
+     * Return the number of accession numbers reserved at once by {@code BlockAllocatingAccessionNumberGenerator}.
+     *
+     * @return accession number block size or 1 if not configured
+     * @throws IllegalStateException if global property for accession number block size is not a positive integer
+     * @should return accession number block size
+     * @should return one if global property for accession number block size is not configured
+     * @should throw illegal state exception if global property for accession number block size is not a positive integer
+     */
+    public int getAccessionNumberBlockSize() {
+        return getPositiveIntegerGlobalProperty(RadiologyConstants.GP_ACCESSION_NUMBER_BLOCK_SIZE, 1);
+    }
+    
+    /**
+     * Return the maximum size in bytes of a report template file which is imported.
+     *
+     * @return report template max size or 1 MiB if not configured
+     * @throws IllegalStateException if global property for report template max size is not a positive integer
+     * @should return report template max size
+     * @should return one mebibyte if global property for report template max size is not configured
+     * @should throw illegal state exception if global property for report template max size is not a positive integer
+     */
+    public int getMrrtReportTemplateMaxSize() {
+        return getPositiveIntegerGlobalProperty(RadiologyConstants.GP_MRRT_REPORT_TEMPLATE_MAX_SIZE, 1024 * 1024);
+    }
+    
+    /**
+     * Return the size in bytes from which on radiology report bodies are stored compressed.
+     *
+     * @return report body compression threshold or 0 if report bodies should not be compressed
+     * @throws IllegalStateException if global property for report body compression threshold is not a positive integer
+     * @should return report body compression threshold
+     * @should return zero if global property for report body compression threshold is not configured
+     * @should throw illegal state exception if global property for report body compression threshold is not a positive
+     *         integer
+     */
+    public int getReportBodyCompressionThreshold() {
+        return getPositiveIntegerGlobalProperty(RadiologyConstants.GP_REPORT_BODY_COMPRESSION_THRESHOLD, 0);
+    }
+    
+    /**
+     * Get the positive integer value of a global property.
+     *
+     * @param globalPropertyName the name of the global property
+     * @param defaultValue the value returned if the global property is not configured
+     * @return the value of the global property or given default value if it is not configured
+     * @throws IllegalStateException if the global property is not a positive integer
+     */
+    private int getPositiveIntegerGlobalProperty(String globalPropertyName, int defaultValue) {
+        final String value = getGlobalProperty(globalPropertyName, false);
+        if (StringUtils.isBlank(value)) {
+            return defaultValue;
+        }
+        
+        int result;
+        try {
+            result = Integer.parseInt(value.trim());
+        }
+        catch (NumberFormatException e) {
+            result = 0;
+        }
+        if (result < 1) {
+            throw new IllegalStateException("Property " + globalPropertyName + " needs to be a positive integer");
+        }
+        return result;
+    }
+    
     /**
      * Get CareSetting for RadiologyOrder's
      * 
@@ -125,13 +223,13 @@ public class RadiologyProperties {
      * @should throw illegal state exception if radiology care setting cannot be found
      */
     public CareSetting getRadiologyCareSetting() {
-        final CareSetting result =
-                orderService.getCareSettingByUuid(getGlobalProperty(RadiologyConstants.GP_RADIOLOGY_CARE_SETTING, true));
-        if (result == null) {
+        final Integer careSettingId =
+                getCachedId(RadiologyConstants.GP_RADIOLOGY_CARE_SETTING, orderService::getCareSettingByUuid);
+        if (careSettingId == null) {
             throw new IllegalStateException(
                     "No existing care setting for uuid: " + RadiologyConstants.GP_RADIOLOGY_CARE_SETTING);
         }
-        return result;
+        return orderService.getCareSetting(careSettingId);
     }
     
     /**
@@ -142,7 +240,9 @@ public class RadiologyProperties {
      * @should throw illegal state exception for non existing radiology test order type
      */
     public OrderType getRadiologyTestOrderType() {
-        return orderService.getOrderTypeByUuid(getGlobalProperty(RadiologyConstants.GP_RADIOLOGY_TEST_ORDER_TYPE, true));
+        final Integer orderTypeId =
+                getCachedId(RadiologyConstants.GP_RADIOLOGY_TEST_ORDER_TYPE, orderService::getOrderTypeByUuid);
+        return orderTypeId == null ? null : orderService.getOrderType(orderTypeId);
     }
     
     /**
@@ -153,8 +253,9 @@ public class RadiologyProperties {
      * @should throw illegal state exception for non existing radiology encounter type
      */
     public EncounterType getRadiologyOrderEncounterType() {
-        return encounterService
-                .getEncounterTypeByUuid(getGlobalProperty(RadiologyConstants.GP_RADIOLOGY_ORDER_ENCOUNTER_TYPE, true));
+        final Integer encounterTypeId =
+                getCachedId(RadiologyConstants.GP_RADIOLOGY_ORDER_ENCOUNTER_TYPE, encounterService::getEncounterTypeByUuid);
+        return encounterTypeId == null ? null : encounterService.getEncounterType(encounterTypeId);
     }
     
     /**
@@ -165,8 +266,9 @@ public class RadiologyProperties {
      * @should throw illegal state exception for non existing ordering provider encounter role
      */
     public EncounterRole getRadiologyOrderingProviderEncounterRole() {
-        return encounterService.getEncounterRoleByUuid(
-            getGlobalProperty(RadiologyConstants.GP_RADIOLOGY_ORDERING_PROVIDER_ENCOUNTER_ROLE, true));
+        final Integer encounterRoleId = getCachedId(RadiologyConstants.GP_RADIOLOGY_ORDERING_PROVIDER_ENCOUNTER_ROLE,
+            encounterService::getEncounterRoleByUuid);
+        return encounterRoleId == null ? null : encounterService.getEncounterRole(encounterRoleId);
     }
     
     /**
@@ -177,7 +279,9 @@ public class RadiologyProperties {
      * @should throw illegal state exception for non existing radiology visit type
      */
     public VisitType getRadiologyVisitType() {
-        return visitService.getVisitTypeByUuid(getGlobalProperty(RadiologyConstants.GP_RADIOLOGY_VISIT_TYPE, true));
+        final Integer visitTypeId =
+                getCachedId(RadiologyConstants.GP_RADIOLOGY_VISIT_TYPE, visitService::getVisitTypeByUuid);
+        return visitTypeId == null ? null : visitService.getVisitType(visitTypeId);
     }
     
     /**
@@ -200,6 +304,11 @@ public class RadiologyProperties {
      *         in global property radiology concept classes
      */
     public String getRadiologyConceptClassNames() {
+        return getCached(RadiologyConstants.GP_RADIOLOGY_CONCEPT_CLASSES + RESOLVED_NAMES_KEY_SUFFIX,
+            this::resolveRadiologyConceptClassNames);
+    }
+    
+    private String resolveRadiologyConceptClassNames() {
         
         String radiologyConceptClassUuidSetting = getGlobalProperty(RadiologyConstants.GP_RADIOLOGY_CONCEPT_CLASSES, true);
         radiologyConceptClassUuidSetting = radiologyConceptClassUuidSetting.replace(" ", "");
@@ -244,6 +353,11 @@ public class RadiologyProperties {
      *         radiology order reason concept classes
      */
     public String getRadiologyOrderReasonConceptClassNames() {
+        return getCached(RadiologyConstants.GP_RADIOLOGY_ORDER_REASON_CONCEPT_CLASSES + RESOLVED_NAMES_KEY_SUFFIX,
+            this::resolveRadiologyOrderReasonConceptClassNames);
+    }
+    
+    private String resolveRadiologyOrderReasonConceptClassNames() {
         
         String radiologyReasonConceptClassUuidSetting =
                 getGlobalProperty(RadiologyConstants.GP_RADIOLOGY_ORDER_REASON_CONCEPT_CLASSES, false);
@@ -288,7 +402,8 @@ public class RadiologyProperties {
      * @should throw illegal state exception given required non configured global property
      */
     private String getGlobalProperty(String globalPropertyName, boolean required) {
-        final String result = administrationService.getGlobalProperty(globalPropertyName);
+        final String result =
+                getCached(globalPropertyName, () -> administrationService.getGlobalProperty(globalPropertyName));
         if (required && StringUtils.isBlank(result)) {
             throw new IllegalStateException("Configuration required: " + globalPropertyName);
         }
@@ -319,4 +434,204 @@ public class RadiologyProperties {
         
         return templatesPath.toFile();
     }
+    
+    /**
+     * Gets folder to store the full text index over radiology report bodies.
+     * <p>
+     * Relative paths are resolved against the application data directory like {@link #getReportTemplateHome()}, the
+     * directory is created if it does not exist.
+     * </p>
+     * 
+     * @return report text index folder
+     * @throws IllegalStateException if global property cannot be found
+     * @should return report text index directory and create it if it does not exist
+     * @should throw illegal state exception if global property cannot be found
+     */
+    public File getReportTextIndexHome() {
+        
+        Path indexPath = Paths.get(getGlobalProperty(RadiologyConstants.GP_REPORT_TEXT_INDEX_DIR, true).trim());
+        
+        if (!indexPath.isAbsolute()) {
+            indexPath = Paths.get(OpenmrsUtil.getApplicationDataDirectory(), indexPath.toString());
+        }
+        if (!indexPath.toFile()
+                .exists()) {
+            indexPath.toFile()
+                    .mkdirs();
+        }
+        
+        return indexPath.toFile();
+    }
+    
+    /**
+     * Return the directory which is watched for report templates to be imported.
+     * <p>
+     * Relative paths are resolved against the application data directory like
+     * {@link #getReportTemplateHome()}, the directory is created if it does not exist.
+     * </p>
+     *
+     * @return report template watch directory or null if not configured
+     * @should return report template watch directory and create it if it does not exist
+     * @should return null if global property for report template watch directory is not configured
+     */
+    public File getReportTemplateWatchDirectory() {
+        
+        final String watchDirectory = getGlobalProperty(RadiologyConstants.GP_MRRT_REPORT_TEMPLATE_WATCH_DIR, false);
+        if (StringUtils.isBlank(watchDirectory)) {
+            return null;
+        }
+        
+        Path watchPath = Paths.get(watchDirectory.trim());
+        if (!watchPath.isAbsolute()) {
+            watchPath = Paths.get(OpenmrsUtil.getApplicationDataDirectory(), watchPath.toString());
+        }
+        if (!watchPath.toFile()
+                .exists()) {
+            watchPath.toFile()
+                    .mkdirs();
+        }
+        
+        return watchPath.toFile();
+    }
+    
+    /**
+     * Starts caching global properties and the metadata they resolve to until {@link #stopCaching()} is called.
+     * <p>
+     * Registers this as {@link GlobalPropertyListener} so the cache is invalidated whenever a {@code radiology.*} global
+     * property is changed through the {@link AdministrationService}, and resolves the metadata needed to place radiology
+     * orders and render the radiology order form. Metadata which is not configured yet is resolved on first use instead.
+     * </p>
+     * 
+     * @should cache global properties and resolved metadata
+     * @should invalidate cache if a radiology global property is saved
+     * @should invalidate cache again once the transaction changing a radiology global property completed
+     */
+    public void startCaching() {
+        
+        administrationService.addGlobalPropertyListener(this);
+        cache = new ConcurrentHashMap<String, Object>();
+        warmUp();
+    }
+    
+    /**
+     * Stops caching global properties and the metadata they resolve to.
+     * 
+     * @should stop caching global properties and resolved metadata
+     */
+    public void stopCaching() {
+        
+        administrationService.removeGlobalPropertyListener(this);
+        cache = null;
+    }
+    
+    /**
+     * @see GlobalPropertyListener#supportsPropertyName(String)
+     * @should return true for radiology global properties other than next accession number seed
+     */
+    @Override
+    public boolean supportsPropertyName(String propertyName) {
+        
+        // the accession number seed is advanced with every block of accession numbers and never read from here
+        return propertyName != null && propertyName.startsWith(GP_PREFIX)
+                && !RadiologyConstants.GP_NEXT_ACCESSION_NUMBER_SEED.equals(propertyName);
+    }
+    
+    /**
+     * @see GlobalPropertyListener#globalPropertyChanged(GlobalProperty)
+     */
+    @Override
+    public void globalPropertyChanged(GlobalProperty newValue) {
+        invalidateCache();
+    }
+    
+    /**
+     * @see GlobalPropertyListener#globalPropertyDeleted(String)
+     */
+    @Override
+    public void globalPropertyDeleted(String propertyName) {
+        invalidateCache();
+    }
+    
+    /**
+     * Clears the cache now and once more after the transaction changing the global property ended, since until then
+     * other transactions still read and cache the old value and a rolled back change must not stay cached.
+     */
+    private void invalidateCache() {
+        
+        clearCache();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                
+                
+                @Override
+                public void afterCompletion(int status) {
+                    clearCache();
+                }
+            });
+        }
+    }
+    
+    private void clearCache() {
+        
+        if (cache != null) {
+            cache = new ConcurrentHashMap<String, Object>();
+        }
+    }
+    
+    private void warmUp() {
+        
+        try {
+            getRadiologyCareSetting();
+            getRadiologyTestOrderType();
+            getRadiologyOrderEncounterType();
+            getRadiologyOrderingProviderEncounterRole();
+            getRadiologyConceptClassNames();
+            getRadiologyOrderReasonConceptClassNames();
+        }
+        catch (IllegalStateException | APIException e) {
+            log.warn("Radiology global properties could not be resolved on startup, resolving them on first use", e);
+        }
+    }
+    
+    /**
+     * Gets the id of the metadata whose uuid is configured in given global property.
+     * 
+     * @param globalPropertyName the name of the required global property holding the uuid
+     * @param getByUuid gets the metadata by uuid
+     * @return the id of the metadata or null if no metadata has the configured uuid
+     * @throws IllegalStateException if global property cannot be found
+     */
+    private Integer getCachedId(String globalPropertyName, Function<String, ? extends OpenmrsObject> getByUuid) {
+        return getCached(globalPropertyName + RESOLVED_ID_KEY_SUFFIX, () -> {
+            final OpenmrsObject result = getByUuid.apply(getGlobalProperty(globalPropertyName, true));
+            return result == null ? null : result.getId();
+        });
+    }
+    
+    /**
+     * Gets the value cached under given key resolving and caching it if it is not cached yet.
+     * <p>
+     * Null is not cached so that metadata or global properties which are missing are found once they are created.
+     * </p>
+     * 
+     * @param key the cache key
+     * @param resolver resolves the value if it is not cached, the exceptions it throws are passed on and nothing is cached
+     * @return the cached or resolved value which may be null
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T getCached(String key, Supplier<T> resolver) {
+        
+        final ConcurrentMap<String, Object> currentCache = cache;
+        if (currentCache == null) {
+            return resolver.get();
+        }
+        Object result = currentCache.get(key);
+        if (result == null) {
+            result = resolver.get();
+            if (result != null) {
+                currentCache.putIfAbsent(key, result);
+            }
+        }
+        return (T) result;
+    }
 }
@@ -0,0 +1,99 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.radiology.order;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openmrs.api.context.Context;
+import org.openmrs.module.radiology.RadiologyProperties;
+
+/**
+ * An {@link AccessionNumberGenerator} which reserves blocks of accession numbers from the global property
+ * {@code radiology.nextAccessionNumberSeed} and hands them out from memory.
+ * <p>
+ * Only reserving a block locks the global property row, so the number of locks taken is reduced by the configured
+ * block size (see {@link RadiologyProperties#getAccessionNumberBlockSize()}). Since the global property is advanced by
+ * the whole block before any of its numbers are handed out, accession numbers stay unique across nodes and restarts.
+ * Numbers of a block which are not handed out before a shutdown are skipped.
+ * </p>
+ */
+class BlockAllocatingAccessionNumberGenerator implements AccessionNumberGenerator {
+    
+    
+    private RadiologyProperties radiologyProperties;
+    
+    private volatile AccessionNumberBlock currentBlock;
+    
+    public void setRadiologyProperties(RadiologyProperties radiologyProperties) {
+        this.radiologyProperties = radiologyProperties;
+    }
+    
+    /**
+     * @see AccessionNumberGenerator#getNewAccessionNumber()
+     * @should always return a unique accession number when called multiple times
+     * @should reserve a new block of accession numbers only once the current block is exhausted
+     */
+    @Override
+    public String getNewAccessionNumber() {
+        
+        while (true) {
+            final AccessionNumberBlock block = currentBlock;
+            if (block != null) {
+                final long accessionNumber = block.next();
+                if (accessionNumber != AccessionNumberBlock.EXHAUSTED) {
+                    return String.valueOf(accessionNumber);
+                }
+            }
+            reserveBlock(block);
+        }
+    }
+    
+    /**
+     * Reserves a new block of accession numbers unless another thread already replaced the exhausted block.
+     *
+     * @param exhaustedBlock the block which was found to be exhausted or null if no block was reserved yet
+     */
+    private synchronized void reserveBlock(AccessionNumberBlock exhaustedBlock) {
+        
+        if (currentBlock != exhaustedBlock) {
+            return;
+        }
+        final int blockSize = radiologyProperties.getAccessionNumberBlockSize();
+        final long start = Context.getService(RadiologyOrderService.class)
+                .getNextAccessionNumberSeedSequenceBlock(blockSize);
+        currentBlock = new AccessionNumberBlock(start, start + blockSize);
+    }
+    
+    /**
+     * A reserved range {@code [start, end)} of accession numbers.
+     */
+    private static final class AccessionNumberBlock {
+        
+        
+        static final long EXHAUSTED = -1L;
+        
+        private final AtomicLong next;
+        
+        private final long end;
+        
+        AccessionNumberBlock(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+        
+        /**
+         * @return the next accession number of this block or {@link #EXHAUSTED} if all numbers were handed out
+         */
+        long next() {
+            final long result = next.getAndIncrement();
+            return result < end ? result : EXHAUSTED;
+        }
+    }
+}
@@ -9,19 +9,30 @@
  */
 package org.openmrs.module.radiology.order;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
 
 import org.apache.commons.lang3.StringUtils;
 import org.hibernate.Criteria;
+import org.hibernate.FetchMode;
 import org.hibernate.LockOptions;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
-import org.hibernate.criterion.Disjunction;
+import org.hibernate.criterion.DetachedCriteria;
 import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.criterion.Subqueries;
+import org.hibernate.sql.JoinType;
+import org.hibernate.transform.Transformers;
+import org.openmrs.ConceptName;
 import org.openmrs.GlobalProperty;
-import org.openmrs.Order.Urgency;
+import org.openmrs.Patient;
 import org.openmrs.api.APIException;
 import org.openmrs.module.radiology.RadiologyConstants;
+import org.openmrs.module.radiology.util.HibernateScrollUtils;
 
 /**
  * Hibernate specific RadiologyOrder related functions. This class should not be used directly. All
@@ -46,11 +57,21 @@ class HibernateRadiologyOrderDAO implements RadiologyOrderDAO {
     
     /**
      * @see org.openmrs.module.radiology.order.RadiologyOrderService#getNextAccessionNumberSeedSequenceValue()
+     * @should return the next accession number seed stored as global property radiology next accession number and increment
+     *         the global property value
+     */
+    @Override
+    public Long getNextAccessionNumberSeedSequenceValue() {
+        return getNextAccessionNumberSeedSequenceBlock(1);
+    }
+    
+    /**
+     * @see org.openmrs.module.radiology.order.RadiologyOrderService#getNextAccessionNumberSeedSequenceBlock(int)
      * @throws APIException if global property radiology.nextAccessionNumberSeed is missing
      * @throws APIException if global property radiology.nextAccessionNumberSeed value is empty or only contains whitespaces
      * @throws APIException if global property radiology.nextAccessionNumberSeed value cannot be parsed to Long
      * @should return the next accession number seed stored as global property radiology next accession number and increment
-     *         the global property value
+     *         the global property value by given block size
      * @should throw an api exception if global property radiology next accession number seed is missing
      * @should throw an api exception if global property radiology next accession number seed value is empty or only contains
      *         whitespaces
@@ -58,7 +79,7 @@ class HibernateRadiologyOrderDAO implements RadiologyOrderDAO {
      *         long
      */
     @Override
-    public Long getNextAccessionNumberSeedSequenceValue() {
+    public Long getNextAccessionNumberSeedSequenceBlock(int blockSize) {
         
         final GlobalProperty globalProperty = (GlobalProperty) sessionFactory.getCurrentSession()
                 .get(GlobalProperty.class, RadiologyConstants.GP_NEXT_ACCESSION_NUMBER_SEED, LockOptions.UPGRADE);
@@ -83,7 +104,7 @@ class HibernateRadiologyOrderDAO implements RadiologyOrderDAO {
                     new Object[] { RadiologyConstants.GP_NEXT_ACCESSION_NUMBER_SEED });
         }
         
-        globalProperty.setPropertyValue(String.valueOf(globalPropertyValue + 1));
+        globalProperty.setPropertyValue(String.valueOf(globalPropertyValue + blockSize));
         
         sessionFactory.getCurrentSession()
                 .save(globalProperty);
@@ -91,6 +112,21 @@ class HibernateRadiologyOrderDAO implements RadiologyOrderDAO {
         return globalPropertyValue;
     }
     
+    /**
+     * @see org.openmrs.module.radiology.order.RadiologyOrderDAO#lockPatient(Patient)
+     */
+    @Override
+    public void lockPatient(Patient patient) {
+        
+        if (patient.getPatientId() == null) {
+            return;
+        }
+        
+        final Session session = sessionFactory.getCurrentSession();
+        session.buildLockRequest(LockOptions.UPGRADE)
+                .lock(session.load(Patient.class, patient.getPatientId()));
+    }
+    
     /**
      * @see org.openmrs.module.radiology.order.RadiologyOrderService#getRadiologyOrder(Integer)
      */
@@ -108,6 +144,7 @@ class HibernateRadiologyOrderDAO implements RadiologyOrderDAO {
         
         return (RadiologyOrder) sessionFactory.getCurrentSession()
                 .createCriteria(RadiologyOrder.class)
+                .setFetchMode("study", FetchMode.JOIN)
                 .add(Restrictions.eq("uuid", uuid))
                 .uniqueResult();
     }
@@ -119,6 +156,151 @@ class HibernateRadiologyOrderDAO implements RadiologyOrderDAO {
     @Override
     public List<RadiologyOrder> getRadiologyOrders(RadiologyOrderSearchCriteria searchCriteria) {
         
+        final Criteria crit = createRadiologyOrderCriteria(searchCriteria);
+        // avoid one select per radiology order for its study
+        crit.setFetchMode("study", FetchMode.JOIN);
+        addPage(crit, searchCriteria);
+        return crit.list();
+    }
+    
+    /**
+     * @see org.openmrs.module.radiology.order.RadiologyOrderDAO#getRadiologyOrderWorklistItems(RadiologyOrderSearchCriteria,
+     *      Locale)
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<RadiologyOrderWorklistItem> getRadiologyOrderWorklistItems(RadiologyOrderSearchCriteria searchCriteria,
+            Locale locale) {
+        
+        return createRadiologyOrderWorklistCriteria(searchCriteria, locale).list();
+    }
+    
+    /**
+     * @see org.openmrs.module.radiology.order.RadiologyOrderDAO#exportRadiologyOrderWorklistItems(RadiologyOrderSearchCriteria,
+     *      Locale, Consumer)
+     */
+    @Override
+    public long exportRadiologyOrderWorklistItems(RadiologyOrderSearchCriteria searchCriteria, Locale locale,
+            Consumer<RadiologyOrderWorklistItem> consumer) {
+        
+        return HibernateScrollUtils.scroll(sessionFactory, createRadiologyOrderWorklistCriteria(searchCriteria, locale),
+            consumer);
+    }
+    
+    /**
+     * @see org.openmrs.module.radiology.order.RadiologyOrderDAO#getRadiologyOrderConceptUuids(RadiologyOrderSearchCriteria)
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<String> getRadiologyOrderConceptUuids(RadiologyOrderSearchCriteria searchCriteria) {
+        
+        final Criteria crit = createRadiologyOrderCriteria(searchCriteria);
+        crit.createAlias("concept", "orderedConcept")
+                .setProjection(Projections.distinct(Projections.property("orderedConcept.uuid")));
+        return crit.list();
+    }
+    
+    /**
+     * Creates the criteria projecting radiology orders matching given search criteria onto worklist items.
+     * <p>
+     * The concept name is the preferred name in given locale or, if the concept has none, the preferred name in the
+     * language of given locale, so that for example a user with locale {@code en_GB} sees the {@code en} names.
+     * </p>
+     * 
+     * @param searchCriteria the object containing search parameters
+     * @param locale the locale in which the concept names are returned
+     * @return the paged criteria returning worklist items
+     */
+    private Criteria createRadiologyOrderWorklistCriteria(RadiologyOrderSearchCriteria searchCriteria, Locale locale) {
+        
+        final Locale language = new Locale(locale.getLanguage());
+        final List<Locale> conceptNameLocales =
+                language.equals(locale) ? Arrays.asList(locale) : Arrays.asList(locale, language);
+        final Criteria crit = createRadiologyOrderCriteria(searchCriteria);
+        crit.createAlias("patient", "worklistPatient")
+                .createAlias("worklistPatient.names", "worklistPatientName", JoinType.LEFT_OUTER_JOIN,
+                    Restrictions.and(Restrictions.eq("worklistPatientName.preferred", true),
+                        Restrictions.eq("worklistPatientName.voided", false)))
+                .createAlias("concept", "worklistConcept")
+                .createAlias("worklistConcept.names", "worklistConceptName", JoinType.LEFT_OUTER_JOIN,
+                    Restrictions.and(Restrictions.eq("worklistConceptName.localePreferred", true),
+                        Restrictions.in("worklistConceptName.locale", conceptNameLocales),
+                        Restrictions.eq("worklistConceptName.voided", false)))
+                .createAlias("study", "worklistStudy", JoinType.LEFT_OUTER_JOIN);
+        if (!language.equals(locale)) {
+            // the name in the language is dropped if there is one in the locale so that no order is listed twice
+            final DetachedCriteria nameInLocale = DetachedCriteria.forClass(ConceptName.class, "nameInLocale")
+                    .add(Restrictions.eqProperty("nameInLocale.concept.conceptId", "worklistConcept.conceptId"))
+                    .add(Restrictions.eq("nameInLocale.localePreferred", true))
+                    .add(Restrictions.eq("nameInLocale.locale", locale))
+                    .add(Restrictions.eq("nameInLocale.voided", false))
+                    .setProjection(Projections.id());
+            crit.add(Restrictions.or(Restrictions.isNull("worklistConceptName.locale"),
+                Restrictions.eq("worklistConceptName.locale", locale), Subqueries.notExists(nameInLocale)));
+        }
+        crit.setProjection(Projections.projectionList()
+                .add(Projections.property("uuid"), "uuid")
+                .add(Projections.property("accessionNumber"), "accessionNumber")
+                .add(Projections.property("worklistPatient.uuid"), "patientUuid")
+                .add(Projections.property("worklistPatientName.givenName"), "patientGivenName")
+                .add(Projections.property("worklistPatientName.middleName"), "patientMiddleName")
+                .add(Projections.property("worklistPatientName.familyName"), "patientFamilyName")
+                .add(Projections.property("worklistConcept.uuid"), "conceptUuid")
+                .add(Projections.property("worklistConceptName.name"), "conceptName")
+                .add(Projections.property("urgency"), "urgency")
+                .add(Projections.property("effectiveStartDate"), "effectiveStartDate")
+                .add(Projections.property("worklistStudy.performedStatus"), "performedStatus"));
+        crit.setResultTransformer(Transformers.aliasToBean(RadiologyOrderWorklistItem.class));
+        addPage(crit, searchCriteria);
+        return crit;
+    }
+    
+    /**
+     * Orders given criteria by accession number and order id and restricts it to the page of given search criteria.
+     * 
+     * @param crit the criteria to be restricted
+     * @param searchCriteria the search criteria holding start after, start index and limit
+     */
+    private void addPage(Criteria crit, RadiologyOrderSearchCriteria searchCriteria) {
+        
+        if (searchCriteria.getStartAfter() != null) {
+            final RadiologyOrder startAfter = searchCriteria.getStartAfter();
+            crit.add(Restrictions.or(Restrictions.gt("accessionNumber", startAfter.getAccessionNumber()),
+                Restrictions.and(Restrictions.eq("accessionNumber", startAfter.getAccessionNumber()),
+                    Restrictions.gt("orderId", startAfter.getOrderId()))));
+        }
+        
+        crit.addOrder(Order.asc("accessionNumber"));
+        crit.addOrder(Order.asc("orderId"));
+        
+        if (searchCriteria.getStartIndex() != null) {
+            crit.setFirstResult(searchCriteria.getStartIndex());
+        }
+        if (searchCriteria.getLimit() != null) {
+            crit.setMaxResults(searchCriteria.getLimit());
+        }
+    }
+    
+    /**
+     * @see org.openmrs.module.radiology.order.RadiologyOrderService#getCountOfRadiologyOrders(RadiologyOrderSearchCriteria)
+     */
+    @Override
+    public Long getCountOfRadiologyOrders(RadiologyOrderSearchCriteria searchCriteria) {
+        
+        final Criteria crit = createRadiologyOrderCriteria(searchCriteria);
+        crit.setProjection(Projections.rowCount());
+        return ((Number) crit.uniqueResult()).longValue();
+    }
+    
+    /**
+     * Creates a criteria restricted to radiology orders matching the filters of given search criteria, ignoring its
+     * paging parameters.
+     * 
+     * @param searchCriteria the search criteria
+     * @return the criteria matching given search criteria filters
+     */
+    private Criteria createRadiologyOrderCriteria(RadiologyOrderSearchCriteria searchCriteria) {
+        
         final Criteria crit = sessionFactory.getCurrentSession()
                 .createCriteria(RadiologyOrder.class);
         
@@ -134,25 +316,11 @@ class HibernateRadiologyOrderDAO implements RadiologyOrderDAO {
             crit.add(Restrictions.eq("urgency", searchCriteria.getUrgency()));
         }
         if (searchCriteria.getFromEffectiveStartDate() != null) {
-            final Disjunction disjunction = Restrictions.disjunction();
-            disjunction.add(Restrictions.conjunction()
-                    .add(Restrictions.eq("urgency", Urgency.ON_SCHEDULED_DATE))
-                    .add(Restrictions.ge("scheduledDate", searchCriteria.getFromEffectiveStartDate())));
-            disjunction.add(Restrictions.conjunction()
-                    .add(Restrictions.not(Restrictions.eq("urgency", Urgency.ON_SCHEDULED_DATE)))
-                    .add(Restrictions.ge("dateActivated", searchCriteria.getFromEffectiveStartDate())));
-            crit.add(disjunction);
+            crit.add(Restrictions.ge("effectiveStartDate", searchCriteria.getFromEffectiveStartDate()));
         }
         
         if (searchCriteria.getToEffectiveStartDate() != null) {
-            final Disjunction disjunction = Restrictions.disjunction();
-            disjunction.add(Restrictions.conjunction()
-                    .add(Restrictions.eq("urgency", Urgency.ON_SCHEDULED_DATE))
-                    .add(Restrictions.le("scheduledDate", searchCriteria.getToEffectiveStartDate())));
-            disjunction.add(Restrictions.conjunction()
-                    .add(Restrictions.not(Restrictions.eq("urgency", Urgency.ON_SCHEDULED_DATE)))
-                    .add(Restrictions.le("dateActivated", searchCriteria.getToEffectiveStartDate())));
-            crit.add(disjunction);
+            crit.add(Restrictions.le("effectiveStartDate", searchCriteria.getToEffectiveStartDate()));
         }
         
         if (StringUtils.isNotBlank(searchCriteria.getAccessionNumber())) {
@@ -163,7 +331,6 @@ class HibernateRadiologyOrderDAO implements RadiologyOrderDAO {
             crit.add(Restrictions.eq("orderer", searchCriteria.getOrderer()));
         }
         
-        crit.addOrder(Order.asc("accessionNumber"));
-        return crit.list();
+        return crit;
     }
 }
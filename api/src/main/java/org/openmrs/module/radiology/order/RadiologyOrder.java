@@ -9,6 +9,8 @@
  */
 package org.openmrs.module.radiology.order;
 
+import java.util.Date;
+
 import org.openmrs.TestOrder;
 import org.openmrs.module.radiology.study.RadiologyStudy;
 
@@ -40,6 +42,16 @@ public class RadiologyOrder extends TestOrder {
         this.study = radiologyStudy;
     }
     
+    /**
+     * Only used by Hibernate. The effective start date is derived from urgency, scheduled date and date activated (see
+     * {@link #getEffectiveStartDate()}) and is only persisted so date range searches can use an index.
+     * 
+     * @param effectiveStartDate the persisted effective start date which is ignored
+     */
+    @SuppressWarnings("unused")
+    private void setEffectiveStartDate(Date effectiveStartDate) {
+    }
+    
     /**
      * Returns true if study is in progress and false otherwise.
      * 
@@ -10,6 +10,10 @@
 package org.openmrs.module.radiology.order;
 
 import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+import org.openmrs.Patient;
 
 /**
  * {@code RadiologyOrder} related database methods.
@@ -25,6 +29,18 @@ interface RadiologyOrderDAO {
      */
     public Long getNextAccessionNumberSeedSequenceValue();
     
+    /**
+     * @see org.openmrs.module.radiology.order.RadiologyOrderService#getNextAccessionNumberSeedSequenceBlock(int)
+     */
+    public Long getNextAccessionNumberSeedSequenceBlock(int blockSize);
+    
+    /**
+     * Locks the database row of given patient until the current transaction ends.
+     * 
+     * @param patient the patient to lock
+     */
+    public void lockPatient(Patient patient);
+    
     /**
      * @see org.openmrs.module.radiology.order.RadiologyOrderService#getRadiologyOrder(Integer)
      */
@@ -39,4 +55,42 @@ interface RadiologyOrderDAO {
      * @see org.openmrs.module.radiology.order.RadiologyOrderService#getRadiologyOrders(RadiologyOrderSearchCriteria)
      */
     List<RadiologyOrder> getRadiologyOrders(RadiologyOrderSearchCriteria searchCriteria);
+    
+    /**
+     * @see org.openmrs.module.radiology.order.RadiologyOrderService#getCountOfRadiologyOrders(RadiologyOrderSearchCriteria)
+     */
+    Long getCountOfRadiologyOrders(RadiologyOrderSearchCriteria searchCriteria);
+    
+    /**
+     * Get the worklist items of all radiology orders matching given criteria.
+     * 
+     * @param searchCriteria the object containing search parameters
+     * @param locale the locale in which the concept names are returned
+     * @return the worklist items of the radiology orders matching given criteria
+     * @see org.openmrs.module.radiology.order.RadiologyOrderService#getRadiologyOrderWorklistItems(RadiologyOrderSearchCriteria)
+     */
+    List<RadiologyOrderWorklistItem> getRadiologyOrderWorklistItems(RadiologyOrderSearchCriteria searchCriteria,
+            Locale locale);
+    
+    /**
+     * Passes the worklist items of all radiology orders matching given criteria to given consumer as they are read.
+     * 
+     * @param searchCriteria the object containing search parameters
+     * @param locale the locale in which the concept names are returned
+     * @param consumer the consumer of each worklist item
+     * @return the number of exported worklist items
+     * @see org.openmrs.module.radiology.order.RadiologyOrderService#exportRadiologyOrderWorklistItems(RadiologyOrderSearchCriteria,
+     *      Consumer)
+     */
+    long exportRadiologyOrderWorklistItems(RadiologyOrderSearchCriteria searchCriteria, Locale locale,
+            Consumer<RadiologyOrderWorklistItem> consumer);
+    
+    /**
+     * Get the uuids of the concepts ordered by the radiology orders matching the filters of given criteria, its paging
+     * parameters are ignored.
+     * 
+     * @param searchCriteria the object containing search parameters
+     * @return the distinct uuids of the concepts of the radiology orders matching given criteria
+     */
+    List<String> getRadiologyOrderConceptUuids(RadiologyOrderSearchCriteria searchCriteria);
 }
@@ -0,0 +1,69 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.radiology.order;
+
+/**
+ * Outcome of placing a single {@link RadiologyOrder} as part of
+ * {@link RadiologyOrderService#placeRadiologyOrders(java.util.List)}.
+ */
+public class RadiologyOrderPlacementResult {
+    
+    
+    private final RadiologyOrder radiologyOrder;
+    
+    private final Exception error;
+    
+    private RadiologyOrderPlacementResult(RadiologyOrder radiologyOrder, Exception error) {
+        this.radiologyOrder = radiologyOrder;
+        this.error = error;
+    }
+    
+    /**
+     * Creates the result of a radiology order which was placed.
+     *
+     * @param radiologyOrder the placed radiology order
+     * @return the result of a placed radiology order
+     */
+    public static RadiologyOrderPlacementResult placed(RadiologyOrder radiologyOrder) {
+        return new RadiologyOrderPlacementResult(radiologyOrder, null);
+    }
+    
+    /**
+     * Creates the result of a radiology order which could not be placed.
+     *
+     * @param radiologyOrder the radiology order which could not be placed
+     * @param error the reason why the radiology order could not be placed
+     * @return the result of a radiology order which could not be placed
+     */
+    public static RadiologyOrderPlacementResult failed(RadiologyOrder radiologyOrder, Exception error) {
+        return new RadiologyOrderPlacementResult(radiologyOrder, error);
+    }
+    
+    /**
+     * @return the radiology order, placed if {@link #isPlaced()} is true
+     */
+    public RadiologyOrder getRadiologyOrder() {
+        return radiologyOrder;
+    }
+    
+    /**
+     * @return the reason why the radiology order could not be placed or null if it was placed
+     */
+    public Exception getError() {
+        return error;
+    }
+    
+    /**
+     * @return true if the radiology order was placed and false otherwise
+     */
+    public boolean isPlaced() {
+        return error == null;
+    }
+}
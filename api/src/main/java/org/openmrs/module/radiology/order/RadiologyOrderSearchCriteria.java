@@ -24,6 +24,8 @@ import org.openmrs.Provider;
  * ({@link Builder#withPatient(Patient)}, {@link Builder#includeVoided()}, {@link Builder#withUrgency(Urgency)}, 
  * {@link Builder#fromEffectiveStartDate(Date)}, {@link Builder#toEffectiveStartDate(Date)},
  * {@link Builder#withAccessionNumber(String)} and {@link Builder#withOrderer(Provider)}).</li>
+ * <li>Optionally restrict the page of results through {@link Builder#startAfter(RadiologyOrder)},
+ * {@link Builder#withStartIndex(int)} and {@link Builder#withLimit(int)}.</li>
  * <li>Build the {@link RadiolologyOrderSearchCriteria} instance with the {@link Builder#build()} method.</li>
  * <li>Get the search parameters through the getter methods (such as {@link #getPatient()} or {@link #getUrgency()}).</li>
  * </ol>
@@ -45,6 +47,12 @@ public class RadiologyOrderSearchCriteria {
     
     private final Provider orderer;
     
+    private final RadiologyOrder startAfter;
+    
+    private final Integer startIndex;
+    
+    private final Integer limit;
+    
     /**
      * @return the order patient
      */
@@ -101,6 +109,30 @@ public class RadiologyOrderSearchCriteria {
         return orderer;
     }
     
+    /**
+     * @return the radiology order after which matching radiology orders are returned or null to start with the first
+     */
+    public RadiologyOrder getStartAfter() {
+        
+        return startAfter;
+    }
+    
+    /**
+     * @return the index of the first matching radiology order to return or null to start with the first
+     */
+    public Integer getStartIndex() {
+        
+        return startIndex;
+    }
+    
+    /**
+     * @return the maximum number of radiology orders to return or null to return all matching
+     */
+    public Integer getLimit() {
+        
+        return limit;
+    }
+    
     public static class Builder {
         
         
@@ -118,6 +150,12 @@ public class RadiologyOrderSearchCriteria {
         
         private Provider orderer;
         
+        private RadiologyOrder startAfter;
+        
+        private Integer startIndex;
+        
+        private Integer limit;
+        
         /**
          * @param patient the order patient
          * @return this builder instance
@@ -189,6 +227,49 @@ public class RadiologyOrderSearchCriteria {
             return this;
         }
         
+        /**
+         * Only matches radiology orders which come after given radiology order in the result order (by accession number
+         * and order id), allowing to page through results without counting the skipped rows.
+         * 
+         * @param startAfter the last radiology order of the previous page
+         * @return this builder instance
+         */
+        public Builder startAfter(RadiologyOrder startAfter) {
+            
+            this.startAfter = startAfter;
+            return this;
+        }
+        
+        /**
+         * @param startIndex the index of the first matching radiology order to return
+         * @return this builder instance
+         * @throws IllegalArgumentException if startIndex is negative
+         * @should throw illegal argument exception if start index is negative
+         */
+        public Builder withStartIndex(int startIndex) {
+            
+            if (startIndex < 0) {
+                throw new IllegalArgumentException("startIndex cannot be negative");
+            }
+            this.startIndex = startIndex;
+            return this;
+        }
+        
+        /**
+         * @param limit the maximum number of radiology orders to return
+         * @return this builder instance
+         * @throws IllegalArgumentException if limit is smaller than one
+         * @should throw illegal argument exception if limit is smaller than one
+         */
+        public Builder withLimit(int limit) {
+            
+            if (limit < 1) {
+                throw new IllegalArgumentException("limit must be greater than zero");
+            }
+            this.limit = limit;
+            return this;
+        }
+        
         /**
          * Create an {@link RadiologyOrderSearchCriteria} with the properties of this builder instance.
          * 
@@ -200,6 +281,8 @@ public class RadiologyOrderSearchCriteria {
          * @should create a new radiology order search criteria instance with to effective start date if to effective start date is set
          * @should create a new radiology order search criteria instance with accession number if accession number is set
          * @should create a new radiology order search criteria instance with orderer if orderer is set
+         * @should create a new radiology order search criteria instance with start after if start after is set
+         * @should create a new radiology order search criteria instance with start index and limit if set
          */
         public RadiologyOrderSearchCriteria build() {
             
@@ -216,5 +299,8 @@ public class RadiologyOrderSearchCriteria {
         this.toEffectiveStartDate = builder.toEffectiveStartDate;
         this.accessionNumber = builder.accessionNumber;
         this.orderer = builder.orderer;
+        this.startAfter = builder.startAfter;
+        this.startIndex = builder.startIndex;
+        this.limit = builder.limit;
     }
 }
@@ -10,6 +10,7 @@
 package org.openmrs.module.radiology.order;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.openmrs.Order;
 import org.openmrs.Provider;
@@ -35,6 +36,22 @@ public interface RadiologyOrderService extends OpenmrsService {
      */
     public Long getNextAccessionNumberSeedSequenceValue();
     
+    /**
+     * Reserves a block of accession number seeds and returns the first seed of the block.
+     * <p>
+     * The seeds {@code [result, result + blockSize)} belong exclusively to the caller. The block is reserved in its own
+     * transaction so that the lock on the seed is released as soon as the block is reserved.
+     * </p>
+     * 
+     * @param blockSize the number of seeds to reserve
+     * @return the first accession number seed of the reserved block
+     * @throws IllegalArgumentException if blockSize is smaller than 1
+     * @throws APIException
+     * @should return the next accession number seed and reserve given number of seeds
+     * @should throw illegal argument exception if given block size is smaller than one
+     */
+    public Long getNextAccessionNumberSeedSequenceBlock(int blockSize);
+    
     /**
      * Saves a new {@code RadiologyOrder} and its {@code RadiologyStudy} to the
      * database.
@@ -50,10 +67,34 @@ public interface RadiologyOrderService extends OpenmrsService {
      * @should throw illegal argument exception given null
      * @should throw illegal argument exception if given radiology order has no study
      * @should throw api exception on saving an existing radiology order
+     * @should place radiology orders of different patients concurrently
+     * @should persist the effective start date of given radiology order
      */
     @Authorized(RadiologyPrivileges.ADD_RADIOLOGY_ORDERS)
     public RadiologyOrder placeRadiologyOrder(RadiologyOrder radiologyOrder);
     
+    /**
+     * Saves new {@code RadiologyOrder's} and their {@code RadiologyStudy's} to the database.
+     * <p>
+     * Radiology orders are placed in chunks, each chunk in a single transaction with accession numbers reserved in one go.
+     * A radiology order which cannot be placed does not prevent the others from being placed; if a chunk fails its radiology
+     * orders are placed one by one.
+     * </p>
+     *
+     * @param radiologyOrders the radiology orders to be created
+     * @return the placement result for each given radiology order in the order of given radiology orders
+     * @throws IllegalArgumentException if radiologyOrders is null
+     * @should place all given radiology orders
+     * @should create new radiology orders and studies from given radiology orders
+     * @should assign consecutive accession numbers to given radiology orders
+     * @should report radiology orders which cannot be placed and place the others
+     * @should report existing radiology orders as not placed
+     * @should return empty list given empty list
+     * @should throw illegal argument exception given null
+     */
+    @Authorized(RadiologyPrivileges.ADD_RADIOLOGY_ORDERS)
+    public List<RadiologyOrderPlacementResult> placeRadiologyOrders(List<RadiologyOrder> radiologyOrders);
+    
     /**
      * Discontinues an existing {@code RadiologyOrder}.
      *
@@ -110,10 +151,15 @@ public interface RadiologyOrderService extends OpenmrsService {
     /**
      * Get all {@code RadiologyOrder's} matching a variety of (nullable) criteria.
      * Each extra value for a parameter that is provided acts as an "and" and will reduce the number of results returned
+     * <p>
+     * Radiology orders are returned ordered by accession number and order id. Start after, start index and limit of the
+     * criteria are applied by the database so only the requested page of radiology orders is loaded.
+     * </p>
      *
      * @param radiologyOrderSearchCriteria the object containing search parameters
      * @return the radiology orders matching given criteria
      * @throws IllegalArgumentException if given null
+     * @throws IllegalArgumentException if given start after radiology order has no order id or accession number
      * @should return all radiology orders for given patient if patient is specified
      * @should return all radiology orders (including voided) matching the search query if include voided is set
      * @should return all radiology orders for given urgency
@@ -128,8 +174,70 @@ public interface RadiologyOrderService extends OpenmrsService {
      * @should return all radiology orders for given accession number if accession number is specified
      * @should return all radiology orders for given orderer
      * @should return all radiology orders for given urgency and orderer
+     * @should return radiology orders ordered by accession number and order id
+     * @should return the page of radiology orders given start index and limit
+     * @should return radiology orders after given start after radiology order
+     * @should load radiology orders and their studies with a number of statements independent of the number of orders
      * @should throw illegal argument exception if given null
+     * @should throw illegal argument exception if given start after radiology order is not placed
      */
     @Authorized(RadiologyPrivileges.GET_RADIOLOGY_ORDERS)
     public List<RadiologyOrder> getRadiologyOrders(RadiologyOrderSearchCriteria radiologyOrderSearchCriteria);
+    
+    /**
+     * Get the worklist items of all {@code RadiologyOrder's} matching a variety of (nullable) criteria.
+     * <p>
+     * Worklist items are loaded with a single query selecting only the columns a worklist displays, they are ordered and
+     * paged like {@link #getRadiologyOrders(RadiologyOrderSearchCriteria)}.
+     * </p>
+     *
+     * @param radiologyOrderSearchCriteria the object containing search parameters
+     * @return the worklist items of the radiology orders matching given criteria
+     * @throws IllegalArgumentException if given null
+     * @should return worklist items of radiology orders matching given criteria
+     * @should return the page of worklist items given start index and limit
+     * @should throw illegal argument exception if given null
+     */
+    @Authorized(RadiologyPrivileges.GET_RADIOLOGY_ORDERS)
+    public List<RadiologyOrderWorklistItem>
+            getRadiologyOrderWorklistItems(RadiologyOrderSearchCriteria radiologyOrderSearchCriteria);
+    
+    /**
+     * Export the worklist items of all {@code RadiologyOrder's} matching a variety of (nullable) criteria.
+     * <p>
+     * Worklist items are streamed from the database and passed to given consumer as they are read instead of being
+     * collected into a list, so that the memory used does not depend on the number of exported radiology orders. They
+     * are ordered and restricted to start index and limit like
+     * {@link #getRadiologyOrderWorklistItems(RadiologyOrderSearchCriteria)}.
+     * </p>
+     *
+     * @param radiologyOrderSearchCriteria the object containing search parameters
+     * @param consumer the consumer of each worklist item
+     * @return the number of exported worklist items
+     * @throws IllegalArgumentException if given radiologyOrderSearchCriteria is null
+     * @throws IllegalArgumentException if given consumer is null
+     * @should pass the worklist items of radiology orders matching given criteria to given consumer
+     * @should pass worklist items whose concept has no name in the locale of the user without querying while streaming
+     * @should throw illegal argument exception if given radiology order search criteria is null
+     * @should throw illegal argument exception if given consumer is null
+     */
+    @Authorized(RadiologyPrivileges.GET_RADIOLOGY_ORDERS)
+    public long exportRadiologyOrderWorklistItems(RadiologyOrderSearchCriteria radiologyOrderSearchCriteria,
+            Consumer<RadiologyOrderWorklistItem> consumer);
+    
+    /**
+     * Get the number of {@code RadiologyOrder's} matching a variety of (nullable) criteria.
+     * <p>
+     * Counts all radiology orders matching the filters of given criteria, its paging parameters (start after, start index
+     * and limit) are ignored.
+     * </p>
+     *
+     * @param radiologyOrderSearchCriteria the object containing search parameters
+     * @return the number of radiology orders matching given criteria
+     * @throws IllegalArgumentException if given null
+     * @should return the number of radiology orders matching given criteria ignoring paging parameters
+     * @should throw illegal argument exception if given null
+     */
+    @Authorized(RadiologyPrivileges.GET_RADIOLOGY_ORDERS)
+    public Long getCountOfRadiologyOrders(RadiologyOrderSearchCriteria radiologyOrderSearchCriteria);
 }
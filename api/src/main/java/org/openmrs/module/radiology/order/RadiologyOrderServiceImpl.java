@@ -9,9 +9,17 @@
  */
 package org.openmrs.module.radiology.order;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 
+import org.openmrs.Concept;
 import org.openmrs.Encounter;
 import org.openmrs.Order;
 import org.openmrs.Patient;
@@ -24,13 +32,25 @@ import org.openmrs.api.context.Context;
 import org.openmrs.api.impl.BaseOpenmrsService;
 import org.openmrs.module.radiology.RadiologyProperties;
 import org.openmrs.module.radiology.study.RadiologyStudyService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Transactional(readOnly = true)
 class RadiologyOrderServiceImpl extends BaseOpenmrsService implements RadiologyOrderService, AccessionNumberGenerator {
     
     
+    private static final Logger log = LoggerFactory.getLogger(RadiologyOrderServiceImpl.class);
+    
+    /**
+     * Number of radiology orders placed in a single transaction by {@link #placeRadiologyOrders(List)}.
+     */
+    private static final int PLACEMENT_CHUNK_SIZE = 50;
+    
     private RadiologyOrderDAO radiologyOrderDAO;
     
     private RadiologyStudyService radiologyStudyService;
@@ -41,6 +61,10 @@ class RadiologyOrderServiceImpl extends BaseOpenmrsService implements RadiologyO
     
     private RadiologyProperties radiologyProperties;
     
+    private AccessionNumberGenerator accessionNumberGenerator;
+    
+    private TransactionTemplate placementTransaction;
+    
     public void setRadiologyOrderDAO(RadiologyOrderDAO radiologyOrderDAO) {
         this.radiologyOrderDAO = radiologyOrderDAO;
     }
@@ -61,12 +85,136 @@ class RadiologyOrderServiceImpl extends BaseOpenmrsService implements RadiologyO
         this.radiologyProperties = radiologyProperties;
     }
     
+    public void setAccessionNumberGenerator(AccessionNumberGenerator accessionNumberGenerator) {
+        this.accessionNumberGenerator = accessionNumberGenerator;
+    }
+    
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        placementTransaction = new TransactionTemplate(transactionManager);
+        placementTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+    
     /**
      * @see RadiologyOrderService#placeRadiologyOrder(RadiologyOrder)
      */
     @Override
     @Transactional
-    public synchronized RadiologyOrder placeRadiologyOrder(RadiologyOrder radiologyOrder) {
+    public RadiologyOrder placeRadiologyOrder(RadiologyOrder radiologyOrder) {
+        
+        assertIsNewRadiologyOrder(radiologyOrder);
+        
+        // orders of the same patient are placed one after another so the check for duplicate active orders in
+        // OrderService.saveOrder sees orders placed concurrently on any node, orders of different patients run in parallel
+        if (radiologyOrder.getPatient() != null) {
+            radiologyOrderDAO.lockPatient(radiologyOrder.getPatient());
+        }
+        
+        return saveRadiologyOrder(radiologyOrder, getNewAccessionNumber(), newRadiologyOrderContext());
+    }
+    
+    /**
+     * @see RadiologyOrderService#placeRadiologyOrders(List)
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<RadiologyOrderPlacementResult> placeRadiologyOrders(List<RadiologyOrder> radiologyOrders) {
+        
+        if (radiologyOrders == null) {
+            throw new IllegalArgumentException("radiologyOrders cannot be null");
+        }
+        
+        final RadiologyOrderPlacementResult[] result = new RadiologyOrderPlacementResult[radiologyOrders.size()];
+        final List<Integer> newRadiologyOrderIndexes = new ArrayList<Integer>(radiologyOrders.size());
+        for (int i = 0; i < radiologyOrders.size(); i++) {
+            try {
+                assertIsNewRadiologyOrder(radiologyOrders.get(i));
+                newRadiologyOrderIndexes.add(i);
+            }
+            catch (IllegalArgumentException | APIException e) {
+                result[i] = RadiologyOrderPlacementResult.failed(radiologyOrders.get(i), e);
+            }
+        }
+        
+        for (int chunkStart = 0; chunkStart < newRadiologyOrderIndexes.size(); chunkStart += PLACEMENT_CHUNK_SIZE) {
+            final List<Integer> chunkIndexes = newRadiologyOrderIndexes.subList(chunkStart,
+                Math.min(chunkStart + PLACEMENT_CHUNK_SIZE, newRadiologyOrderIndexes.size()));
+            final List<RadiologyOrder> chunk = new ArrayList<RadiologyOrder>(chunkIndexes.size());
+            for (Integer index : chunkIndexes) {
+                chunk.add(radiologyOrders.get(index));
+            }
+            
+            try {
+                // each chunk and each fallback runs in its own transaction
+                final List<RadiologyOrder> placed =
+                        placementTransaction.execute(status -> placeRadiologyOrdersAtomically(chunk));
+                for (int i = 0; i < chunkIndexes.size(); i++) {
+                    result[chunkIndexes.get(i)] = RadiologyOrderPlacementResult.placed(placed.get(i));
+                }
+            }
+            catch (Exception chunkException) {
+                log.debug("Failed to place chunk of radiology orders, placing them one by one", chunkException);
+                for (Integer index : chunkIndexes) {
+                    final RadiologyOrder radiologyOrder = radiologyOrders.get(index);
+                    resetUnplacedRadiologyOrder(radiologyOrder);
+                    try {
+                        final RadiologyOrder placed =
+                                placementTransaction.execute(status -> placeRadiologyOrder(radiologyOrder));
+                        result[index] = RadiologyOrderPlacementResult.placed(placed);
+                    }
+                    catch (Exception e) {
+                        resetUnplacedRadiologyOrder(radiologyOrder);
+                        result[index] = RadiologyOrderPlacementResult.failed(radiologyOrder, e);
+                    }
+                }
+            }
+        }
+        return Arrays.asList(result);
+    }
+    
+    /**
+     * Saves given new radiology orders so that either all or none of them are placed, must run in a transaction.
+     * 
+     * @param radiologyOrders the radiology orders to be placed
+     * @return the placed radiology orders
+     * @throws IllegalArgumentException if one of radiologyOrders is null or has no study
+     * @throws APIException if one of radiologyOrders is an existing radiology order
+     */
+    private List<RadiologyOrder> placeRadiologyOrdersAtomically(List<RadiologyOrder> radiologyOrders) {
+        
+        final List<RadiologyOrder> result = new ArrayList<RadiologyOrder>(radiologyOrders.size());
+        final SortedMap<Integer, Patient> patients = new TreeMap<Integer, Patient>();
+        for (RadiologyOrder radiologyOrder : radiologyOrders) {
+            assertIsNewRadiologyOrder(radiologyOrder);
+            if (radiologyOrder.getPatient() != null && radiologyOrder.getPatient()
+                    .getPatientId() != null) {
+                patients.put(radiologyOrder.getPatient()
+                        .getPatientId(),
+                    radiologyOrder.getPatient());
+            }
+        }
+        // lock patients in ascending order so concurrent batches with overlapping patients cannot deadlock
+        for (Patient patient : patients.values()) {
+            radiologyOrderDAO.lockPatient(patient);
+        }
+        
+        final long firstAccessionNumber = Context.getService(RadiologyOrderService.class)
+                .getNextAccessionNumberSeedSequenceBlock(radiologyOrders.size());
+        final OrderContext orderContext = newRadiologyOrderContext();
+        for (int i = 0; i < radiologyOrders.size(); i++) {
+            result.add(saveRadiologyOrder(radiologyOrders.get(i), String.valueOf(firstAccessionNumber + i), orderContext));
+        }
+        return result;
+    }
+    
+    /**
+     * Asserts that given radiology order can be placed.
+     * 
+     * @param radiologyOrder the radiology order to be placed
+     * @throws IllegalArgumentException if radiologyOrder is null
+     * @throws IllegalArgumentException if radiologyOrder.study is null
+     * @throws APIException if radiologyOrder is an existing radiology order
+     */
+    private void assertIsNewRadiologyOrder(RadiologyOrder radiologyOrder) {
         
         if (radiologyOrder == null) {
             throw new IllegalArgumentException("radiologyOrder cannot be null");
@@ -79,22 +227,57 @@ class RadiologyOrderServiceImpl extends BaseOpenmrsService implements RadiologyO
         if (radiologyOrder.getStudy() == null) {
             throw new IllegalArgumentException("radiologyOrder.study cannot be null");
         }
+    }
+    
+    /**
+     * Creates the {@code OrderContext} used to save radiology orders.
+     * 
+     * @return the order context for radiology orders
+     */
+    private OrderContext newRadiologyOrderContext() {
         
-        radiologyOrder.setAccessionNumber(getNewAccessionNumber());
+        final OrderContext orderContext = new OrderContext();
+        orderContext.setCareSetting(radiologyProperties.getRadiologyCareSetting());
+        orderContext.setOrderType(radiologyProperties.getRadiologyTestOrderType());
+        return orderContext;
+    }
+    
+    /**
+     * Saves given radiology order, its encounter and its study.
+     * 
+     * @param radiologyOrder the radiology order to be saved
+     * @param accessionNumber the accession number of the radiology order
+     * @param orderContext the order context to save the radiology order with
+     * @return the saved radiology order
+     */
+    private RadiologyOrder saveRadiologyOrder(RadiologyOrder radiologyOrder, String accessionNumber,
+            OrderContext orderContext) {
+        
+        radiologyOrder.setAccessionNumber(accessionNumber);
         
         final Encounter encounter =
                 saveRadiologyOrderEncounter(radiologyOrder.getPatient(), radiologyOrder.getOrderer(), new Date());
         encounter.addOrder(radiologyOrder);
         
-        final OrderContext orderContext = new OrderContext();
-        orderContext.setCareSetting(radiologyProperties.getRadiologyCareSetting());
-        orderContext.setOrderType(radiologyProperties.getRadiologyTestOrderType());
-        
         final RadiologyOrder result = (RadiologyOrder) orderService.saveOrder(radiologyOrder, orderContext);
         this.radiologyStudyService.saveRadiologyStudy(result.getStudy());
         return result;
     }
     
+    /**
+     * Resets the state a rolled back placement left on given radiology order so it can be placed again.
+     * 
+     * @param radiologyOrder the radiology order which was not placed
+     */
+    private void resetUnplacedRadiologyOrder(RadiologyOrder radiologyOrder) {
+        
+        radiologyOrder.setOrderId(null);
+        radiologyOrder.setEncounter(null);
+        radiologyOrder.setAccessionNumber(null);
+        radiologyOrder.getStudy()
+                .setStudyId(null);
+    }
+    
     /**
      * Save radiology order encounter for given parameters.
      * 
@@ -178,9 +361,7 @@ class RadiologyOrderServiceImpl extends BaseOpenmrsService implements RadiologyO
      */
     @Override
     public String getNewAccessionNumber() {
-        return Context.getService(RadiologyOrderService.class)
-                .getNextAccessionNumberSeedSequenceValue()
-                .toString();
+        return accessionNumberGenerator.getNewAccessionNumber();
     }
     
     /**
@@ -188,11 +369,24 @@ class RadiologyOrderServiceImpl extends BaseOpenmrsService implements RadiologyO
      */
     @Override
     @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public synchronized Long getNextAccessionNumberSeedSequenceValue() {
+    public Long getNextAccessionNumberSeedSequenceValue() {
         
         return radiologyOrderDAO.getNextAccessionNumberSeedSequenceValue();
     }
     
+    /**
+     * @see RadiologyOrderService#getNextAccessionNumberSeedSequenceBlock(int)
+     */
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public Long getNextAccessionNumberSeedSequenceBlock(int blockSize) {
+        
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("blockSize must be greater than zero");
+        }
+        return radiologyOrderDAO.getNextAccessionNumberSeedSequenceBlock(blockSize);
+    }
+    
     /**
      * @see RadiologyOrderService#getRadiologyOrders(RadiologyOrderSearchCriteria)
      */
@@ -202,6 +396,108 @@ class RadiologyOrderServiceImpl extends BaseOpenmrsService implements RadiologyO
         if (radiologyOrderSearchCriteria == null) {
             throw new IllegalArgumentException("radiologyOrderSearchCriteria cannot be null");
         }
+        final RadiologyOrder startAfter = radiologyOrderSearchCriteria.getStartAfter();
+        if (startAfter != null && (startAfter.getOrderId() == null || startAfter.getAccessionNumber() == null)) {
+            throw new IllegalArgumentException("radiologyOrderSearchCriteria.startAfter must be a placed radiology order");
+        }
         return radiologyOrderDAO.getRadiologyOrders(radiologyOrderSearchCriteria);
     }
+    
+    /**
+     * @see RadiologyOrderService#getRadiologyOrderWorklistItems(RadiologyOrderSearchCriteria)
+     */
+    @Override
+    public List<RadiologyOrderWorklistItem>
+            getRadiologyOrderWorklistItems(RadiologyOrderSearchCriteria radiologyOrderSearchCriteria) {
+        
+        if (radiologyOrderSearchCriteria == null) {
+            throw new IllegalArgumentException("radiologyOrderSearchCriteria cannot be null");
+        }
+        final List<RadiologyOrderWorklistItem> result =
+                radiologyOrderDAO.getRadiologyOrderWorklistItems(radiologyOrderSearchCriteria, Context.getLocale());
+        final Map<String, String> conceptNames = new HashMap<String, String>();
+        for (RadiologyOrderWorklistItem worklistItem : result) {
+            setFallbackConceptName(worklistItem, conceptNames);
+        }
+        return result;
+    }
+    
+    /**
+     * @see RadiologyOrderService#exportRadiologyOrderWorklistItems(RadiologyOrderSearchCriteria, Consumer)
+     */
+    @Override
+    public long exportRadiologyOrderWorklistItems(RadiologyOrderSearchCriteria radiologyOrderSearchCriteria,
+            Consumer<RadiologyOrderWorklistItem> consumer) {
+        
+        if (radiologyOrderSearchCriteria == null) {
+            throw new IllegalArgumentException("radiologyOrderSearchCriteria cannot be null");
+        }
+        if (consumer == null) {
+            throw new IllegalArgumentException("consumer cannot be null");
+        }
+        // the scroll keeps its result set open, which on MySQL is streamed and blocks any other statement on the
+        // connection, so the fallback names of all ordered concepts are looked up before instead of while streaming
+        final Map<String, String> conceptNames = new HashMap<String, String>();
+        for (String conceptUuid : radiologyOrderDAO.getRadiologyOrderConceptUuids(radiologyOrderSearchCriteria)) {
+            conceptNames.put(conceptUuid, getFallbackConceptName(conceptUuid));
+        }
+        return radiologyOrderDAO.exportRadiologyOrderWorklistItems(radiologyOrderSearchCriteria, Context.getLocale(),
+            worklistItem -> {
+                if (worklistItem.getConceptName() == null) {
+                    worklistItem.setConceptName(conceptNames.get(worklistItem.getConceptUuid()));
+                }
+                consumer.accept(worklistItem);
+            });
+    }
+    
+    /**
+     * Sets the concept name of given worklist item if its concept has no preferred name in the locale of the user or
+     * its language.
+     * <p>
+     * Concepts without a preferred name in the users locale or its language fall back to the concept name lookup of
+     * core. Since few concepts are ordered the fallback names are kept in given map so each concept is only looked up
+     * once.
+     * </p>
+     * 
+     * @param worklistItem the worklist item
+     * @param conceptNames the fallback concept names by concept uuid looked up so far
+     */
+    private void setFallbackConceptName(RadiologyOrderWorklistItem worklistItem, Map<String, String> conceptNames) {
+        
+        if (worklistItem.getConceptName() != null) {
+            return;
+        }
+        if (!conceptNames.containsKey(worklistItem.getConceptUuid())) {
+            conceptNames.put(worklistItem.getConceptUuid(), getFallbackConceptName(worklistItem.getConceptUuid()));
+        }
+        worklistItem.setConceptName(conceptNames.get(worklistItem.getConceptUuid()));
+    }
+    
+    /**
+     * Get the name of the concept with given uuid as looked up by core, which falls back to other locales if the
+     * concept has no name in the locale of the user.
+     * 
+     * @param conceptUuid the uuid of the concept
+     * @return the name of the concept or null if there is no such concept or it has no name
+     */
+    private String getFallbackConceptName(String conceptUuid) {
+        
+        final Concept concept = Context.getConceptService()
+                .getConceptByUuid(conceptUuid);
+        return concept == null || concept.getName() == null ? null
+                : concept.getName()
+                        .getName();
+    }
+    
+    /**
+     * @see RadiologyOrderService#getCountOfRadiologyOrders(RadiologyOrderSearchCriteria)
+     */
+    @Override
+    public Long getCountOfRadiologyOrders(RadiologyOrderSearchCriteria radiologyOrderSearchCriteria) {
+        
+        if (radiologyOrderSearchCriteria == null) {
+            throw new IllegalArgumentException("radiologyOrderSearchCriteria cannot be null");
+        }
+        return radiologyOrderDAO.getCountOfRadiologyOrders(radiologyOrderSearchCriteria);
+    }
 }
@@ -0,0 +1,129 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.radiology.order;
+
+import java.util.Date;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openmrs.Order.Urgency;
+import org.openmrs.module.radiology.dicom.code.PerformedProcedureStepStatus;
+
+/**
+ * Read-only summary of a {@link RadiologyOrder} holding only what a worklist displays.
+ * <p>
+ * Worklist items are loaded with a single projection query (see
+ * {@link RadiologyOrderService#getRadiologyOrderWorklistItems(RadiologyOrderSearchCriteria)}) instead of hydrating
+ * radiology orders with their patient, concept, encounter and study.
+ * </p>
+ */
+public class RadiologyOrderWorklistItem {
+    
+    
+    private String uuid;
+    
+    private String accessionNumber;
+    
+    private String patientUuid;
+    
+    private String patientGivenName;
+    
+    private String patientMiddleName;
+    
+    private String patientFamilyName;
+    
+    private String conceptUuid;
+    
+    private String conceptName;
+    
+    private Urgency urgency;
+    
+    private Date effectiveStartDate;
+    
+    private PerformedProcedureStepStatus performedStatus;
+    
+    /**
+     * @return the uuid of the radiology order
+     */
+    public String getUuid() {
+        return uuid;
+    }
+    
+    /**
+     * @return the accession number of the radiology order
+     */
+    public String getAccessionNumber() {
+        return accessionNumber;
+    }
+    
+    /**
+     * @return the uuid of the patient of the radiology order
+     */
+    public String getPatientUuid() {
+        return patientUuid;
+    }
+    
+    /**
+     * Get the preferred name of the patient of the radiology order.
+     *
+     * @return the given, middle and family name of the patient separated by spaces
+     */
+    public String getPatientName() {
+        
+        final StringBuilder result = new StringBuilder();
+        for (String namePart : new String[] { patientGivenName, patientMiddleName, patientFamilyName }) {
+            if (StringUtils.isNotBlank(namePart)) {
+                if (result.length() > 0) {
+                    result.append(' ');
+                }
+                result.append(namePart.trim());
+            }
+        }
+        return result.toString();
+    }
+    
+    /**
+     * @return the uuid of the concept of the radiology order
+     */
+    public String getConceptUuid() {
+        return conceptUuid;
+    }
+    
+    /**
+     * @return the name of the concept of the radiology order in the locale of the user
+     */
+    public String getConceptName() {
+        return conceptName;
+    }
+    
+    void setConceptName(String conceptName) {
+        this.conceptName = conceptName;
+    }
+    
+    /**
+     * @return the urgency of the radiology order
+     */
+    public Urgency getUrgency() {
+        return urgency;
+    }
+    
+    /**
+     * @return the effective start date of the radiology order
+     */
+    public Date getEffectiveStartDate() {
+        return effectiveStartDate;
+    }
+    
+    /**
+     * @return the performed status of the study of the radiology order or null if it has no study
+     */
+    public PerformedProcedureStepStatus getPerformedStatus() {
+        return performedStatus;
+    }
+}
@@ -9,13 +9,22 @@
  */
 package org.openmrs.module.radiology.report;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import org.hibernate.Criteria;
+import org.hibernate.FetchMode;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
 import org.openmrs.module.radiology.order.RadiologyOrder;
+import org.openmrs.module.radiology.util.HibernateScrollUtils;
 
 /**
  * Hibernate specific RadiologyReport related functions. This class should not be used directly. All
@@ -27,6 +36,11 @@ import org.openmrs.module.radiology.order.RadiologyOrder;
 class HibernateRadiologyReportDAO implements RadiologyReportDAO {
     
     
+    /**
+     * Maximum number of radiology order uuids or radiology report ids bound to a single query.
+     */
+    private static final int MAX_VALUES_PER_QUERY = 1000;
+    
     private SessionFactory sessionFactory;
     
     /**
@@ -63,59 +77,118 @@ class HibernateRadiologyReportDAO implements RadiologyReportDAO {
      */
     @Override
     public RadiologyReport saveRadiologyReport(RadiologyReport radiologyReport) {
-        sessionFactory.getCurrentSession()
-                .saveOrUpdate(radiologyReport);
+        final Session session = sessionFactory.getCurrentSession();
+        session.saveOrUpdate(radiologyReport);
+        // flush so that conflicting changes are detected by the version check and the unique constraint on the active
+        // order right away instead of when the transaction commits
+        session.flush();
         return radiologyReport;
     }
     
     /**
-     * @see org.openmrs.module.radiology.report.RadiologyReportService#hasRadiologyOrderCompletedRadiologyReport(RadiologyOrder)
-     *      (RadiologyReport)
+     * @see org.openmrs.module.radiology.report.RadiologyReportDAO#getActiveRadiologyReportIdAndStatus(RadiologyOrder)
      */
-    @SuppressWarnings("unchecked")
     @Override
-    public boolean hasRadiologyOrderCompletedRadiologyReport(RadiologyOrder radiologyOrder) {
-        final List<RadiologyReport> radiologyReports = sessionFactory.getCurrentSession()
+    public Object[] getActiveRadiologyReportIdAndStatus(RadiologyOrder radiologyOrder) {
+        return (Object[]) sessionFactory.getCurrentSession()
                 .createCriteria(RadiologyReport.class)
                 .add(Restrictions.eq("radiologyOrder", radiologyOrder))
-                .add(Restrictions.eq("status", RadiologyReportStatus.COMPLETED))
-                .list();
-        return radiologyReports.size() == 1;
+                .add(Restrictions.eq("voided", false))
+                .setProjection(Projections.projectionList()
+                        .add(Projections.id())
+                        .add(Projections.property("status")))
+                .uniqueResult();
     }
     
     /**
-     * @see org.openmrs.module.radiology.report.RadiologyReportService#hasRadiologyOrderClaimedRadiologyReport(RadiologyOrder)
+     * @see org.openmrs.module.radiology.report.RadiologyReportService#getReportStatusByOrderUuids(Collection)
      */
     @SuppressWarnings("unchecked")
-    public boolean hasRadiologyOrderClaimedRadiologyReport(RadiologyOrder radiologyOrder) {
-        final List<RadiologyReport> radiologyReports = sessionFactory.getCurrentSession()
-                .createCriteria(RadiologyReport.class)
-                .add(Restrictions.eq("radiologyOrder", radiologyOrder))
-                .add(Restrictions.eq("status", RadiologyReportStatus.DRAFT))
-                .add(Restrictions.eq("voided", false))
-                .list();
-        return radiologyReports.size() == 1;
+    @Override
+    public Map<String, RadiologyReportStatus> getReportStatusByOrderUuids(Collection<String> radiologyOrderUuids) {
+        
+        final List<String> uuids = new ArrayList<>(radiologyOrderUuids);
+        final Map<String, RadiologyReportStatus> result = new HashMap<>();
+        for (int from = 0; from < uuids.size(); from += MAX_VALUES_PER_QUERY) {
+            final List<Object[]> rows = sessionFactory.getCurrentSession()
+                    .createCriteria(RadiologyReport.class)
+                    .createAlias("radiologyOrder", "reportedOrder")
+                    .add(Restrictions.in("reportedOrder.uuid",
+                        uuids.subList(from, Math.min(from + MAX_VALUES_PER_QUERY, uuids.size()))))
+                    .add(Restrictions.eq("voided", false))
+                    .setProjection(Projections.projectionList()
+                            .add(Projections.property("reportedOrder.uuid"))
+                            .add(Projections.property("status")))
+                    .list();
+            for (Object[] row : rows) {
+                result.put((String) row[0], (RadiologyReportStatus) row[1]);
+            }
+        }
+        return result;
     }
     
     /**
-     * @see org.openmrs.module.radiology.report.RadiologyReportService#getActiveRadiologyReportByRadiologyOrder(RadiologyOrder)
+     * @see org.openmrs.module.radiology.report.RadiologyReportService#getRadiologyReports(RadiologyReportSearchCriteria)
      */
+    @SuppressWarnings("unchecked")
     @Override
-    public RadiologyReport getActiveRadiologyReportByRadiologyOrder(RadiologyOrder radiologyOrder) {
-        return (RadiologyReport) sessionFactory.getCurrentSession()
-                .createCriteria(RadiologyReport.class)
-                .add(Restrictions.eq("radiologyOrder", radiologyOrder))
-                .add(Restrictions.eq("voided", false))
-                .list()
-                .get(0);
+    public List<RadiologyReport> getRadiologyReports(RadiologyReportSearchCriteria searchCriteria) {
+        
+        return createRadiologyReportCriteria(searchCriteria).list();
     }
     
     /**
-     * @see org.openmrs.module.radiology.report.RadiologyReportService#getRadiologyReports(RadiologyReportSearchCriteria)
+     * @see RadiologyReportDAO#getRadiologyReports(RadiologyReportSearchCriteria, Collection)
      */
     @SuppressWarnings("unchecked")
     @Override
-    public List<RadiologyReport> getRadiologyReports(RadiologyReportSearchCriteria searchCriteria) {
+    public List<RadiologyReport> getRadiologyReports(RadiologyReportSearchCriteria searchCriteria,
+            Collection<Integer> reportIds) {
+        
+        final List<Integer> ids = new ArrayList<>(reportIds);
+        final List<RadiologyReport> result = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += MAX_VALUES_PER_QUERY) {
+            result.addAll(createRadiologyReportCriteria(searchCriteria)
+                    .add(Restrictions.in("reportId", ids.subList(from, Math.min(from + MAX_VALUES_PER_QUERY, ids.size()))))
+                    .list());
+        }
+        return result;
+    }
+    
+    /**
+     * @see org.openmrs.module.radiology.report.RadiologyReportService#exportRadiologyReports(RadiologyReportSearchCriteria,
+     *      Consumer)
+     */
+    @Override
+    public long exportRadiologyReports(RadiologyReportSearchCriteria searchCriteria, Consumer<RadiologyReport> consumer) {
+        
+        final Criteria crit = createRadiologyReportCriteria(searchCriteria);
+        // every exported row references its order and interpreter, select them with the report instead of one by one
+        crit.setFetchMode("radiologyOrder", FetchMode.JOIN);
+        crit.setFetchMode("principalResultsInterpreter", FetchMode.JOIN);
+        return HibernateScrollUtils.scroll(sessionFactory, crit, consumer);
+    }
+    
+    /**
+     * @see RadiologyReportDAO#exportRadiologyReportsWithBody(RadiologyReportSearchCriteria, Consumer)
+     */
+    @Override
+    public long exportRadiologyReportsWithBody(RadiologyReportSearchCriteria searchCriteria,
+            Consumer<RadiologyReport> consumer) {
+        
+        final Criteria crit = createRadiologyReportCriteria(searchCriteria);
+        // the body is a lazy proxy, scrolled reports would otherwise each load their body with another select
+        crit.setFetchMode("reportBody", FetchMode.JOIN);
+        return HibernateScrollUtils.scroll(sessionFactory, crit, consumer);
+    }
+    
+    /**
+     * Creates the criteria for radiology reports matching given search criteria ordered by increasing report date.
+     * 
+     * @param searchCriteria the object containing search parameters
+     * @return the criteria returning the matching radiology reports
+     */
+    private Criteria createRadiologyReportCriteria(RadiologyReportSearchCriteria searchCriteria) {
         
         final Criteria crit = sessionFactory.getCurrentSession()
                 .createCriteria(RadiologyReport.class);
@@ -137,6 +210,6 @@ class HibernateRadiologyReportDAO implements RadiologyReportDAO {
         }
         
         crit.addOrder(Order.asc("date"));
-        return crit.list();
+        return crit;
     }
 }
@@ -24,6 +24,8 @@ public class RadiologyReport extends BaseOpenmrsData {
     
     private Integer reportId;
     
+    private Integer version;
+    
     private RadiologyOrder radiologyOrder;
     
     private Date date;
@@ -32,8 +34,12 @@ public class RadiologyReport extends BaseOpenmrsData {
     
     private RadiologyReportStatus status;
     
+    private RadiologyReportBody reportBody;
+    
     private String body;
     
+    private boolean bodyChanged;
+    
     /**
      * Creates a new instance of {@link RadiologyReport}.
      */
@@ -63,6 +69,8 @@ public class RadiologyReport extends BaseOpenmrsData {
         
         this.radiologyOrder = radiologyOrder;
         this.status = RadiologyReportStatus.DRAFT;
+        // a new report is stored with an empty body
+        this.bodyChanged = true;
     }
     
     /**
@@ -83,6 +91,31 @@ public class RadiologyReport extends BaseOpenmrsData {
         this.radiologyOrder = radiologyOrder;
     }
     
+    /**
+     * Get the RadiologyOrder of this RadiologyReport unless it is voided.
+     * <p>
+     * Persisted next to the radiology order so that the database allows only one RadiologyReport per RadiologyOrder
+     * which is not voided.
+     * </p>
+     * 
+     * @return RadiologyOrder which is being/was reported or null if this RadiologyReport is voided
+     * @should return radiology order if report is not voided
+     * @should return null if report is voided
+     */
+    RadiologyOrder getActiveRadiologyOrder() {
+        return Boolean.TRUE.equals(getVoided()) ? null : radiologyOrder;
+    }
+    
+    /**
+     * Ignores given RadiologyOrder since the active RadiologyOrder is derived from the RadiologyOrder and voided.
+     * 
+     * @param activeRadiologyOrder the active RadiologyOrder as persisted
+     */
+    @SuppressWarnings("unused")
+    private void setActiveRadiologyOrder(RadiologyOrder activeRadiologyOrder) {
+        // needed by hibernate to load the persisted property
+    }
+    
     /**
      * Get Provider which is the report author.
      * 
@@ -139,6 +172,28 @@ public class RadiologyReport extends BaseOpenmrsData {
         this.reportId = reportId;
     }
     
+    /**
+     * Get version of RadiologyReport.
+     * <p>
+     * The version is incremented whenever the RadiologyReport is saved. Saving a RadiologyReport whose version differs
+     * from the persisted version fails since it was changed by someone else in the meantime.
+     * </p>
+     * 
+     * @return version of RadiologyReport or null if it was never saved
+     */
+    public Integer getVersion() {
+        return version;
+    }
+    
+    /**
+     * Set version of RadiologyReport.
+     * 
+     * @param version the version of RadiologyReport the changes are based on
+     */
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+    
     /**
      * Get date of RadiologyReport.
      * 
@@ -177,19 +232,79 @@ public class RadiologyReport extends BaseOpenmrsData {
     
     /**
      * Get body of RadiologyReport.
+     * <p>
+     * The body is stored apart from the RadiologyReport and only loaded by this method.
+     * </p>
      * 
      * @return body of RadiologyReport
+     * @should return body set since the body was stored
+     * @should return stored body
+     * @should return null if body is not stored yet
      */
     public String getBody() {
-        return body;
+        
+        if (bodyChanged || reportBody == null) {
+            return body;
+        }
+        return reportBody.getText();
     }
     
     /**
      * Set body of RadiologyReport.
+     * <p>
+     * The body is stored when this RadiologyReport is saved through the {@link RadiologyReportService}.
+     * </p>
      * 
      * @param body body of RadiologyReport
      */
     public void setBody(String body) {
         this.body = body;
+        this.bodyChanged = true;
+    }
+    
+    /**
+     * Hands the body set since the body was last stored over to the stored body of this RadiologyReport.
+     * <p>
+     * Marks this RadiologyReport as changed if it already had a stored body so that changing only the body also
+     * increments its version.
+     * </p>
+     * 
+     * @param compressionThreshold the size in bytes from which on the body is stored compressed or 0 to never compress it
+     * @should create stored body with id of this report if it has none
+     * @should update stored body and date changed if it has one
+     * @should not change stored body if body was not set
+     */
+    void storeBody(int compressionThreshold) {
+        
+        if (!bodyChanged) {
+            return;
+        }
+        if (reportBody == null) {
+            reportBody = new RadiologyReportBody(reportId);
+        } else {
+            setDateChanged(new Date());
+        }
+        reportBody.setText(body, compressionThreshold);
+        body = null;
+        bodyChanged = false;
+    }
+    
+    /**
+     * Get the stored body of RadiologyReport.
+     * 
+     * @return stored body of RadiologyReport which might be a proxy which is not loaded yet
+     */
+    RadiologyReportBody getReportBody() {
+        return reportBody;
+    }
+    
+    /**
+     * Set the stored body of RadiologyReport.
+     * 
+     * @param reportBody stored body of RadiologyReport
+     */
+    @SuppressWarnings("unused")
+    private void setReportBody(RadiologyReportBody reportBody) {
+        this.reportBody = reportBody;
     }
 }
@@ -0,0 +1,135 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.radiology.report;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.openmrs.api.APIException;
+
+/**
+ * The body of a {@link RadiologyReport} stored apart from the report so that it is only loaded once it is read.
+ * <p>
+ * A body shares the id of its report. Bodies whose UTF-8 encoding is at least as large as the compression threshold
+ * they were stored with are gzip compressed.
+ * </p>
+ */
+class RadiologyReportBody {
+    
+    
+    private Integer reportId;
+    
+    private byte[] content;
+    
+    private boolean compressed;
+    
+    /**
+     * Creates a new instance of {@link RadiologyReportBody}.
+     */
+    RadiologyReportBody() {
+        // needed by hibernate to instantiate a bean
+    }
+    
+    /**
+     * Creates a new instance of {@link RadiologyReportBody} for the radiology report with given id.
+     *
+     * @param reportId the id of the radiology report the body belongs to
+     */
+    RadiologyReportBody(Integer reportId) {
+        this.reportId = reportId;
+    }
+    
+    public Integer getReportId() {
+        return reportId;
+    }
+    
+    public void setReportId(Integer reportId) {
+        this.reportId = reportId;
+    }
+    
+    public byte[] getContent() {
+        return content;
+    }
+    
+    public void setContent(byte[] content) {
+        this.content = content;
+    }
+    
+    public boolean isCompressed() {
+        return compressed;
+    }
+    
+    public void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+    }
+    
+    /**
+     * Get the text of this body.
+     *
+     * @return the text of this body uncompressing it if needed
+     * @throws APIException if the compressed text cannot be read
+     * @should return null if no text is stored
+     */
+    public String getText() {
+        
+        if (content == null) {
+            return null;
+        }
+        if (!compressed) {
+            return new String(content, StandardCharsets.UTF_8);
+        }
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(content))) {
+            return IOUtils.toString(in, StandardCharsets.UTF_8);
+        }
+        catch (IOException e) {
+            throw new APIException("Cannot read body of radiology report " + reportId, e);
+        }
+    }
+    
+    /**
+     * Set the text of this body compressing it if it is large enough.
+     *
+     * @param text the text of this body
+     * @param compressionThreshold the size in bytes from which on the text is stored compressed or 0 to never compress it
+     * @should store text smaller than compression threshold uncompressed
+     * @should store text at least as large as compression threshold compressed
+     * @should store text uncompressed if compression threshold is zero
+     */
+    public void setText(String text, int compressionThreshold) {
+        
+        if (text == null) {
+            content = null;
+            compressed = false;
+            return;
+        }
+        final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (compressionThreshold < 1 || bytes.length < compressionThreshold) {
+            content = bytes;
+            compressed = false;
+            return;
+        }
+        final ByteArrayOutputStream result = new ByteArrayOutputStream(bytes.length / 4);
+        try (OutputStream out = new GZIPOutputStream(result)) {
+            out.write(bytes);
+        }
+        catch (IOException e) {
+            throw new APIException("Cannot compress body of radiology report " + reportId, e);
+        }
+        content = result.toByteArray();
+        compressed = true;
+    }
+}
@@ -0,0 +1,32 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.radiology.report;
+
+import org.openmrs.api.APIException;
+
+/**
+ * Thrown if a {@code RadiologyReport} cannot be saved since it or the {@code RadiologyReport's} of its
+ * {@code RadiologyOrder} were changed by someone else in the meantime.
+ */
+public class RadiologyReportConflictException extends APIException {
+    
+    
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * Creates a new instance of {@link RadiologyReportConflictException}.
+     *
+     * @param messageKey the message key describing the conflict
+     * @param cause the exception the conflict was detected by
+     */
+    public RadiologyReportConflictException(String messageKey, Throwable cause) {
+        super(messageKey, cause);
+    }
+}
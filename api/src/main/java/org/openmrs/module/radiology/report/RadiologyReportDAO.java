@@ -9,7 +9,10 @@
  */
 package org.openmrs.module.radiology.report;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import org.openmrs.module.radiology.order.RadiologyOrder;
 
@@ -23,6 +26,11 @@ interface RadiologyReportDAO {
     
     
     /**
+     * Saves given radiology report and flushes it to the database.
+     * 
+     * @throws org.hibernate.StaleStateException if given radiology report was changed since it was read
+     * @throws org.hibernate.exception.ConstraintViolationException if the radiology order of given radiology report
+     *         already has a radiology report which is not voided
      * @see org.openmrs.module.radiology.report.RadiologyReportService#saveRadiologyReportDraft(RadiologyReport)
      */
     RadiologyReport saveRadiologyReport(RadiologyReport radiologyReport);
@@ -38,22 +46,47 @@ interface RadiologyReportDAO {
     RadiologyReport getRadiologyReportByUuid(String radiologyReportUuid);
     
     /**
-     * @see org.openmrs.module.radiology.report.RadiologyReportService#hasRadiologyOrderClaimedRadiologyReport(RadiologyOrder)
+     * Get the id and status of the active (non-voided) {@code RadiologyReport} of given {@code RadiologyOrder} without
+     * loading the report itself.
+     * 
+     * @param radiologyOrder the radiology order whose active report should be looked up
+     * @return the report id at index 0 and the {@link RadiologyReportStatus} at index 1 of the active radiology report or
+     *         null if given radiology order has no active report
      */
-    boolean hasRadiologyOrderClaimedRadiologyReport(RadiologyOrder radiologyOrder);
+    Object[] getActiveRadiologyReportIdAndStatus(RadiologyOrder radiologyOrder);
     
     /**
-     * @see org.openmrs.module.radiology.report.RadiologyReportService#hasRadiologyOrderCompletedRadiologyReport(RadiologyOrder)
+     * @see org.openmrs.module.radiology.report.RadiologyReportService#getReportStatusByOrderUuids(Collection)
      */
-    boolean hasRadiologyOrderCompletedRadiologyReport(RadiologyOrder radiologyOrder);
+    Map<String, RadiologyReportStatus> getReportStatusByOrderUuids(Collection<String> radiologyOrderUuids);
     
     /**
-     * @see org.openmrs.module.radiology.report.RadiologyReportService#getActiveRadiologyReportByRadiologyOrder(RadiologyOrder)
+     * @see org.openmrs.module.radiology.report.RadiologyReportService#getRadiologyReports(RadiologyReportSearchCriteria)
      */
-    RadiologyReport getActiveRadiologyReportByRadiologyOrder(RadiologyOrder radiologyOrder);
+    List<RadiologyReport> getRadiologyReports(RadiologyReportSearchCriteria searchCriteria);
     
     /**
-     * @see org.openmrs.module.radiology.report.RadiologyReportService#getRadiologyReports(RadiologyReportSearchCriteria)
+     * Get the radiology reports with given ids which match given search criteria ignoring its text.
+     * 
+     * @param searchCriteria the object containing search parameters
+     * @param reportIds the ids of the radiology reports
+     * @return the radiology reports with given ids matching given criteria in no particular order
      */
-    List<RadiologyReport> getRadiologyReports(RadiologyReportSearchCriteria searchCriteria);
+    List<RadiologyReport> getRadiologyReports(RadiologyReportSearchCriteria searchCriteria, Collection<Integer> reportIds);
+    
+    /**
+     * @see org.openmrs.module.radiology.report.RadiologyReportService#exportRadiologyReports(RadiologyReportSearchCriteria,
+     *      Consumer)
+     */
+    long exportRadiologyReports(RadiologyReportSearchCriteria searchCriteria, Consumer<RadiologyReport> consumer);
+    
+    /**
+     * Passes the radiology reports matching given search criteria ignoring its text to given consumer as they are read
+     * from the database, selecting the body of each report together with the report.
+     * 
+     * @param searchCriteria the object containing search parameters
+     * @param consumer the consumer of each radiology report
+     * @return the number of radiology reports passed to given consumer
+     */
+    long exportRadiologyReportsWithBody(RadiologyReportSearchCriteria searchCriteria, Consumer<RadiologyReport> consumer);
 }
@@ -20,7 +20,8 @@ import org.openmrs.Provider;
  * <ol>
  * <li>Set the various search criteria parameters through the respective methods of the static builder class
  * ({@link Builder#fromDate(Date)}, {@link Builder#toDate(Date)}, {@link Builder#withPrincipalResultsInterpreter(Provider)}, 
- * {@link Builder#includeVoided()} and {@link Builder#withStatus(RadiologyReportStatus)}).</li>
+ * {@link Builder#includeVoided()}, {@link Builder#withStatus(RadiologyReportStatus)} and
+ * {@link Builder#withText(String)}).</li>
  * <li>Build the {@link RadiolologyReportSearchCriteria} instance with the {@link Builder#build()} method.</li>
  * <li>Get the search parameters through the getter methods (such as {@link #getFromDate()} or {@link #getStatus()}).</li>
  * </ol>
@@ -38,6 +39,8 @@ public class RadiologyReportSearchCriteria {
     
     private final RadiologyReportStatus status;
     
+    private final String text;
+    
     /**
      * @return the minimum date (inclusive) the report date
      */
@@ -78,6 +81,14 @@ public class RadiologyReportSearchCriteria {
         return status;
     }
     
+    /**
+     * @return the text the body of the report should match
+     */
+    public String getText() {
+        
+        return text;
+    }
+    
     public static class Builder {
         
         
@@ -91,6 +102,8 @@ public class RadiologyReportSearchCriteria {
         
         private RadiologyReportStatus status;
         
+        private String text;
+        
         /**
          * @param fromDate the minimum date (inclusive) the report date
          * @return this builder instance
@@ -144,6 +157,18 @@ public class RadiologyReportSearchCriteria {
             return this;
         }
         
+        /**
+         * Sets the criteria's text which is looked up in the full text index over the bodies of completed reports.
+         * 
+         * @param text the text the body of the report should match
+         * @return this builder instance
+         */
+        public Builder withText(String text) {
+            
+            this.text = text;
+            return this;
+        }
+        
         /**
          * Create an {@link RadiologyReportSearchCriteria} with the properties of this builder instance.
          * 
@@ -152,6 +177,7 @@ public class RadiologyReportSearchCriteria {
          * @should create a new radiology report search criteria instance with principal results interpreter specified if principal results interpreter is set
          * @should create a new radiology report search criteria instance with include voided set to true if voided reports should be included
          * @should create a new radiology report search criteria instance with report status specified if status is set to claimed or completed
+         * @should create a new radiology report search criteria instance with text specified if text is set
          */
         public RadiologyReportSearchCriteria build() {
             
@@ -166,5 +192,6 @@ public class RadiologyReportSearchCriteria {
         this.principalResultsInterpreter = builder.principalResultsInterpreter;
         this.includeVoided = builder.inludeVoided;
         this.status = builder.status;
+        this.text = builder.text;
     }
 }
@@ -9,7 +9,10 @@
  */
 package org.openmrs.module.radiology.report;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import org.openmrs.annotation.Authorized;
 import org.openmrs.api.APIException;
@@ -40,6 +43,10 @@ public interface RadiologyReportService extends OpenmrsService {
     
     /**
      * Saves a new {@code RadiologyReport} to the database and sets its status to claimed.
+     * <p>
+     * The database allows only one {@code RadiologyReport} per {@code RadiologyOrder} which is not voided, so that of
+     * concurrent claims of the same order only one succeeds, on every node.
+     * </p>
      *
      * @param radiologyOrder the radiology order for which a radiology report will be created
      * @return the created radiology report
@@ -47,11 +54,14 @@ public interface RadiologyReportService extends OpenmrsService {
      * @throws APIException if RadiologyStudy of given radiologyOrder is not completed
      * @throws APIException if given radiologyOrder has a claimed RadiologyReport
      * @throws APIException if given radiologyOrder has a completed RadiologyReport
+     * @throws RadiologyReportConflictException if given radiologyOrder was claimed concurrently
      * @should create a radiology order with report status claimed given a completed radiology order
      * @should throw illegal argument exception if given null
      * @should throw api exception if given radiology order is not completed
      * @should throw api exception if given order has a claimed radiology report
      * @should throw api exception if given order has a completed radiology report
+     * @should create only one radiology report given concurrent claims of the same radiology order
+     * @should throw radiology report conflict exception if the database already holds a claimed report of given order
      */
     @Authorized(RadiologyPrivileges.ADD_RADIOLOGY_REPORTS)
     public RadiologyReport createRadiologyReport(RadiologyOrder radiologyOrder);
@@ -59,7 +69,9 @@ public interface RadiologyReportService extends OpenmrsService {
     /**
      * Saves an existing {@code RadiologyReport} which is in a draft state to the database.
      * <p>
-     * A {@code RadiologyReport} is considered a draft as long as its status is {@code DRAFT}.
+     * A {@code RadiologyReport} is considered a draft as long as its status is {@code DRAFT}. The version of given
+     * {@code RadiologyReport} has to match the persisted version, otherwise it was changed by someone else since it
+     * was read.
      * </p>
      * @param radiologyReport the existing radiology report to be saved
      * @return the saved radiology report
@@ -68,12 +80,14 @@ public interface RadiologyReportService extends OpenmrsService {
      * @throws APIException if radiologyReport is completed
      * @throws APIException if radiologyReport is voided
      * @throws APIException if radiologyReport.radiologyOrder has a completed RadiologyReport
+     * @throws RadiologyReportConflictException if radiologyReport was changed by someone else since it was read
      * @should save existing radiology report to the database and return it
      * @should throw illegal argument exception if given null
      * @should throw illegal argument exception if given radiology report with reportId null
      * @should throw api exception if radiology report is completed
      * @should throw api exception if radiology report is voided
      * @should throw api exception if given radiology reports order has a completed radiology report
+     * @should throw radiology report conflict exception if radiology report was changed since it was read
      */
     @Authorized(RadiologyPrivileges.EDIT_RADIOLOGY_REPORTS)
     public RadiologyReport saveRadiologyReportDraft(RadiologyReport radiologyReport);
@@ -88,6 +102,7 @@ public interface RadiologyReportService extends OpenmrsService {
      * @throws IllegalArgumentException if radiologyReport reportId is null
      * @throws IllegalArgumentException if voidReason is null or contains only whitespaces
      * @throws APIException if radiologyReport is completed
+     * @throws RadiologyReportConflictException if radiologyReport was changed by someone else since it was read
      * @should void the given radiology report
      * @should throw illegal argument exception if given radiology report is null
      * @should throw illegal argument exception if given radiology report with reportId null
@@ -108,6 +123,7 @@ public interface RadiologyReportService extends OpenmrsService {
      * @throws APIException if radiologyReport is completed
      * @throws APIException if radiologyReport is voided
      * @throws APIException if radiologyReport is not valid
+     * @throws RadiologyReportConflictException if radiologyReport was changed by someone else since it was read
      * @should set the report date of the radiology report to the day the radiology report was completed
      * @should set the radiology report status to complete
      * @should throw illegal argument exception if given radiology report is null
@@ -116,6 +132,7 @@ public interface RadiologyReportService extends OpenmrsService {
      * @should throw api exception if radiology report is completed
      * @should throw api exception if radiology report is voided
      * @should throw api exception if radiology report is not valid
+     * @should throw radiology report conflict exception if radiology report was changed since it was read
      */
     @Authorized(RadiologyPrivileges.EDIT_RADIOLOGY_REPORTS)
     public RadiologyReport saveRadiologyReport(RadiologyReport radiologyReport);
@@ -172,6 +189,34 @@ public interface RadiologyReportService extends OpenmrsService {
     @Authorized(RadiologyPrivileges.GET_RADIOLOGY_REPORTS)
     public boolean hasRadiologyOrderCompletedRadiologyReport(RadiologyOrder radiologyOrder);
     
+    /**
+     * Get the status of the active (non-voided) {@code RadiologyReport} of each of given {@code RadiologyOrder's} without
+     * loading the reports.
+     *
+     * @param radiologyOrders the radiology orders whose report status should be returned
+     * @return the report status by radiology order, radiology orders without an active report are not contained
+     * @throws IllegalArgumentException if given null
+     * @should return the status of the active radiology report of each given radiology order
+     * @should not contain radiology orders without active radiology report
+     * @should return empty map if given no radiology orders
+     * @should throw illegal argument exception if given null
+     */
+    @Authorized(RadiologyPrivileges.GET_RADIOLOGY_REPORTS)
+    public Map<RadiologyOrder, RadiologyReportStatus> getReportStatusByOrders(Collection<RadiologyOrder> radiologyOrders);
+    
+    /**
+     * Get the status of the active (non-voided) {@code RadiologyReport} of each of the {@code RadiologyOrder's} with given
+     * uuids without loading the orders or the reports.
+     *
+     * @param radiologyOrderUuids the uuids of the radiology orders whose report status should be returned
+     * @return the report status by radiology order uuid, radiology orders without an active report are not contained
+     * @throws IllegalArgumentException if given null
+     * @should return the status of the active radiology report of each radiology order with given uuid
+     * @should throw illegal argument exception if given null
+     */
+    @Authorized(RadiologyPrivileges.GET_RADIOLOGY_REPORTS)
+    public Map<String, RadiologyReportStatus> getReportStatusByOrderUuids(Collection<String> radiologyOrderUuids);
+    
     /**
      * Get the active (can be a non-voided draft or completed) {@code RadiologyReport} for a {@code RadiologyOrder}.
      *
@@ -189,10 +234,17 @@ public interface RadiologyReportService extends OpenmrsService {
     /**
      * Get all {@code RadiologyReport's} matching a variety of (nullable) criteria.
      * Each extra value for a parameter that is provided acts as an "and" and will reduce the number of results returned
+     * <p>
+     * If the criteria has a text only completed {@code RadiologyReport's} whose body matches the text are returned. They
+     * are looked up in the full text index maintained by {@link RadiologyReportTextIndex}, ranked by relevance and
+     * limited to the best {@value RadiologyReportTextIndex#MAX_HITS} matches.
+     * </p>
      *
      * @param radiologyReportSearchCriteria the object containing search parameters
-     * @return the radiology reports matching given criteria ordered by increasing report date
+     * @return the radiology reports matching given criteria ordered by increasing report date or by relevance if the
+     *         criteria has a text
      * @throws IllegalArgumentException if given null
+     * @throws IllegalArgumentException if the text of given criteria cannot be parsed
      * @should return all radiology reports (including voided) matching the search query if include voided is set
      * @should return all radiology reports within given date range if date to and date from are specified
      * @should return all radiology reports with report date after or equal to from date if only date from is specified
@@ -204,7 +256,46 @@ public interface RadiologyReportService extends OpenmrsService {
      * @should return all radiology reports with given status
      * @should return empty search result if no report exists for given status
      * @should throw illegal argument exception if given null
+     * @should return completed radiology reports whose body matches given text ranked by relevance
+     * @should return radiology reports matching given text and the other criteria
+     * @should return empty list if no radiology report matches given text
      */
     @Authorized(RadiologyPrivileges.GET_RADIOLOGY_REPORTS)
     public List<RadiologyReport> getRadiologyReports(RadiologyReportSearchCriteria radiologyReportSearchCriteria);
+    
+    /**
+     * Export all {@code RadiologyReport's} matching a variety of (nullable) criteria.
+     * <p>
+     * Radiology reports are streamed from the database and passed to given consumer as they are read instead of being
+     * collected into a list, so that the memory used does not depend on the number of exported radiology reports. The
+     * radiology reports passed to the consumer are detached from the session periodically and must not be used once the
+     * consumer returns.
+     * </p>
+     *
+     * @param radiologyReportSearchCriteria the object containing search parameters
+     * @param consumer the consumer of each radiology report ordered by increasing report date or by relevance if the
+     *            criteria has a text
+     * @return the number of exported radiology reports
+     * @throws IllegalArgumentException if given radiologyReportSearchCriteria is null
+     * @throws IllegalArgumentException if given consumer is null
+     * @should pass the radiology reports matching given criteria to given consumer
+     * @should throw illegal argument exception if given radiology report search criteria is null
+     * @should throw illegal argument exception if given consumer is null
+     */
+    @Authorized(RadiologyPrivileges.GET_RADIOLOGY_REPORTS)
+    public long exportRadiologyReports(RadiologyReportSearchCriteria radiologyReportSearchCriteria,
+            Consumer<RadiologyReport> consumer);
+    
+    /**
+     * Rebuild the full text index over the bodies of completed {@code RadiologyReport's} from the database.
+     * <p>
+     * Completed radiology reports are added to the index as they are saved, rebuilding it is only needed to index the
+     * radiology reports completed before the index was introduced or after it was lost.
+     * </p>
+     *
+     * @return the number of indexed radiology reports
+     * @should index all completed radiology reports which are not voided
+     */
+    @Authorized(RadiologyPrivileges.EDIT_RADIOLOGY_REPORTS)
+    public long rebuildRadiologyReportTextIndex();
 }
@@ -9,16 +9,26 @@
  */
 package org.openmrs.module.radiology.report;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import org.apache.commons.lang3.StringUtils;
+import org.hibernate.StaleStateException;
+import org.hibernate.exception.ConstraintViolationException;
 import org.openmrs.api.APIException;
 import org.openmrs.api.impl.BaseOpenmrsService;
+import org.openmrs.module.radiology.RadiologyProperties;
 import org.openmrs.module.radiology.order.RadiologyOrder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @Transactional(readOnly = true)
 class RadiologyReportServiceImpl extends BaseOpenmrsService implements RadiologyReportService {
@@ -26,18 +36,30 @@ class RadiologyReportServiceImpl extends BaseOpenmrsService implements Radiology
     
     private static final Logger log = LoggerFactory.getLogger(RadiologyReportServiceImpl.class);
     
+    private RadiologyProperties radiologyProperties;
+    
     private RadiologyReportDAO radiologyReportDAO;
     
+    private RadiologyReportTextIndex radiologyReportTextIndex;
+    
+    public void setRadiologyProperties(RadiologyProperties radiologyProperties) {
+        this.radiologyProperties = radiologyProperties;
+    }
+    
     public void setRadiologyReportDAO(RadiologyReportDAO radiologyReportDAO) {
         this.radiologyReportDAO = radiologyReportDAO;
     }
     
+    public void setRadiologyReportTextIndex(RadiologyReportTextIndex radiologyReportTextIndex) {
+        this.radiologyReportTextIndex = radiologyReportTextIndex;
+    }
+    
     /**
      * @see RadiologyReportService#createRadiologyReport(RadiologyOrder)
      */
     @Override
     @Transactional
-    public synchronized RadiologyReport createRadiologyReport(RadiologyOrder radiologyOrder) {
+    public RadiologyReport createRadiologyReport(RadiologyOrder radiologyOrder) {
         
         if (radiologyOrder == null) {
             throw new IllegalArgumentException("radiologyOrder cannot be null");
@@ -45,14 +67,23 @@ class RadiologyReportServiceImpl extends BaseOpenmrsService implements Radiology
         if (radiologyOrder.isNotCompleted()) {
             throw new APIException("radiology.RadiologyReport.cannot.create.for.not.completed.order");
         }
-        if (radiologyReportDAO.hasRadiologyOrderClaimedRadiologyReport(radiologyOrder)) {
+        final RadiologyReportStatus activeReportStatus = getActiveRadiologyReportStatus(radiologyOrder);
+        if (activeReportStatus == RadiologyReportStatus.DRAFT) {
             throw new APIException("radiology.RadiologyReport.cannot.create.already.claimed");
         }
-        if (radiologyReportDAO.hasRadiologyOrderCompletedRadiologyReport(radiologyOrder)) {
+        if (activeReportStatus == RadiologyReportStatus.COMPLETED) {
             throw new APIException("radiology.RadiologyReport.cannot.create.already.completed");
         }
         final RadiologyReport radiologyReport = new RadiologyReport(radiologyOrder);
-        return radiologyReportDAO.saveRadiologyReport(radiologyReport);
+        try {
+            radiologyReportDAO.saveRadiologyReport(radiologyReport);
+        }
+        catch (ConstraintViolationException e) {
+            // the order was claimed by someone else after it was checked above
+            throw new RadiologyReportConflictException("radiology.RadiologyReport.cannot.create.already.claimed", e);
+        }
+        // the body shares the id of its report so it can only be stored once the report is
+        return updateRadiologyReport(radiologyReport);
     }
     
     /**
@@ -60,7 +91,7 @@ class RadiologyReportServiceImpl extends BaseOpenmrsService implements Radiology
      */
     @Override
     @Transactional
-    public synchronized RadiologyReport saveRadiologyReportDraft(RadiologyReport radiologyReport) {
+    public RadiologyReport saveRadiologyReportDraft(RadiologyReport radiologyReport) {
         
         if (radiologyReport == null) {
             throw new IllegalArgumentException("radiologyReport cannot be null");
@@ -74,10 +105,10 @@ class RadiologyReportServiceImpl extends BaseOpenmrsService implements Radiology
         if (radiologyReport.getVoided()) {
             throw new APIException("radiology.RadiologyReport.cannot.saveDraft.already.voided");
         }
-        if (radiologyReportDAO.hasRadiologyOrderCompletedRadiologyReport(radiologyReport.getRadiologyOrder())) {
+        if (getActiveRadiologyReportStatus(radiologyReport.getRadiologyOrder()) == RadiologyReportStatus.COMPLETED) {
             throw new APIException("radiology.RadiologyReport.cannot.saveDraft.already.reported");
         }
-        return radiologyReportDAO.saveRadiologyReport(radiologyReport);
+        return updateRadiologyReport(radiologyReport);
     }
     
     /**
@@ -99,7 +130,7 @@ class RadiologyReportServiceImpl extends BaseOpenmrsService implements Radiology
         if (radiologyReport.getStatus() == RadiologyReportStatus.COMPLETED) {
             throw new APIException("radiology.RadiologyReport.cannot.void.completed");
         }
-        return radiologyReportDAO.saveRadiologyReport(radiologyReport);
+        return updateRadiologyReport(radiologyReport);
     }
     
     /**
@@ -107,7 +138,7 @@ class RadiologyReportServiceImpl extends BaseOpenmrsService implements Radiology
      */
     @Override
     @Transactional
-    public synchronized RadiologyReport saveRadiologyReport(RadiologyReport radiologyReport) {
+    public RadiologyReport saveRadiologyReport(RadiologyReport radiologyReport) {
         
         if (radiologyReport == null) {
             throw new IllegalArgumentException("radiologyReport cannot be null");
@@ -126,7 +157,44 @@ class RadiologyReportServiceImpl extends BaseOpenmrsService implements Radiology
         }
         radiologyReport.setDate(new Date());
         radiologyReport.setStatus(RadiologyReportStatus.COMPLETED);
-        return radiologyReportDAO.saveRadiologyReport(radiologyReport);
+        final RadiologyReport result = updateRadiologyReport(radiologyReport);
+        indexAfterCommit(result);
+        return result;
+    }
+    
+    /**
+     * Adds given radiology report to the text index once the transaction committed so that the index neither holds a
+     * report which was rolled back nor is written to while the transaction holds its locks.
+     */
+    private void indexAfterCommit(RadiologyReport radiologyReport) {
+        
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            radiologyReportTextIndex.index(radiologyReport);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            
+            
+            @Override
+            public void afterCommit() {
+                radiologyReportTextIndex.index(radiologyReport);
+            }
+        });
+    }
+    
+    /**
+     * Saves given existing radiology report together with its body failing if it was changed by someone else since it was
+     * read.
+     */
+    private RadiologyReport updateRadiologyReport(RadiologyReport radiologyReport) {
+        
+        radiologyReport.storeBody(radiologyProperties.getReportBodyCompressionThreshold());
+        try {
+            return radiologyReportDAO.saveRadiologyReport(radiologyReport);
+        }
+        catch (StaleStateException e) {
+            throw new RadiologyReportConflictException("radiology.RadiologyReport.conflict", e);
+        }
     }
     
     /**
@@ -162,7 +230,7 @@ class RadiologyReportServiceImpl extends BaseOpenmrsService implements Radiology
         if (radiologyOrder == null) {
             throw new IllegalArgumentException("radiologyOrder cannot be null");
         }
-        return radiologyReportDAO.hasRadiologyOrderClaimedRadiologyReport(radiologyOrder);
+        return getActiveRadiologyReportStatus(radiologyOrder) == RadiologyReportStatus.DRAFT;
     }
     
     /**
@@ -174,7 +242,7 @@ class RadiologyReportServiceImpl extends BaseOpenmrsService implements Radiology
         if (radiologyOrder == null) {
             throw new IllegalArgumentException("radiologyOrder cannot be null");
         }
-        return radiologyReportDAO.hasRadiologyOrderCompletedRadiologyReport(radiologyOrder);
+        return getActiveRadiologyReportStatus(radiologyOrder) == RadiologyReportStatus.COMPLETED;
     }
     
     /**
@@ -186,13 +254,60 @@ class RadiologyReportServiceImpl extends BaseOpenmrsService implements Radiology
         if (radiologyOrder == null) {
             throw new IllegalArgumentException("radiologyOrder cannot be null");
         }
-        if (hasRadiologyOrderCompletedRadiologyReport(radiologyOrder)) {
-            return radiologyReportDAO.getActiveRadiologyReportByRadiologyOrder(radiologyOrder);
+        final Object[] activeReport = radiologyReportDAO.getActiveRadiologyReportIdAndStatus(radiologyOrder);
+        return activeReport == null ? null : radiologyReportDAO.getRadiologyReport((Integer) activeReport[0]);
+    }
+    
+    /**
+     * @see RadiologyReportService#getReportStatusByOrders(Collection)
+     */
+    @Override
+    public Map<RadiologyOrder, RadiologyReportStatus> getReportStatusByOrders(Collection<RadiologyOrder> radiologyOrders) {
+        
+        if (radiologyOrders == null) {
+            throw new IllegalArgumentException("radiologyOrders cannot be null");
+        }
+        final Map<String, RadiologyOrder> radiologyOrdersByUuid = new HashMap<>();
+        for (RadiologyOrder radiologyOrder : radiologyOrders) {
+            radiologyOrdersByUuid.put(radiologyOrder.getUuid(), radiologyOrder);
+        }
+        final Map<RadiologyOrder, RadiologyReportStatus> result = new HashMap<>();
+        if (radiologyOrdersByUuid.isEmpty()) {
+            return result;
+        }
+        for (Map.Entry<String, RadiologyReportStatus> entry : radiologyReportDAO
+                .getReportStatusByOrderUuids(radiologyOrdersByUuid.keySet())
+                .entrySet()) {
+            result.put(radiologyOrdersByUuid.get(entry.getKey()), entry.getValue());
+        }
+        return result;
+    }
+    
+    /**
+     * @see RadiologyReportService#getReportStatusByOrderUuids(Collection)
+     */
+    @Override
+    public Map<String, RadiologyReportStatus> getReportStatusByOrderUuids(Collection<String> radiologyOrderUuids) {
+        
+        if (radiologyOrderUuids == null) {
+            throw new IllegalArgumentException("radiologyOrderUuids cannot be null");
         }
-        if (hasRadiologyOrderClaimedRadiologyReport(radiologyOrder)) {
-            return radiologyReportDAO.getActiveRadiologyReportByRadiologyOrder(radiologyOrder);
+        if (radiologyOrderUuids.isEmpty()) {
+            return new HashMap<>();
         }
-        return null;
+        return radiologyReportDAO.getReportStatusByOrderUuids(radiologyOrderUuids);
+    }
+    
+    /**
+     * Get the status of the active radiology report of given radiology order without loading the report.
+     * 
+     * @param radiologyOrder the radiology order whose active report status should be returned
+     * @return the status of the active radiology report or null if given radiology order has no active report
+     */
+    private RadiologyReportStatus getActiveRadiologyReportStatus(RadiologyOrder radiologyOrder) {
+        
+        final Object[] activeReport = radiologyReportDAO.getActiveRadiologyReportIdAndStatus(radiologyOrder);
+        return activeReport == null ? null : (RadiologyReportStatus) activeReport[1];
     }
     
     /**
@@ -204,6 +319,70 @@ class RadiologyReportServiceImpl extends BaseOpenmrsService implements Radiology
         if (radiologyReportSearchCriteria == null) {
             throw new IllegalArgumentException("radiologyReportSearchCriteria cannot be null");
         }
+        if (radiologyReportSearchCriteria.getText() != null) {
+            return getRadiologyReportsMatchingText(radiologyReportSearchCriteria);
+        }
         return radiologyReportDAO.getRadiologyReports(radiologyReportSearchCriteria);
     }
+    
+    /**
+     * Get the radiology reports whose body matches the text of given search criteria ranked by relevance.
+     * <p>
+     * The reports found in the full text index are read from the database with the other criteria applied again, so that
+     * reports which changed since they were indexed are left out.
+     * </p>
+     */
+    private List<RadiologyReport> getRadiologyReportsMatchingText(RadiologyReportSearchCriteria searchCriteria) {
+        
+        final List<Integer> rankedReportIds = radiologyReportTextIndex.search(searchCriteria);
+        final List<RadiologyReport> result = new ArrayList<>(rankedReportIds.size());
+        if (rankedReportIds.isEmpty()) {
+            return result;
+        }
+        final Map<Integer, RadiologyReport> radiologyReportsById = new HashMap<>();
+        for (RadiologyReport radiologyReport : radiologyReportDAO.getRadiologyReports(searchCriteria, rankedReportIds)) {
+            radiologyReportsById.put(radiologyReport.getReportId(), radiologyReport);
+        }
+        for (Integer reportId : rankedReportIds) {
+            final RadiologyReport radiologyReport = radiologyReportsById.get(reportId);
+            if (radiologyReport != null) {
+                result.add(radiologyReport);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * @see RadiologyReportService#exportRadiologyReports(RadiologyReportSearchCriteria, Consumer)
+     */
+    @Override
+    public long exportRadiologyReports(RadiologyReportSearchCriteria radiologyReportSearchCriteria,
+            Consumer<RadiologyReport> consumer) {
+        
+        if (radiologyReportSearchCriteria == null) {
+            throw new IllegalArgumentException("radiologyReportSearchCriteria cannot be null");
+        }
+        if (consumer == null) {
+            throw new IllegalArgumentException("consumer cannot be null");
+        }
+        if (radiologyReportSearchCriteria.getText() != null) {
+            final List<RadiologyReport> radiologyReports = getRadiologyReportsMatchingText(radiologyReportSearchCriteria);
+            radiologyReports.forEach(consumer);
+            return radiologyReports.size();
+        }
+        return radiologyReportDAO.exportRadiologyReports(radiologyReportSearchCriteria, consumer);
+    }
+    
+    /**
+     * @see RadiologyReportService#rebuildRadiologyReportTextIndex()
+     */
+    @Override
+    public long rebuildRadiologyReportTextIndex() {
+        
+        final RadiologyReportSearchCriteria completedRadiologyReports =
+                new RadiologyReportSearchCriteria.Builder().withStatus(RadiologyReportStatus.COMPLETED)
+                        .build();
+        return radiologyReportTextIndex
+                .rebuild(consumer -> radiologyReportDAO.exportRadiologyReportsWithBody(completedRadiologyReports, consumer));
+    }
 }
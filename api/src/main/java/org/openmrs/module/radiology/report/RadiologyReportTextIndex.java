@@ -0,0 +1,336 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.radiology.report;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.NumericRangeQuery;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.FSDirectory;
+import org.jsoup.Jsoup;
+import org.openmrs.api.APIException;
+import org.openmrs.module.radiology.RadiologyProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Full text index over the bodies of completed {@link RadiologyReport}'s stored in the directory configured by
+ * {@link RadiologyProperties#getReportTextIndexHome()}.
+ * <p>
+ * A report is added to the index by {@link RadiologyReportService#saveRadiologyReport(RadiologyReport)} once it is
+ * completed, the whole index is rebuilt from the database by
+ * {@link RadiologyReportService#rebuildRadiologyReportTextIndex()}. Apart from the body the report date and principal
+ * results interpreter are indexed so that searches restricted by them still find the best matches. Only the text of
+ * the html body is indexed, its markup is stripped. The index only returns report ids, the reports themselves are read
+ * from the database which stays the authority on whether a report matches.
+ * </p>
+ * <p>
+ * The index is opened on first use and kept open until {@link #close()} is called, which the module does when it is
+ * stopped. It is reopened if the configured directory changes.
+ * </p>
+ */
+public class RadiologyReportTextIndex {
+    
+    
+    private static final Logger log = LoggerFactory.getLogger(RadiologyReportTextIndex.class);
+    
+    /**
+     * Maximum number of report ids returned by a search.
+     */
+    static final int MAX_HITS = 1000;
+    
+    private static final String FIELD_REPORT_ID = "reportId";
+    
+    private static final String FIELD_BODY = "body";
+    
+    private static final String FIELD_DATE = "date";
+    
+    private static final String FIELD_PRINCIPAL_RESULTS_INTERPRETER = "principalResultsInterpreter";
+    
+    private final Analyzer analyzer = new StandardAnalyzer();
+    
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    
+    private RadiologyProperties radiologyProperties;
+    
+    private File directory;
+    
+    private IndexWriter indexWriter;
+    
+    private SearcherManager searcherManager;
+    
+    public void setRadiologyProperties(RadiologyProperties radiologyProperties) {
+        this.radiologyProperties = radiologyProperties;
+    }
+    
+    /**
+     * Adds given radiology report to the index replacing the one indexed before if it is completed and not voided and
+     * removes it from the index otherwise.
+     * <p>
+     * Failures are logged instead of thrown so that a report is saved even if the index cannot be updated, the index is
+     * made consistent again by rebuilding it.
+     * </p>
+     *
+     * @param radiologyReport the radiology report to be indexed
+     * @should replace radiology report indexed before
+     * @should index the text of radiology report body without its html markup
+     * @should remove radiology report which is not completed from the index
+     */
+    void index(RadiologyReport radiologyReport) {
+        
+        try {
+            final IndexWriter writer = getIndexWriter();
+            final Term reportId = new Term(FIELD_REPORT_ID, radiologyReport.getReportId()
+                    .toString());
+            if (isIndexed(radiologyReport)) {
+                writer.updateDocument(reportId, toDocument(radiologyReport));
+            } else {
+                writer.deleteDocuments(reportId);
+            }
+            // a running rebuild commits the report together with the rebuilt index
+            if (!rebuilding.get()) {
+                writer.commit();
+                getSearcherManager().maybeRefresh();
+            }
+        }
+        catch (IOException | IllegalStateException e) {
+            log.warn("Failed to index radiology report " + radiologyReport.getReportId()
+                    + ", rebuild the radiology report text index", e);
+        }
+    }
+    
+    /**
+     * Replaces the content of the index by the radiology reports passed to the consumer given to the export.
+     * <p>
+     * Searches see the index built before until the rebuild is done, reports indexed meanwhile become visible with the
+     * rebuilt index. The changes are rolled back if the rebuild fails.
+     * </p>
+     *
+     * @param export the export passing all completed radiology reports which are not voided to the consumer it is given
+     *            and returning their number
+     * @return the number of radiology reports passed by the export
+     * @throws APIException if the index cannot be written
+     * @should replace indexed radiology reports by exported radiology reports
+     */
+    long rebuild(ToLongFunction<Consumer<RadiologyReport>> export) {
+        
+        if (!rebuilding.compareAndSet(false, true)) {
+            throw new APIException("Radiology report text index is already being rebuilt");
+        }
+        try {
+            final IndexWriter writer = getIndexWriter();
+            boolean rebuilt = false;
+            try {
+                writer.deleteAll();
+                final long result = export.applyAsLong(radiologyReport -> {
+                    try {
+                        // reports completed meanwhile might have been indexed already
+                        writer.updateDocument(new Term(FIELD_REPORT_ID, radiologyReport.getReportId()
+                                .toString()),
+                            toDocument(radiologyReport));
+                    }
+                    catch (IOException e) {
+                        throw new APIException("Failed to index radiology report " + radiologyReport.getReportId(), e);
+                    }
+                });
+                writer.commit();
+                rebuilt = true;
+                getSearcherManager().maybeRefresh();
+                log.info("Rebuilt radiology report text index with " + result + " reports");
+                return result;
+            }
+            finally {
+                if (!rebuilt) {
+                    discard(writer);
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new APIException("Failed to rebuild radiology report text index", e);
+        }
+        finally {
+            rebuilding.set(false);
+        }
+    }
+    
+    /**
+     * Get the ids of the completed radiology reports whose body matches the text of given search criteria.
+     * <p>
+     * The text is parsed with the Lucene query syntax, all of its terms have to match unless combined with {@code OR}.
+     * The report date and principal results interpreter of the search criteria are applied as well.
+     * </p>
+     *
+     * @param searchCriteria the search criteria with the text the body of the reports should match
+     * @return the ids of at most {@link #MAX_HITS} matching radiology reports ranked by relevance
+     * @throws IllegalArgumentException if the text of given search criteria cannot be parsed
+     * @throws APIException if the index cannot be read
+     * @should return ids of radiology reports whose body matches given text ranked by relevance
+     * @should return ids of radiology reports within given date range
+     * @should return ids of radiology reports of given principal results interpreter
+     * @should return empty list if status of given search criteria is not completed
+     * @should throw illegal argument exception if given text cannot be parsed
+     */
+    List<Integer> search(RadiologyReportSearchCriteria searchCriteria) {
+        
+        final List<Integer> result = new ArrayList<>();
+        if (searchCriteria.getStatus() != null && searchCriteria.getStatus() != RadiologyReportStatus.COMPLETED) {
+            return result;
+        }
+        final BooleanQuery.Builder query = new BooleanQuery.Builder();
+        final QueryParser parser = new QueryParser(FIELD_BODY, analyzer);
+        parser.setDefaultOperator(QueryParser.Operator.AND);
+        try {
+            query.add(parser.parse(searchCriteria.getText()), BooleanClause.Occur.MUST);
+        }
+        catch (ParseException e) {
+            throw new IllegalArgumentException("Cannot parse text " + searchCriteria.getText(), e);
+        }
+        if (searchCriteria.getFromDate() != null || searchCriteria.getToDate() != null) {
+            query.add(NumericRangeQuery.newLongRange(FIELD_DATE, toTime(searchCriteria.getFromDate()),
+                toTime(searchCriteria.getToDate()), true, true), BooleanClause.Occur.FILTER);
+        }
+        if (searchCriteria.getPrincipalResultsInterpreter() != null) {
+            query.add(new TermQuery(new Term(FIELD_PRINCIPAL_RESULTS_INTERPRETER,
+                    String.valueOf(searchCriteria.getPrincipalResultsInterpreter()
+                            .getProviderId()))),
+                BooleanClause.Occur.FILTER);
+        }
+        
+        try {
+            final SearcherManager manager = getSearcherManager();
+            final IndexSearcher searcher = manager.acquire();
+            try {
+                for (ScoreDoc hit : searcher.search(query.build(), MAX_HITS).scoreDocs) {
+                    result.add(Integer.valueOf(searcher.doc(hit.doc)
+                            .get(FIELD_REPORT_ID)));
+                }
+            }
+            finally {
+                manager.release(searcher);
+            }
+        }
+        catch (IOException e) {
+            throw new APIException("Failed to search radiology report text index", e);
+        }
+        return result;
+    }
+    
+    /**
+     * Closes the index, it is opened again on next use.
+     */
+    public synchronized void close() {
+        
+        try {
+            if (searcherManager != null) {
+                searcherManager.close();
+            }
+            if (indexWriter != null) {
+                indexWriter.close();
+            }
+        }
+        catch (IOException e) {
+            log.warn("Failed to close radiology report text index in " + directory, e);
+        }
+        finally {
+            searcherManager = null;
+            indexWriter = null;
+            directory = null;
+        }
+    }
+    
+    private synchronized IndexWriter getIndexWriter() throws IOException {
+        
+        final File configuredDirectory = radiologyProperties.getReportTextIndexHome();
+        if (indexWriter != null && configuredDirectory.equals(directory)) {
+            return indexWriter;
+        }
+        close();
+        indexWriter = new IndexWriter(FSDirectory.open(configuredDirectory.toPath()), new IndexWriterConfig(analyzer));
+        searcherManager = new SearcherManager(indexWriter, true, null);
+        directory = configuredDirectory;
+        return indexWriter;
+    }
+    
+    /**
+     * Rolls back the changes of given writer since its last commit and closes the index so that it is reopened on next
+     * use.
+     */
+    private synchronized void discard(IndexWriter writer) {
+        
+        try {
+            writer.rollback();
+        }
+        catch (IOException e) {
+            log.warn("Failed to roll back radiology report text index in " + directory, e);
+        }
+        close();
+    }
+    
+    private synchronized SearcherManager getSearcherManager() throws IOException {
+        
+        getIndexWriter();
+        return searcherManager;
+    }
+    
+    private static boolean isIndexed(RadiologyReport radiologyReport) {
+        return radiologyReport.getStatus() == RadiologyReportStatus.COMPLETED && !radiologyReport.getVoided();
+    }
+    
+    private static Document toDocument(RadiologyReport radiologyReport) {
+        
+        final Document result = new Document();
+        result.add(new StringField(FIELD_REPORT_ID, radiologyReport.getReportId()
+                .toString(), Field.Store.YES));
+        if (radiologyReport.getBody() != null) {
+            // bodies are written in the html editor, only their text is indexed
+            result.add(new TextField(FIELD_BODY, Jsoup.parse(radiologyReport.getBody())
+                    .text(), Field.Store.NO));
+        }
+        if (radiologyReport.getDate() != null) {
+            result.add(new LongField(FIELD_DATE, radiologyReport.getDate()
+                    .getTime(), Field.Store.NO));
+        }
+        if (radiologyReport.getPrincipalResultsInterpreter() != null) {
+            result.add(new StringField(FIELD_PRINCIPAL_RESULTS_INTERPRETER,
+                    String.valueOf(radiologyReport.getPrincipalResultsInterpreter()
+                            .getProviderId()),
+                    Field.Store.NO));
+        }
+        return result;
+    }
+    
+    private static Long toTime(Date date) {
+        return date == null ? null : date.getTime();
+    }
+}
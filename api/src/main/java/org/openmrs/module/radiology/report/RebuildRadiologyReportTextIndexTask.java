@@ -0,0 +1,41 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.radiology.report;
+
+import org.openmrs.api.context.Context;
+import org.openmrs.scheduler.tasks.AbstractTask;
+
+/**
+ * Scheduler task rebuilding the full text index over the bodies of completed {@link RadiologyReport}'s.
+ *
+ * @see RadiologyReportService#rebuildRadiologyReportTextIndex()
+ */
+public class RebuildRadiologyReportTextIndexTask extends AbstractTask {
+    
+    
+    /**
+     * @see AbstractTask#execute()
+     */
+    @Override
+    public void execute() {
+        
+        if (isExecuting) {
+            return;
+        }
+        startExecuting();
+        try {
+            Context.getService(RadiologyReportService.class)
+                    .rebuildRadiologyReportTextIndex();
+        }
+        finally {
+            stopExecuting();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.radiology.report.template;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.openmrs.api.ConceptService;
+import org.openmrs.api.context.Context;
+import org.springframework.aop.AfterReturningAdvice;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Advice around {@link ConceptService} invalidating the {@link ConceptSourceNameIndex} whenever a concept source is
+ * changed.
+ */
+public class ConceptSourceChangeAdvice implements AfterReturningAdvice {
+    
+    
+    private static final Set<String> CONCEPT_SOURCE_CHANGING_METHODS =
+            new HashSet<>(Arrays.asList("saveConceptSource", "retireConceptSource", "purgeConceptSource"));
+    
+    /**
+     * @see AfterReturningAdvice#afterReturning(Object, Method, Object[], Object)
+     * @should invalidate concept source name index if a concept source was changed
+     * @should not invalidate concept source name index if no concept source was changed
+     * @should invalidate concept source name index again once the transaction completed
+     */
+    @Override
+    public void afterReturning(Object returnValue, Method method, Object[] args, Object target) throws Throwable {
+        
+        if (CONCEPT_SOURCE_CHANGING_METHODS.contains(method.getName())) {
+            invalidate(Context.getRegisteredComponent("conceptSourceNameIndex", ConceptSourceNameIndex.class));
+        }
+    }
+    
+    /**
+     * Discards given index right away so that the transaction of the change sees it and again once that transaction
+     * completed so that an index built from the uncommitted change is not kept if it is rolled back and an index built
+     * by another transaction before the change was committed is not kept either.
+     */
+    private static void invalidate(ConceptSourceNameIndex conceptSourceNameIndex) {
+        
+        conceptSourceNameIndex.invalidate();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                
+                
+                @Override
+                public void afterCompletion(int status) {
+                    conceptSourceNameIndex.invalidate();
+                }
+            });
+        }
+    }
+}
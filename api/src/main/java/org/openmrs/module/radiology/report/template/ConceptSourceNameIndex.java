@@ -0,0 +1,119 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.radiology.report.template;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.openmrs.ConceptSource;
+import org.openmrs.api.ConceptService;
+
+/**
+ * Case insensitive index of the names of the non retired {@link ConceptSource}'s used to resolve the coding schemes of
+ * mrrt report template terms.
+ * <p>
+ * While caching the index is built on first use and kept until {@link #invalidate()} is called, which
+ * {@link ConceptSourceChangeAdvice} does whenever a concept source is saved, retired or purged. Caching is started and
+ * stopped with the module since the advice is only applied while the module runs, otherwise the index is built for
+ * every lookup. Only concept source ids are held so that no entity outlives the session it was loaded in.
+ * </p>
+ */
+public class ConceptSourceNameIndex {
+    
+    
+    private ConceptService conceptService;
+    
+    private volatile boolean caching;
+    
+    private volatile Map<String, Integer> conceptSourceIdsByName;
+    
+    private long generation;
+    
+    public void setConceptService(ConceptService conceptService) {
+        this.conceptService = conceptService;
+    }
+    
+    /**
+     * Get the id of the non retired concept source with given name ignoring case.
+     *
+     * @param name the name of the concept source
+     * @return the id of the concept source with given name or null if none exists
+     * @should return concept source id given name ignoring case
+     * @should return null given name of no concept source
+     * @should return null given null
+     */
+    public Integer getConceptSourceIdByName(String name) {
+        
+        if (name == null) {
+            return null;
+        }
+        return getIndex().get(name.toLowerCase(Locale.ROOT));
+    }
+    
+    /**
+     * Starts keeping the index between lookups.
+     *
+     * @should keep index until invalidated
+     */
+    public void startCaching() {
+        caching = true;
+    }
+    
+    /**
+     * Stops keeping the index between lookups and discards it.
+     *
+     * @should rebuild index for every lookup
+     */
+    public void stopCaching() {
+        caching = false;
+        invalidate();
+    }
+    
+    /**
+     * Discards the index so that it is rebuilt on next use.
+     *
+     * @should rebuild index on next use
+     */
+    public synchronized void invalidate() {
+        generation++;
+        conceptSourceIdsByName = null;
+    }
+    
+    private Map<String, Integer> getIndex() {
+        
+        Map<String, Integer> result = conceptSourceIdsByName;
+        if (result == null) {
+            final long builtGeneration;
+            synchronized (this) {
+                builtGeneration = generation;
+            }
+            result = buildIndex();
+            synchronized (this) {
+                // an index built while concept sources changed might already be stale
+                if (caching && builtGeneration == generation) {
+                    conceptSourceIdsByName = result;
+                }
+            }
+        }
+        return result;
+    }
+    
+    private Map<String, Integer> buildIndex() {
+        
+        final Map<String, Integer> result = new HashMap<>();
+        for (ConceptSource conceptSource : conceptService.getAllConceptSources(false)) {
+            result.putIfAbsent(conceptSource.getName()
+                    .toLowerCase(Locale.ROOT),
+                conceptSource.getConceptSourceId());
+        }
+        return result;
+    }
+}
@@ -9,33 +9,27 @@
  */
 package org.openmrs.module.radiology.report.template;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
 import org.openmrs.ConceptReferenceTerm;
-import org.openmrs.ConceptSource;
-import org.openmrs.api.APIException;
-import org.openmrs.api.ConceptService;
-import org.openmrs.api.context.Context;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
 
 /**
  * A parser to parse MRRT report templates and and return an MrrtReportTemplate object.
+ * <p>
+ * The metadata and terms are read from the document the {@link MrrtReportTemplateValidator} parsed while validating
+ * so that a template is only parsed once. The coding schemes of its terms are resolved through the
+ * {@link ConceptSourceNameIndex} and all its terms are looked up with a single query.
+ * </p>
  */
 class DefaultMrrtReportTemplateFileParser implements MrrtReportTemplateFileParser {
     
@@ -64,40 +58,52 @@ class DefaultMrrtReportTemplateFileParser implements MrrtReportTemplateFileParse
     
     private MrrtReportTemplateValidator validator;
     
+    private ConceptSourceNameIndex conceptSourceNameIndex;
+    
+    private MrrtReportTemplateDAO mrrtReportTemplateDAO;
+    
     public void setValidator(MrrtReportTemplateValidator validator) {
         this.validator = validator;
     }
     
+    public void setConceptSourceNameIndex(ConceptSourceNameIndex conceptSourceNameIndex) {
+        this.conceptSourceNameIndex = conceptSourceNameIndex;
+    }
+    
+    public void setMrrtReportTemplateDAO(MrrtReportTemplateDAO mrrtReportTemplateDAO) {
+        this.mrrtReportTemplateDAO = mrrtReportTemplateDAO;
+    }
+    
     /**
      * @see MrrtReportTemplateFileParser#parse(String)
      */
     @Override
     public MrrtReportTemplate parse(String mrrtTemplate) throws IOException {
         
-        validator.validate(mrrtTemplate);
+        return parse(validator.validate(mrrtTemplate));
+    }
+    
+    /**
+     * @see MrrtReportTemplateFileParser#parse(Document)
+     */
+    @Override
+    public MrrtReportTemplate parse(Document doc) {
         
-        final Document doc = Jsoup.parse(mrrtTemplate, "");
         final MrrtReportTemplate result = new MrrtReportTemplate();
         initializeTemplate(result, doc);
-        try {
-            addTermsToTemplate(result, doc.getElementsByTag("script")
-                    .get(0)
-                    .toString());
-        }
-        catch (ParserConfigurationException | SAXException e) {
-            throw new APIException("radiology.report.template.parser.error", null, e);
-        }
+        addTermsToTemplate(result, (Element) doc.getElementsByTagName("script")
+                .item(0));
         return result;
     }
     
     private final void initializeTemplate(MrrtReportTemplate template, Document doc) {
-        final Elements metaTags = doc.getElementsByTag("meta");
+        final NodeList metaTags = doc.getElementsByTagName("meta");
         
-        template.setPath(doc.baseUri());
-        template.setCharset(metaTags.attr("charset"));
-        for (Element metaTag : metaTags) {
-            final String name = metaTag.attr("name");
-            final String content = metaTag.attr("content");
+        template.setCharset(getCharset(metaTags));
+        for (int i = 0; i < metaTags.getLength(); i++) {
+            final Element metaTag = (Element) metaTags.item(i);
+            final String name = metaTag.getAttribute("name");
+            final String content = metaTag.getAttribute("content");
             
             switch (name) {
                 case DCTERMS_TITLE:
@@ -136,48 +142,37 @@ class DefaultMrrtReportTemplateFileParser implements MrrtReportTemplateFileParse
         }
     }
     
-    private final void addTermsToTemplate(MrrtReportTemplate template, String script)
-            throws ParserConfigurationException, SAXException, IOException {
+    private final String getCharset(NodeList metaTags) {
         
-        final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        final DocumentBuilder builder = factory.newDocumentBuilder();
-        try (InputStream in = new ByteArrayInputStream(script.getBytes())) {
-            final org.w3c.dom.Document scriptPartAsDocument = builder.parse(in);
-            scriptPartAsDocument.getDocumentElement()
-                    .normalize();
-            final NodeList terms = scriptPartAsDocument.getElementsByTagName("term");
-            final ConceptService conceptService = Context.getService(ConceptService.class);
-            final Set<ConceptReferenceTerm> referenceTerms = new HashSet<>();
-            
-            for (int i = 0; i < terms.getLength(); i++) {
-                final org.w3c.dom.Element termElement = (org.w3c.dom.Element) terms.item(i);
-                final org.w3c.dom.Element codeElement = (org.w3c.dom.Element) termElement.getElementsByTagName("code")
-                        .item(0);
-                final ConceptSource conceptSource =
-                        getConceptSourceByName(codeElement.getAttribute("scheme"), conceptService);
-                if (conceptSource != null) {
-                    final ConceptReferenceTerm referenceTerm =
-                            conceptService.getConceptReferenceTermByCode(codeElement.getAttribute("value"), conceptSource);
-                    if (referenceTerm != null) {
-                        referenceTerms.add(referenceTerm);
-                    }
-                }
-            }
-            if (!referenceTerms.isEmpty()) {
-                template.setTerms(referenceTerms);
+        for (int i = 0; i < metaTags.getLength(); i++) {
+            final Element metaTag = (Element) metaTags.item(i);
+            if (metaTag.hasAttribute("charset")) {
+                return metaTag.getAttribute("charset");
             }
         }
+        return "";
     }
     
-    private final ConceptSource getConceptSourceByName(String name, ConceptService conceptService) {
+    private final void addTermsToTemplate(MrrtReportTemplate template, Element script) {
         
-        final List<ConceptSource> conceptSources = conceptService.getAllConceptSources(false);
-        for (ConceptSource conceptSource : conceptSources) {
-            if (conceptSource.getName()
-                    .equalsIgnoreCase(name)) {
-                return conceptSource;
+        final NodeList terms = script.getElementsByTagName("term");
+        final Map<Integer, Set<String>> codesByConceptSourceId = new HashMap<>();
+        
+        for (int i = 0; i < terms.getLength(); i++) {
+            final Element termElement = (Element) terms.item(i);
+            final Element codeElement = (Element) termElement.getElementsByTagName("code")
+                    .item(0);
+            final Integer conceptSourceId =
+                    conceptSourceNameIndex.getConceptSourceIdByName(codeElement.getAttribute("scheme"));
+            if (conceptSourceId != null) {
+                codesByConceptSourceId.computeIfAbsent(conceptSourceId, id -> new HashSet<>())
+                        .add(codeElement.getAttribute("value"));
             }
         }
-        return null;
+        final List<ConceptReferenceTerm> referenceTerms =
+                mrrtReportTemplateDAO.getConceptReferenceTerms(codesByConceptSourceId);
+        if (!referenceTerms.isEmpty()) {
+            template.setTerms(new HashSet<>(referenceTerms));
+        }
     }
 }
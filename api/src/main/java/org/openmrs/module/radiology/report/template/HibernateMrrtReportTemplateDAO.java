@@ -10,13 +10,19 @@
 package org.openmrs.module.radiology.report.template;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import org.apache.commons.lang3.StringUtils;
 import org.hibernate.Criteria;
+import org.hibernate.Query;
 import org.hibernate.SessionFactory;
-import org.hibernate.criterion.MatchMode;
-import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Disjunction;
+import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
+import org.openmrs.ConceptReferenceTerm;
 
 /**
  * Hibernate specific MrrtReportTemplate related functions. This class should not be used directly. All
@@ -28,6 +34,11 @@ import org.hibernate.criterion.Restrictions;
 class HibernateMrrtReportTemplateDAO implements MrrtReportTemplateDAO {
     
     
+    /**
+     * Maximum number of template ids bound to a single query.
+     */
+    private static final int MAX_IDS_PER_QUERY = 1000;
+    
     private SessionFactory sessionFactory;
     
     /**
@@ -69,30 +80,85 @@ class HibernateMrrtReportTemplateDAO implements MrrtReportTemplateDAO {
     }
     
     /**
-     * @see org.openmrs.module.radiology.report.template.MrrtReportTemplateService#getMrrtReportTemplates(MrrtReportTemplateSearchCriteria)
+     * @see org.openmrs.module.radiology.report.template.MrrtReportTemplateDAO#getMrrtReportTemplateByContentHash(String)
+     */
+    @Override
+    public MrrtReportTemplate getMrrtReportTemplateByContentHash(String contentHash) {
+        final Criteria criteria = createMrrtReportTemplateCriteria();
+        criteria.add(Restrictions.eq("contentHash", contentHash));
+        return (MrrtReportTemplate) criteria.uniqueResult();
+    }
+    
+    /**
+     * @see org.openmrs.module.radiology.report.template.MrrtReportTemplateDAO#getMrrtReportTemplates(List)
      */
     @SuppressWarnings("unchecked")
     @Override
-    public List<MrrtReportTemplate> getMrrtReportTemplates(MrrtReportTemplateSearchCriteria searchCriteria) {
+    public List<MrrtReportTemplate> getMrrtReportTemplates(List<Integer> templateIds) {
         
-        final Criteria crit = sessionFactory.getCurrentSession()
-                .createCriteria(MrrtReportTemplate.class);
-        crit.addOrder(Order.asc("dcTermsTitle"));
+        final Map<Integer, MrrtReportTemplate> templatesById = new HashMap<>();
+        for (int from = 0; from < templateIds.size(); from += MAX_IDS_PER_QUERY) {
+            final Criteria criteria = createMrrtReportTemplateCriteria();
+            criteria.add(Restrictions.in("templateId",
+                templateIds.subList(from, Math.min(from + MAX_IDS_PER_QUERY, templateIds.size()))));
+            for (MrrtReportTemplate template : (List<MrrtReportTemplate>) criteria.list()) {
+                templatesById.put(template.getTemplateId(), template);
+            }
+        }
         
-        if (searchCriteria.getTitle() != null) {
-            crit.add(Restrictions.ilike("dcTermsTitle", searchCriteria.getTitle() + "%", MatchMode.ANYWHERE));
+        final List<MrrtReportTemplate> result = new ArrayList<>(templateIds.size());
+        for (Integer templateId : templateIds) {
+            final MrrtReportTemplate template = templatesById.get(templateId);
+            if (template != null) {
+                result.add(template);
+            }
         }
-        if (searchCriteria.getPublisher() != null) {
-            crit.add(Restrictions.ilike("dcTermsPublisher", searchCriteria.getPublisher() + "%", MatchMode.ANYWHERE));
+        return result;
+    }
+    
+    /**
+     * @see org.openmrs.module.radiology.report.template.MrrtReportTemplateDAO#getMrrtReportTemplateIdsByTerm(String,
+     *      Integer)
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<Integer> getMrrtReportTemplateIdsByTerm(String termCode, Integer conceptSourceId) {
+        
+        final List<String> restrictions = new ArrayList<>();
+        if (termCode != null) {
+            restrictions.add("term.code = :termCode");
         }
-        if (searchCriteria.getLicense() != null) {
-            crit.add(Restrictions.ilike("dcTermsLicense", searchCriteria.getLicense() + "%", MatchMode.ANYWHERE));
+        if (conceptSourceId != null) {
+            restrictions.add("term.conceptSource.conceptSourceId = :conceptSourceId");
         }
-        if (searchCriteria.getCreator() != null) {
-            crit.add(Restrictions.ilike("dcTermsCreator", searchCriteria.getCreator() + "%", MatchMode.ANYWHERE));
+        String hql = "select distinct template.templateId from MrrtReportTemplate template join template.terms term";
+        if (!restrictions.isEmpty()) {
+            hql += " where " + StringUtils.join(restrictions, " and ");
         }
-        final List<MrrtReportTemplate> result = (List<MrrtReportTemplate>) crit.list();
-        return result == null ? new ArrayList<>() : result;
+        final Query query = sessionFactory.getCurrentSession()
+                .createQuery(hql);
+        if (termCode != null) {
+            query.setString("termCode", termCode);
+        }
+        if (conceptSourceId != null) {
+            query.setInteger("conceptSourceId", conceptSourceId);
+        }
+        return (List<Integer>) query.list();
+    }
+    
+    /**
+     * @see org.openmrs.module.radiology.report.template.MrrtReportTemplateDAO#getMrrtReportTemplateSearchFields()
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<Object[]> getMrrtReportTemplateSearchFields() {
+        return createMrrtReportTemplateCriteria().setProjection(Projections.projectionList()
+                .add(Projections.property("templateId"))
+                .add(Projections.property("dcTermsTitle"))
+                .add(Projections.property("dcTermsPublisher"))
+                .add(Projections.property("dcTermsLicense"))
+                .add(Projections.property("dcTermsCreator")))
+                .list();
     }
     
     /**
@@ -114,6 +180,28 @@ class HibernateMrrtReportTemplateDAO implements MrrtReportTemplateDAO {
                 .delete(template);
     }
     
+    /**
+     * @see org.openmrs.module.radiology.report.template.MrrtReportTemplateDAO#getConceptReferenceTerms(Map)
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<ConceptReferenceTerm> getConceptReferenceTerms(Map<Integer, Set<String>> codesByConceptSourceId) {
+        
+        if (codesByConceptSourceId.isEmpty()) {
+            return new ArrayList<>();
+        }
+        final Disjunction codesOfConceptSources = Restrictions.disjunction();
+        for (Map.Entry<Integer, Set<String>> codesOfConceptSource : codesByConceptSourceId.entrySet()) {
+            codesOfConceptSources.add(
+                Restrictions.and(Restrictions.eq("conceptSource.conceptSourceId", codesOfConceptSource.getKey()),
+                    Restrictions.in("code", codesOfConceptSource.getValue())));
+        }
+        return sessionFactory.getCurrentSession()
+                .createCriteria(ConceptReferenceTerm.class)
+                .add(codesOfConceptSources)
+                .list();
+    }
+    
     /**
      * A utility method creating a criteria for MrrtReportTemplate
      *
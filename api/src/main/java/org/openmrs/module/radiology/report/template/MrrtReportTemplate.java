@@ -28,6 +28,8 @@ public class MrrtReportTemplate extends BaseOpenmrsData {
     
     private String path;
     
+    private String contentHash;
+    
     private String dcTermsTitle;
     
     private String dcTermsDescription;
@@ -84,6 +86,14 @@ public class MrrtReportTemplate extends BaseOpenmrsData {
         this.path = path;
     }
     
+    public String getContentHash() {
+        return contentHash;
+    }
+    
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+    
     public String getDcTermsTitle() {
         return dcTermsTitle;
     }
@@ -10,6 +10,10 @@
 package org.openmrs.module.radiology.report.template;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.openmrs.ConceptReferenceTerm;
 
 /**
  * {@code MrrTReportTemplate} related database methods.
@@ -36,9 +40,36 @@ interface MrrtReportTemplateDAO {
     public MrrtReportTemplate getMrrtReportTemplateByIdentifier(String identifier);
     
     /**
-     * @see org.openmrs.module.radiology.report.template.MrrtReportTemplateService#getMrrtReportTemplates(MrrtReportTemplateSearchCriteria)
+     * Get the template whose file has given content hash.
+     *
+     * @param contentHash the hex encoded SHA-256 hash of the template file content
+     * @return the template whose file has given content hash or null if none exists
+     */
+    public MrrtReportTemplate getMrrtReportTemplateByContentHash(String contentHash);
+    
+    /**
+     * Get the templates with given ids.
+     *
+     * @param templateIds the ids of the templates
+     * @return the templates with given ids in the order of given ids
+     */
+    public List<MrrtReportTemplate> getMrrtReportTemplates(List<Integer> templateIds);
+    
+    /**
+     * Get the ids of the templates coded with a term matching given code and concept source.
+     *
+     * @param termCode the code of the term or null to match terms of any code
+     * @param conceptSourceId the id of the concept source of the term or null to match terms of any concept source
+     * @return the ids of the templates coded with a matching term
      */
-    public List<MrrtReportTemplate> getMrrtReportTemplates(MrrtReportTemplateSearchCriteria searchCriteria);
+    public List<Integer> getMrrtReportTemplateIdsByTerm(String termCode, Integer conceptSourceId);
+    
+    /**
+     * Get the fields {@link MrrtReportTemplateSearchIndex} searches of all templates without loading the templates.
+     *
+     * @return a row of template id, title, publisher, license and creator per template
+     */
+    public List<Object[]> getMrrtReportTemplateSearchFields();
     
     /**
      * @see org.openmrs.module.radiology.report.template.MrrtReportTemplateService#saveMrrtReportTemplate(MrrtReportTemplate)
@@ -49,4 +80,12 @@ interface MrrtReportTemplateDAO {
      * @see org.openmrs.module.radiology.report.template.MrrtReportTemplateService#purgeMrrtReportTemplate(MrrtReportTemplate)
      */
     public void purgeMrrtReportTemplate(MrrtReportTemplate template);
+    
+    /**
+     * Get the concept reference terms with given codes in one query.
+     *
+     * @param codesByConceptSourceId the codes of the concept reference terms by the id of their concept source
+     * @return the concept reference terms matching one of given codes of their concept source
+     */
+    public List<ConceptReferenceTerm> getConceptReferenceTerms(Map<Integer, Set<String>> codesByConceptSourceId);
 }
@@ -0,0 +1,330 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.radiology.report.template;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FilenameUtils;
+import org.openmrs.api.APIException;
+import org.openmrs.api.context.Daemon;
+import org.openmrs.module.DaemonToken;
+import org.openmrs.module.radiology.RadiologyProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches the directory configured by {@link RadiologyProperties#getReportTemplateWatchDirectory()} and imports the
+ * {@code .html} and {@code .htm} files dropped into it as {@link MrrtReportTemplate}'s.
+ * <p>
+ * The events of a file are debounced so that a file is only imported once it was not modified for
+ * {@link #DEBOUNCE_MILLIS}, which keeps files which are still being copied from being imported. Imports run on a bounded
+ * pool of workers and each import runs as daemon user. A file whose content hash matches the hash of an imported
+ * template is skipped without being parsed, so when watching starts all files of the directory are reconciled with the
+ * imported templates that way instead of being imported again. The directory is reconciled again if the watch service
+ * lost events.
+ * </p>
+ * <p>
+ * A changed file is imported as a new template. A template keeping the identifier of the version imported before is
+ * rejected by {@link MrrtReportTemplateService#importMrrtReportTemplate(java.io.InputStream, java.nio.charset.Charset)}
+ * and has to be purged before its new version can be imported.
+ * </p>
+ */
+public class MrrtReportTemplateDirectoryWatcher {
+    
+    
+    private static final Logger log = LoggerFactory.getLogger(MrrtReportTemplateDirectoryWatcher.class);
+    
+    /**
+     * Time a file has to be left unmodified before it is imported.
+     */
+    static final long DEBOUNCE_MILLIS = 2000;
+    
+    private static final int WORKER_COUNT = 2;
+    
+    /**
+     * Maximum number of files waiting for a worker, further files are imported by the thread handing them over.
+     */
+    private static final int WORKER_QUEUE_CAPACITY = 100;
+    
+    private static final List<String> MRRT_TEMPLATE_FILE_EXTENSIONS = Arrays.asList("html", "htm");
+    
+    private RadiologyProperties radiologyProperties;
+    
+    private MrrtReportTemplateService mrrtReportTemplateService;
+    
+    private Watch watch;
+    
+    public void setRadiologyProperties(RadiologyProperties radiologyProperties) {
+        this.radiologyProperties = radiologyProperties;
+    }
+    
+    public void setMrrtReportTemplateService(MrrtReportTemplateService mrrtReportTemplateService) {
+        this.mrrtReportTemplateService = mrrtReportTemplateService;
+    }
+    
+    /**
+     * Starts watching the report template watch directory if one is configured.
+     *
+     * @param daemonToken the token of the module the templates are imported for as daemon user
+     * @throws IOException if the watch directory cannot be watched
+     * @should not watch any directory if report template watch directory is not configured
+     * @should watch configured report template watch directory until stopped
+     */
+    public synchronized void start(DaemonToken daemonToken) throws IOException {
+        
+        if (watch != null) {
+            return;
+        }
+        final File watchDirectory = radiologyProperties.getReportTemplateWatchDirectory();
+        if (watchDirectory == null) {
+            log.debug("No report template watch directory configured");
+            return;
+        }
+        watch = new Watch(watchDirectory.toPath(), daemonToken);
+        log.info("Watching " + watchDirectory + " for report templates");
+    }
+    
+    /**
+     * Stops watching the report template watch directory discarding the files waiting to be imported.
+     */
+    public synchronized void stop() {
+        
+        if (watch != null) {
+            watch.close();
+            watch = null;
+        }
+    }
+    
+    /**
+     * @return true if a directory is watched and false otherwise
+     */
+    public synchronized boolean isWatching() {
+        return watch != null;
+    }
+    
+    /**
+     * Imports given template file unless its content was already imported.
+     *
+     * @param file the template file to be imported
+     * @return the imported mrrt report template or null if the file was skipped or could not be imported
+     * @should import template file whose content was not imported yet
+     * @should skip template file whose content was already imported
+     * @should skip template file larger than the maximum size
+     * @should skip files which are not html files
+     */
+    MrrtReportTemplate importFile(Path file) {
+        
+        if (!isMrrtTemplateFile(file) || !Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            final int maxSize = radiologyProperties.getMrrtReportTemplateMaxSize();
+            if (Files.size(file) > maxSize) {
+                log.warn("Skipped " + file + " because it is larger than " + maxSize + " bytes");
+                return null;
+            }
+            final byte[] content = Files.readAllBytes(file);
+            final String contentHash = MrrtReportTemplateServiceImpl.getContentHash(content);
+            if (mrrtReportTemplateService.getMrrtReportTemplateByContentHash(contentHash) != null) {
+                log.debug("Skipped " + file + " because its content was already imported");
+                return null;
+            }
+            final MrrtReportTemplate result = mrrtReportTemplateService
+                    .importMrrtReportTemplate(new ByteArrayInputStream(content), StandardCharsets.UTF_8);
+            log.info("Imported " + file + " as report template " + result.getDcTermsIdentifier());
+            return result;
+        }
+        catch (APIException | IOException e) {
+            log.warn("Failed to import " + file + " => " + e.getMessage(), e);
+            return null;
+        }
+    }
+    
+    private static boolean isMrrtTemplateFile(Path file) {
+        
+        final String fileName = file.getFileName()
+                .toString();
+        // editors and copy tools create hidden files next to the file they write
+        return !fileName.startsWith(".") && MRRT_TEMPLATE_FILE_EXTENSIONS.contains(FilenameUtils.getExtension(fileName)
+                .toLowerCase(Locale.ROOT));
+    }
+    
+    private static ThreadFactory daemonThreads(String name) {
+        
+        final AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            final Thread result = new Thread(runnable, name + "-" + count.incrementAndGet());
+            result.setDaemon(true);
+            return result;
+        };
+    }
+    
+    /**
+     * The watch service of the watched directory together with the threads debouncing and importing its files.
+     */
+    private class Watch {
+        
+        
+        private final Path directory;
+        
+        private final DaemonToken daemonToken;
+        
+        private final WatchService watchService;
+        
+        private final ScheduledExecutorService debouncer =
+                Executors.newSingleThreadScheduledExecutor(daemonThreads("radiology-report-template-debouncer"));
+        
+        private final ExecutorService workers = new ThreadPoolExecutor(WORKER_COUNT, WORKER_COUNT, 0L,
+                TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(WORKER_QUEUE_CAPACITY),
+                daemonThreads("radiology-report-template-importer"), new ThreadPoolExecutor.CallerRunsPolicy());
+        
+        private final Map<Path, ScheduledFuture<?>> pendingImports = new ConcurrentHashMap<>();
+        
+        Watch(Path directory, DaemonToken daemonToken) throws IOException {
+            
+            this.directory = directory;
+            this.daemonToken = daemonToken;
+            watchService = directory.getFileSystem()
+                    .newWatchService();
+            try {
+                directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+            }
+            catch (IOException e) {
+                close();
+                throw e;
+            }
+            final Thread watcher = new Thread(this::watch, "radiology-report-template-watcher");
+            watcher.setDaemon(true);
+            watcher.start();
+            debouncer.execute(this::reconcile);
+        }
+        
+        private void watch() {
+            
+            try {
+                while (true) {
+                    final WatchKey key = watchService.take();
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == OVERFLOW) {
+                            debouncer.execute(this::reconcile);
+                        } else {
+                            scheduleImport(directory.resolve((Path) event.context()));
+                        }
+                    }
+                    if (!key.reset()) {
+                        log.warn(directory + " can no longer be watched for report templates");
+                        return;
+                    }
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread()
+                        .interrupt();
+            }
+            catch (ClosedWatchServiceException | RejectedExecutionException e) {
+                log.debug("Stopped watching " + directory + " for report templates");
+            }
+        }
+        
+        /**
+         * Hands all template files of the directory over to the workers which skip those already imported.
+         */
+        private void reconcile() {
+            
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                for (Path file : files) {
+                    if (isMrrtTemplateFile(file)) {
+                        workers.execute(() -> importFileAsDaemon(file));
+                    }
+                }
+            }
+            catch (IOException e) {
+                log.warn("Failed to reconcile report templates of " + directory, e);
+            }
+        }
+        
+        /**
+         * Schedules the import of given file replacing an import of it which is still waiting.
+         */
+        private void scheduleImport(Path file) {
+            
+            if (!isMrrtTemplateFile(file)) {
+                return;
+            }
+            pendingImports.compute(file, (path, pending) -> {
+                if (pending != null) {
+                    pending.cancel(false);
+                }
+                return debouncer.schedule(() -> {
+                    pendingImports.remove(path);
+                    workers.execute(() -> importFileAsDaemon(path));
+                }, DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+            });
+        }
+        
+        /**
+         * Imports given file in a daemon thread so that it is imported by the daemon user in a session of its own and
+         * waits for it, so that the number of concurrent imports stays bounded by the workers.
+         */
+        private void importFileAsDaemon(Path file) {
+            
+            try {
+                Daemon.runInDaemonThread(() -> importFile(file), daemonToken)
+                        .join();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread()
+                        .interrupt();
+            }
+        }
+        
+        private void close() {
+            
+            try {
+                watchService.close();
+            }
+            catch (IOException e) {
+                log.warn("Failed to close watch service of " + directory, e);
+            }
+            debouncer.shutdownNow();
+            workers.shutdownNow();
+            pendingImports.clear();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.radiology.report.template;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Least recently used cache of the html bodies of {@link MrrtReportTemplate} files bounded by the total size of the
+ * cached bodies.
+ * <p>
+ * Bodies are cached by template uuid together with the modification time of the template file they were extracted
+ * from, a body is only returned as long as the file was not modified since.
+ * </p>
+ */
+class MrrtReportTemplateHtmlBodyCache {
+    
+    
+    private final long maxBytes;
+    
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    
+    private long bytes;
+    
+    /**
+     * Creates an empty cache.
+     *
+     * @param maxBytes the maximum total size in bytes of the cached bodies
+     */
+    MrrtReportTemplateHtmlBodyCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+    
+    /**
+     * Get the cached html body of a template.
+     *
+     * @param uuid the uuid of the template
+     * @param lastModified the modification time of the template file
+     * @return the cached html body or null if none is cached for given uuid and modification time
+     * @should return cached html body given uuid and modification time it was cached with
+     * @should return null given other modification time than it was cached with
+     * @should return null given null
+     */
+    synchronized String get(String uuid, long lastModified) {
+        
+        if (uuid == null) {
+            return null;
+        }
+        final Entry entry = entries.get(uuid);
+        return entry == null || entry.lastModified != lastModified ? null : entry.htmlBody;
+    }
+    
+    /**
+     * Caches the html body of a template evicting the least recently used bodies until the cache fits.
+     *
+     * @param uuid the uuid of the template
+     * @param lastModified the modification time of the template file
+     * @param htmlBody the html body extracted from the template file
+     * @should evict least recently used html bodies if max bytes are exceeded
+     * @should not cache html body larger than max bytes
+     * @should not cache html body given null uuid
+     */
+    synchronized void put(String uuid, long lastModified, String htmlBody) {
+        
+        final long size = sizeOf(htmlBody);
+        if (uuid == null || size > maxBytes) {
+            return;
+        }
+        remove(uuid);
+        entries.put(uuid, new Entry(lastModified, htmlBody));
+        bytes += size;
+        final Iterator<Entry> leastRecentlyUsed = entries.values()
+                .iterator();
+        while (bytes > maxBytes) {
+            bytes -= sizeOf(leastRecentlyUsed.next().htmlBody);
+            leastRecentlyUsed.remove();
+        }
+    }
+    
+    /**
+     * Removes the cached html body of a template.
+     *
+     * @param uuid the uuid of the template
+     * @should remove cached html body of template with given uuid
+     */
+    synchronized void invalidate(String uuid) {
+        remove(uuid);
+    }
+    
+    /**
+     * @return the number of cached html bodies
+     */
+    synchronized int size() {
+        return entries.size();
+    }
+    
+    private void remove(String uuid) {
+        
+        final Entry removed = entries.remove(uuid);
+        if (removed != null) {
+            bytes -= sizeOf(removed.htmlBody);
+        }
+    }
+    
+    /**
+     * Strings hold two bytes per char.
+     */
+    private static long sizeOf(String htmlBody) {
+        return 2L * htmlBody.length();
+    }
+    
+    private static class Entry {
+        
+        
+        private final long lastModified;
+        
+        private final String htmlBody;
+        
+        Entry(long lastModified, String htmlBody) {
+            this.lastModified = lastModified;
+            this.htmlBody = htmlBody;
+        }
+    }
+}
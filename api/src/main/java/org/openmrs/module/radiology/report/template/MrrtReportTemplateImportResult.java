@@ -0,0 +1,80 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.radiology.report.template;
+
+/**
+ * Outcome of importing a single template file as part of
+ * {@link MrrtReportTemplateService#importMrrtReportTemplates(java.io.InputStream)}.
+ */
+public class MrrtReportTemplateImportResult {
+    
+    
+    private final String fileName;
+    
+    private final MrrtReportTemplate mrrtReportTemplate;
+    
+    private final Exception error;
+    
+    private MrrtReportTemplateImportResult(String fileName, MrrtReportTemplate mrrtReportTemplate, Exception error) {
+        this.fileName = fileName;
+        this.mrrtReportTemplate = mrrtReportTemplate;
+        this.error = error;
+    }
+    
+    /**
+     * Creates the result of a template file which was imported.
+     *
+     * @param fileName the name of the imported template file
+     * @param mrrtReportTemplate the imported mrrt report template
+     * @return the result of an imported template file
+     */
+    public static MrrtReportTemplateImportResult imported(String fileName, MrrtReportTemplate mrrtReportTemplate) {
+        return new MrrtReportTemplateImportResult(fileName, mrrtReportTemplate, null);
+    }
+    
+    /**
+     * Creates the result of a template file which could not be imported.
+     *
+     * @param fileName the name of the template file which could not be imported
+     * @param error the reason why the template file could not be imported
+     * @return the result of a template file which could not be imported
+     */
+    public static MrrtReportTemplateImportResult failed(String fileName, Exception error) {
+        return new MrrtReportTemplateImportResult(fileName, null, error);
+    }
+    
+    /**
+     * @return the name of the template file within the archive it was imported from
+     */
+    public String getFileName() {
+        return fileName;
+    }
+    
+    /**
+     * @return the imported mrrt report template or null if it could not be imported
+     */
+    public MrrtReportTemplate getMrrtReportTemplate() {
+        return mrrtReportTemplate;
+    }
+    
+    /**
+     * @return the reason why the template file could not be imported or null if it was imported
+     */
+    public Exception getError() {
+        return error;
+    }
+    
+    /**
+     * @return true if the template file was imported and false otherwise
+     */
+    public boolean isImported() {
+        return error == null;
+    }
+}
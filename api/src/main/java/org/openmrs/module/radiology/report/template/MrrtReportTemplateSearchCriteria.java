@@ -23,6 +23,10 @@ public class MrrtReportTemplateSearchCriteria {
     
     private final String creator;
     
+    private final String termCode;
+    
+    private final String conceptSource;
+    
     /**
      * @return the title of the mrrt report template
      */
@@ -53,6 +57,20 @@ public class MrrtReportTemplateSearchCriteria {
         return creator;
     }
     
+    /**
+     * @return the code of a term the mrrt report template is coded with
+     */
+    public String getTermCode() {
+        return termCode;
+    }
+    
+    /**
+     * @return the name of the concept source of a term the mrrt report template is coded with
+     */
+    public String getConceptSource() {
+        return conceptSource;
+    }
+    
     public static class Builder {
         
         
@@ -64,6 +82,10 @@ public class MrrtReportTemplateSearchCriteria {
         
         private String creator;
         
+        private String termCode;
+        
+        private String conceptSource;
+        
         /**
          * @param title the title of the mrrt report template
          * @return this builder instance
@@ -102,6 +124,24 @@ public class MrrtReportTemplateSearchCriteria {
             return this;
         }
         
+        /**
+         * @param termCode the code of a term the mrrt report template is coded with
+         * @return this builder instance
+         */
+        public Builder withTermCode(String termCode) {
+            this.termCode = termCode;
+            return this;
+        }
+        
+        /**
+         * @param conceptSource the name of the concept source of a term the mrrt report template is coded with
+         * @return this builder instance
+         */
+        public Builder withConceptSource(String conceptSource) {
+            this.conceptSource = conceptSource;
+            return this;
+        }
+        
         /**
          * Creates an {@code MrrtReportTemplateSearchCriteria} with properties of this builder instance.
          * 
@@ -110,6 +150,8 @@ public class MrrtReportTemplateSearchCriteria {
          * @should create an mrrt report template search criteria instance with publisher if publisher is set
          * @should create an mrrt report template search criteria instance with license if license is set
          * @should create an mrrt report template search criteria instance with creator if creator is set
+         * @should create an mrrt report template search criteria instance with term code if term code is set
+         * @should create an mrrt report template search criteria instance with concept source if concept source is set
          */
         public MrrtReportTemplateSearchCriteria build() {
             return new MrrtReportTemplateSearchCriteria(this);
@@ -122,5 +164,7 @@ public class MrrtReportTemplateSearchCriteria {
         this.publisher = builder.publisher;
         this.license = builder.license;
         this.creator = builder.creator;
+        this.termCode = builder.termCode;
+        this.conceptSource = builder.conceptSource;
     }
 }
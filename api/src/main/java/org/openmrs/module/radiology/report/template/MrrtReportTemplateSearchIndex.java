@@ -0,0 +1,274 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.radiology.report.template;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * In memory trigram index over the title, publisher, license and creator of all {@link MrrtReportTemplate}'s used to
+ * search templates without scanning the template table.
+ * <p>
+ * A search term matches a template if the field contains it ignoring case. Terms of at least three characters are
+ * looked up by their trigrams and the candidates are then checked against the full term, shorter terms are checked
+ * against every template. Templates matching a title term are ranked by whether the title equals, starts with or has a
+ * word starting with the term and are otherwise ordered by title.
+ * </p>
+ * <p>
+ * While caching the index is built on first use and kept until {@link #invalidate()} is called, which
+ * {@link MrrtReportTemplateService} does whenever a template is saved or purged. Caching is started and stopped with
+ * the module, otherwise the index is built for every search. Only template ids are held so that no entity outlives the
+ * session it was loaded in.
+ * </p>
+ */
+public class MrrtReportTemplateSearchIndex {
+    
+    
+    private static final int GRAM_LENGTH = 3;
+    
+    private static final int TITLE = 0;
+    
+    private static final int PUBLISHER = 1;
+    
+    private static final int LICENSE = 2;
+    
+    private static final int CREATOR = 3;
+    
+    private static final int FIELD_COUNT = 4;
+    
+    private static final int RANK_EQUALS = 0;
+    
+    private static final int RANK_STARTS_WITH = 1;
+    
+    private static final int RANK_WORD_STARTS_WITH = 2;
+    
+    private static final int RANK_CONTAINS = 3;
+    
+    private MrrtReportTemplateDAO mrrtReportTemplateDAO;
+    
+    private volatile boolean caching;
+    
+    private volatile Snapshot snapshot;
+    
+    private long generation;
+    
+    public void setMrrtReportTemplateDAO(MrrtReportTemplateDAO mrrtReportTemplateDAO) {
+        this.mrrtReportTemplateDAO = mrrtReportTemplateDAO;
+    }
+    
+    /**
+     * Get the ids of the templates matching given search criteria.
+     *
+     * @param searchCriteria the search criteria the templates should match
+     * @return the ids of the matching templates ranked by how well their title matches and otherwise ordered by title
+     * @should return ids of templates whose fields contain given search terms ignoring case
+     * @should return ids of templates matching search terms shorter than three characters
+     * @should return ids of templates matching all given search terms
+     * @should rank templates whose title starts with given title before templates only containing it
+     * @should return ids of all templates ordered by title if no search term is given
+     * @should return empty list if no template matches
+     */
+    List<Integer> search(MrrtReportTemplateSearchCriteria searchCriteria) {
+        
+        final String[] terms = new String[FIELD_COUNT];
+        terms[TITLE] = normalize(searchCriteria.getTitle());
+        terms[PUBLISHER] = normalize(searchCriteria.getPublisher());
+        terms[LICENSE] = normalize(searchCriteria.getLicense());
+        terms[CREATOR] = normalize(searchCriteria.getCreator());
+        
+        final Snapshot current = getSnapshot();
+        final BitSet candidates = new BitSet(current.entries.size());
+        candidates.set(0, current.entries.size());
+        for (int field = 0; field < FIELD_COUNT; field++) {
+            if (terms[field] != null) {
+                current.retainCandidates(field, terms[field], candidates);
+            }
+        }
+        
+        final List<Entry> matches = new ArrayList<>(candidates.cardinality());
+        for (int position = candidates.nextSetBit(0); position >= 0; position = candidates.nextSetBit(position + 1)) {
+            final Entry entry = current.entries.get(position);
+            if (entry.matches(terms)) {
+                matches.add(entry);
+            }
+        }
+        if (terms[TITLE] != null) {
+            // the sort is stable so that equally ranked templates stay ordered by title
+            matches.sort(Comparator.comparingInt(entry -> rank(entry.fields[TITLE], terms[TITLE])));
+        }
+        
+        final List<Integer> result = new ArrayList<>(matches.size());
+        for (Entry match : matches) {
+            result.add(match.templateId);
+        }
+        return result;
+    }
+    
+    /**
+     * Starts keeping the index between searches.
+     *
+     * @should keep index until invalidated
+     */
+    public void startCaching() {
+        caching = true;
+    }
+    
+    /**
+     * Stops keeping the index between searches and discards it.
+     *
+     * @should rebuild index for every search
+     */
+    public void stopCaching() {
+        caching = false;
+        invalidate();
+    }
+    
+    /**
+     * Discards the index so that it is rebuilt on next use.
+     *
+     * @should rebuild index on next use
+     */
+    public synchronized void invalidate() {
+        generation++;
+        snapshot = null;
+    }
+    
+    private Snapshot getSnapshot() {
+        
+        Snapshot result = snapshot;
+        if (result == null) {
+            final long builtGeneration;
+            synchronized (this) {
+                builtGeneration = generation;
+            }
+            result = buildSnapshot();
+            synchronized (this) {
+                // an index built while templates changed might already be stale
+                if (caching && builtGeneration == generation) {
+                    snapshot = result;
+                }
+            }
+        }
+        return result;
+    }
+    
+    private Snapshot buildSnapshot() {
+        
+        final List<Entry> entries = new ArrayList<>();
+        for (Object[] row : mrrtReportTemplateDAO.getMrrtReportTemplateSearchFields()) {
+            final String[] fields = new String[FIELD_COUNT];
+            fields[TITLE] = normalize((String) row[1]);
+            fields[PUBLISHER] = normalize((String) row[2]);
+            fields[LICENSE] = normalize((String) row[3]);
+            fields[CREATOR] = normalize((String) row[4]);
+            entries.add(new Entry((Integer) row[0], fields));
+        }
+        entries.sort(Comparator.comparing((Entry entry) -> entry.fields[TITLE],
+            Comparator.nullsFirst(Comparator.<String> naturalOrder()))
+                .thenComparing(entry -> entry.templateId));
+        return new Snapshot(entries);
+    }
+    
+    private static String normalize(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
+    }
+    
+    private static int rank(String title, String term) {
+        
+        if (title.equals(term)) {
+            return RANK_EQUALS;
+        } else if (title.startsWith(term)) {
+            return RANK_STARTS_WITH;
+        }
+        for (int index = title.indexOf(term); index > 0; index = title.indexOf(term, index + 1)) {
+            if (!Character.isLetterOrDigit(title.charAt(index - 1))) {
+                return RANK_WORD_STARTS_WITH;
+            }
+        }
+        return RANK_CONTAINS;
+    }
+    
+    /**
+     * The lower cased search fields of a template.
+     */
+    private static class Entry {
+        
+        
+        private final Integer templateId;
+        
+        private final String[] fields;
+        
+        Entry(Integer templateId, String[] fields) {
+            this.templateId = templateId;
+            this.fields = fields;
+        }
+        
+        boolean matches(String[] terms) {
+            
+            for (int field = 0; field < FIELD_COUNT; field++) {
+                if (terms[field] != null && (fields[field] == null || !fields[field].contains(terms[field]))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+    
+    /**
+     * The templates ordered by title together with the positions of the templates containing each trigram per field.
+     */
+    private static class Snapshot {
+        
+        
+        private final List<Entry> entries;
+        
+        private final List<Map<String, BitSet>> gramsByField = new ArrayList<>(FIELD_COUNT);
+        
+        Snapshot(List<Entry> entries) {
+            
+            this.entries = entries;
+            for (int field = 0; field < FIELD_COUNT; field++) {
+                final Map<String, BitSet> grams = new HashMap<>();
+                for (int position = 0; position < entries.size(); position++) {
+                    final String value = entries.get(position).fields[field];
+                    if (value == null) {
+                        continue;
+                    }
+                    for (int start = 0; start + GRAM_LENGTH <= value.length(); start++) {
+                        grams.computeIfAbsent(value.substring(start, start + GRAM_LENGTH), gram -> new BitSet())
+                                .set(position);
+                    }
+                }
+                gramsByField.add(grams);
+            }
+        }
+        
+        /**
+         * Removes the templates from given candidates which cannot contain given term in given field.
+         */
+        void retainCandidates(int field, String term, BitSet candidates) {
+            
+            final Map<String, BitSet> grams = gramsByField.get(field);
+            for (int start = 0; start + GRAM_LENGTH <= term.length() && !candidates.isEmpty(); start++) {
+                final BitSet positions = grams.get(term.substring(start, start + GRAM_LENGTH));
+                if (positions == null) {
+                    candidates.clear();
+                } else {
+                    candidates.and(positions);
+                }
+            }
+        }
+    }
+}
@@ -10,12 +10,15 @@
 package org.openmrs.module.radiology.report.template;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
 import java.util.List;
 
 import org.openmrs.annotation.Authorized;
 import org.openmrs.api.APIException;
 import org.openmrs.api.OpenmrsService;
 import org.openmrs.module.radiology.RadiologyPrivileges;
+import org.openmrs.module.radiology.RadiologyProperties;
 
 /**
  * Service layer for {@code MrrtReportTemplate}.
@@ -36,6 +39,7 @@ public interface MrrtReportTemplateService extends OpenmrsService {
     * @should save given template
     * @should throw api exception if saving template that already exists
     * @should save template object with terms if matching concept reference term was found
+    * @should make saved template searchable
     */
     @Authorized(RadiologyPrivileges.ADD_RADIOLOGY_REPORT_TEMPLATES)
     public MrrtReportTemplate saveMrrtReportTemplate(MrrtReportTemplate template);
@@ -46,17 +50,73 @@ public interface MrrtReportTemplateService extends OpenmrsService {
      *     This means metadata like title, description, date, license, creator, ... is stored in an {@code MrrtReportTemplate} in the database with a link to the template file which is stored on the filesystem.
      * </p>
      * Calls {@link #saveMrrtReportTemplate(MrrtReportTemplate)} to store an {@code MrrtReportTemplate} in the database.
+     * The template file is named by the SHA-256 hash of its UTF-8 encoded content, a template with the content of an
+     * existing template is rejected before it is parsed.
      * 
      * @param mrrtTemplate the mrrt template to be imported
      * @return the saved mrrt template
-     * @throws IOException if one is thrown during parsing, validation or if FileUtils.writeStringToFile throws one
-     * @throws APIException if importing an invalid template
+     * @throws IOException if one is thrown during parsing, validation or writing the template file
+     * @throws APIException if importing an invalid template or a template with the content of an existing template
      * @should create mrrt report template in the database and on the file system
      * @should not create an mrrt report template in the database and store the template as file if given template is invalid
+     * @should store the template file named by the sha256 hash of its content
+     * @should reuse the template file if a template file with the same content exists
+     * @should fail to import template with the content of an existing template before parsing it
      */
     @Authorized(RadiologyPrivileges.ADD_RADIOLOGY_REPORT_TEMPLATES)
     public MrrtReportTemplate importMrrtReportTemplate(String mrrtTemplate) throws IOException;
     
+    /**
+     * Import an {@code MrrtReportTemplate} read from a stream into the system.
+     * <p>
+     * The stream is read once into a buffer bounded by {@link RadiologyProperties#getMrrtReportTemplateMaxSize()} and the
+     * template is validated, parsed and stored from the read bytes without decoding them into a string. The template file
+     * is named by the SHA-256 hash of the read bytes, a template with the content of an existing template is rejected
+     * before it is parsed. The stream is not closed.
+     * </p>
+     * 
+     * @param mrrtTemplate the stream of the mrrt template to be imported
+     * @param charset the charset the mrrt template is encoded with
+     * @return the saved mrrt template
+     * @throws IOException if the stream cannot be read or one is thrown during validation or writing the template file
+     * @throws IllegalArgumentException if given null
+     * @throws APIException if importing an invalid template, a template larger than the maximum size or a template with
+     *         the content of an existing template
+     * @should create mrrt report template in the database and on the file system
+     * @should decode template with given charset
+     * @should fail to import template larger than the maximum size
+     * @should fail to import template with the content of an existing template before parsing it
+     * @should throw illegal argument exception if given null
+     */
+    @Authorized(RadiologyPrivileges.ADD_RADIOLOGY_REPORT_TEMPLATES)
+    public MrrtReportTemplate importMrrtReportTemplate(InputStream mrrtTemplate, Charset charset) throws IOException;
+    
+    /**
+     * Import all {@code MrrtReportTemplate's} of a ZIP archive into the system.
+     * <p>
+     * The template files of the archive are validated and parsed in parallel and then each stored in a transaction of
+     * its own. A template file which cannot be imported does not prevent the others from being imported. Entries of the
+     * archive which are not {@code .html} or {@code .htm} files are ignored. Template files are expected to be UTF-8
+     * encoded, a template file larger than {@link RadiologyProperties#getMrrtReportTemplateMaxSize()} is not imported.
+     * An archive with more than 1000 template files is not imported at all since all of them are held in memory.
+     * </p>
+     * 
+     * @param zipArchive the zip archive containing the mrrt template files to be imported
+     * @return the import result for each template file in the order of the archive
+     * @throws IOException if the archive cannot be read
+     * @throws APIException if the archive contains too many template files
+     * @throws IllegalArgumentException if given null
+     * @should import all template files of given archive
+     * @should report template files which cannot be imported and import the others
+     * @should report template files which cannot be saved and import the others
+     * @should fail if given archive contains too many template files
+     * @should not import template files of given archive larger than the maximum size
+     * @should ignore entries of given archive which are not html files
+     * @should throw illegal argument exception if given null
+     */
+    @Authorized(RadiologyPrivileges.ADD_RADIOLOGY_REPORT_TEMPLATES)
+    public List<MrrtReportTemplateImportResult> importMrrtReportTemplates(InputStream zipArchive) throws IOException;
+    
     /**
      * Delete an {@code MrrtReportTemplate} from the database.
      *
@@ -108,9 +168,24 @@ public interface MrrtReportTemplateService extends OpenmrsService {
     @Authorized(RadiologyPrivileges.GET_RADIOLOGY_REPORT_TEMPLATES)
     public MrrtReportTemplate getMrrtReportTemplateByIdentifier(String identifier);
     
+    /**
+     * Get {@code MrrtReportTemplate} by the SHA-256 hash of its template file.
+     * 
+     * @param contentHash the hex encoded SHA-256 hash of the template file
+     * @return the mrrt report template or null if no template was imported from a file with given hash
+     * @throws IllegalArgumentException if given null
+     * @should find object with given content hash
+     * @should return null if no object found with given content hash
+     * @should throw illegal argument exception if given null
+     */
+    @Authorized(RadiologyPrivileges.GET_RADIOLOGY_REPORT_TEMPLATES)
+    public MrrtReportTemplate getMrrtReportTemplateByContentHash(String contentHash);
+    
     /**
      * Get all {@code MrrtReportTemplate's} matching a variety of (nullable) criteria.
-     * Returns results ordered by dcTermsTitle. 
+     * Returns results ordered by dcTermsTitle, if a title is given templates whose title equals, starts with or has a
+     * word starting with it are returned first. Given a term code and/or concept source only templates coded with a term
+     * of that code and/or concept source are returned.
      * 
      * @param mrrtReportTemplateSearchCriteria the object containing search parameters
      * @return the mrrt report templates matching the given criteria
@@ -124,6 +199,12 @@ public interface MrrtReportTemplateService extends OpenmrsService {
      * @should return an empty list if no match for license was found
      * @should return all mrrt report templates that match given creator anywhere in dcterms creator insensitive to case
      * @should return an empty list if no match for creator was found
+     * @should return mrrt report templates whose title starts with given title before those only containing it
+     * @should return all mrrt report templates coded with a term of given code
+     * @should return all mrrt report templates coded with a term of given concept source ignoring case
+     * @should return all mrrt report templates coded with a term of given code and concept source
+     * @should return an empty list if given concept source does not exist
+     * @should not load the terms of the returned mrrt report templates until they are accessed
      */
     @Authorized(RadiologyPrivileges.GET_RADIOLOGY_REPORT_TEMPLATES)
     public List<MrrtReportTemplate>
@@ -131,11 +212,15 @@ public interface MrrtReportTemplateService extends OpenmrsService {
     
     /**
      * Get the HTML body content of {@code MrrtReportTemplate's} file.
+     * <p>
+     * The body content is cached until the file is modified or the template is purged.
+     * </p>
      * 
      * @param mrrtReportTemplate the mrrt report template for which we want to get its html body content
      * @return the body content of the mrrt report template file
      * @throws IOException if one is thrown while reading the file
      * @should return the body content of the mrrt report template file
+     * @should return cached body content until the mrrt report template file is modified
      * @should throw illegal argument exception if given null
      */
     @Authorized(RadiologyPrivileges.VIEW_RADIOLOGY_REPORT_TEMPLATES)
@@ -9,23 +9,46 @@
  */
 package org.openmrs.module.radiology.report.template;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
-import org.apache.commons.io.FileUtils;
+import javax.xml.bind.DatatypeConverter;
+
+import org.apache.commons.io.FilenameUtils;
 import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
 import org.openmrs.api.APIException;
 import org.openmrs.api.impl.BaseOpenmrsService;
 import org.openmrs.module.radiology.RadiologyProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.w3c.dom.Document;
 
 @Transactional(readOnly = true)
 class MrrtReportTemplateServiceImpl extends BaseOpenmrsService implements MrrtReportTemplateService {
@@ -33,24 +56,75 @@ class MrrtReportTemplateServiceImpl extends BaseOpenmrsService implements MrrtRe
     
     private static final Logger log = LoggerFactory.getLogger(MrrtReportTemplateServiceImpl.class);
     
+    /**
+     * Maximum total size of the html bodies kept by {@link #getMrrtReportTemplateHtmlBody(MrrtReportTemplate)}.
+     */
+    private static final long HTML_BODY_CACHE_MAX_BYTES = 16L * 1024 * 1024;
+    
+    private final MrrtReportTemplateHtmlBodyCache htmlBodyCache =
+            new MrrtReportTemplateHtmlBodyCache(HTML_BODY_CACHE_MAX_BYTES);
+    
+    /**
+     * Size of the buffer template streams are read through.
+     */
+    private static final int READ_BUFFER_SIZE = 8192;
+    
+    /**
+     * Maximum number of template files of a zip archive imported by {@link #importMrrtReportTemplates(InputStream)}, which
+     * holds all of them in memory.
+     */
+    static final int MAX_ARCHIVE_TEMPLATE_FILES = 1000;
+    
+    private static final List<String> MRRT_TEMPLATE_FILE_EXTENSIONS = Arrays.asList("html", "htm");
+    
+    /**
+     * Directory of the resource forks the macOS archive utility adds to zip archives.
+     */
+    private static final String MAC_OS_X_METADATA_DIRECTORY = "__MACOSX/";
+    
     private MrrtReportTemplateFileParser parser;
     
+    private MrrtReportTemplateValidator validator;
+    
     private RadiologyProperties radiologyProperties;
     
     private MrrtReportTemplateDAO mrrtReportTemplateDAO;
     
+    private MrrtReportTemplateSearchIndex searchIndex;
+    
+    private ConceptSourceNameIndex conceptSourceNameIndex;
+    
+    private TransactionTemplate templateFileTransaction;
+    
     public void setMrrtReportTemplateDAO(MrrtReportTemplateDAO mrrtReportTemplateDAO) {
         this.mrrtReportTemplateDAO = mrrtReportTemplateDAO;
     }
     
+    public void setSearchIndex(MrrtReportTemplateSearchIndex searchIndex) {
+        this.searchIndex = searchIndex;
+    }
+    
+    public void setConceptSourceNameIndex(ConceptSourceNameIndex conceptSourceNameIndex) {
+        this.conceptSourceNameIndex = conceptSourceNameIndex;
+    }
+    
     public void setParser(MrrtReportTemplateFileParser parser) {
         this.parser = parser;
     }
     
+    public void setValidator(MrrtReportTemplateValidator validator) {
+        this.validator = validator;
+    }
+    
     public void setRadiologyProperties(RadiologyProperties radiologyProperties) {
         this.radiologyProperties = radiologyProperties;
     }
     
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        templateFileTransaction = new TransactionTemplate(transactionManager);
+        templateFileTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+    
     /**
      * @see MrrtReportTemplateService#importMrrtReportTemplate(String)
      */
@@ -58,14 +132,281 @@ class MrrtReportTemplateServiceImpl extends BaseOpenmrsService implements MrrtRe
     @Transactional
     public MrrtReportTemplate importMrrtReportTemplate(String mrrtTemplate) throws IOException {
         
-        final MrrtReportTemplate template = parser.parse(mrrtTemplate);
+        final byte[] content = mrrtTemplate.getBytes(StandardCharsets.UTF_8);
+        final String contentHash = getContentHash(content);
+        if (mrrtReportTemplateDAO.getMrrtReportTemplateByContentHash(contentHash) != null) {
+            throw new APIException("Template already exist in the system.");
+        }
+        return storeMrrtReportTemplate(parser.parse(mrrtTemplate), content, contentHash);
+    }
+    
+    /**
+     * @see MrrtReportTemplateService#importMrrtReportTemplate(InputStream, Charset)
+     */
+    @Override
+    @Transactional
+    public MrrtReportTemplate importMrrtReportTemplate(InputStream mrrtTemplate, Charset charset) throws IOException {
+        
+        if (mrrtTemplate == null) {
+            throw new IllegalArgumentException("mrrtTemplate cannot be null");
+        }
+        if (charset == null) {
+            throw new IllegalArgumentException("charset cannot be null");
+        }
+        
+        final byte[] content = readBounded(mrrtTemplate, radiologyProperties.getMrrtReportTemplateMaxSize());
+        final String contentHash = getContentHash(content);
+        if (mrrtReportTemplateDAO.getMrrtReportTemplateByContentHash(contentHash) != null) {
+            throw new APIException("Template already exist in the system.");
+        }
+        return storeMrrtReportTemplate(parser.parse(validator.validate(content, charset)), content, contentHash);
+    }
+    
+    /**
+     * @see MrrtReportTemplateService#importMrrtReportTemplates(InputStream)
+     */
+    @Override
+    @Transactional
+    public List<MrrtReportTemplateImportResult> importMrrtReportTemplates(InputStream zipArchive) throws IOException {
+        
+        if (zipArchive == null) {
+            throw new IllegalArgumentException("zipArchive cannot be null");
+        }
+        
+        final List<MrrtTemplateFile> mrrtTemplateFiles =
+                readMrrtTemplates(zipArchive, radiologyProperties.getMrrtReportTemplateMaxSize());
+        
+        // templates already imported or contained twice in the archive are recognized by their content hash so that
+        // they are not validated in vain
+        final Set<String> contentHashes = new HashSet<>();
+        for (MrrtTemplateFile mrrtTemplateFile : mrrtTemplateFiles) {
+            if (mrrtTemplateFile.error != null) {
+                continue;
+            }
+            if (!contentHashes.add(mrrtTemplateFile.contentHash)
+                    || mrrtReportTemplateDAO.getMrrtReportTemplateByContentHash(mrrtTemplateFile.contentHash) != null) {
+                mrrtTemplateFile.error = new APIException("Template already exist in the system.");
+            }
+        }
+        
+        // validation and parsing are independent of the database and run in parallel, while resolving the terms and
+        // storing the templates needs a session bound to the current thread
+        mrrtTemplateFiles.parallelStream()
+                .filter(mrrtTemplateFile -> mrrtTemplateFile.error == null)
+                .forEach(this::validate);
         
-        final File destination = new File(radiologyProperties.getReportTemplateHome(), java.util.UUID.randomUUID()
+        final List<MrrtReportTemplateImportResult> result = new ArrayList<>(mrrtTemplateFiles.size());
+        for (MrrtTemplateFile mrrtTemplateFile : mrrtTemplateFiles) {
+            final String fileName = mrrtTemplateFile.fileName;
+            if (mrrtTemplateFile.error != null) {
+                result.add(MrrtReportTemplateImportResult.failed(fileName, mrrtTemplateFile.error));
+                continue;
+            }
+            try {
+                result.add(MrrtReportTemplateImportResult.imported(fileName, storeInOwnTransaction(mrrtTemplateFile)));
+            }
+            catch (UncheckedIOException e) {
+                log.debug("Failed to import " + fileName, e);
+                result.add(MrrtReportTemplateImportResult.failed(fileName, e.getCause()));
+            }
+            catch (RuntimeException e) {
+                log.debug("Failed to import " + fileName, e);
+                result.add(MrrtReportTemplateImportResult.failed(fileName, e));
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Parses and stores given validated template file in a new transaction so that a template file which cannot be saved
+     * only rolls back its own changes, while the changes of the other template files are kept.
+     */
+    private MrrtReportTemplate storeInOwnTransaction(MrrtTemplateFile mrrtTemplateFile) {
+        
+        return templateFileTransaction.execute(status -> {
+            try {
+                return storeMrrtReportTemplate(parser.parse(mrrtTemplateFile.document), mrrtTemplateFile.content,
+                    mrrtTemplateFile.contentHash);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+    
+    /**
+     * Writes given mrrt template to the report template home and saves its {@code MrrtReportTemplate} linking to it.
+     * <p>
+     * Template files are named by the hash of their content so that identical templates share one file, which also makes
+     * the report template home safe to share between nodes. A file is written to a temporary file and then moved to its
+     * name so that no node ever reads a partially written template. A file written here is deleted again if the
+     * {@code MrrtReportTemplate} cannot be saved or its transaction is rolled back.
+     * </p>
+     */
+    private MrrtReportTemplate storeMrrtReportTemplate(MrrtReportTemplate template, byte[] content, String contentHash)
+            throws IOException {
+        
+        final File templateHome = radiologyProperties.getReportTemplateHome();
+        final Path destination = new File(templateHome, contentHash).toPath();
+        boolean written = false;
+        if (!Files.exists(destination)) {
+            final Path temporary = Files.createTempFile(templateHome.toPath(), contentHash, ".tmp");
+            try {
+                Files.write(temporary, content);
+                Files.move(temporary, destination, StandardCopyOption.ATOMIC_MOVE);
+                written = true;
+            }
+            finally {
+                Files.deleteIfExists(temporary);
+            }
+            deleteOnRollback(destination);
+        }
+        
+        template.setPath(destination.toAbsolutePath()
                 .toString());
-        FileUtils.writeStringToFile(destination, mrrtTemplate);
+        template.setContentHash(contentHash);
+        try {
+            return saveMrrtReportTemplate(template);
+        }
+        catch (RuntimeException e) {
+            if (written) {
+                Files.deleteIfExists(destination);
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * Deletes given template file once the current transaction is rolled back, so that a template whose transaction fails
+     * after it was saved does not leave its file behind.
+     */
+    private static void deleteOnRollback(Path templateFile) {
+        
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            
+            
+            @Override
+            public void afterCompletion(int status) {
+                if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                    return;
+                }
+                try {
+                    Files.deleteIfExists(templateFile);
+                }
+                catch (IOException e) {
+                    log.warn("Failed to delete " + templateFile + " of rolled back template", e);
+                }
+            }
+        });
+    }
+    
+    /**
+     * Get the hex encoded SHA-256 hash of given template content.
+     */
+    static String getContentHash(byte[] content) {
+        
+        try {
+            return DatatypeConverter.printHexBinary(MessageDigest.getInstance("SHA-256")
+                    .digest(content))
+                    .toLowerCase(Locale.ROOT);
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by this JVM", e);
+        }
+    }
+    
+    /**
+     * Reads given stream into a byte array through a fixed size buffer failing as soon as more than given maximum size
+     * is read, so that the content is held only once and an oversized template is never read completely.
+     * 
+     * @throws APIException if the stream holds more than given maximum size
+     */
+    private static byte[] readBounded(InputStream in, int maxSize) throws IOException {
         
-        template.setPath(destination.getAbsolutePath());
-        return saveMrrtReportTemplate(template);
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[READ_BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            if (result.size() + read > maxSize) {
+                throw new APIException("radiology.MrrtReportTemplate.not.imported.tooLarge", new Object[] { maxSize });
+            }
+            result.write(buffer, 0, read);
+        }
+        return result.toByteArray();
+    }
+    
+    /**
+     * Reads the html files of given zip archive in the order they appear in the archive.
+     * 
+     * @throws APIException if the archive contains more than {@link #MAX_ARCHIVE_TEMPLATE_FILES} html files
+     */
+    private static List<MrrtTemplateFile> readMrrtTemplates(InputStream zipArchive, int maxSize) throws IOException {
+        
+        final List<MrrtTemplateFile> result = new ArrayList<>();
+        final ZipInputStream zip = new ZipInputStream(zipArchive);
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            final String fileName = entry.getName();
+            final String extension = FilenameUtils.getExtension(fileName)
+                    .toLowerCase(Locale.ROOT);
+            if (!entry.isDirectory() && MRRT_TEMPLATE_FILE_EXTENSIONS.contains(extension)
+                    && !fileName.startsWith(MAC_OS_X_METADATA_DIRECTORY)) {
+                if (result.size() == MAX_ARCHIVE_TEMPLATE_FILES) {
+                    throw new APIException("radiology.MrrtReportTemplate.archive.not.imported.tooManyFiles",
+                            new Object[] { MAX_ARCHIVE_TEMPLATE_FILES });
+                }
+                try {
+                    result.add(new MrrtTemplateFile(fileName, readBounded(zip, maxSize)));
+                }
+                catch (APIException e) {
+                    result.add(new MrrtTemplateFile(fileName, e));
+                }
+            }
+        }
+        return result;
+    }
+    
+    private void validate(MrrtTemplateFile mrrtTemplateFile) {
+        
+        try {
+            mrrtTemplateFile.document = validator.validate(mrrtTemplateFile.content, StandardCharsets.UTF_8);
+        }
+        catch (APIException | IOException e) {
+            mrrtTemplateFile.error = e;
+        }
+    }
+    
+    /**
+     * An mrrt template file of a zip archive together with the outcome of its validation.
+     */
+    private static class MrrtTemplateFile {
+        
+        
+        private final String fileName;
+        
+        private final byte[] content;
+        
+        private final String contentHash;
+        
+        private Document document;
+        
+        private Exception error;
+        
+        MrrtTemplateFile(String fileName, byte[] content) {
+            this.fileName = fileName;
+            this.content = content;
+            this.contentHash = getContentHash(content);
+        }
+        
+        MrrtTemplateFile(String fileName, Exception error) {
+            this.fileName = fileName;
+            this.content = null;
+            this.contentHash = null;
+            this.error = error;
+        }
     }
     
     /**
@@ -81,7 +422,9 @@ class MrrtReportTemplateServiceImpl extends BaseOpenmrsService implements MrrtRe
         if (existing != null) {
             throw new APIException("Template already exist in the system.");
         }
-        return mrrtReportTemplateDAO.saveMrrtReportTemplate(template);
+        final MrrtReportTemplate result = mrrtReportTemplateDAO.saveMrrtReportTemplate(template);
+        invalidateSearchIndex();
+        return result;
     }
     
     /**
@@ -94,6 +437,8 @@ class MrrtReportTemplateServiceImpl extends BaseOpenmrsService implements MrrtRe
             throw new IllegalArgumentException("template cannot be null");
         }
         mrrtReportTemplateDAO.purgeMrrtReportTemplate(template);
+        invalidateSearchIndex();
+        htmlBodyCache.invalidate(template.getUuid());
         Path templatePath = Paths.get(template.getPath());
         try {
             Files.delete(templatePath);
@@ -106,6 +451,26 @@ class MrrtReportTemplateServiceImpl extends BaseOpenmrsService implements MrrtRe
         }
     }
     
+    /**
+     * Discards the search index right away so that this transaction sees its changes and again once the transaction
+     * completed so that an index built from the changes of this transaction is not kept if it is rolled back and an
+     * index built by another transaction before the changes were committed is not kept either.
+     */
+    private void invalidateSearchIndex() {
+        
+        searchIndex.invalidate();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                
+                
+                @Override
+                public void afterCompletion(int status) {
+                    searchIndex.invalidate();
+                }
+            });
+        }
+    }
+    
     /**
      * @see org.openmrs.module.radiology.report.template.MrrtReportTemplateService#getMrrtReportTemplate(Integer)
      */
@@ -139,6 +504,17 @@ class MrrtReportTemplateServiceImpl extends BaseOpenmrsService implements MrrtRe
         return mrrtReportTemplateDAO.getMrrtReportTemplateByIdentifier(identifier);
     }
     
+    /**
+     * @see org.openmrs.module.radiology.report.template.MrrtReportTemplateService#getMrrtReportTemplateByContentHash(String)
+     */
+    @Override
+    public MrrtReportTemplate getMrrtReportTemplateByContentHash(String contentHash) {
+        if (contentHash == null) {
+            throw new IllegalArgumentException("contentHash cannot be null");
+        }
+        return mrrtReportTemplateDAO.getMrrtReportTemplateByContentHash(contentHash);
+    }
+    
     /**
      * @see org.openmrs.module.radiology.report.template.MrrtReportTemplateService#getMrrtReportTemplates(MrrtReportTemplateSearchCriteria)
      */
@@ -148,7 +524,33 @@ class MrrtReportTemplateServiceImpl extends BaseOpenmrsService implements MrrtRe
         if (mrrtReportTemplateSearchCriteria == null) {
             throw new IllegalArgumentException("mrrtReportTemplateSearchCriteria cannot be null");
         }
-        return mrrtReportTemplateDAO.getMrrtReportTemplates(mrrtReportTemplateSearchCriteria);
+        final List<Integer> templateIds = searchIndex.search(mrrtReportTemplateSearchCriteria);
+        if (mrrtReportTemplateSearchCriteria.getTermCode() != null
+                || mrrtReportTemplateSearchCriteria.getConceptSource() != null) {
+            retainTemplatesCodedWithTerm(templateIds, mrrtReportTemplateSearchCriteria);
+        }
+        return mrrtReportTemplateDAO.getMrrtReportTemplates(templateIds);
+    }
+    
+    /**
+     * Removes the ids of the templates from given template ids which are not coded with a term matching the term code and
+     * concept source of given search criteria keeping the order of the remaining ids.
+     */
+    private void retainTemplatesCodedWithTerm(List<Integer> templateIds,
+            MrrtReportTemplateSearchCriteria mrrtReportTemplateSearchCriteria) {
+        
+        Integer conceptSourceId = null;
+        if (mrrtReportTemplateSearchCriteria.getConceptSource() != null) {
+            conceptSourceId =
+                    conceptSourceNameIndex.getConceptSourceIdByName(mrrtReportTemplateSearchCriteria.getConceptSource());
+            if (conceptSourceId == null) {
+                templateIds.clear();
+                return;
+            }
+        }
+        final Set<Integer> codedTemplateIds = new HashSet<>(mrrtReportTemplateDAO
+                .getMrrtReportTemplateIdsByTerm(mrrtReportTemplateSearchCriteria.getTermCode(), conceptSourceId));
+        templateIds.removeIf(templateId -> !codedTemplateIds.contains(templateId));
     }
     
     /**
@@ -160,9 +562,14 @@ class MrrtReportTemplateServiceImpl extends BaseOpenmrsService implements MrrtRe
             throw new IllegalArgumentException("mrrtReportTemplate cannot be null");
         }
         final File templateFile = new File(mrrtReportTemplate.getPath());
-        final Document doc = Jsoup.parse(templateFile, null);
-        
-        return doc.select("body")
-                .html();
+        final long lastModified = templateFile.lastModified();
+        String result = htmlBodyCache.get(mrrtReportTemplate.getUuid(), lastModified);
+        if (result == null) {
+            result = Jsoup.parse(templateFile, null)
+                    .select("body")
+                    .html();
+            htmlBodyCache.put(mrrtReportTemplate.getUuid(), lastModified, result);
+        }
+        return result;
     }
 }
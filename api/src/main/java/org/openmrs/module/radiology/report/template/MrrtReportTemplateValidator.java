@@ -10,8 +10,10 @@
 package org.openmrs.module.radiology.report.template;
 
 import java.io.IOException;
+import java.nio.charset.Charset;
 
 import org.openmrs.api.APIException;
+import org.w3c.dom.Document;
 
 /**
  * Validates an mrrt report template according to the IHE Management of Radiology Report Templates (MRRT).
@@ -23,11 +25,17 @@ public interface MrrtReportTemplateValidator {
     
     /**
      * Validate an mrrt template according to the IHE standard.
+     * <p>
+     * The template is parsed only once, the returned document can be used to extract its metadata without parsing it
+     * again.
+     * </p>
      *
      * @param mrrtTemplate the mrrt report template to be validated
+     * @return the validated mrrt template parsed as document
      * @throws IOException
      * @throws APIException if the mrrt template fails validation
      * @should pass if template template follows mrrt standards
+     * @should return the parsed template given a valid template
      * @should throw api exception if template does not have an html element
      * @should throw api exception if template has more than one html element
      * @should throw api exception if html element does not have a head element
@@ -51,5 +59,20 @@ public interface MrrtReportTemplateValidator {
      * @should throw api exception if html element has more than one body element 
      * @should catch all violation errors and throw an mrrt report template exception
      */
-    public void validate(String mrrtTemplate) throws IOException;
+    public Document validate(String mrrtTemplate) throws IOException;
+    
+    /**
+     * Validates an mrrt report template given as encoded content without decoding it into a string first.
+     *
+     * @param mrrtTemplate the encoded content of the mrrt report template to be validated
+     * @param charset the charset the content is encoded with
+     * @return the validated mrrt template parsed as document
+     * @throws IOException
+     * @throws APIException if the mrrt template fails validation
+     * @see #validate(String)
+     * @should return the parsed template given a valid template
+     * @should decode template with given charset
+     * @should throw api exception if template is invalid
+     */
+    public Document validate(byte[] mrrtTemplate, Charset charset) throws IOException;
 }
@@ -9,24 +9,36 @@
  */
 package org.openmrs.module.radiology.report.template;
 
-import java.io.File;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
 import javax.xml.validation.Validator;
 
-import org.apache.commons.io.IOUtils;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.parser.Tag;
 import org.jsoup.select.Elements;
 import org.openmrs.api.APIException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.DocumentType;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.NodeList;
 import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
 
@@ -40,8 +52,53 @@ public class XsdMrrtReportTemplateValidator implements MrrtReportTemplateValidat
     
     private static final String MRRT_REPORT_TEMPLATE_SCHEMA_FILE = "MrrtReportTemplateSchema.xsd";
     
+    private static final DocumentBuilderFactory DOCUMENT_BUILDER_FACTORY = DocumentBuilderFactory.newInstance();
+    
+    static {
+        DOCUMENT_BUILDER_FACTORY.setNamespaceAware(true);
+        // templates are uploaded by users, never resolve external entities or dtds nor expand entities
+        try {
+            DOCUMENT_BUILDER_FACTORY.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            DOCUMENT_BUILDER_FACTORY.setFeature("http://xml.org/sax/features/external-general-entities", false);
+            DOCUMENT_BUILDER_FACTORY.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+            DOCUMENT_BUILDER_FACTORY.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        }
+        catch (ParserConfigurationException e) {
+            throw new IllegalStateException("Could not secure the xml parser of mrrt report templates", e);
+        }
+        DOCUMENT_BUILDER_FACTORY.setXIncludeAware(false);
+        DOCUMENT_BUILDER_FACTORY.setExpandEntityReferences(false);
+    }
+    
+    /**
+     * Maximum number of idle validators and document builders kept for reuse, validations running concurrently beyond
+     * that create validators and document builders which are discarded afterwards.
+     */
+    static final int VALIDATOR_POOL_SIZE = 8;
+    
+    /**
+     * The compiled schema, which is immutable and thread-safe unlike the {@link Validator}'s created from it.
+     */
+    private final Schema schema;
+    
+    private final BlockingQueue<Validator> validators = new ArrayBlockingQueue<>(VALIDATOR_POOL_SIZE);
+    
+    /**
+     * Idle document builders, which just like validators must not be used by more than one thread at a time.
+     */
+    private final BlockingQueue<DocumentBuilder> documentBuilders = new ArrayBlockingQueue<>(VALIDATOR_POOL_SIZE);
+    
     MetaTagsValidationEngine metaTagsValidationEngine;
     
+    /**
+     * Creates a validator compiling the mrrt report template schema once for all validations.
+     *
+     * @throws IllegalStateException if the schema cannot be loaded from the classpath or compiled
+     */
+    public XsdMrrtReportTemplateValidator() {
+        schema = compileSchema();
+    }
+    
     public MetaTagsValidationEngine getMetaTagsValidationEngine() {
         return metaTagsValidationEngine;
     }
@@ -52,20 +109,31 @@ public class XsdMrrtReportTemplateValidator implements MrrtReportTemplateValidat
     
     /**
      * @see MrrtReportTemplateValidator#validate(String)
+     * @should validate templates concurrently
      */
     @Override
-    public void validate(String mrrtTemplate) throws IOException {
+    public Document validate(String mrrtTemplate) throws IOException {
+        return validate(new InputSource(new StringReader(mrrtTemplate)));
+    }
+    
+    /**
+     * @see MrrtReportTemplateValidator#validate(byte[], Charset)
+     */
+    @Override
+    public Document validate(byte[] mrrtTemplate, Charset charset) throws IOException {
         
-        final Document document = Jsoup.parse(mrrtTemplate, "");
-        final Elements metatags = document.getElementsByTag("meta");
-        ValidationResult validationResult = metaTagsValidationEngine.run(metatags);
+        final InputSource inputSource = new InputSource(new ByteArrayInputStream(mrrtTemplate));
+        inputSource.setEncoding(charset.name());
+        return validate(inputSource);
+    }
+    
+    private Document validate(InputSource mrrtTemplate) throws IOException {
         
-        final SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-        final Schema schema;
-        final Validator validator;
-        try (InputStream in = IOUtils.toInputStream(mrrtTemplate)) {
-            schema = factory.newSchema(getSchemaFile());
-            validator = schema.newValidator();
+        final DocumentBuilder builder = borrowDocumentBuilder();
+        final Validator validator = borrowValidator();
+        try {
+            final Document document = parse(builder, mrrtTemplate);
+            final ValidationResult validationResult = metaTagsValidationEngine.run(getMetaTags(document));
             validator.setErrorHandler(new ErrorHandler() {
                 
                 
@@ -87,18 +155,146 @@ public class XsdMrrtReportTemplateValidator implements MrrtReportTemplateValidat
                     validationResult.addError(exception.getMessage(), "");
                 }
             });
-            validator.validate(new StreamSource(in));
+            validator.validate(new DOMSource(document));
             validationResult.assertOk();
+            return document;
         }
         catch (SAXException e) {
             log.error(e.getMessage(), e);
             throw new APIException("radiology.report.template.validation.error", null, e);
         }
+        finally {
+            returnValidator(validator);
+            returnDocumentBuilder(builder);
+        }
+    }
+    
+    /**
+     * Takes an idle validator of the schema from the pool or creates a new one if all are in use.
+     */
+    private Validator borrowValidator() {
+        
+        final Validator result = validators.poll();
+        return result == null ? schema.newValidator() : result;
+    }
+    
+    /**
+     * Resets given validator and puts it back into the pool unless the pool is full.
+     */
+    private void returnValidator(Validator validator) {
+        
+        validator.reset();
+        validator.setErrorHandler(null);
+        validators.offer(validator);
+    }
+    
+    /**
+     * Takes an idle document builder from the pool or creates a new one if all are in use.
+     * <p>
+     * The shared factory is not guaranteed to be thread-safe, document builders are therefore created one at a time.
+     * </p>
+     */
+    private DocumentBuilder borrowDocumentBuilder() {
+        
+        final DocumentBuilder result = documentBuilders.poll();
+        if (result != null) {
+            return result;
+        }
+        try {
+            synchronized (DOCUMENT_BUILDER_FACTORY) {
+                return DOCUMENT_BUILDER_FACTORY.newDocumentBuilder();
+            }
+        }
+        catch (ParserConfigurationException e) {
+            throw new APIException("radiology.report.template.validation.error", null, e);
+        }
+    }
+    
+    /**
+     * Resets given document builder and puts it back into the pool unless the pool is full.
+     */
+    private void returnDocumentBuilder(DocumentBuilder builder) {
+        
+        builder.reset();
+        builder.setErrorHandler(null);
+        documentBuilders.offer(builder);
+    }
+    
+    /**
+     * Parses given mrrt template with given document builder into a namespace aware document which the schema validator
+     * can validate directly.
+     * 
+     * @throws SAXException if the template is not well-formed or its doctype declares markup
+     */
+    private static Document parse(DocumentBuilder builder, InputSource mrrtTemplate) throws SAXException, IOException {
+        
+        builder.setErrorHandler(new ErrorHandler() {
+            
+            
+            @Override
+            public void warning(SAXParseException exception) throws SAXException {
+                log.debug(exception.getMessage(), exception);
+            }
+            
+            @Override
+            public void error(SAXParseException exception) throws SAXException {
+                throw exception;
+            }
+            
+            @Override
+            public void fatalError(SAXParseException exception) throws SAXException {
+                throw exception;
+            }
+        });
+        final Document result = builder.parse(mrrtTemplate);
+        // templates declare their doctype as <!DOCTYPE html>, entity declarations are rejected instead of ignored
+        final DocumentType doctype = result.getDoctype();
+        if (doctype != null && (doctype.getInternalSubset() != null || doctype.getEntities()
+                .getLength() > 0)) {
+            throw new SAXException("Mrrt report templates must not declare entities or other markup in their doctype");
+        }
+        return result;
     }
     
-    private File getSchemaFile() {
-        return new File(getClass().getClassLoader()
-                .getResource(MRRT_REPORT_TEMPLATE_SCHEMA_FILE)
-                .getFile());
+    /**
+     * Gets the meta elements of given document as jsoup elements so they can be checked by the
+     * {@link MetaTagsValidationEngine} without parsing the template as html.
+     */
+    private static Elements getMetaTags(Document document) {
+        
+        final NodeList metaNodes = document.getElementsByTagName("meta");
+        final Elements result = new Elements();
+        for (int i = 0; i < metaNodes.getLength(); i++) {
+            final NamedNodeMap attributes = metaNodes.item(i)
+                    .getAttributes();
+            final Element metaTag = new Element(Tag.valueOf("meta"), "");
+            for (int j = 0; j < attributes.getLength(); j++) {
+                metaTag.attr(attributes.item(j)
+                        .getNodeName(),
+                    attributes.item(j)
+                            .getNodeValue());
+            }
+            result.add(metaTag);
+        }
+        return result;
+    }
+    
+    /**
+     * Compiles the mrrt report template schema from the classpath so that it also loads if the module is packaged as a
+     * jar.
+     */
+    private static Schema compileSchema() {
+        
+        try (InputStream in = XsdMrrtReportTemplateValidator.class.getClassLoader()
+                .getResourceAsStream(MRRT_REPORT_TEMPLATE_SCHEMA_FILE)) {
+            if (in == null) {
+                throw new IllegalStateException(MRRT_REPORT_TEMPLATE_SCHEMA_FILE + " not found on the classpath");
+            }
+            return SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI)
+                    .newSchema(new StreamSource(in));
+        }
+        catch (SAXException | IOException e) {
+            throw new IllegalStateException("Could not compile " + MRRT_REPORT_TEMPLATE_SCHEMA_FILE, e);
+        }
     }
 }
@@ -0,0 +1,89 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.radiology.util;
+
+import java.util.function.Consumer;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Criteria;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+/**
+ * Utility class to stream the results of a Hibernate {@link Criteria} without holding them in memory.
+ */
+public class HibernateScrollUtils {
+    
+    
+    /**
+     * Number of rows fetched from the database per round trip.
+     */
+    public static final int FETCH_SIZE = 500;
+    
+    /**
+     * Number of rows after which the session is cleared of the entities loaded while streaming.
+     */
+    public static final int CLEAR_INTERVAL = 500;
+    
+    private HibernateScrollUtils() {
+        // Utility class not meant to be instantiated.
+    }
+    
+    /**
+     * Passes each result of given criteria to given consumer as it is read from the database.
+     * <p>
+     * Results are scrolled forward only and read-only, bypassing the second level cache. The current session is cleared
+     * every {@link #CLEAR_INTERVAL} rows so that the memory used stays the same regardless of the number of results.
+     * Results passed to the consumer must therefore not be used once the consumer returns.
+     * </p>
+     *
+     * @param sessionFactory the session factory of the current session
+     * @param crit the criteria whose results are streamed
+     * @param consumer the consumer of each result
+     * @return the number of results passed to given consumer
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> long scroll(SessionFactory sessionFactory, Criteria crit, Consumer<T> consumer) {
+        
+        final ScrollableResults results = crit.setFetchSize(getFetchSize(sessionFactory))
+                .setReadOnly(true)
+                .setCacheMode(CacheMode.IGNORE)
+                .scroll(ScrollMode.FORWARD_ONLY);
+        long count = 0;
+        try {
+            while (results.next()) {
+                consumer.accept((T) results.get(0));
+                if (++count % CLEAR_INTERVAL == 0) {
+                    sessionFactory.getCurrentSession()
+                            .clear();
+                }
+            }
+        }
+        finally {
+            results.close();
+        }
+        return count;
+    }
+    
+    /**
+     * MySQL Connector/J only streams a result set given a fetch size of {@link Integer#MIN_VALUE}, otherwise it reads
+     * all rows into memory.
+     */
+    private static int getFetchSize(SessionFactory sessionFactory) {
+        
+        if (((SessionFactoryImplementor) sessionFactory).getDialect() instanceof MySQLDialect) {
+            return Integer.MIN_VALUE;
+        }
+        return FETCH_SIZE;
+    }
+}
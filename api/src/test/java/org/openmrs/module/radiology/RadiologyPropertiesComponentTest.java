@@ -17,9 +17,11 @@ import static org.junit.Assert.assertThat;
 import java.io.File;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.sql.PreparedStatement;
 import java.util.LinkedList;
 import java.util.List;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -36,10 +38,13 @@ import org.openmrs.api.ConceptService;
 import org.openmrs.api.EncounterService;
 import org.openmrs.api.OrderService;
 import org.openmrs.api.VisitService;
+import org.openmrs.api.context.Context;
 import org.openmrs.test.BaseModuleContextSensitiveTest;
 import org.openmrs.util.OpenmrsUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /**
  * Tests {@link RadiologyProperties}
@@ -47,6 +52,10 @@ import org.springframework.beans.factory.annotation.Qualifier;
 public class RadiologyPropertiesComponentTest extends BaseModuleContextSensitiveTest {
     
     
+    private static final String OUTPATIENT_CARE_SETTING = "6f0c9a92-6f24-11e3-af88-005056821db0";
+    
+    private static final String INPATIENT_CARE_SETTING = "c365e560-c3ec-11e3-9c1a-0800200c9a66";
+    
     @Autowired
     @Qualifier("adminService")
     private AdministrationService administrationService;
@@ -82,6 +91,12 @@ public class RadiologyPropertiesComponentTest extends BaseModuleContextSensitive
         getGlobalPropertyMethod.setAccessible(true);
     }
     
+    @After
+    public void tearDown() throws Exception {
+        
+        radiologyProperties.stopCaching();
+    }
+    
     /**
      * @see RadiologyProperties#getDicomUIDOrgRoot()
      */
@@ -189,6 +204,115 @@ public class RadiologyPropertiesComponentTest extends BaseModuleContextSensitive
         assertThat(radiologyProperties.getDicomWebViewerLocalServerName(), is("oviyamlocal"));
     }
     
+    /**
+     * @see RadiologyProperties#getAccessionNumberBlockSize()
+     */
+    @Test
+    public void shouldReturnAccessionNumberBlockSize() throws Exception {
+        
+        administrationService.saveGlobalProperty(new GlobalProperty(RadiologyConstants.GP_ACCESSION_NUMBER_BLOCK_SIZE, "20"));
+        
+        assertThat(radiologyProperties.getAccessionNumberBlockSize(), is(20));
+    }
+    
+    /**
+     * @see RadiologyProperties#getAccessionNumberBlockSize()
+     */
+    @Test
+    public void shouldReturnOneIfGlobalPropertyForAccessionNumberBlockSizeIsNotConfigured() throws Exception {
+        
+        assertThat(radiologyProperties.getAccessionNumberBlockSize(), is(1));
+    }
+    
+    /**
+     * @see RadiologyProperties#getAccessionNumberBlockSize()
+     */
+    @Test
+    public void shouldFailIfGlobalPropertyForAccessionNumberBlockSizeIsNotAPositiveInteger() throws Exception {
+        
+        administrationService.saveGlobalProperty(new GlobalProperty(RadiologyConstants.GP_ACCESSION_NUMBER_BLOCK_SIZE, "0"));
+        
+        expectedException.expect(IllegalStateException.class);
+        expectedException.expectMessage(
+            "Property " + RadiologyConstants.GP_ACCESSION_NUMBER_BLOCK_SIZE + " needs to be a positive integer");
+        
+        radiologyProperties.getAccessionNumberBlockSize();
+    }
+    
+    /**
+     * @see RadiologyProperties#getMrrtReportTemplateMaxSize()
+     */
+    @Test
+    public void shouldReturnReportTemplateMaxSize() throws Exception {
+        
+        administrationService
+                .saveGlobalProperty(new GlobalProperty(RadiologyConstants.GP_MRRT_REPORT_TEMPLATE_MAX_SIZE, "2048"));
+        
+        assertThat(radiologyProperties.getMrrtReportTemplateMaxSize(), is(2048));
+    }
+    
+    /**
+     * @see RadiologyProperties#getMrrtReportTemplateMaxSize()
+     */
+    @Test
+    public void shouldReturnOneMebibyteIfGlobalPropertyForReportTemplateMaxSizeIsNotConfigured() throws Exception {
+        
+        assertThat(radiologyProperties.getMrrtReportTemplateMaxSize(), is(1024 * 1024));
+    }
+    
+    /**
+     * @see RadiologyProperties#getMrrtReportTemplateMaxSize()
+     */
+    @Test
+    public void shouldFailIfGlobalPropertyForReportTemplateMaxSizeIsNotAPositiveInteger() throws Exception {
+        
+        administrationService
+                .saveGlobalProperty(new GlobalProperty(RadiologyConstants.GP_MRRT_REPORT_TEMPLATE_MAX_SIZE, "1 MB"));
+        
+        expectedException.expect(IllegalStateException.class);
+        expectedException.expectMessage(
+            "Property " + RadiologyConstants.GP_MRRT_REPORT_TEMPLATE_MAX_SIZE + " needs to be a positive integer");
+        
+        radiologyProperties.getMrrtReportTemplateMaxSize();
+    }
+    
+    /**
+     * @see RadiologyProperties#getReportBodyCompressionThreshold()
+     */
+    @Test
+    public void shouldReturnReportBodyCompressionThreshold() throws Exception {
+        
+        administrationService
+                .saveGlobalProperty(new GlobalProperty(RadiologyConstants.GP_REPORT_BODY_COMPRESSION_THRESHOLD, "4096"));
+        
+        assertThat(radiologyProperties.getReportBodyCompressionThreshold(), is(4096));
+    }
+    
+    /**
+     * @see RadiologyProperties#getReportBodyCompressionThreshold()
+     */
+    @Test
+    public void shouldReturnZeroIfGlobalPropertyForReportBodyCompressionThresholdIsNotConfigured() throws Exception {
+        
+        assertThat(radiologyProperties.getReportBodyCompressionThreshold(), is(0));
+    }
+    
+    /**
+     * @see RadiologyProperties#getReportBodyCompressionThreshold()
+     */
+    @Test
+    public void shouldFailIfGlobalPropertyForReportBodyCompressionThresholdIsNotAPositiveInteger() throws Exception {
+        
+        administrationService
+                .saveGlobalProperty(new GlobalProperty(RadiologyConstants.GP_REPORT_BODY_COMPRESSION_THRESHOLD, "-1"));
+        
+        expectedException.expect(IllegalStateException.class);
+        expectedException.expectMessage(
+            "Property " + RadiologyConstants.GP_REPORT_BODY_COMPRESSION_THRESHOLD + " needs to be a positive integer");
+        
+        radiologyProperties.getReportBodyCompressionThreshold();
+    }
+    
     /**
      * @see RadiologyProperties#getRadiologyCareSetting()
      */
@@ -627,4 +751,166 @@ public class RadiologyPropertiesComponentTest extends BaseModuleContextSensitive
         expectedException.expect(IllegalStateException.class);
         radiologyProperties.getReportTemplateHome();
     }
+    
+    /**
+     * @see RadiologyProperties#getReportTextIndexHome()
+     */
+    @Test
+    public void shouldReturnReportTextIndexDirectoryAndCreateItIfItDoesNotExist() throws Exception {
+        
+        File indexDirectory = new File(temporaryFolder.getRoot(), "report_text_index");
+        administrationService.setGlobalProperty(RadiologyConstants.GP_REPORT_TEXT_INDEX_DIR,
+            indexDirectory.getAbsolutePath());
+        
+        File result = radiologyProperties.getReportTextIndexHome();
+        
+        assertThat(result, is(indexDirectory));
+        assertThat(result.isDirectory(), is(true));
+    }
+    
+    /**
+     * @see RadiologyProperties#getReportTextIndexHome()
+     */
+    @Test
+    public void shouldThrowIllegalStateExceptionIfGlobalPropertyForReportTextIndexDirectoryCannotBeFound()
+            throws Exception {
+        
+        expectedException.expect(IllegalStateException.class);
+        expectedException.expectMessage(RadiologyConstants.GP_REPORT_TEXT_INDEX_DIR);
+        radiologyProperties.getReportTextIndexHome();
+    }
+    
+    /**
+     * @see RadiologyProperties#getReportTemplateWatchDirectory()
+     */
+    @Test
+    public void shouldReturnReportTemplateWatchDirectoryAndCreateItIfItDoesNotExist() throws Exception {
+        
+        File watchDirectory = new File(temporaryFolder.getRoot(), "mrrt_templates_inbox");
+        administrationService.setGlobalProperty(RadiologyConstants.GP_MRRT_REPORT_TEMPLATE_WATCH_DIR,
+            watchDirectory.getAbsolutePath());
+        
+        File result = radiologyProperties.getReportTemplateWatchDirectory();
+        
+        assertThat(result, is(watchDirectory));
+        assertThat(result.isDirectory(), is(true));
+    }
+    
+    /**
+     * @see RadiologyProperties#getReportTemplateWatchDirectory()
+     */
+    @Test
+    public void shouldReturnNullIfGlobalPropertyForReportTemplateWatchDirectoryIsNotConfigured() throws Exception {
+        
+        assertThat(radiologyProperties.getReportTemplateWatchDirectory(), is(nullValue()));
+    }
+    
+    /**
+     * @see RadiologyProperties#startCaching()
+     */
+    @Test
+    public void shouldCacheGlobalPropertiesAndResolvedMetadata() throws Exception {
+        
+        administrationService.setGlobalProperty(RadiologyConstants.GP_RADIOLOGY_CARE_SETTING, OUTPATIENT_CARE_SETTING);
+        radiologyProperties.startCaching();
+        
+        updateGlobalPropertyBypassingListeners(RadiologyConstants.GP_RADIOLOGY_CARE_SETTING, INPATIENT_CARE_SETTING);
+        
+        assertThat(radiologyProperties.getRadiologyCareSetting()
+                .getUuid(),
+            is(OUTPATIENT_CARE_SETTING));
+    }
+    
+    /**
+     * @see RadiologyProperties#startCaching()
+     */
+    @Test
+    public void shouldInvalidateCacheIfARadiologyGlobalPropertyIsSaved() throws Exception {
+        
+        administrationService.setGlobalProperty(RadiologyConstants.GP_RADIOLOGY_CARE_SETTING, OUTPATIENT_CARE_SETTING);
+        radiologyProperties.startCaching();
+        assertThat(radiologyProperties.getRadiologyCareSetting()
+                .getUuid(),
+            is(OUTPATIENT_CARE_SETTING));
+        
+        administrationService.setGlobalProperty(RadiologyConstants.GP_RADIOLOGY_CARE_SETTING, INPATIENT_CARE_SETTING);
+        
+        assertThat(radiologyProperties.getRadiologyCareSetting()
+                .getUuid(),
+            is(INPATIENT_CARE_SETTING));
+    }
+    
+    /**
+     * @see RadiologyProperties#startCaching()
+     */
+    @Test
+    public void shouldInvalidateCacheAgainOnceTheTransactionChangingARadiologyGlobalPropertyCompleted()
+            throws Exception {
+        
+        administrationService.setGlobalProperty(RadiologyConstants.GP_RADIOLOGY_CARE_SETTING, OUTPATIENT_CARE_SETTING);
+        radiologyProperties.startCaching();
+        updateGlobalPropertyBypassingListeners(RadiologyConstants.GP_RADIOLOGY_CARE_SETTING, INPATIENT_CARE_SETTING);
+        int synchronizationCount = TransactionSynchronizationManager.getSynchronizations()
+                .size();
+        
+        radiologyProperties.globalPropertyChanged(
+            new GlobalProperty(RadiologyConstants.GP_RADIOLOGY_CARE_SETTING, INPATIENT_CARE_SETTING));
+        assertThat(radiologyProperties.getRadiologyCareSetting()
+                .getUuid(),
+            is(INPATIENT_CARE_SETTING));
+        // a value cached before the change completed, for example by another transaction, must not be kept
+        updateGlobalPropertyBypassingListeners(RadiologyConstants.GP_RADIOLOGY_CARE_SETTING, OUTPATIENT_CARE_SETTING);
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        for (TransactionSynchronization synchronization : synchronizations.subList(synchronizationCount,
+            synchronizations.size())) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+        
+        assertThat(radiologyProperties.getRadiologyCareSetting()
+                .getUuid(),
+            is(OUTPATIENT_CARE_SETTING));
+    }
+    
+    /**
+     * @see RadiologyProperties#stopCaching()
+     */
+    @Test
+    public void shouldStopCachingGlobalPropertiesAndResolvedMetadata() throws Exception {
+        
+        administrationService.setGlobalProperty(RadiologyConstants.GP_RADIOLOGY_CARE_SETTING, OUTPATIENT_CARE_SETTING);
+        radiologyProperties.startCaching();
+        assertThat(radiologyProperties.getRadiologyCareSetting()
+                .getUuid(),
+            is(OUTPATIENT_CARE_SETTING));
+        
+        radiologyProperties.stopCaching();
+        updateGlobalPropertyBypassingListeners(RadiologyConstants.GP_RADIOLOGY_CARE_SETTING, INPATIENT_CARE_SETTING);
+        
+        assertThat(radiologyProperties.getRadiologyCareSetting()
+                .getUuid(),
+            is(INPATIENT_CARE_SETTING));
+    }
+    
+    /**
+     * @see RadiologyProperties#supportsPropertyName(String)
+     */
+    @Test
+    public void shouldReturnTrueForRadiologyGlobalPropertiesOtherThanNextAccessionNumberSeed() throws Exception {
+        
+        assertThat(radiologyProperties.supportsPropertyName(RadiologyConstants.GP_RADIOLOGY_CARE_SETTING), is(true));
+        assertThat(radiologyProperties.supportsPropertyName(RadiologyConstants.GP_NEXT_ACCESSION_NUMBER_SEED), is(false));
+        assertThat(radiologyProperties.supportsPropertyName("locale.allowed.list"), is(false));
+    }
+    
+    private void updateGlobalPropertyBypassingListeners(String property, String value) throws Exception {
+        
+        Context.flushSession();
+        try (PreparedStatement statement =
+                getConnection().prepareStatement("update global_property set property_value = ? where property = ?")) {
+            statement.setString(1, value);
+            statement.setString(2, property);
+            statement.executeUpdate();
+        }
+        Context.clearSession();
+    }
 }
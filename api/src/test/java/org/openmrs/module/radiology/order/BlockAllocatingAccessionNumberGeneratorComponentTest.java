@@ -0,0 +1,155 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.radiology.order;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import org.hibernate.cfg.Environment;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.api.AdministrationService;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.radiology.RadiologyConstants;
+import org.openmrs.module.radiology.RadiologyProperties;
+import org.openmrs.test.BaseModuleContextSensitiveTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+
+/**
+ * Tests {@link BlockAllocatingAccessionNumberGenerator}.
+ */
+public class BlockAllocatingAccessionNumberGeneratorComponentTest extends BaseModuleContextSensitiveTest {
+    
+    
+    private static final String TEST_DATASET =
+            "org/openmrs/module/radiology/include/RadiologyOrderServiceComponentTestDataset.xml";
+    
+    private static final long NEXT_ACCESSION_NUMBER_SEED = 15;
+    
+    private static final int BLOCK_SIZE = 10;
+    
+    @Autowired
+    @Qualifier("adminService")
+    private AdministrationService administrationService;
+    
+    private RadiologyProperties radiologyProperties;
+    
+    private BlockAllocatingAccessionNumberGenerator accessionNumberGenerator;
+    
+    /**
+     * Overriding following method is necessary to enable MVCC which is disabled by default in DB h2 used for the component
+     * tests.
+     *
+     * @see RadiologyOrderServiceComponentTest#getRuntimeProperties()
+     */
+    @Override
+    public Properties getRuntimeProperties() {
+        Properties result = super.getRuntimeProperties();
+        String url = result.getProperty(Environment.URL);
+        if (url.contains("jdbc:h2:") && !url.contains(";MVCC=TRUE")) {
+            result.setProperty(Environment.URL, url + ";MVCC=TRUE");
+        }
+        return result;
+    }
+    
+    @Before
+    public void setUp() throws Exception {
+        // We need to commit the global property nextAccessionNumberSeed otherwise it will not be visible in the
+        // HibernateRadiologyOrderDAO since blocks are reserved in a new transaction.
+        if (!Context.isSessionOpen()) {
+            Context.openSession();
+        }
+        executeDataSet(TEST_DATASET);
+        getConnection().commit();
+        Context.clearSession();
+        
+        radiologyProperties = mock(RadiologyProperties.class);
+        when(radiologyProperties.getAccessionNumberBlockSize()).thenReturn(BLOCK_SIZE);
+        accessionNumberGenerator = new BlockAllocatingAccessionNumberGenerator();
+        accessionNumberGenerator.setRadiologyProperties(radiologyProperties);
+    }
+    
+    @After
+    public void tearDown() throws Exception {
+        // We need to delete all data we committed otherwise this will influence other test classes and break isolation.
+        this.deleteAllData();
+    }
+    
+    /**
+     * @see BlockAllocatingAccessionNumberGenerator#getNewAccessionNumber()
+     */
+    @Test
+    public void shouldReserveANewBlockOfAccessionNumbersOnlyOnceTheCurrentBlockIsExhausted() throws Exception {
+        
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            assertThat(accessionNumberGenerator.getNewAccessionNumber(), is(String.valueOf(NEXT_ACCESSION_NUMBER_SEED + i)));
+            assertThat(getNextAccessionNumberSeed(), is(NEXT_ACCESSION_NUMBER_SEED + BLOCK_SIZE));
+        }
+        
+        assertThat(accessionNumberGenerator.getNewAccessionNumber(),
+            is(String.valueOf(NEXT_ACCESSION_NUMBER_SEED + BLOCK_SIZE)));
+        assertThat(getNextAccessionNumberSeed(), is(NEXT_ACCESSION_NUMBER_SEED + 2 * BLOCK_SIZE));
+    }
+    
+    /**
+     * @see BlockAllocatingAccessionNumberGenerator#getNewAccessionNumber()
+     */
+    @Test
+    public void shouldAlwaysReturnAUniqueAccessionNumberWhenCalledMultipleTimes() throws Exception {
+        
+        int N = 50;
+        final Set<String> uniqueAccessionNumbers = Collections.synchronizedSet(new HashSet<String>(N));
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < N; i++) {
+            threads.add(new Thread(new Runnable() {
+                
+                
+                @Override
+                public void run() {
+                    try {
+                        Context.openSession();
+                        uniqueAccessionNumbers.add(accessionNumberGenerator.getNewAccessionNumber());
+                    }
+                    finally {
+                        Context.closeSession();
+                    }
+                }
+            }));
+        }
+        for (int i = 0; i < N; ++i) {
+            threads.get(i)
+                    .start();
+        }
+        for (int i = 0; i < N; ++i) {
+            threads.get(i)
+                    .join();
+        }
+        // since we used a set we should have the size as N indicating that there were no duplicates
+        assertThat(uniqueAccessionNumbers.size(), is(N));
+        assertThat(getNextAccessionNumberSeed(), is(NEXT_ACCESSION_NUMBER_SEED + N));
+    }
+    
+    private Long getNextAccessionNumberSeed() {
+        
+        Context.clearSession();
+        return Long.valueOf(administrationService.getGlobalProperty(RadiologyConstants.GP_NEXT_ACCESSION_NUMBER_SEED));
+    }
+}
@@ -12,14 +12,21 @@ package org.openmrs.module.radiology.order;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 
+import java.util.List;
+import java.util.Locale;
+
 import org.hibernate.SessionFactory;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.openmrs.Concept;
+import org.openmrs.ConceptName;
 import org.openmrs.GlobalProperty;
 import org.openmrs.api.APIException;
 import org.openmrs.api.AdministrationService;
+import org.openmrs.api.ConceptService;
+import org.openmrs.api.PatientService;
 import org.openmrs.module.radiology.RadiologyConstants;
 import org.openmrs.test.BaseModuleContextSensitiveTest;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -41,6 +48,19 @@ public class HibernateRadiologyOrderDAOComponentTest extends BaseModuleContextSe
     @Autowired
     private SessionFactory sessionFactory;
     
+    @Autowired
+    private ConceptService conceptService;
+    
+    @Autowired
+    private PatientService patientService;
+    
+    private static final String RADIOLOGY_ORDER_DATASET =
+            "org/openmrs/module/radiology/include/RadiologyOrderServiceComponentTestDataset.xml";
+    
+    private static final int PATIENT_ID_WITH_RADIOLOGY_ORDERS_OF_CONCEPT_FRACTURE = 70024;
+    
+    private static final int CONCEPT_ID_FRACTURE = 178;
+    
     private HibernateRadiologyOrderDAO hibernateRadiologyOrderDAO;
     
     private String globalPropertyMissing =
@@ -74,6 +94,21 @@ public class HibernateRadiologyOrderDAOComponentTest extends BaseModuleContextSe
         }
     }
     
+    @Test
+    public void
+            shouldReturnTheNextAccessionNumberSeedStoredAsGlobalPropertyRadiologyNextAccessionNumberAndIncrementTheGlobalPropertyValueByGivenBlockSize()
+                    throws Exception {
+        
+        GlobalProperty nextAccessionNumberGlobalProperty =
+                new GlobalProperty(RadiologyConstants.GP_NEXT_ACCESSION_NUMBER_SEED);
+        nextAccessionNumberGlobalProperty.setPropertyValue("1");
+        administrationService.saveGlobalProperty(nextAccessionNumberGlobalProperty);
+        
+        assertThat(hibernateRadiologyOrderDAO.getNextAccessionNumberSeedSequenceBlock(20), is(1L));
+        assertThat(hibernateRadiologyOrderDAO.getNextAccessionNumberSeedSequenceBlock(5), is(21L));
+        assertThat(hibernateRadiologyOrderDAO.getNextAccessionNumberSeedSequenceValue(), is(26L));
+    }
+    
     @Test
     public void shouldFailIfGlobalPropertyRadiologyNextAccessionNumberSeedIsMissing() throws Exception {
         
@@ -122,4 +157,53 @@ public class HibernateRadiologyOrderDAOComponentTest extends BaseModuleContextSe
             hibernateRadiologyOrderDAO.getNextAccessionNumberSeedSequenceValue();
         }
     }
+    
+    /**
+     * @see HibernateRadiologyOrderDAO#getRadiologyOrderWorklistItems(RadiologyOrderSearchCriteria, Locale)
+     */
+    @Test
+    public void shouldReturnWorklistItemsWithTheConceptNameInTheLanguageOfGivenLocaleIfThereIsNoneInGivenLocale()
+            throws Exception {
+        
+        executeDataSet(RADIOLOGY_ORDER_DATASET);
+        
+        List<RadiologyOrderWorklistItem> worklistItems =
+                hibernateRadiologyOrderDAO.getRadiologyOrderWorklistItems(getSearchCriteriaOfOrdersOfConceptFracture(),
+                    Locale.UK);
+        
+        assertThat(worklistItems.size(), is(9));
+        for (RadiologyOrderWorklistItem worklistItem : worklistItems) {
+            assertThat(worklistItem.getConceptName(), is("FRACTURE"));
+        }
+    }
+    
+    /**
+     * @see HibernateRadiologyOrderDAO#getRadiologyOrderWorklistItems(RadiologyOrderSearchCriteria, Locale)
+     */
+    @Test
+    public void shouldReturnEachWorklistItemOnceWithTheConceptNameInGivenLocaleIfThereIsOneInItsLanguageToo()
+            throws Exception {
+        
+        executeDataSet(RADIOLOGY_ORDER_DATASET);
+        Concept concept = conceptService.getConcept(CONCEPT_ID_FRACTURE);
+        ConceptName britishName = new ConceptName("BROKEN BONE", Locale.UK);
+        concept.setFullySpecifiedName(britishName);
+        concept.setPreferredName(britishName);
+        conceptService.saveConcept(concept);
+        
+        List<RadiologyOrderWorklistItem> worklistItems =
+                hibernateRadiologyOrderDAO.getRadiologyOrderWorklistItems(getSearchCriteriaOfOrdersOfConceptFracture(),
+                    Locale.UK);
+        
+        assertThat(worklistItems.size(), is(9));
+        for (RadiologyOrderWorklistItem worklistItem : worklistItems) {
+            assertThat(worklistItem.getConceptName(), is("BROKEN BONE"));
+        }
+    }
+    
+    private RadiologyOrderSearchCriteria getSearchCriteriaOfOrdersOfConceptFracture() {
+        return new RadiologyOrderSearchCriteria.Builder()
+                .withPatient(patientService.getPatient(PATIENT_ID_WITH_RADIOLOGY_ORDERS_OF_CONCEPT_FRACTURE))
+                .build();
+    }
 }
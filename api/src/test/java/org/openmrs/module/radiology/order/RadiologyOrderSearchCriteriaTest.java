@@ -155,4 +155,44 @@ public class RadiologyOrderSearchCriteriaTest {
         assertNull(radiologyOrderSearchCriteria.getToEffectiveStartDate());
         assertNull(radiologyOrderSearchCriteria.getAccessionNumber());
     }
+    
+    @Test
+    public void createANewRadiologyOrderSearchCriteriaInstanceWithStartAfterIfStartAfterIsSet() throws Exception {
+        
+        RadiologyOrder startAfter = new RadiologyOrder();
+        startAfter.setOrderId(1);
+        
+        radiologyOrderSearchCriteria = new RadiologyOrderSearchCriteria.Builder().startAfter(startAfter)
+                .build();
+        
+        assertThat(radiologyOrderSearchCriteria.getStartAfter(), is(startAfter));
+        assertNull(radiologyOrderSearchCriteria.getStartIndex());
+        assertNull(radiologyOrderSearchCriteria.getLimit());
+        assertNull(radiologyOrderSearchCriteria.getPatient());
+    }
+    
+    @Test
+    public void createANewRadiologyOrderSearchCriteriaInstanceWithStartIndexAndLimitIfSet() throws Exception {
+        
+        radiologyOrderSearchCriteria = new RadiologyOrderSearchCriteria.Builder().withStartIndex(20)
+                .withLimit(10)
+                .build();
+        
+        assertThat(radiologyOrderSearchCriteria.getStartIndex(), is(20));
+        assertThat(radiologyOrderSearchCriteria.getLimit(), is(10));
+        assertNull(radiologyOrderSearchCriteria.getStartAfter());
+        assertNull(radiologyOrderSearchCriteria.getPatient());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldThrowIllegalArgumentExceptionIfStartIndexIsNegative() throws Exception {
+        
+        new RadiologyOrderSearchCriteria.Builder().withStartIndex(-1);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldThrowIllegalArgumentExceptionIfLimitIsSmallerThanOne() throws Exception {
+        
+        new RadiologyOrderSearchCriteria.Builder().withLimit(0);
+    }
 }
@@ -27,11 +27,18 @@ import java.util.Calendar;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.hamcrest.Matchers;
+import org.hibernate.SessionFactory;
 import org.hibernate.cfg.Environment;
+import org.hibernate.stat.Statistics;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
@@ -50,6 +57,8 @@ import org.openmrs.api.context.Context;
 import org.openmrs.module.radiology.study.RadiologyStudy;
 import org.openmrs.parameter.EncounterSearchCriteriaBuilder;
 import org.openmrs.test.BaseModuleContextSensitiveTest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 
@@ -59,6 +68,8 @@ import org.springframework.beans.factory.annotation.Qualifier;
 public class RadiologyOrderServiceComponentTest extends BaseModuleContextSensitiveTest {
     
     
+    private static final Logger log = LoggerFactory.getLogger(RadiologyOrderServiceComponentTest.class);
+    
     private static final String TEST_DATASET =
             "org/openmrs/module/radiology/include/RadiologyOrderServiceComponentTestDataset.xml";
     
@@ -66,6 +77,8 @@ public class RadiologyOrderServiceComponentTest extends BaseModuleContextSensiti
     
     private static final int PATIENT_ID_WITH_TWO_RADIOLOGY_ORDERS = 70021;
     
+    private static final int CONCEPT_ID_CD4_COUNT = 5497;
+    
     private static final int PATIENT_ID_WITH_ONE_VOIDED_AND_TWO_NON_VOIDED_RADIOLOGY_ORDERS = 70023;
     
     private static final int EXISTING_RADIOLOGY_ORDER_ID = 2001;
@@ -84,6 +97,9 @@ public class RadiologyOrderServiceComponentTest extends BaseModuleContextSensiti
     
     private static final int PROVIDER_ID_WITH_TWO_ASSIGNED_RADIOLOGY_ORDERS = 2;
     
+    private static final int[] PATIENT_IDS_WITHOUT_ORDERS_FOR_CONCURRENT_PLACEMENT =
+            { 70030, 70031, 70032, 70033, 70034, 70035, 70036, 70037, 70038, 70039, 70040, 70041, 70042, 70043, 70044, 70045 };
+    
     @Autowired
     private PatientService patientService;
     
@@ -103,6 +119,9 @@ public class RadiologyOrderServiceComponentTest extends BaseModuleContextSensiti
     @Autowired
     private RadiologyOrderService radiologyOrderService;
     
+    @Autowired
+    private SessionFactory sessionFactory;
+    
     /**
      * Overriding following method is necessary to enable MVCC which is disabled by default in DB h2
      * used for the component tests. This prevents following exception:
@@ -215,6 +234,27 @@ public class RadiologyOrderServiceComponentTest extends BaseModuleContextSensiti
         assertNotNull(radiologyOrder.getAccessionNumber());
     }
     
+    @Test
+    public void shouldPersistTheEffectiveStartDateOfGivenRadiologyOrder() throws Exception {
+        
+        RadiologyOrder radiologyOrder = getUnsavedRadiologyOrder();
+        radiologyOrder = radiologyOrderService.placeRadiologyOrder(radiologyOrder);
+        Context.flushSession();
+        Context.clearSession();
+        
+        RadiologyOrderSearchCriteria radiologyOrderSearchCriteria =
+                new RadiologyOrderSearchCriteria.Builder().withPatient(radiologyOrder.getPatient())
+                        .fromEffectiveStartDate(radiologyOrder.getScheduledDate())
+                        .toEffectiveStartDate(radiologyOrder.getScheduledDate())
+                        .build();
+        List<RadiologyOrder> radiologyOrders = radiologyOrderService.getRadiologyOrders(radiologyOrderSearchCriteria);
+        
+        assertThat(radiologyOrders.size(), is(1));
+        assertThat(radiologyOrders.get(0)
+                .getOrderId(),
+            is(radiologyOrder.getOrderId()));
+    }
+    
     @Test
     public void shouldAlwaysReturnAUniqueAccessionNumberWhenCalledMultipleTimes() throws Exception {
         
@@ -250,6 +290,196 @@ public class RadiologyOrderServiceComponentTest extends BaseModuleContextSensiti
         Assert.assertEquals(N, uniqueAccessionNumbers.size());
     }
     
+    @Test
+    public void shouldPlaceRadiologyOrdersOfDifferentPatientsConcurrently() throws Exception {
+        
+        final int threads = Math.min(Runtime.getRuntime()
+                .availableProcessors(),
+            PATIENT_IDS_WITHOUT_ORDERS_FOR_CONCURRENT_PLACEMENT.length / 2);
+        final int half = PATIENT_IDS_WITHOUT_ORDERS_FOR_CONCURRENT_PLACEMENT.length / 2;
+        
+        final List<RadiologyOrder> placedOrders = new ArrayList<RadiologyOrder>();
+        long start = System.nanoTime();
+        placedOrders.addAll(placeRadiologyOrdersConcurrently(
+            Arrays.copyOfRange(PATIENT_IDS_WITHOUT_ORDERS_FOR_CONCURRENT_PLACEMENT, 0, half), 1));
+        final long singleThreadedNanos = System.nanoTime() - start;
+        
+        start = System.nanoTime();
+        placedOrders.addAll(placeRadiologyOrdersConcurrently(Arrays.copyOfRange(
+            PATIENT_IDS_WITHOUT_ORDERS_FOR_CONCURRENT_PLACEMENT, half, PATIENT_IDS_WITHOUT_ORDERS_FOR_CONCURRENT_PLACEMENT.length),
+            threads));
+        final long multiThreadedNanos = System.nanoTime() - start;
+        log.info("Placed " + half + " radiology orders in " + singleThreadedNanos / 1000000 + "ms with 1 thread and in "
+                + multiThreadedNanos / 1000000 + "ms with " + threads + " threads");
+        
+        final Set<String> accessionNumbers = new HashSet<String>();
+        final Set<String> studyInstanceUids = new HashSet<String>();
+        for (RadiologyOrder placedOrder : placedOrders) {
+            accessionNumbers.add(placedOrder.getAccessionNumber());
+            studyInstanceUids.add(placedOrder.getStudy()
+                    .getStudyInstanceUid());
+        }
+        assertThat(placedOrders.size(), is(PATIENT_IDS_WITHOUT_ORDERS_FOR_CONCURRENT_PLACEMENT.length));
+        assertThat(accessionNumbers.size(), is(PATIENT_IDS_WITHOUT_ORDERS_FOR_CONCURRENT_PLACEMENT.length));
+        assertThat(studyInstanceUids.size(), is(PATIENT_IDS_WITHOUT_ORDERS_FOR_CONCURRENT_PLACEMENT.length));
+    }
+    
+    /**
+     * Places one radiology order for each given patient using given number of threads each with its own session.
+     * 
+     * @param patientIds the patient ids to place a radiology order for
+     * @param threads the number of threads placing radiology orders
+     * @return the placed radiology orders
+     * @throws Exception if a radiology order could not be placed
+     */
+    private List<RadiologyOrder> placeRadiologyOrdersConcurrently(int[] patientIds, int threads) throws Exception {
+        
+        final ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        final List<Future<RadiologyOrder>> futures = new ArrayList<Future<RadiologyOrder>>();
+        for (final int patientId : patientIds) {
+            futures.add(executorService.submit(new Callable<RadiologyOrder>() {
+                
+                
+                @Override
+                public RadiologyOrder call() throws Exception {
+                    try {
+                        Context.openSession();
+                        Context.authenticate("admin", "test");
+                        RadiologyOrder radiologyOrder = getUnsavedRadiologyOrder();
+                        radiologyOrder.setPatient(patientService.getPatient(patientId));
+                        return radiologyOrderService.placeRadiologyOrder(radiologyOrder);
+                    }
+                    finally {
+                        Context.closeSession();
+                    }
+                }
+            }));
+        }
+        executorService.shutdown();
+        
+        final List<RadiologyOrder> result = new ArrayList<RadiologyOrder>();
+        for (Future<RadiologyOrder> future : futures) {
+            result.add(future.get());
+        }
+        return result;
+    }
+    
+    @Test
+    public void shouldPlaceAllGivenRadiologyOrders() throws Exception {
+        
+        final List<RadiologyOrder> radiologyOrders = new ArrayList<RadiologyOrder>();
+        for (int i = 0; i < 3; i++) {
+            RadiologyOrder radiologyOrder = getUnsavedRadiologyOrder();
+            radiologyOrder.setPatient(patientService.getPatient(PATIENT_IDS_WITHOUT_ORDERS_FOR_CONCURRENT_PLACEMENT[i]));
+            radiologyOrders.add(radiologyOrder);
+        }
+        
+        final List<RadiologyOrderPlacementResult> results = radiologyOrderService.placeRadiologyOrders(radiologyOrders);
+        
+        assertThat(results.size(), is(radiologyOrders.size()));
+        final Set<String> accessionNumbers = new HashSet<String>();
+        for (int i = 0; i < results.size(); i++) {
+            assertTrue(results.get(i)
+                    .isPlaced());
+            assertThat(results.get(i)
+                    .getRadiologyOrder(),
+                is(radiologyOrders.get(i)));
+            assertNotNull(radiologyOrders.get(i)
+                    .getOrderId());
+            assertNotNull(radiologyOrders.get(i)
+                    .getStudy()
+                    .getStudyId());
+            accessionNumbers.add(radiologyOrders.get(i)
+                    .getAccessionNumber());
+        }
+        assertThat(accessionNumbers.size(), is(radiologyOrders.size()));
+    }
+    
+    @Test
+    public void shouldReportRadiologyOrdersWhichCannotBePlacedAndPlaceTheOthers() throws Exception {
+        
+        final RadiologyOrder radiologyOrder = getUnsavedRadiologyOrder();
+        radiologyOrder.setPatient(patientService.getPatient(PATIENT_IDS_WITHOUT_ORDERS_FOR_CONCURRENT_PLACEMENT[0]));
+        final RadiologyOrder radiologyOrderWithoutStudy = getUnsavedRadiologyOrder();
+        radiologyOrderWithoutStudy.setStudy(null);
+        final RadiologyOrder otherRadiologyOrder = getUnsavedRadiologyOrder();
+        otherRadiologyOrder.setPatient(patientService.getPatient(PATIENT_IDS_WITHOUT_ORDERS_FOR_CONCURRENT_PLACEMENT[1]));
+        final RadiologyOrder radiologyOrderWithoutConcept = getUnsavedRadiologyOrder();
+        radiologyOrderWithoutConcept
+                .setPatient(patientService.getPatient(PATIENT_IDS_WITHOUT_ORDERS_FOR_CONCURRENT_PLACEMENT[2]));
+        radiologyOrderWithoutConcept.setConcept(null);
+        
+        final List<RadiologyOrderPlacementResult> results = radiologyOrderService.placeRadiologyOrders(
+            Arrays.asList(radiologyOrder, radiologyOrderWithoutStudy, otherRadiologyOrder, radiologyOrderWithoutConcept));
+        
+        assertThat(results.size(), is(4));
+        assertTrue(results.get(0)
+                .isPlaced());
+        assertNotNull(radiologyOrder.getOrderId());
+        assertThat(results.get(1)
+                .isPlaced(),
+            is(false));
+        assertThat(results.get(1)
+                .getError()
+                .getMessage(),
+            is("radiologyOrder.study cannot be null"));
+        assertTrue(results.get(2)
+                .isPlaced());
+        assertNotNull(otherRadiologyOrder.getOrderId());
+        assertThat(results.get(3)
+                .isPlaced(),
+            is(false));
+        assertNotNull(results.get(3)
+                .getError());
+        assertNull(radiologyOrderWithoutConcept.getOrderId());
+        assertNull(radiologyOrderWithoutConcept.getAccessionNumber());
+    }
+    
+    @Test
+    public void shouldCreateNewRadiologyOrdersAndStudiesFromGivenRadiologyOrders() throws Exception {
+        
+        final RadiologyOrder radiologyOrder = getUnsavedRadiologyOrder();
+        final RadiologyOrder otherRadiologyOrder = getUnsavedRadiologyOrder();
+        otherRadiologyOrder.setPatient(patientService.getPatient(PATIENT_IDS_WITHOUT_ORDERS_FOR_CONCURRENT_PLACEMENT[0]));
+        
+        final List<RadiologyOrderPlacementResult> results =
+                radiologyOrderService.placeRadiologyOrders(Arrays.asList(radiologyOrder, otherRadiologyOrder));
+        
+        assertThat(results.size(), is(2));
+        for (RadiologyOrderPlacementResult result : results) {
+            assertTrue(result.isPlaced());
+            final RadiologyOrder placedRadiologyOrder = result.getRadiologyOrder();
+            assertNotNull(placedRadiologyOrder.getOrderId());
+            assertNotNull(placedRadiologyOrder.getAccessionNumber());
+            assertNotNull(placedRadiologyOrder.getEncounter());
+            assertNotNull(placedRadiologyOrder.getStudy()
+                    .getStudyId());
+            assertNotNull(placedRadiologyOrder.getStudy()
+                    .getStudyInstanceUid());
+        }
+    }
+    
+    @Test
+    public void shouldAssignConsecutiveAccessionNumbersToGivenRadiologyOrders() throws Exception {
+        
+        final List<RadiologyOrder> radiologyOrders = new ArrayList<RadiologyOrder>();
+        for (int i = 0; i < 3; i++) {
+            RadiologyOrder radiologyOrder = getUnsavedRadiologyOrder();
+            radiologyOrder.setPatient(patientService.getPatient(PATIENT_IDS_WITHOUT_ORDERS_FOR_CONCURRENT_PLACEMENT[i]));
+            radiologyOrders.add(radiologyOrder);
+        }
+        
+        radiologyOrderService.placeRadiologyOrders(radiologyOrders);
+        
+        final long firstAccessionNumber = Long.valueOf(radiologyOrders.get(0)
+                .getAccessionNumber());
+        for (int i = 0; i < radiologyOrders.size(); i++) {
+            assertThat(radiologyOrders.get(i)
+                    .getAccessionNumber(),
+                is(String.valueOf(firstAccessionNumber + i)));
+        }
+    }
+    
     @Test
     public void shouldCreateDiscontinuationOrderWhichDiscontinuesGivenRadiologyOrderThatIsNotInProgressOrCompleted()
             throws Exception {
@@ -563,4 +793,233 @@ public class RadiologyOrderServiceComponentTest extends BaseModuleContextSensiti
                 .getOrderId(),
             is(2006));
     }
+    
+    @Test
+    public void shouldReturnRadiologyOrdersOrderedByAccessionNumberAndOrderId() throws Exception {
+        
+        Patient patient = patientService.getPatient(70024);
+        RadiologyOrderSearchCriteria radiologyOrderSearchCriteria =
+                new RadiologyOrderSearchCriteria.Builder().withPatient(patient)
+                        .build();
+        
+        List<RadiologyOrder> radiologyOrders = radiologyOrderService.getRadiologyOrders(radiologyOrderSearchCriteria);
+        
+        assertThat(getAccessionNumbers(radiologyOrders),
+            is(Arrays.asList("10", "11", "12", "13", "14", "4", "7", "8", "9")));
+    }
+    
+    @Test
+    public void shouldReturnThePageOfRadiologyOrdersGivenStartIndexAndLimit() throws Exception {
+        
+        Patient patient = patientService.getPatient(70024);
+        RadiologyOrderSearchCriteria radiologyOrderSearchCriteria =
+                new RadiologyOrderSearchCriteria.Builder().withPatient(patient)
+                        .withStartIndex(2)
+                        .withLimit(3)
+                        .build();
+        
+        List<RadiologyOrder> radiologyOrders = radiologyOrderService.getRadiologyOrders(radiologyOrderSearchCriteria);
+        
+        assertThat(getAccessionNumbers(radiologyOrders), is(Arrays.asList("12", "13", "14")));
+    }
+    
+    @Test
+    public void shouldReturnRadiologyOrdersAfterGivenStartAfterRadiologyOrder() throws Exception {
+        
+        Patient patient = patientService.getPatient(70024);
+        RadiologyOrderSearchCriteria radiologyOrderSearchCriteria =
+                new RadiologyOrderSearchCriteria.Builder().withPatient(patient)
+                        .startAfter(radiologyOrderService.getRadiologyOrder(20016))
+                        .withLimit(2)
+                        .build();
+        
+        List<RadiologyOrder> radiologyOrders = radiologyOrderService.getRadiologyOrders(radiologyOrderSearchCriteria);
+        
+        assertThat(getAccessionNumbers(radiologyOrders), is(Arrays.asList("4", "7")));
+    }
+    
+    @Test
+    public void shouldReturnTheNumberOfRadiologyOrdersMatchingGivenCriteriaIgnoringPagingParameters() throws Exception {
+        
+        Patient patient = patientService.getPatient(70024);
+        RadiologyOrderSearchCriteria radiologyOrderSearchCriteria =
+                new RadiologyOrderSearchCriteria.Builder().withPatient(patient)
+                        .startAfter(radiologyOrderService.getRadiologyOrder(20016))
+                        .withStartIndex(1)
+                        .withLimit(2)
+                        .build();
+        
+        assertThat(radiologyOrderService.getCountOfRadiologyOrders(radiologyOrderSearchCriteria), is(9L));
+    }
+    
+    @Test
+    public void shouldLoadRadiologyOrdersAndTheirStudiesWithANumberOfStatementsIndependentOfTheNumberOfOrders()
+            throws Exception {
+        
+        Patient patient = patientService.getPatient(70024);
+        RadiologyOrderSearchCriteria allRadiologyOrdersOfPatient =
+                new RadiologyOrderSearchCriteria.Builder().withPatient(patient)
+                        .build();
+        RadiologyOrderSearchCriteria oneRadiologyOrderOfPatient =
+                new RadiologyOrderSearchCriteria.Builder().withPatient(patient)
+                        .withLimit(1)
+                        .build();
+        
+        final Statistics statistics = sessionFactory.getStatistics();
+        final boolean statisticsEnabled = statistics.isStatisticsEnabled();
+        statistics.setStatisticsEnabled(true);
+        try {
+            Context.clearSession();
+            statistics.clear();
+            assertThat(radiologyOrderService.getRadiologyOrders(allRadiologyOrdersOfPatient)
+                    .size(),
+                is(9));
+            final long statementsForAllRadiologyOrders = statistics.getPrepareStatementCount();
+            
+            Context.clearSession();
+            statistics.clear();
+            assertThat(radiologyOrderService.getRadiologyOrders(oneRadiologyOrderOfPatient)
+                    .size(),
+                is(1));
+            final long statementsForOneRadiologyOrder = statistics.getPrepareStatementCount();
+            
+            assertThat(statementsForAllRadiologyOrders, is(statementsForOneRadiologyOrder));
+        }
+        finally {
+            statistics.setStatisticsEnabled(statisticsEnabled);
+        }
+    }
+    
+    @Test
+    public void shouldReturnWorklistItemsOfRadiologyOrdersMatchingGivenCriteria() throws Exception {
+        
+        Patient patient = patientService.getPatient(PATIENT_ID_WITH_TWO_RADIOLOGY_ORDERS);
+        RadiologyOrderSearchCriteria radiologyOrderSearchCriteria =
+                new RadiologyOrderSearchCriteria.Builder().withPatient(patient)
+                        .build();
+        
+        List<RadiologyOrderWorklistItem> worklistItems =
+                radiologyOrderService.getRadiologyOrderWorklistItems(radiologyOrderSearchCriteria);
+        
+        assertThat(worklistItems.size(), is(2));
+        RadiologyOrderWorklistItem worklistItem = worklistItems.get(0);
+        RadiologyOrder radiologyOrder = radiologyOrderService.getRadiologyOrder(EXISTING_RADIOLOGY_ORDER_ID);
+        assertThat(worklistItem.getUuid(), is(radiologyOrder.getUuid()));
+        assertThat(worklistItem.getAccessionNumber(), is(radiologyOrder.getAccessionNumber()));
+        assertThat(worklistItem.getPatientUuid(), is(patient.getUuid()));
+        assertThat(worklistItem.getPatientName(), is("John Francis Doe"));
+        assertThat(worklistItem.getConceptUuid(), is(radiologyOrder.getConcept()
+                .getUuid()));
+        assertThat(worklistItem.getConceptName(), is("FRACTURE"));
+        assertThat(worklistItem.getUrgency(), is(radiologyOrder.getUrgency()));
+        assertThat(worklistItem.getEffectiveStartDate(), is(radiologyOrder.getEffectiveStartDate()));
+        assertThat(worklistItem.getPerformedStatus(), is(radiologyOrder.getStudy()
+                .getPerformedStatus()));
+        assertThat(worklistItems.get(1)
+                .getAccessionNumber(),
+            is("2"));
+    }
+    
+    @Test
+    public void shouldReturnThePageOfWorklistItemsGivenStartIndexAndLimit() throws Exception {
+        
+        Patient patient = patientService.getPatient(70024);
+        RadiologyOrderSearchCriteria radiologyOrderSearchCriteria =
+                new RadiologyOrderSearchCriteria.Builder().withPatient(patient)
+                        .withStartIndex(2)
+                        .withLimit(3)
+                        .build();
+        
+        List<RadiologyOrderWorklistItem> worklistItems =
+                radiologyOrderService.getRadiologyOrderWorklistItems(radiologyOrderSearchCriteria);
+        
+        assertThat(worklistItems.size(), is(3));
+        assertThat(worklistItems.get(0)
+                .getAccessionNumber(),
+            is("12"));
+        assertThat(worklistItems.get(2)
+                .getAccessionNumber(),
+            is("14"));
+        assertThat(worklistItems.get(0)
+                .getPerformedStatus(),
+            is(nullValue()));
+    }
+    
+    /**
+     * @see RadiologyOrderService#exportRadiologyOrderWorklistItems(RadiologyOrderSearchCriteria,
+     *      java.util.function.Consumer)
+     */
+    @Test
+    public void shouldPassTheWorklistItemsOfRadiologyOrdersMatchingGivenCriteriaToGivenConsumer() throws Exception {
+        
+        Patient patient = patientService.getPatient(70024);
+        RadiologyOrderSearchCriteria radiologyOrderSearchCriteria =
+                new RadiologyOrderSearchCriteria.Builder().withPatient(patient)
+                        .build();
+        
+        List<String> exportedAccessionNumbers = new ArrayList<String>();
+        long count = radiologyOrderService.exportRadiologyOrderWorklistItems(radiologyOrderSearchCriteria,
+            worklistItem -> {
+                assertThat(worklistItem.getPatientUuid(), is(patient.getUuid()));
+                assertThat(worklistItem.getConceptName(), is("FRACTURE"));
+                exportedAccessionNumbers.add(worklistItem.getAccessionNumber());
+            });
+        
+        assertThat(count, is(9L));
+        assertThat(exportedAccessionNumbers,
+            is(getAccessionNumbers(radiologyOrderService.getRadiologyOrders(radiologyOrderSearchCriteria))));
+    }
+    
+    /**
+     * @see RadiologyOrderService#exportRadiologyOrderWorklistItems(RadiologyOrderSearchCriteria,
+     *      java.util.function.Consumer)
+     */
+    @Test
+    public void shouldPassWorklistItemsWhoseConceptHasNoNameInTheLocaleOfTheUserWithoutQueryingWhileStreaming()
+            throws Exception {
+        
+        Patient patient = patientService.getPatient(70024);
+        RadiologyOrderSearchCriteria radiologyOrderSearchCriteria =
+                new RadiologyOrderSearchCriteria.Builder().withPatient(patient)
+                        .build();
+        
+        // a second concept so that a fallback name looked up on demand would be looked up while streaming
+        getConnection().createStatement()
+                .executeUpdate("update orders set concept_id = " + CONCEPT_ID_CD4_COUNT + " where order_id = 20016");
+        
+        final Locale locale = Context.getLocale();
+        final Statistics statistics = sessionFactory.getStatistics();
+        final boolean statisticsEnabled = statistics.isStatisticsEnabled();
+        statistics.setStatisticsEnabled(true);
+        try {
+            // the ordered concepts are only named in english
+            Context.setLocale(Locale.FRENCH);
+            Context.clearSession();
+            statistics.clear();
+            Set<String> conceptNames = new HashSet<String>();
+            List<Long> statementsWhileStreaming = new ArrayList<Long>();
+            long count = radiologyOrderService.exportRadiologyOrderWorklistItems(radiologyOrderSearchCriteria,
+                worklistItem -> {
+                    conceptNames.add(worklistItem.getConceptName());
+                    statementsWhileStreaming.add(statistics.getPrepareStatementCount());
+                });
+            
+            assertThat(count, is(9L));
+            assertThat(conceptNames, is((Set<String>) new HashSet<String>(Arrays.asList("FRACTURE", "CD4 COUNT"))));
+            assertThat(new HashSet<Long>(statementsWhileStreaming).size(), is(1));
+        }
+        finally {
+            Context.setLocale(locale);
+            statistics.setStatisticsEnabled(statisticsEnabled);
+        }
+    }
+    
+    private List<String> getAccessionNumbers(List<RadiologyOrder> radiologyOrders) {
+        
+        final List<String> result = new ArrayList<String>(radiologyOrders.size());
+        for (RadiologyOrder radiologyOrder : radiologyOrders) {
+            result.add(radiologyOrder.getAccessionNumber());
+        }
+        return result;
+    }
 }
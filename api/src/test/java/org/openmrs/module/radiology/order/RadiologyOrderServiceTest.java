@@ -9,8 +9,17 @@
  */
 package org.openmrs.module.radiology.order;
 
+import static org.hamcrest.collection.IsEmptyCollection.empty;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -68,6 +77,48 @@ public class RadiologyOrderServiceTest extends BaseContextMockTest {
         radiologyOrderService.placeRadiologyOrder(radiologyOrder);
     }
     
+    @Test
+    public void shouldFailToReserveAccessionNumberSeedsIfGivenBlockSizeIsSmallerThanOne() {
+        
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("blockSize must be greater than zero");
+        radiologyOrderService.getNextAccessionNumberSeedSequenceBlock(0);
+    }
+    
+    @Test
+    public void shouldFailToPlaceRadiologyOrdersGivenNull() {
+        
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("radiologyOrders cannot be null");
+        radiologyOrderService.placeRadiologyOrders(null);
+    }
+    
+    @Test
+    public void shouldReturnEmptyListGivenEmptyList() {
+        
+        assertThat(radiologyOrderService.placeRadiologyOrders(new ArrayList<RadiologyOrder>()), is(empty()));
+    }
+    
+    @Test
+    public void shouldReportExistingRadiologyOrdersAsNotPlaced() {
+        
+        when(radiologyOrder.getOrderId()).thenReturn(EXISTING_RADIOLOGY_ORDER_ID);
+        
+        List<RadiologyOrderPlacementResult> results =
+                radiologyOrderService.placeRadiologyOrders(Arrays.asList(radiologyOrder));
+        
+        assertThat(results.size(), is(1));
+        assertFalse(results.get(0)
+                .isPlaced());
+        assertThat(results.get(0)
+                .getError(),
+            is(instanceOf(APIException.class)));
+        assertThat(results.get(0)
+                .getError()
+                .getMessage(),
+            is("Order.cannot.edit.existing"));
+    }
+    
     @Test
     public void shouldFailToDiscontinueRadiologyOrderIfGivenNull() throws Exception {
         
@@ -150,4 +201,45 @@ public class RadiologyOrderServiceTest extends BaseContextMockTest {
         expectedException.expectMessage("radiologyOrderSearchCriteria cannot be null");
         radiologyOrderService.getRadiologyOrders(null);
     }
+    
+    @Test
+    public void shouldFailToGetRadiologyOrdersIfGivenStartAfterRadiologyOrderIsNotPlaced() throws Exception {
+        
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("radiologyOrderSearchCriteria.startAfter must be a placed radiology order");
+        radiologyOrderService.getRadiologyOrders(new RadiologyOrderSearchCriteria.Builder().startAfter(new RadiologyOrder())
+                .build());
+    }
+    
+    @Test
+    public void shouldFailToGetCountOfRadiologyOrdersIfGivenNull() throws Exception {
+        
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("radiologyOrderSearchCriteria cannot be null");
+        radiologyOrderService.getCountOfRadiologyOrders(null);
+    }
+    
+    @Test
+    public void shouldFailToGetRadiologyOrderWorklistItemsIfGivenNull() throws Exception {
+        
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("radiologyOrderSearchCriteria cannot be null");
+        radiologyOrderService.getRadiologyOrderWorklistItems(null);
+    }
+    
+    @Test
+    public void shouldFailToExportRadiologyOrderWorklistItemsIfGivenSearchCriteriaIsNull() throws Exception {
+        
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("radiologyOrderSearchCriteria cannot be null");
+        radiologyOrderService.exportRadiologyOrderWorklistItems(null, worklistItem -> {});
+    }
+    
+    @Test
+    public void shouldFailToExportRadiologyOrderWorklistItemsIfGivenConsumerIsNull() throws Exception {
+        
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("consumer cannot be null");
+        radiologyOrderService.exportRadiologyOrderWorklistItems(new RadiologyOrderSearchCriteria.Builder().build(), null);
+    }
 }
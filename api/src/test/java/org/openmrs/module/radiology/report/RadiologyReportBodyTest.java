@@ -0,0 +1,75 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.radiology.report;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+/**
+ * Tests {@link RadiologyReportBody}
+ */
+public class RadiologyReportBodyTest {
+    
+    
+    private static final String LARGE_TEXT = StringUtils.repeat("<p>No acute cardiopulmonary abnormality.</p>", 100);
+    
+    @Test
+    public void shouldStoreTextSmallerThanCompressionThresholdUncompressed() throws Exception {
+        
+        RadiologyReportBody reportBody = new RadiologyReportBody(1);
+        
+        reportBody.setText("some diagnosis", 4096);
+        
+        assertFalse(reportBody.isCompressed());
+        assertThat(reportBody.getText(), is("some diagnosis"));
+    }
+    
+    @Test
+    public void shouldStoreTextAtLeastAsLargeAsCompressionThresholdCompressed() throws Exception {
+        
+        RadiologyReportBody reportBody = new RadiologyReportBody(1);
+        
+        reportBody.setText(LARGE_TEXT, 4096);
+        
+        assertTrue(reportBody.isCompressed());
+        assertTrue(reportBody.getContent().length < LARGE_TEXT.length());
+        assertThat(reportBody.getText(), is(LARGE_TEXT));
+    }
+    
+    @Test
+    public void shouldStoreTextUncompressedIfCompressionThresholdIsZero() throws Exception {
+        
+        RadiologyReportBody reportBody = new RadiologyReportBody(1);
+        
+        reportBody.setText(LARGE_TEXT, 0);
+        
+        assertFalse(reportBody.isCompressed());
+        assertThat(reportBody.getText(), is(LARGE_TEXT));
+    }
+    
+    @Test
+    public void shouldReturnNullIfNoTextIsStored() throws Exception {
+        
+        RadiologyReportBody reportBody = new RadiologyReportBody(1);
+        reportBody.setText(LARGE_TEXT, 4096);
+        
+        reportBody.setText(null, 4096);
+        
+        assertNull(reportBody.getContent());
+        assertFalse(reportBody.isCompressed());
+        assertNull(reportBody.getText());
+    }
+}
@@ -109,4 +109,16 @@ public class RadiologyReportSearchCriteriaTest {
         assertNull(radiologyReportSearchCriteria.getFromDate());
         assertNull(radiologyReportSearchCriteria.getPrincipalResultsInterpreter());
     }
+    
+    @Test
+    public void build_createANewRadiologyReportSearchCriteriaInstanceWithTextSpecifiedIfTextIsSet() throws Exception {
+        
+        radiologyReportSearchCriteria = new RadiologyReportSearchCriteria.Builder().withText("pulmonary nodule")
+                .build();
+        
+        assertThat(radiologyReportSearchCriteria.getText(), is("pulmonary nodule"));
+        assertFalse(radiologyReportSearchCriteria.getIncludeVoided());
+        assertNull(radiologyReportSearchCriteria.getStatus());
+        assertNull(radiologyReportSearchCriteria.getPrincipalResultsInterpreter());
+    }
 }
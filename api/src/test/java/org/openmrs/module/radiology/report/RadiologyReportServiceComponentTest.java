@@ -20,19 +20,29 @@ import static org.junit.Assert.assertTrue;
 
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
+import org.apache.commons.lang3.StringUtils;
 import org.hamcrest.Matchers;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
 import org.hibernate.cfg.Environment;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 import org.openmrs.Provider;
 import org.openmrs.api.APIException;
 import org.openmrs.api.ProviderService;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.radiology.RadiologyConstants;
+import org.openmrs.module.radiology.RadiologyProperties;
 import org.openmrs.module.radiology.dicom.code.PerformedProcedureStepStatus;
 import org.openmrs.module.radiology.order.RadiologyOrder;
 import org.openmrs.module.radiology.order.RadiologyOrderService;
@@ -68,6 +78,8 @@ public class RadiologyReportServiceComponentTest extends BaseModuleContextSensit
     
     private static final String RADIOLOGY_REPORT_UUID_OF_VOIDED = "7b2b9619-a6b2-4fb7-bf6b-fc7917d6dd59";
     
+    private static final String RADIOLOGY_REPORT_UUID_WITH_NODULE = "90765170-473f-11e6-beb8-9e71128cae77";
+    
     private static final String PROVIDER_WITH_RADIOLOGY_REPORTS = "c2299800-cca9-11e0-9572-0800200c9a66";
     
     private static final String PROVIDER_WITHOUT_RADIOLOGY_REPORTS = "550e8400-e29b-11d4-a716-446655440000";
@@ -81,9 +93,18 @@ public class RadiologyReportServiceComponentTest extends BaseModuleContextSensit
     @Autowired
     private RadiologyReportService radiologyReportService;
     
+    @Autowired
+    private RadiologyProperties radiologyProperties;
+    
+    @Autowired
+    private SessionFactory sessionFactory;
+    
     @Rule
     public ExpectedException expectedException = ExpectedException.none();
     
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
     /**
      * Overriding following method is necessary to enable MVCC which is disabled by default in DB h2
      * used for the component tests. This prevents following exception:
@@ -121,6 +142,35 @@ public class RadiologyReportServiceComponentTest extends BaseModuleContextSensit
         assertThat(radiologyReport.getStatus(), is(RadiologyReportStatus.DRAFT));
     }
     
+    /**
+     * @see RadiologyReportService#createRadiologyReport(RadiologyOrder)
+     */
+    @Test
+    public void shouldThrowRadiologyReportConflictExceptionIfTheDatabaseAlreadyHoldsAClaimedReportOfGivenOrder()
+            throws Exception {
+        
+        // the check for a claimed report misses the draft report of the order as if it was claimed concurrently, so that
+        // only the unique constraint on the active order stops the second report once it is flushed
+        HibernateRadiologyReportDAO radiologyReportDAO = new HibernateRadiologyReportDAO() {
+            
+            
+            @Override
+            public Object[] getActiveRadiologyReportIdAndStatus(RadiologyOrder radiologyOrder) {
+                return null;
+            }
+        };
+        radiologyReportDAO.setSessionFactory(sessionFactory);
+        RadiologyReportServiceImpl radiologyReportServiceImpl = new RadiologyReportServiceImpl();
+        radiologyReportServiceImpl.setRadiologyReportDAO(radiologyReportDAO);
+        radiologyReportServiceImpl.setRadiologyProperties(radiologyProperties);
+        RadiologyOrder radiologyOrder =
+                radiologyOrderService.getRadiologyOrder(RADIOLOGY_ORDER_WITH_STUDY_AND_DRAFT_RADIOLOGY_REPORT);
+        
+        expectedException.expect(RadiologyReportConflictException.class);
+        expectedException.expectMessage("radiology.RadiologyReport.cannot.create.already.claimed");
+        radiologyReportServiceImpl.createRadiologyReport(radiologyOrder);
+    }
+    
     @Test
     public void shouldSaveAReportDraftGivenAnExistingReport() throws Exception {
         
@@ -138,6 +188,63 @@ public class RadiologyReportServiceComponentTest extends BaseModuleContextSensit
             is("test - text"));
     }
     
+    /**
+     * @see RadiologyReportService#saveRadiologyReportDraft(RadiologyReport)
+     */
+    @Test
+    public void shouldFailToSaveAReportDraftIfTheReportWasChangedSinceItWasRead() throws Exception {
+        
+        RadiologyReport staleRadiologyReport = radiologyReportService.getRadiologyReport(DRAFT_RADIOLOGY_REPORT);
+        Context.evictFromSession(staleRadiologyReport);
+        RadiologyReport radiologyReport = radiologyReportService.getRadiologyReport(DRAFT_RADIOLOGY_REPORT);
+        radiologyReport.setBody("changed by someone else");
+        radiologyReportService.saveRadiologyReportDraft(radiologyReport);
+        Context.evictFromSession(radiologyReport);
+        
+        staleRadiologyReport.setBody("changed based on a stale version");
+        
+        expectedException.expect(RadiologyReportConflictException.class);
+        expectedException.expectMessage("radiology.RadiologyReport.conflict");
+        radiologyReportService.saveRadiologyReportDraft(staleRadiologyReport);
+    }
+    
+    /**
+     * @see RadiologyReportService#saveRadiologyReportDraft(RadiologyReport)
+     */
+    @Test
+    public void shouldStoreTheBodyOfAReportCompressedIfItExceedsTheCompressionThreshold() throws Exception {
+        
+        Context.getAdministrationService()
+                .setGlobalProperty(RadiologyConstants.GP_REPORT_BODY_COMPRESSION_THRESHOLD, "1024");
+        String body = StringUtils.repeat("no acute cardiopulmonary abnormality. ", 100);
+        RadiologyReport radiologyReport = radiologyReportService.getRadiologyReport(DRAFT_RADIOLOGY_REPORT);
+        radiologyReport.setBody(body);
+        radiologyReportService.saveRadiologyReportDraft(radiologyReport);
+        Context.flushSession();
+        Context.clearSession();
+        
+        RadiologyReport storedRadiologyReport = radiologyReportService.getRadiologyReport(DRAFT_RADIOLOGY_REPORT);
+        
+        assertThat(storedRadiologyReport.getBody(), is(body));
+        assertTrue(storedRadiologyReport.getReportBody()
+                .isCompressed());
+    }
+    
+    /**
+     * @see RadiologyReportService#getRadiologyReport(Integer)
+     */
+    @Test
+    public void shouldNotLoadTheBodyOfAReportUntilItIsRead() throws Exception {
+        
+        Context.clearSession();
+        
+        RadiologyReport radiologyReport = radiologyReportService.getRadiologyReport(DRAFT_RADIOLOGY_REPORT);
+        
+        assertFalse(Hibernate.isInitialized(radiologyReport.getReportBody()));
+        assertNotNull(radiologyReport.getBody());
+        assertTrue(Hibernate.isInitialized(radiologyReport.getReportBody()));
+    }
+    
     @Test
     public void shouldVoidGivenReport() throws Exception {
         
@@ -178,6 +285,60 @@ public class RadiologyReportServiceComponentTest extends BaseModuleContextSensit
         assertThat(completedRadiologyReport.getStatus(), is(RadiologyReportStatus.COMPLETED));
     }
     
+    /**
+     * @see RadiologyReportService#saveRadiologyReport(RadiologyReport)
+     */
+    @Test
+    public void shouldAddTheCompletedReportToTheTextIndex() throws Exception {
+        
+        useTemporaryTextIndex();
+        RadiologyReport radiologyReport = radiologyReportService.getRadiologyReport(DRAFT_RADIOLOGY_REPORT);
+        radiologyReport.setBody("Hairline fracture of the left radius.");
+        
+        radiologyReportService.saveRadiologyReport(radiologyReport);
+        
+        List<RadiologyReport> radiologyReports =
+                radiologyReportService.getRadiologyReports(new RadiologyReportSearchCriteria.Builder().withText("fracture")
+                        .build());
+        assertThat(radiologyReports.size(), is(1));
+        assertThat(radiologyReports.get(0)
+                .getReportId(),
+            is(DRAFT_RADIOLOGY_REPORT));
+    }
+    
+    /**
+     * @see RadiologyReportService#saveRadiologyReport(RadiologyReport)
+     */
+    @Test
+    public void shouldFailToSaveAReportIfTheReportWasChangedSinceItWasRead() throws Exception {
+        
+        RadiologyReport staleRadiologyReport = radiologyReportService.getRadiologyReport(DRAFT_RADIOLOGY_REPORT);
+        Context.evictFromSession(staleRadiologyReport);
+        RadiologyReport radiologyReport = radiologyReportService.getRadiologyReport(DRAFT_RADIOLOGY_REPORT);
+        radiologyReportService.saveRadiologyReport(radiologyReport);
+        Context.evictFromSession(radiologyReport);
+        
+        expectedException.expect(RadiologyReportConflictException.class);
+        expectedException.expectMessage("radiology.RadiologyReport.conflict");
+        radiologyReportService.saveRadiologyReport(staleRadiologyReport);
+    }
+    
+    /**
+     * @see RadiologyReportService#createRadiologyReport(RadiologyOrder)
+     */
+    @Test
+    public void shouldCreateAReportGivenAnOrderWhoseReportWasVoided() throws Exception {
+        
+        RadiologyReport radiologyReport = radiologyReportService.getRadiologyReport(DRAFT_RADIOLOGY_REPORT);
+        radiologyReportService.voidRadiologyReport(radiologyReport, "wrong order");
+        
+        RadiologyReport createdRadiologyReport = radiologyReportService.createRadiologyReport(
+            radiologyOrderService.getRadiologyOrder(RADIOLOGY_ORDER_WITH_STUDY_AND_DRAFT_RADIOLOGY_REPORT));
+        
+        assertNotNull(createdRadiologyReport.getId());
+        assertThat(createdRadiologyReport.getStatus(), is(RadiologyReportStatus.DRAFT));
+    }
+    
     @Test
     public void shouldFailToSaveTheGivenReportIfItIsNotValid() throws Exception {
         
@@ -476,4 +637,162 @@ public class RadiologyReportServiceComponentTest extends BaseModuleContextSensit
         
         assertTrue(radiologyReports.isEmpty());
     }
+    
+    /**
+     * @see RadiologyReportService#getReportStatusByOrders(java.util.Collection)
+     */
+    @Test
+    public void shouldReturnTheStatusOfTheActiveReportOfEachGivenOrder() throws Exception {
+        
+        RadiologyOrder orderWithDraftReport =
+                radiologyOrderService.getRadiologyOrder(RADIOLOGY_ORDER_WITH_STUDY_AND_DRAFT_RADIOLOGY_REPORT);
+        RadiologyOrder orderWithCompletedReport =
+                radiologyOrderService.getRadiologyOrder(RADIOLOGY_ORDER_WITH_STUDY_AND_COMPLETED_RADIOLOGY_REPORT);
+        RadiologyOrder orderWithVoidedReport =
+                radiologyOrderService.getRadiologyOrder(RADIOLOGY_ORDER_WITH_STUDY_AND_VOIDED_RADIOLOGY_REPORT);
+        RadiologyOrder orderWithoutReport = radiologyOrderService.getRadiologyOrder(EXISTING_RADIOLOGY_ORDER_ID);
+        
+        List<RadiologyOrder> radiologyOrders =
+                Arrays.asList(orderWithDraftReport, orderWithCompletedReport, orderWithVoidedReport, orderWithoutReport);
+        
+        Map<RadiologyOrder, RadiologyReportStatus> reportStatusByOrders =
+                radiologyReportService.getReportStatusByOrders(radiologyOrders);
+        
+        assertThat(reportStatusByOrders.size(), is(2));
+        assertThat(reportStatusByOrders.get(orderWithDraftReport), is(RadiologyReportStatus.DRAFT));
+        assertThat(reportStatusByOrders.get(orderWithCompletedReport), is(RadiologyReportStatus.COMPLETED));
+        assertFalse(reportStatusByOrders.containsKey(orderWithVoidedReport));
+        assertFalse(reportStatusByOrders.containsKey(orderWithoutReport));
+    }
+    
+    /**
+     * @see RadiologyReportService#getReportStatusByOrders(java.util.Collection)
+     */
+    @Test
+    public void shouldReturnEmptyMapIfGivenNoOrders() throws Exception {
+        
+        assertTrue(radiologyReportService.getReportStatusByOrders(new ArrayList<RadiologyOrder>())
+                .isEmpty());
+    }
+    
+    /**
+     * @see RadiologyReportService#getReportStatusByOrderUuids(java.util.Collection)
+     */
+    @Test
+    public void shouldReturnTheStatusOfTheActiveReportOfEachOrderWithGivenUuid() throws Exception {
+        
+        String orderWithDraftReportUuid =
+                radiologyOrderService.getRadiologyOrder(RADIOLOGY_ORDER_WITH_STUDY_AND_DRAFT_RADIOLOGY_REPORT)
+                        .getUuid();
+        String orderWithVoidedReportUuid =
+                radiologyOrderService.getRadiologyOrder(RADIOLOGY_ORDER_WITH_STUDY_AND_VOIDED_RADIOLOGY_REPORT)
+                        .getUuid();
+        
+        Map<String, RadiologyReportStatus> reportStatusByOrderUuids = radiologyReportService
+                .getReportStatusByOrderUuids(Arrays.asList(orderWithDraftReportUuid, orderWithVoidedReportUuid));
+        
+        assertThat(reportStatusByOrderUuids.size(), is(1));
+        assertThat(reportStatusByOrderUuids.get(orderWithDraftReportUuid), is(RadiologyReportStatus.DRAFT));
+    }
+    
+    /**
+     * @see RadiologyReportService#exportRadiologyReports(RadiologyReportSearchCriteria, java.util.function.Consumer)
+     */
+    @Test
+    public void shouldPassTheRadiologyReportsMatchingGivenCriteriaToGivenConsumer() throws Exception {
+        
+        RadiologyReportSearchCriteria radiologyReportSearchCriteria =
+                new RadiologyReportSearchCriteria.Builder().withStatus(RadiologyReportStatus.COMPLETED)
+                        .build();
+        List<String> expectedUuids = new ArrayList<String>();
+        for (RadiologyReport radiologyReport : radiologyReportService.getRadiologyReports(radiologyReportSearchCriteria)) {
+            expectedUuids.add(radiologyReport.getUuid());
+        }
+        
+        List<String> exportedUuids = new ArrayList<String>();
+        long count = radiologyReportService.exportRadiologyReports(radiologyReportSearchCriteria,
+            radiologyReport -> exportedUuids.add(radiologyReport.getUuid()));
+        
+        assertThat(count, is(2L));
+        assertThat(exportedUuids, is(expectedUuids));
+    }
+    
+    /**
+     * Points the report text index to a temporary directory.
+     */
+    private void useTemporaryTextIndex() throws Exception {
+        
+        Context.getAdministrationService()
+                .setGlobalProperty(RadiologyConstants.GP_REPORT_TEXT_INDEX_DIR, temporaryFolder.newFolder()
+                        .getAbsolutePath());
+    }
+    
+    /**
+     * @see RadiologyReportService#rebuildRadiologyReportTextIndex()
+     */
+    @Test
+    public void shouldIndexAllCompletedRadiologyReportsWhichAreNotVoided() throws Exception {
+        
+        useTemporaryTextIndex();
+        
+        assertThat(radiologyReportService.rebuildRadiologyReportTextIndex(), is(2L));
+    }
+    
+    /**
+     * @see RadiologyReportService#getRadiologyReports(RadiologyReportSearchCriteria)
+     */
+    @Test
+    public void shouldReturnCompletedRadiologyReportsWhoseBodyMatchesGivenTextRankedByRelevance() throws Exception {
+        
+        useTemporaryTextIndex();
+        radiologyReportService.rebuildRadiologyReportTextIndex();
+        
+        List<RadiologyReport> radiologyReports = radiologyReportService.getRadiologyReports(
+            new RadiologyReportSearchCriteria.Builder().withText("nodule OR lobe OR diagnosis")
+                    .build());
+        
+        assertThat(radiologyReports.size(), is(2));
+        assertThat(radiologyReports.get(0)
+                .getUuid(),
+            is(RADIOLOGY_REPORT_UUID_WITH_NODULE));
+        assertThat(radiologyReports.get(1)
+                .getStatus(),
+            is(RadiologyReportStatus.COMPLETED));
+    }
+    
+    /**
+     * @see RadiologyReportService#getRadiologyReports(RadiologyReportSearchCriteria)
+     */
+    @Test
+    public void shouldReturnRadiologyReportsMatchingGivenTextAndTheOtherCriteria() throws Exception {
+        
+        useTemporaryTextIndex();
+        radiologyReportService.rebuildRadiologyReportTextIndex();
+        DateFormat format = new SimpleDateFormat("yyyy-MM-dd");
+        
+        List<RadiologyReport> radiologyReports = radiologyReportService.getRadiologyReports(
+            new RadiologyReportSearchCriteria.Builder().withText("nodule OR diagnosis")
+                    .fromDate(format.parse("2016-06-15"))
+                    .build());
+        
+        assertThat(radiologyReports.size(), is(1));
+        assertThat(radiologyReports.get(0)
+                .getUuid(),
+            is(RADIOLOGY_REPORT_UUID_WITH_NODULE));
+    }
+    
+    /**
+     * @see RadiologyReportService#getRadiologyReports(RadiologyReportSearchCriteria)
+     */
+    @Test
+    public void shouldReturnEmptyListIfNoRadiologyReportMatchesGivenText() throws Exception {
+        
+        useTemporaryTextIndex();
+        radiologyReportService.rebuildRadiologyReportTextIndex();
+        
+        assertTrue(radiologyReportService
+                .getRadiologyReports(new RadiologyReportSearchCriteria.Builder().withText("fracture")
+                        .build())
+                .isEmpty());
+    }
 }
@@ -9,16 +9,41 @@
  */
 package org.openmrs.module.radiology.report;
 
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hibernate.StaleObjectStateException;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.openmrs.api.APIException;
+import org.openmrs.module.radiology.RadiologyProperties;
 import org.openmrs.module.radiology.order.RadiologyOrder;
 import org.openmrs.test.BaseContextMockTest;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /**
  *  Tests {@link RadiologyReportService}
@@ -26,6 +51,10 @@ import org.openmrs.test.BaseContextMockTest;
 public class RadiologyReportServiceTest extends BaseContextMockTest {
     
     
+    private static final String ACTIVE_ORDER_CONSTRAINT = "radiology_report_active_order_id_uk";
+    
+    private static final int CONCURRENT_CLAIMS = 32;
+    
     @InjectMocks
     private RadiologyReportService radiologyReportService = new RadiologyReportServiceImpl();
     
@@ -35,9 +64,15 @@ public class RadiologyReportServiceTest extends BaseContextMockTest {
     @Mock
     private RadiologyReport radiologyReport;
     
+    @Mock
+    private RadiologyProperties radiologyProperties;
+    
     @Mock
     private TestRadiologyReportDAO radiologyReportDAO;
     
+    @Mock
+    private RadiologyReportTextIndex radiologyReportTextIndex;
+    
     @Rule
     public ExpectedException expectedException = ExpectedException.none();
     
@@ -62,7 +97,8 @@ public class RadiologyReportServiceTest extends BaseContextMockTest {
     @Test
     public void shouldFailToCreateReportIfGivenOrderHasAClaimedReport() {
         
-        when(radiologyReportDAO.hasRadiologyOrderClaimedRadiologyReport(radiologyOrder)).thenReturn(true);
+        when(radiologyReportDAO.getActiveRadiologyReportIdAndStatus(radiologyOrder))
+                .thenReturn(new Object[] { 1, RadiologyReportStatus.DRAFT });
         
         expectedException.expect(APIException.class);
         expectedException.expectMessage("radiology.RadiologyReport.cannot.create.already.claimed");
@@ -72,13 +108,72 @@ public class RadiologyReportServiceTest extends BaseContextMockTest {
     @Test
     public void shouldFailToCreateReportIfGivenOrderHasACompletedReport() {
         
-        when(radiologyReportDAO.hasRadiologyOrderCompletedRadiologyReport(radiologyOrder)).thenReturn(true);
+        when(radiologyReportDAO.getActiveRadiologyReportIdAndStatus(radiologyOrder))
+                .thenReturn(new Object[] { 1, RadiologyReportStatus.COMPLETED });
         
         expectedException.expect(APIException.class);
         expectedException.expectMessage("radiology.RadiologyReport.cannot.create.already.completed");
         radiologyReportService.createRadiologyReport(radiologyOrder);
     }
     
+    @Test
+    public void shouldFailToCreateReportIfGivenOrderWasClaimedConcurrently() {
+        
+        when(radiologyReportDAO.saveRadiologyReport(any(RadiologyReport.class)))
+                .thenThrow(new ConstraintViolationException("duplicate active report", null, ACTIVE_ORDER_CONSTRAINT));
+        
+        expectedException.expect(RadiologyReportConflictException.class);
+        expectedException.expectMessage("radiology.RadiologyReport.cannot.create.already.claimed");
+        radiologyReportService.createRadiologyReport(radiologyOrder);
+    }
+    
+    @Test
+    public void shouldCreateOnlyOneReportGivenConcurrentClaimsOfTheSameOrder() throws Exception {
+        
+        // simulates the unique constraint on the active order of a report
+        final Map<RadiologyOrder, RadiologyReport> claims = new ConcurrentHashMap<>();
+        when(radiologyReportDAO.getActiveRadiologyReportIdAndStatus(radiologyOrder))
+                .thenAnswer(invocation -> claims.containsKey(radiologyOrder)
+                        ? new Object[] { 1, RadiologyReportStatus.DRAFT } : null);
+        when(radiologyReportDAO.saveRadiologyReport(any(RadiologyReport.class))).thenAnswer(invocation -> {
+            final RadiologyReport report = (RadiologyReport) invocation.getArguments()[0];
+            final RadiologyReport claimedBy = claims.putIfAbsent(report.getRadiologyOrder(), report);
+            if (claimedBy != null && claimedBy != report) {
+                throw new ConstraintViolationException("duplicate active report", null, ACTIVE_ORDER_CONSTRAINT);
+            }
+            return report;
+        });
+        
+        final CyclicBarrier barrier = new CyclicBarrier(CONCURRENT_CLAIMS);
+        final AtomicInteger created = new AtomicInteger();
+        final List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        final List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_CLAIMS; i++) {
+            final Thread thread = new Thread(() -> {
+                try {
+                    barrier.await();
+                    radiologyReportService.createRadiologyReport(radiologyOrder);
+                    created.incrementAndGet();
+                }
+                catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        
+        assertThat(created.get(), is(1));
+        assertThat(failures.size(), is(CONCURRENT_CLAIMS - 1));
+        for (Throwable failure : failures) {
+            assertThat(failure, instanceOf(APIException.class));
+            assertThat(failure.getMessage(), is("radiology.RadiologyReport.cannot.create.already.claimed"));
+        }
+    }
+    
     @Test
     public void shouldFailToSaveReportDraftGivenNull() {
         
@@ -121,13 +216,26 @@ public class RadiologyReportServiceTest extends BaseContextMockTest {
     public void shouldFailToSaveReportDraftIfGivenReportsOrderHasACompletedReport() {
         
         when(radiologyReport.getRadiologyOrder()).thenReturn(radiologyOrder);
-        when(radiologyReportDAO.hasRadiologyOrderCompletedRadiologyReport(radiologyOrder)).thenReturn(true);
+        when(radiologyReportDAO.getActiveRadiologyReportIdAndStatus(radiologyOrder))
+                .thenReturn(new Object[] { 1, RadiologyReportStatus.COMPLETED });
         
         expectedException.expect(APIException.class);
         expectedException.expectMessage("radiology.RadiologyReport.cannot.saveDraft.already.reported");
         radiologyReportService.saveRadiologyReportDraft(radiologyReport);
     }
     
+    @Test
+    public void shouldFailToSaveReportDraftIfReportWasChangedSinceItWasRead() {
+        
+        when(radiologyReport.getReportId()).thenReturn(1);
+        when(radiologyReportDAO.saveRadiologyReport(radiologyReport))
+                .thenThrow(new StaleObjectStateException(RadiologyReport.class.getName(), 1));
+        
+        expectedException.expect(RadiologyReportConflictException.class);
+        expectedException.expectMessage("radiology.RadiologyReport.conflict");
+        radiologyReportService.saveRadiologyReportDraft(radiologyReport);
+    }
+    
     @Test
     public void shouldFailToVoidReportGivenNull() {
         
@@ -219,6 +327,43 @@ public class RadiologyReportServiceTest extends BaseContextMockTest {
         radiologyReportService.saveRadiologyReport(radiologyReport);
     }
     
+    @Test
+    public void shouldAddReportToTheTextIndexOnceItIsCompleted() {
+        
+        when(radiologyReport.getReportId()).thenReturn(1);
+        when(radiologyReport.getStatus()).thenReturn(RadiologyReportStatus.DRAFT);
+        when(radiologyReport.getVoided()).thenReturn(false);
+        when(radiologyReportDAO.saveRadiologyReport(radiologyReport)).thenReturn(radiologyReport);
+        
+        radiologyReportService.saveRadiologyReport(radiologyReport);
+        
+        verify(radiologyReport).setStatus(RadiologyReportStatus.COMPLETED);
+        verify(radiologyReportTextIndex).index(radiologyReport);
+    }
+    
+    @Test
+    public void shouldAddReportToTheTextIndexOnlyOnceTheTransactionCommitted() {
+        
+        when(radiologyReport.getReportId()).thenReturn(1);
+        when(radiologyReport.getStatus()).thenReturn(RadiologyReportStatus.DRAFT);
+        when(radiologyReport.getVoided()).thenReturn(false);
+        when(radiologyReportDAO.saveRadiologyReport(radiologyReport)).thenReturn(radiologyReport);
+        
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            radiologyReportService.saveRadiologyReport(radiologyReport);
+            
+            verify(radiologyReportTextIndex, never()).index(radiologyReport);
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCommit();
+            }
+            verify(radiologyReportTextIndex).index(radiologyReport);
+        }
+        finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+    
     @Test
     public void shouldFailToGetReportByIdIfGivenNull() {
         
@@ -259,6 +404,50 @@ public class RadiologyReportServiceTest extends BaseContextMockTest {
         radiologyReportService.getActiveRadiologyReportByRadiologyOrder(null);
     }
     
+    @Test
+    public void shouldGetActiveReportByOrderByLoadingOnlyTheActiveReport() {
+        
+        when(radiologyReportDAO.getActiveRadiologyReportIdAndStatus(radiologyOrder))
+                .thenReturn(new Object[] { 1, RadiologyReportStatus.DRAFT });
+        when(radiologyReportDAO.getRadiologyReport(1)).thenReturn(radiologyReport);
+        
+        assertThat(radiologyReportService.getActiveRadiologyReportByRadiologyOrder(radiologyOrder), is(radiologyReport));
+    }
+    
+    @Test
+    public void shouldNotLoadAnyReportWhenGettingActiveReportByOrderWithoutActiveReport() {
+        
+        assertNull(radiologyReportService.getActiveRadiologyReportByRadiologyOrder(radiologyOrder));
+        verify(radiologyReportDAO, never()).getRadiologyReport(anyInt());
+    }
+    
+    @Test
+    public void shouldCheckIfOrderHasClaimedOrCompletedReportWithoutLoadingAnyReport() {
+        
+        when(radiologyReportDAO.getActiveRadiologyReportIdAndStatus(radiologyOrder))
+                .thenReturn(new Object[] { 1, RadiologyReportStatus.COMPLETED });
+        
+        assertFalse(radiologyReportService.hasRadiologyOrderClaimedRadiologyReport(radiologyOrder));
+        assertTrue(radiologyReportService.hasRadiologyOrderCompletedRadiologyReport(radiologyOrder));
+        verify(radiologyReportDAO, never()).getRadiologyReport(anyInt());
+    }
+    
+    @Test
+    public void shouldFailToGetReportStatusByOrdersIfGivenNull() {
+        
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("radiologyOrders cannot be null");
+        radiologyReportService.getReportStatusByOrders(null);
+    }
+    
+    @Test
+    public void shouldFailToGetReportStatusByOrderUuidsIfGivenNull() {
+        
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("radiologyOrderUuids cannot be null");
+        radiologyReportService.getReportStatusByOrderUuids(null);
+    }
+    
     @Test
     public void shouldFailToGetReportsIfGivenNull() {
         
@@ -267,5 +456,74 @@ public class RadiologyReportServiceTest extends BaseContextMockTest {
         radiologyReportService.getRadiologyReports(null);
     }
     
+    @Test
+    public void shouldFailToExportReportsIfGivenSearchCriteriaIsNull() {
+        
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("radiologyReportSearchCriteria cannot be null");
+        radiologyReportService.exportRadiologyReports(null, radiologyReport -> {});
+    }
+    
+    @Test
+    public void shouldFailToExportReportsIfGivenConsumerIsNull() {
+        
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("consumer cannot be null");
+        radiologyReportService.exportRadiologyReports(new RadiologyReportSearchCriteria.Builder().build(), null);
+    }
+    
+    @Test
+    public void shouldGetReportsMatchingGivenTextInTheOrderRankedByTheTextIndex() {
+        
+        RadiologyReportSearchCriteria radiologyReportSearchCriteria =
+                new RadiologyReportSearchCriteria.Builder().withText("pulmonary nodule")
+                        .build();
+        RadiologyReport firstRanked = mockRadiologyReport(2);
+        RadiologyReport secondRanked = mockRadiologyReport(1);
+        when(radiologyReportTextIndex.search(radiologyReportSearchCriteria)).thenReturn(Arrays.asList(2, 1));
+        when(radiologyReportDAO.getRadiologyReports(radiologyReportSearchCriteria, Arrays.asList(2, 1)))
+                .thenReturn(Arrays.asList(secondRanked, firstRanked));
+        
+        List<RadiologyReport> radiologyReports = radiologyReportService.getRadiologyReports(radiologyReportSearchCriteria);
+        
+        assertThat(radiologyReports, is(Arrays.asList(firstRanked, secondRanked)));
+        verify(radiologyReportDAO, never()).getRadiologyReports(radiologyReportSearchCriteria);
+    }
+    
+    @Test
+    public void shouldLeaveOutReportsFoundInTheTextIndexWhichNoLongerMatchGivenCriteria() {
+        
+        RadiologyReportSearchCriteria radiologyReportSearchCriteria =
+                new RadiologyReportSearchCriteria.Builder().withText("pulmonary nodule")
+                        .build();
+        RadiologyReport matchingReport = mockRadiologyReport(1);
+        when(radiologyReportTextIndex.search(radiologyReportSearchCriteria)).thenReturn(Arrays.asList(2, 1));
+        when(radiologyReportDAO.getRadiologyReports(radiologyReportSearchCriteria, Arrays.asList(2, 1)))
+                .thenReturn(Arrays.asList(matchingReport));
+        
+        assertThat(radiologyReportService.getRadiologyReports(radiologyReportSearchCriteria),
+            is(Arrays.asList(matchingReport)));
+    }
+    
+    @Test
+    public void shouldNotReadReportsIfNoneMatchesGivenText() {
+        
+        RadiologyReportSearchCriteria radiologyReportSearchCriteria =
+                new RadiologyReportSearchCriteria.Builder().withText("fracture")
+                        .build();
+        when(radiologyReportTextIndex.search(radiologyReportSearchCriteria)).thenReturn(new ArrayList<>());
+        
+        assertTrue(radiologyReportService.getRadiologyReports(radiologyReportSearchCriteria)
+                .isEmpty());
+        verify(radiologyReportDAO, never()).getRadiologyReports(any(RadiologyReportSearchCriteria.class), any());
+    }
+    
+    private RadiologyReport mockRadiologyReport(Integer reportId) {
+        
+        RadiologyReport result = mock(RadiologyReport.class);
+        when(result.getReportId()).thenReturn(reportId);
+        return result;
+    }
+    
     public interface TestRadiologyReportDAO extends RadiologyReportDAO {}
 }
@@ -10,6 +10,8 @@
 package org.openmrs.module.radiology.report;
 
 import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 
 import java.util.Calendar;
@@ -93,4 +95,76 @@ public class RadiologyReportTest {
         expectedException.expectMessage("radiologyOrder cannot be null");
         radiologyReport = new RadiologyReport(null);
     }
+    
+    @Test
+    public void shouldReturnRadiologyOrderAsActiveRadiologyOrderIfReportIsNotVoided() throws Exception {
+        
+        radiologyReport.setVoided(false);
+        
+        assertThat(radiologyReport.getActiveRadiologyOrder(), is(radiologyOrder));
+    }
+    
+    @Test
+    public void shouldReturnNullAsActiveRadiologyOrderIfReportIsVoided() throws Exception {
+        
+        radiologyReport.setVoided(true);
+        
+        assertNull(radiologyReport.getActiveRadiologyOrder());
+    }
+    
+    @Test
+    public void shouldReturnBodySetSinceTheBodyWasStored() throws Exception {
+        
+        radiologyReport.setBody("some diagnosis");
+        
+        assertThat(radiologyReport.getBody(), is("some diagnosis"));
+        assertNull(radiologyReport.getReportBody());
+    }
+    
+    @Test
+    public void shouldCreateStoredBodyWithIdOfThisReportIfItHasNone() throws Exception {
+        
+        radiologyReport.setId(1);
+        radiologyReport.setBody("some diagnosis");
+        
+        radiologyReport.storeBody(0);
+        
+        assertThat(radiologyReport.getReportBody()
+                .getReportId(),
+            is(1));
+        assertThat(radiologyReport.getReportBody()
+                .getText(),
+            is("some diagnosis"));
+        assertThat(radiologyReport.getBody(), is("some diagnosis"));
+        assertNull(radiologyReport.getDateChanged());
+    }
+    
+    @Test
+    public void shouldUpdateStoredBodyAndDateChangedIfItHasOne() throws Exception {
+        
+        radiologyReport.setId(1);
+        radiologyReport.setBody("some diagnosis");
+        radiologyReport.storeBody(0);
+        RadiologyReportBody reportBody = radiologyReport.getReportBody();
+        
+        radiologyReport.setBody("another diagnosis");
+        radiologyReport.storeBody(0);
+        
+        assertThat(radiologyReport.getReportBody(), is(reportBody));
+        assertThat(reportBody.getText(), is("another diagnosis"));
+        assertNotNull(radiologyReport.getDateChanged());
+    }
+    
+    @Test
+    public void shouldNotChangeStoredBodyIfBodyWasNotSet() throws Exception {
+        
+        radiologyReport.setId(1);
+        radiologyReport.setBody("some diagnosis");
+        radiologyReport.storeBody(0);
+        
+        radiologyReport.storeBody(0);
+        
+        assertThat(radiologyReport.getBody(), is("some diagnosis"));
+        assertNull(radiologyReport.getDateChanged());
+    }
 }
@@ -0,0 +1,230 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.radiology.report;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.openmrs.Provider;
+import org.openmrs.module.radiology.RadiologyProperties;
+import org.openmrs.test.BaseContextMockTest;
+
+/**
+ * Tests {@link RadiologyReportTextIndex}.
+ */
+public class RadiologyReportTextIndexTest extends BaseContextMockTest {
+    
+    
+    private static final int NODULE_REPORT = 1;
+    
+    private static final int NO_NODULE_REPORT = 2;
+    
+    private static final int FRACTURE_REPORT = 3;
+    
+    private static final int INTERPRETER = 1;
+    
+    private static final int OTHER_INTERPRETER = 2;
+    
+    @InjectMocks
+    private RadiologyReportTextIndex radiologyReportTextIndex = new RadiologyReportTextIndex();
+    
+    @Mock
+    private RadiologyProperties radiologyProperties;
+    
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+    
+    private final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
+    
+    @Before
+    public void setUp() throws Exception {
+        
+        when(radiologyProperties.getReportTextIndexHome()).thenReturn(temporaryFolder.getRoot());
+        radiologyReportTextIndex.index(mockRadiologyReport(NODULE_REPORT,
+            "Solitary pulmonary nodule in the right upper lobe. Follow up CT recommended.", "2016-06-02", INTERPRETER));
+        radiologyReportTextIndex.index(
+            mockRadiologyReport(NO_NODULE_REPORT, "No pulmonary nodule. Lungs are clear.", "2016-07-01", OTHER_INTERPRETER));
+        radiologyReportTextIndex.index(
+            mockRadiologyReport(FRACTURE_REPORT, "Hairline fracture of the left radius.", "2016-07-01", INTERPRETER));
+    }
+    
+    @After
+    public void tearDown() throws Exception {
+        radiologyReportTextIndex.close();
+    }
+    
+    private RadiologyReport mockRadiologyReport(Integer reportId, String body, String date, Integer interpreterId)
+            throws Exception {
+        
+        RadiologyReport result = mock(RadiologyReport.class);
+        when(result.getReportId()).thenReturn(reportId);
+        when(result.getStatus()).thenReturn(RadiologyReportStatus.COMPLETED);
+        when(result.getVoided()).thenReturn(false);
+        when(result.getBody()).thenReturn(body);
+        when(result.getDate()).thenReturn(format.parse(date));
+        Provider interpreter = new Provider(interpreterId);
+        when(result.getPrincipalResultsInterpreter()).thenReturn(interpreter);
+        return result;
+    }
+    
+    private List<Integer> search(String text) {
+        return radiologyReportTextIndex.search(new RadiologyReportSearchCriteria.Builder().withText(text)
+                .build());
+    }
+    
+    /**
+     * @see RadiologyReportTextIndex#search(RadiologyReportSearchCriteria)
+     */
+    @Test
+    public void shouldReturnIdsOfRadiologyReportsWhoseBodyMatchesGivenTextRankedByRelevance() throws Exception {
+        
+        assertThat(search("pulmonary nodule").size(), is(2));
+        assertThat(search("solitary pulmonary nodule"), is(Arrays.asList(NODULE_REPORT)));
+        assertThat(search("nodule OR lobe"), is(Arrays.asList(NODULE_REPORT, NO_NODULE_REPORT)));
+    }
+    
+    /**
+     * @see RadiologyReportTextIndex#search(RadiologyReportSearchCriteria)
+     */
+    @Test
+    public void shouldReturnIdsOfRadiologyReportsWithinGivenDateRange() throws Exception {
+        
+        List<Integer> result = radiologyReportTextIndex.search(new RadiologyReportSearchCriteria.Builder()
+                .withText("pulmonary nodule")
+                .fromDate(format.parse("2016-06-15"))
+                .toDate(format.parse("2016-07-01"))
+                .build());
+        
+        assertThat(result, is(Arrays.asList(NO_NODULE_REPORT)));
+    }
+    
+    /**
+     * @see RadiologyReportTextIndex#search(RadiologyReportSearchCriteria)
+     */
+    @Test
+    public void shouldReturnIdsOfRadiologyReportsOfGivenPrincipalResultsInterpreter() throws Exception {
+        
+        List<Integer> result = radiologyReportTextIndex.search(new RadiologyReportSearchCriteria.Builder()
+                .withText("pulmonary nodule")
+                .withPrincipalResultsInterpreter(new Provider(OTHER_INTERPRETER))
+                .build());
+        
+        assertThat(result, is(Arrays.asList(NO_NODULE_REPORT)));
+    }
+    
+    /**
+     * @see RadiologyReportTextIndex#search(RadiologyReportSearchCriteria)
+     */
+    @Test
+    public void shouldReturnEmptyListIfStatusOfGivenSearchCriteriaIsNotCompleted() throws Exception {
+        
+        List<Integer> result = radiologyReportTextIndex.search(new RadiologyReportSearchCriteria.Builder()
+                .withText("pulmonary nodule")
+                .withStatus(RadiologyReportStatus.DRAFT)
+                .build());
+        
+        assertTrue(result.isEmpty());
+    }
+    
+    /**
+     * @see RadiologyReportTextIndex#search(RadiologyReportSearchCriteria)
+     */
+    @Test
+    public void shouldThrowIllegalArgumentExceptionIfGivenTextCannotBeParsed() throws Exception {
+        
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("Cannot parse text");
+        search("\"pulmonary nodule");
+    }
+    
+    /**
+     * @see RadiologyReportTextIndex#index(RadiologyReport)
+     */
+    @Test
+    public void shouldReplaceRadiologyReportIndexedBefore() throws Exception {
+        
+        radiologyReportTextIndex.index(
+            mockRadiologyReport(FRACTURE_REPORT, "Displaced fracture of the left ulna.", "2016-07-01", INTERPRETER));
+        
+        assertThat(search("fracture"), is(Arrays.asList(FRACTURE_REPORT)));
+        assertTrue(search("radius").isEmpty());
+    }
+    
+    /**
+     * @see RadiologyReportTextIndex#index(RadiologyReport)
+     */
+    @Test
+    public void shouldIndexTheTextOfRadiologyReportBodyWithoutItsHtmlMarkup() throws Exception {
+        
+        radiologyReportTextIndex.index(mockRadiologyReport(FRACTURE_REPORT,
+            "<p style=\"color: red\"><strong>Hairline</strong>&nbsp;fracture of the <span class=\"side\">left</span>"
+                    + " radius.</p>",
+            "2016-07-01", INTERPRETER));
+        
+        assertThat(search("hairline fracture"), is(Arrays.asList(FRACTURE_REPORT)));
+        assertTrue(search("strong").isEmpty());
+        assertTrue(search("span").isEmpty());
+        assertTrue(search("color").isEmpty());
+        assertTrue(search("side").isEmpty());
+        assertTrue(search("nbsp").isEmpty());
+    }
+    
+    /**
+     * @see RadiologyReportTextIndex#index(RadiologyReport)
+     */
+    @Test
+    public void shouldRemoveRadiologyReportWhichIsNotCompletedFromTheIndex() throws Exception {
+        
+        RadiologyReport voidedReport =
+                mockRadiologyReport(FRACTURE_REPORT, "Hairline fracture of the left radius.", "2016-07-01", INTERPRETER);
+        when(voidedReport.getVoided()).thenReturn(true);
+        
+        radiologyReportTextIndex.index(voidedReport);
+        
+        assertTrue(search("fracture").isEmpty());
+    }
+    
+    /**
+     * @see RadiologyReportTextIndex#rebuild(java.util.function.ToLongFunction)
+     */
+    @Test
+    public void shouldReplaceIndexedRadiologyReportsByExportedRadiologyReports() throws Exception {
+        
+        RadiologyReport exportedReport =
+                mockRadiologyReport(4, "Small pleural effusion on the left.", "2016-08-01", INTERPRETER);
+        
+        long result = radiologyReportTextIndex.rebuild(consumer -> {
+            consumer.accept(exportedReport);
+            return 1;
+        });
+        
+        assertThat(result, is(1L));
+        assertThat(search("effusion"), is(Arrays.asList(4)));
+        assertTrue(search("pulmonary nodule").isEmpty());
+    }
+}
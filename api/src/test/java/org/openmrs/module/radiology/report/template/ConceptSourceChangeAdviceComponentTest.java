@@ -0,0 +1,123 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.radiology.report.template;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.ConceptSource;
+import org.openmrs.api.ConceptService;
+import org.openmrs.test.BaseModuleContextSensitiveTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Tests {@link ConceptSourceChangeAdvice}.
+ */
+public class ConceptSourceChangeAdviceComponentTest extends BaseModuleContextSensitiveTest {
+    
+    
+    private static final String TEST_DATASET =
+            "org/openmrs/module/radiology/include/MrrtReportTemplateFileParserComponentTestDataset.xml";
+    
+    private static final Integer RADLEX_CONCEPT_SOURCE_ID = 1;
+    
+    @Autowired
+    private ConceptSourceNameIndex conceptSourceNameIndex;
+    
+    @Autowired
+    private ConceptService conceptService;
+    
+    private ConceptSourceChangeAdvice conceptSourceChangeAdvice = new ConceptSourceChangeAdvice();
+    
+    @Before
+    public void setUp() throws Exception {
+        
+        executeDataSet(TEST_DATASET);
+        conceptSourceNameIndex.startCaching();
+        assertThat(conceptSourceNameIndex.getConceptSourceIdByName("RADLEX"), is(RADLEX_CONCEPT_SOURCE_ID));
+    }
+    
+    @After
+    public void tearDown() throws Exception {
+        conceptSourceNameIndex.stopCaching();
+    }
+    
+    /**
+     * @see ConceptSourceChangeAdvice#afterReturning(Object, java.lang.reflect.Method, Object[], Object)
+     */
+    @Test
+    public void shouldInvalidateConceptSourceNameIndexIfAConceptSourceWasChanged() throws Exception {
+        
+        final ConceptSource conceptSource = conceptService.getConceptSource(RADLEX_CONCEPT_SOURCE_ID);
+        conceptSource.setName("RADLEX PLAYBOOK");
+        conceptService.saveConceptSource(conceptSource);
+        
+        conceptSourceChangeAdvice.afterReturning(conceptSource,
+            ConceptService.class.getMethod("saveConceptSource", ConceptSource.class), new Object[] { conceptSource },
+            conceptService);
+        
+        assertThat(conceptSourceNameIndex.getConceptSourceIdByName("RADLEX PLAYBOOK"), is(RADLEX_CONCEPT_SOURCE_ID));
+    }
+    
+    /**
+     * @see ConceptSourceChangeAdvice#afterReturning(Object, java.lang.reflect.Method, Object[], Object)
+     */
+    @Test
+    public void shouldNotInvalidateConceptSourceNameIndexIfNoConceptSourceWasChanged() throws Exception {
+        
+        final ConceptSource conceptSource = conceptService.getConceptSource(RADLEX_CONCEPT_SOURCE_ID);
+        conceptSource.setName("RADLEX PLAYBOOK");
+        conceptService.saveConceptSource(conceptSource);
+        
+        conceptSourceChangeAdvice.afterReturning(conceptSource,
+            ConceptService.class.getMethod("getConceptSource", Integer.class), new Object[] { RADLEX_CONCEPT_SOURCE_ID },
+            conceptService);
+        
+        assertThat(conceptSourceNameIndex.getConceptSourceIdByName("RADLEX PLAYBOOK"), is(nullValue()));
+    }
+    
+    /**
+     * @see ConceptSourceChangeAdvice#afterReturning(Object, java.lang.reflect.Method, Object[], Object)
+     */
+    @Test
+    public void shouldInvalidateConceptSourceNameIndexAgainOnceTheTransactionCompleted() throws Exception {
+        
+        final ConceptSource conceptSource = conceptService.getConceptSource(RADLEX_CONCEPT_SOURCE_ID);
+        conceptSource.setName("RADLEX PLAYBOOK");
+        conceptService.saveConceptSource(conceptSource);
+        final List<TransactionSynchronization> synchronizations =
+                new ArrayList<>(TransactionSynchronizationManager.getSynchronizations());
+        conceptSourceChangeAdvice.afterReturning(conceptSource,
+            ConceptService.class.getMethod("saveConceptSource", ConceptSource.class), new Object[] { conceptSource },
+            conceptService);
+        final List<TransactionSynchronization> registeredByAdvice =
+                new ArrayList<>(TransactionSynchronizationManager.getSynchronizations());
+        registeredByAdvice.removeAll(synchronizations);
+        assertThat(conceptSourceNameIndex.getConceptSourceIdByName("RADLEX PLAYBOOK"), is(RADLEX_CONCEPT_SOURCE_ID));
+        // another change made before the transaction completes is not seen by the index built meanwhile
+        conceptSource.setName("RADLEX LEXICON");
+        conceptService.saveConceptSource(conceptSource);
+        
+        for (TransactionSynchronization synchronization : registeredByAdvice) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+        
+        assertThat(conceptSourceNameIndex.getConceptSourceIdByName("RADLEX LEXICON"), is(RADLEX_CONCEPT_SOURCE_ID));
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.radiology.report.template;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.ConceptSource;
+import org.openmrs.api.ConceptService;
+import org.openmrs.test.BaseModuleContextSensitiveTest;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Tests {@link ConceptSourceNameIndex}.
+ */
+public class ConceptSourceNameIndexComponentTest extends BaseModuleContextSensitiveTest {
+    
+    
+    private static final String TEST_DATASET =
+            "org/openmrs/module/radiology/include/MrrtReportTemplateFileParserComponentTestDataset.xml";
+    
+    private static final Integer RADLEX_CONCEPT_SOURCE_ID = 1;
+    
+    @Autowired
+    private ConceptSourceNameIndex conceptSourceNameIndex;
+    
+    @Autowired
+    private ConceptService conceptService;
+    
+    @Before
+    public void setUp() throws Exception {
+        executeDataSet(TEST_DATASET);
+    }
+    
+    @After
+    public void tearDown() throws Exception {
+        conceptSourceNameIndex.stopCaching();
+    }
+    
+    /**
+     * @see ConceptSourceNameIndex#getConceptSourceIdByName(String)
+     */
+    @Test
+    public void shouldReturnConceptSourceIdGivenNameIgnoringCase() throws Exception {
+        
+        assertThat(conceptSourceNameIndex.getConceptSourceIdByName("RADLEX"), is(RADLEX_CONCEPT_SOURCE_ID));
+        assertThat(conceptSourceNameIndex.getConceptSourceIdByName("radlex"), is(RADLEX_CONCEPT_SOURCE_ID));
+        assertThat(conceptSourceNameIndex.getConceptSourceIdByName("RadLex"), is(RADLEX_CONCEPT_SOURCE_ID));
+    }
+    
+    /**
+     * @see ConceptSourceNameIndex#getConceptSourceIdByName(String)
+     */
+    @Test
+    public void shouldReturnNullGivenNameOfNoConceptSource() throws Exception {
+        
+        assertThat(conceptSourceNameIndex.getConceptSourceIdByName("NO SUCH SOURCE"), is(nullValue()));
+    }
+    
+    /**
+     * @see ConceptSourceNameIndex#getConceptSourceIdByName(String)
+     */
+    @Test
+    public void shouldReturnNullGivenNull() throws Exception {
+        
+        assertThat(conceptSourceNameIndex.getConceptSourceIdByName(null), is(nullValue()));
+    }
+    
+    /**
+     * @see ConceptSourceNameIndex#startCaching()
+     */
+    @Test
+    public void shouldKeepIndexUntilInvalidated() throws Exception {
+        
+        conceptSourceNameIndex.startCaching();
+        assertThat(conceptSourceNameIndex.getConceptSourceIdByName("RADLEX"), is(RADLEX_CONCEPT_SOURCE_ID));
+        
+        renameRadlexConceptSource("RADLEX PLAYBOOK");
+        
+        assertThat(conceptSourceNameIndex.getConceptSourceIdByName("RADLEX"), is(RADLEX_CONCEPT_SOURCE_ID));
+        assertThat(conceptSourceNameIndex.getConceptSourceIdByName("RADLEX PLAYBOOK"), is(nullValue()));
+    }
+    
+    /**
+     * @see ConceptSourceNameIndex#stopCaching()
+     */
+    @Test
+    public void shouldRebuildIndexForEveryLookup() throws Exception {
+        
+        conceptSourceNameIndex.startCaching();
+        assertThat(conceptSourceNameIndex.getConceptSourceIdByName("RADLEX"), is(RADLEX_CONCEPT_SOURCE_ID));
+        conceptSourceNameIndex.stopCaching();
+        
+        renameRadlexConceptSource("RADLEX PLAYBOOK");
+        
+        assertThat(conceptSourceNameIndex.getConceptSourceIdByName("RADLEX"), is(nullValue()));
+        assertThat(conceptSourceNameIndex.getConceptSourceIdByName("RADLEX PLAYBOOK"), is(RADLEX_CONCEPT_SOURCE_ID));
+    }
+    
+    /**
+     * @see ConceptSourceNameIndex#invalidate()
+     */
+    @Test
+    public void shouldRebuildIndexOnNextUse() throws Exception {
+        
+        conceptSourceNameIndex.startCaching();
+        assertThat(conceptSourceNameIndex.getConceptSourceIdByName("RADLEX"), is(RADLEX_CONCEPT_SOURCE_ID));
+        renameRadlexConceptSource("RADLEX PLAYBOOK");
+        
+        conceptSourceNameIndex.invalidate();
+        
+        assertThat(conceptSourceNameIndex.getConceptSourceIdByName("RADLEX"), is(nullValue()));
+        assertThat(conceptSourceNameIndex.getConceptSourceIdByName("RADLEX PLAYBOOK"), is(RADLEX_CONCEPT_SOURCE_ID));
+    }
+    
+    private void renameRadlexConceptSource(String name) {
+        
+        final ConceptSource conceptSource = conceptService.getConceptSource(RADLEX_CONCEPT_SOURCE_ID);
+        conceptSource.setName(name);
+        conceptService.saveConceptSource(conceptSource);
+    }
+}
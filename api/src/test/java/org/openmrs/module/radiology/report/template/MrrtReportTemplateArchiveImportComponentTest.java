@@ -0,0 +1,273 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.radiology.report.template;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.hibernate.cfg.Environment;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openmrs.api.APIException;
+import org.openmrs.api.AdministrationService;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.radiology.RadiologyConstants;
+import org.openmrs.module.radiology.RadiologyProperties;
+import org.openmrs.test.BaseModuleContextSensitiveTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+
+/**
+ * Tests {@link MrrtReportTemplateService#importMrrtReportTemplates(InputStream)} storing template files, which are each
+ * stored in a transaction of their own and therefore only see committed data.
+ */
+public class MrrtReportTemplateArchiveImportComponentTest extends BaseModuleContextSensitiveTest {
+    
+    
+    private static final String TEST_DATASET =
+            "org/openmrs/module/radiology/include/MrrtReportTemplateServiceComponentTestDataset.xml";
+    
+    private static final String VALID_TEMPLATE_PATH = "mrrttemplates/ihe/connectathon/2015/CTChestAbdomen.html";
+    
+    private static final String TEMPLATE_IDENTIFIER = "1.3.6.1.4.1.21367.13.199.1015";
+    
+    private static final String OTHER_TEMPLATE_IDENTIFIER = "1.3.6.1.4.1.21367.13.199.1016";
+    
+    @Autowired
+    @Qualifier("adminService")
+    private AdministrationService administrationService;
+    
+    @Autowired
+    private RadiologyProperties radiologyProperties;
+    
+    @Autowired
+    private MrrtReportTemplateService mrrtReportTemplateService;
+    
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    /**
+     * Overriding following method is necessary to enable MVCC which is disabled by default in DB h2 used for the component
+     * tests. This is necessary since the template files are stored in new transactions while the transaction of the test
+     * is still open.
+     *
+     * @see org.openmrs.module.radiology.order.RadiologyOrderServiceComponentTest#getRuntimeProperties()
+     */
+    @Override
+    public Properties getRuntimeProperties() {
+        Properties result = super.getRuntimeProperties();
+        String url = result.getProperty(Environment.URL);
+        if (url.contains("jdbc:h2:") && !url.contains(";MVCC=TRUE")) {
+            result.setProperty(Environment.URL, url + ";MVCC=TRUE");
+        }
+        return result;
+    }
+    
+    @Before
+    public void setUp() throws Exception {
+        // We need to commit the test data and the template directory otherwise they will not be visible to the new
+        // transactions the template files are stored in.
+        if (!Context.isSessionOpen()) {
+            Context.openSession();
+        }
+        executeDataSet(TEST_DATASET);
+        File tempFolder = temporaryFolder.newFolder("/mrrt_templates");
+        administrationService.setGlobalProperty(RadiologyConstants.GP_MRRT_REPORT_TEMPLATE_DIR,
+            tempFolder.getAbsolutePath());
+        Context.flushSession();
+        getConnection().commit();
+        Context.clearSession();
+    }
+    
+    @After
+    public void tearDown() throws Exception {
+        // We need to delete all data we committed otherwise this will influence other test classes and break isolation.
+        this.deleteAllData();
+    }
+    
+    /**
+     * Get the content of a file from the test resources.
+     *
+     * @param path the path to get the file content from
+     * @return the file content
+     */
+    private String getFileContent(String path) throws IOException {
+        return FileUtils.readFileToString(getFile(path), StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Get a file from the test resources.
+     *
+     * @param path the path to get the file from
+     * @return the file on given path
+     */
+    private File getFile(String path) {
+        return new File(getClass().getClassLoader()
+                .getResource(path)
+                .getFile());
+    }
+    
+    /**
+     * Creates a zip archive with given entries.
+     *
+     * @param entries the content of each entry by its name
+     * @return the zip archive
+     */
+    private InputStream createZipArchive(Map<String, String> entries) throws IOException {
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(entry.getValue()
+                        .getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+    
+    /**
+     * @see MrrtReportTemplateService#importMrrtReportTemplates(InputStream)
+     */
+    @Test
+    public void shouldImportAllTemplateFilesOfGivenArchive() throws Exception {
+        
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("library/CTChestAbdomen.html", getFileContent(VALID_TEMPLATE_PATH));
+        
+        List<MrrtReportTemplateImportResult> results =
+                mrrtReportTemplateService.importMrrtReportTemplates(createZipArchive(entries));
+        
+        assertThat(results.size(), is(1));
+        assertThat(results.get(0)
+                .getFileName(),
+            is("library/CTChestAbdomen.html"));
+        assertTrue(results.get(0)
+                .isImported());
+        MrrtReportTemplate imported = results.get(0)
+                .getMrrtReportTemplate();
+        assertThat(imported.getDcTermsIdentifier(), is(TEMPLATE_IDENTIFIER));
+        assertNotNull(mrrtReportTemplateService.getMrrtReportTemplateByIdentifier(TEMPLATE_IDENTIFIER));
+        assertTrue(FileUtils.contentEquals(getFile(VALID_TEMPLATE_PATH), new File(imported.getPath())));
+    }
+    
+    /**
+     * @see MrrtReportTemplateService#importMrrtReportTemplates(InputStream)
+     */
+    @Test
+    public void shouldReportTemplateFilesWhichCannotBeImportedAndImportTheOthers() throws Exception {
+        
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("CTChestAbdomen.html", getFileContent(VALID_TEMPLATE_PATH));
+        entries.put("invalid.html", getFileContent(
+            "mrrttemplates/ihe/connectathon/2015/invalidMrrtReportTemplate-noMetaElementWithCharsetAttribute.html"));
+        entries.put("CTChestAbdomen-copy.html", getFileContent(VALID_TEMPLATE_PATH));
+        
+        List<MrrtReportTemplateImportResult> results =
+                mrrtReportTemplateService.importMrrtReportTemplates(createZipArchive(entries));
+        
+        assertThat(results.size(), is(3));
+        assertTrue(results.get(0)
+                .isImported());
+        assertFalse(results.get(1)
+                .isImported());
+        assertThat(results.get(1)
+                .getError(),
+            is(instanceOf(MrrtReportTemplateValidationException.class)));
+        assertFalse(results.get(2)
+                .isImported());
+        assertThat(results.get(2)
+                .getError(),
+            is(instanceOf(APIException.class)));
+        assertThat(radiologyProperties.getReportTemplateHome()
+                .list().length,
+            is(1));
+    }
+    
+    /**
+     * @see MrrtReportTemplateService#importMrrtReportTemplates(InputStream)
+     */
+    @Test
+    public void shouldReportTemplateFilesWhichCannotBeSavedAndImportTheOthers() throws Exception {
+        
+        String validTemplate = getFileContent(VALID_TEMPLATE_PATH);
+        // the title exceeds its column so that the template only fails once it is written to the database
+        String longTitle = StringUtils.repeat("CT Chest-Abdomen ", 20);
+        String unsavableTemplate = validTemplate.replace(TEMPLATE_IDENTIFIER, OTHER_TEMPLATE_IDENTIFIER)
+                .replace("content=\"CT Chest-Abdomen\"", "content=\"" + longTitle + "\"");
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("unsavable.html", unsavableTemplate);
+        entries.put("CTChestAbdomen.html", validTemplate);
+        
+        List<MrrtReportTemplateImportResult> results =
+                mrrtReportTemplateService.importMrrtReportTemplates(createZipArchive(entries));
+        
+        assertThat(results.size(), is(2));
+        assertFalse(results.get(0)
+                .isImported());
+        assertNotNull(results.get(0)
+                .getError());
+        assertTrue(results.get(1)
+                .isImported());
+        assertNull(mrrtReportTemplateService.getMrrtReportTemplateByIdentifier(OTHER_TEMPLATE_IDENTIFIER));
+        assertNotNull(mrrtReportTemplateService.getMrrtReportTemplateByIdentifier(TEMPLATE_IDENTIFIER));
+        String validTemplateHash =
+                MrrtReportTemplateServiceImpl.getContentHash(validTemplate.getBytes(StandardCharsets.UTF_8));
+        assertThat(radiologyProperties.getReportTemplateHome()
+                .list(),
+            is(new String[] { validTemplateHash }));
+    }
+    
+    /**
+     * @see MrrtReportTemplateService#importMrrtReportTemplates(InputStream)
+     */
+    @Test
+    public void shouldIgnoreEntriesOfGivenArchiveWhichAreNotHtmlFiles() throws Exception {
+        
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("README.txt", "RadLex templates");
+        entries.put("__MACOSX/._CTChestAbdomen.html", "");
+        entries.put("CTChestAbdomen.htm", getFileContent(VALID_TEMPLATE_PATH));
+        
+        List<MrrtReportTemplateImportResult> results =
+                mrrtReportTemplateService.importMrrtReportTemplates(createZipArchive(entries));
+        
+        assertThat(results.size(), is(1));
+        assertThat(results.get(0)
+                .getFileName(),
+            is("CTChestAbdomen.htm"));
+        assertTrue(results.get(0)
+                .isImported());
+    }
+}
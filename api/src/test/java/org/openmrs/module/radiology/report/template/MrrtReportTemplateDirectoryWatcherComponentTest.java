@@ -0,0 +1,174 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.radiology.report.template;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openmrs.api.AdministrationService;
+import org.openmrs.module.radiology.RadiologyConstants;
+import org.openmrs.test.BaseModuleContextSensitiveTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+
+/**
+ * Tests {@code MrrtReportTemplateDirectoryWatcher}.
+ */
+public class MrrtReportTemplateDirectoryWatcherComponentTest extends BaseModuleContextSensitiveTest {
+    
+    
+    private static final String TEST_DATASET =
+            "org/openmrs/module/radiology/include/MrrtReportTemplateServiceComponentTestDataset.xml";
+    
+    private static final String VALID_TEMPLATE_PATH = "mrrttemplates/ihe/connectathon/2015/CTChestAbdomen.html";
+    
+    private static final String TEMPLATE_IDENTIFIER = "1.3.6.1.4.1.21367.13.199.1015";
+    
+    @Autowired
+    @Qualifier("adminService")
+    private AdministrationService administrationService;
+    
+    @Autowired
+    private MrrtReportTemplateService mrrtReportTemplateService;
+    
+    @Autowired
+    private MrrtReportTemplateDirectoryWatcher mrrtReportTemplateDirectoryWatcher;
+    
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    private File watchDirectory;
+    
+    @Before
+    public void setUp() throws Exception {
+        
+        executeDataSet(TEST_DATASET);
+        administrationService.setGlobalProperty(RadiologyConstants.GP_MRRT_REPORT_TEMPLATE_DIR,
+            temporaryFolder.newFolder("mrrt_templates")
+                    .getAbsolutePath());
+        watchDirectory = temporaryFolder.newFolder("mrrt_templates_inbox");
+    }
+    
+    @After
+    public void tearDown() throws Exception {
+        mrrtReportTemplateDirectoryWatcher.stop();
+    }
+    
+    /**
+     * Copies a template of the test resources into the watch directory.
+     *
+     * @param path the path of the template in the test resources
+     * @param fileName the name of the file in the watch directory
+     * @return the copied template file
+     */
+    private Path copyToWatchDirectory(String path, String fileName) throws Exception {
+        
+        File source = new File(getClass().getClassLoader()
+                .getResource(path)
+                .getFile());
+        return Files.copy(source.toPath(), new File(watchDirectory, fileName).toPath(),
+            StandardCopyOption.REPLACE_EXISTING);
+    }
+    
+    /**
+     * @see MrrtReportTemplateDirectoryWatcher#start(org.openmrs.module.DaemonToken)
+     */
+    @Test
+    public void shouldNotWatchAnyDirectoryIfReportTemplateWatchDirectoryIsNotConfigured() throws Exception {
+        
+        mrrtReportTemplateDirectoryWatcher.start(null);
+        
+        assertFalse(mrrtReportTemplateDirectoryWatcher.isWatching());
+    }
+    
+    /**
+     * @see MrrtReportTemplateDirectoryWatcher#start(org.openmrs.module.DaemonToken)
+     */
+    @Test
+    public void shouldWatchConfiguredReportTemplateWatchDirectoryUntilStopped() throws Exception {
+        
+        administrationService.setGlobalProperty(RadiologyConstants.GP_MRRT_REPORT_TEMPLATE_WATCH_DIR,
+            watchDirectory.getAbsolutePath());
+        
+        mrrtReportTemplateDirectoryWatcher.start(null);
+        assertTrue(mrrtReportTemplateDirectoryWatcher.isWatching());
+        
+        mrrtReportTemplateDirectoryWatcher.stop();
+        assertFalse(mrrtReportTemplateDirectoryWatcher.isWatching());
+    }
+    
+    /**
+     * @see MrrtReportTemplateDirectoryWatcher#importFile(Path)
+     */
+    @Test
+    public void shouldImportTemplateFileWhoseContentWasNotImportedYet() throws Exception {
+        
+        Path file = copyToWatchDirectory(VALID_TEMPLATE_PATH, "CTChestAbdomen.html");
+        
+        MrrtReportTemplate imported = mrrtReportTemplateDirectoryWatcher.importFile(file);
+        
+        assertNotNull(imported);
+        assertThat(imported.getDcTermsIdentifier(), is(TEMPLATE_IDENTIFIER));
+        assertNotNull(mrrtReportTemplateService.getMrrtReportTemplateByIdentifier(TEMPLATE_IDENTIFIER));
+    }
+    
+    /**
+     * @see MrrtReportTemplateDirectoryWatcher#importFile(Path)
+     */
+    @Test
+    public void shouldSkipTemplateFileWhoseContentWasAlreadyImported() throws Exception {
+        
+        Path file = copyToWatchDirectory(VALID_TEMPLATE_PATH, "CTChestAbdomen.html");
+        Path copy = copyToWatchDirectory(VALID_TEMPLATE_PATH, "CTChestAbdomen-copy.html");
+        mrrtReportTemplateDirectoryWatcher.importFile(file);
+        
+        assertNull(mrrtReportTemplateDirectoryWatcher.importFile(copy));
+    }
+    
+    /**
+     * @see MrrtReportTemplateDirectoryWatcher#importFile(Path)
+     */
+    @Test
+    public void shouldSkipTemplateFileLargerThanTheMaximumSize() throws Exception {
+        
+        administrationService.setGlobalProperty(RadiologyConstants.GP_MRRT_REPORT_TEMPLATE_MAX_SIZE, "1024");
+        Path file = copyToWatchDirectory(VALID_TEMPLATE_PATH, "CTChestAbdomen.html");
+        
+        assertNull(mrrtReportTemplateDirectoryWatcher.importFile(file));
+        assertNull(mrrtReportTemplateService.getMrrtReportTemplateByIdentifier(TEMPLATE_IDENTIFIER));
+    }
+    
+    /**
+     * @see MrrtReportTemplateDirectoryWatcher#importFile(Path)
+     */
+    @Test
+    public void shouldSkipFilesWhichAreNotHtmlFiles() throws Exception {
+        
+        Path file = copyToWatchDirectory(VALID_TEMPLATE_PATH, "CTChestAbdomen.txt");
+        Path hidden = copyToWatchDirectory(VALID_TEMPLATE_PATH, ".CTChestAbdomen.html");
+        
+        assertNull(mrrtReportTemplateDirectoryWatcher.importFile(file));
+        assertNull(mrrtReportTemplateDirectoryWatcher.importFile(hidden));
+    }
+}
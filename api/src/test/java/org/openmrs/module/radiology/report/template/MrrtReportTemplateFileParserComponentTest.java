@@ -39,6 +39,9 @@ public class MrrtReportTemplateFileParserComponentTest extends BaseModuleContext
     @Autowired
     private MrrtReportTemplateFileParser parser;
     
+    @Autowired
+    private MrrtReportTemplateValidator validator;
+    
     @Rule
     public ExpectedException expectedException = ExpectedException.none();
     
@@ -132,6 +135,22 @@ public class MrrtReportTemplateFileParserComponentTest extends BaseModuleContext
         assertThat(template.getDcTermsCreator(), is(TEST_DCTERMS_CREATOR));
     }
     
+    @Test
+    public void shouldReturnAnMrrtTemplateObjectGivenValidatedTemplate() throws Exception {
+        
+        String templateContent = getFileContent("mrrttemplates/ihe/connectathon/2015/CTChestAbdomen.html");
+        
+        MrrtReportTemplate template = parser.parse(validator.validate(templateContent));
+        
+        assertNotNull(template);
+        assertThat(template.getCharset(), is(CHARSET));
+        assertThat(template.getDcTermsTitle(), is(TEST_DCTERMS_TITLE));
+        assertThat(template.getDcTermsIdentifier(), is(TEST_DCTERMS_IDENTIFIER));
+        assertThat(template.getTerms()
+                .size(),
+            is(1));
+    }
+    
     @Test
     public void shouldStoreTermsElementInTemplateObjectIfTheyMatchAconceptReferenceTermInOpenmrs() throws IOException {
         
@@ -0,0 +1,124 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.radiology.report.template;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link MrrtReportTemplateHtmlBodyCache}.
+ */
+public class MrrtReportTemplateHtmlBodyCacheTest {
+    
+    
+    private static final String TEMPLATE_UUID = "aa551445-def0-4f93-9047-95f0a9afbdce";
+    
+    private static final String OTHER_TEMPLATE_UUID = "59273e52-33b1-4fcb-8c1f-9b670bb11259";
+    
+    private static final long LAST_MODIFIED = 1470038400000L;
+    
+    private static final String HTML_BODY = "<p>Sample Template</p>";
+    
+    private MrrtReportTemplateHtmlBodyCache htmlBodyCache;
+    
+    @Before
+    public void setUp() {
+        htmlBodyCache = new MrrtReportTemplateHtmlBodyCache(4L * HTML_BODY.length());
+    }
+    
+    /**
+     * @see MrrtReportTemplateHtmlBodyCache#get(String,long)
+     */
+    @Test
+    public void shouldReturnCachedHtmlBodyGivenUuidAndModificationTimeItWasCachedWith() {
+        
+        htmlBodyCache.put(TEMPLATE_UUID, LAST_MODIFIED, HTML_BODY);
+        
+        assertThat(htmlBodyCache.get(TEMPLATE_UUID, LAST_MODIFIED), is(HTML_BODY));
+    }
+    
+    /**
+     * @see MrrtReportTemplateHtmlBodyCache#get(String,long)
+     */
+    @Test
+    public void shouldReturnNullGivenOtherModificationTimeThanItWasCachedWith() {
+        
+        htmlBodyCache.put(TEMPLATE_UUID, LAST_MODIFIED, HTML_BODY);
+        
+        assertThat(htmlBodyCache.get(TEMPLATE_UUID, LAST_MODIFIED + 1000), is(nullValue()));
+    }
+    
+    /**
+     * @see MrrtReportTemplateHtmlBodyCache#get(String,long)
+     */
+    @Test
+    public void shouldReturnNullGivenNull() {
+        
+        assertThat(htmlBodyCache.get(null, LAST_MODIFIED), is(nullValue()));
+    }
+    
+    /**
+     * @see MrrtReportTemplateHtmlBodyCache#put(String,long,String)
+     */
+    @Test
+    public void shouldEvictLeastRecentlyUsedHtmlBodiesIfMaxBytesAreExceeded() {
+        
+        htmlBodyCache.put(TEMPLATE_UUID, LAST_MODIFIED, HTML_BODY);
+        htmlBodyCache.put(OTHER_TEMPLATE_UUID, LAST_MODIFIED, HTML_BODY);
+        htmlBodyCache.get(TEMPLATE_UUID, LAST_MODIFIED);
+        
+        htmlBodyCache.put("ed5b1b02-5a4c-4d0b-aa28-7a8d6f7b0f43", LAST_MODIFIED, HTML_BODY);
+        
+        assertThat(htmlBodyCache.size(), is(2));
+        assertThat(htmlBodyCache.get(TEMPLATE_UUID, LAST_MODIFIED), is(HTML_BODY));
+        assertThat(htmlBodyCache.get(OTHER_TEMPLATE_UUID, LAST_MODIFIED), is(nullValue()));
+    }
+    
+    /**
+     * @see MrrtReportTemplateHtmlBodyCache#put(String,long,String)
+     */
+    @Test
+    public void shouldNotCacheHtmlBodyLargerThanMaxBytes() {
+        
+        htmlBodyCache.put(TEMPLATE_UUID, LAST_MODIFIED, HTML_BODY + HTML_BODY + HTML_BODY);
+        
+        assertThat(htmlBodyCache.size(), is(0));
+    }
+    
+    /**
+     * @see MrrtReportTemplateHtmlBodyCache#put(String,long,String)
+     */
+    @Test
+    public void shouldNotCacheHtmlBodyGivenNullUuid() {
+        
+        htmlBodyCache.put(null, LAST_MODIFIED, HTML_BODY);
+        
+        assertThat(htmlBodyCache.size(), is(0));
+    }
+    
+    /**
+     * @see MrrtReportTemplateHtmlBodyCache#invalidate(String)
+     */
+    @Test
+    public void shouldRemoveCachedHtmlBodyOfTemplateWithGivenUuid() {
+        
+        htmlBodyCache.put(TEMPLATE_UUID, LAST_MODIFIED, HTML_BODY);
+        htmlBodyCache.put(OTHER_TEMPLATE_UUID, LAST_MODIFIED, HTML_BODY);
+        
+        htmlBodyCache.invalidate(TEMPLATE_UUID);
+        
+        assertThat(htmlBodyCache.get(TEMPLATE_UUID, LAST_MODIFIED), is(nullValue()));
+        assertThat(htmlBodyCache.get(OTHER_TEMPLATE_UUID, LAST_MODIFIED), is(HTML_BODY));
+    }
+}
@@ -65,4 +65,27 @@ public class MrrtReportTemplateSearchCriteriaTest {
         
         assertThat(mrrtReportTemplateSearchCriteria.getCreator(), is(creator));
     }
+    
+    @Test
+    public void shouldCreateAnMrrtReportTemplateSearchCriteriaInstanceWithTermCodeIfTermCodeIsSet() throws Exception {
+        
+        String termCode = "RID10321";
+        
+        mrrtReportTemplateSearchCriteria = new MrrtReportTemplateSearchCriteria.Builder().withTermCode(termCode)
+                .build();
+        
+        assertThat(mrrtReportTemplateSearchCriteria.getTermCode(), is(termCode));
+    }
+    
+    @Test
+    public void shouldCreateAnMrrtReportTemplateSearchCriteriaInstanceWithConceptSourceIfConceptSourceIsSet()
+            throws Exception {
+        
+        String conceptSource = "RADLEX";
+        
+        mrrtReportTemplateSearchCriteria = new MrrtReportTemplateSearchCriteria.Builder().withConceptSource(conceptSource)
+                .build();
+        
+        assertThat(mrrtReportTemplateSearchCriteria.getConceptSource(), is(conceptSource));
+    }
 }
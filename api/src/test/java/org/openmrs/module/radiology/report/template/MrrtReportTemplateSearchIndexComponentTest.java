@@ -0,0 +1,204 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.radiology.report.template;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.api.context.Context;
+import org.openmrs.test.BaseModuleContextSensitiveTest;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Tests {@link MrrtReportTemplateSearchIndex}.
+ */
+public class MrrtReportTemplateSearchIndexComponentTest extends BaseModuleContextSensitiveTest {
+    
+    
+    private static final String TEST_DATASET =
+            "org/openmrs/module/radiology/include/MrrtReportTemplateServiceComponentTestDataset.xml";
+    
+    private static final Integer CT_CHEST_TEMPLATE_ID = 1;
+    
+    private static final Integer CT_CARDIAC_TEMPLATE_ID = 2;
+    
+    @Autowired
+    private MrrtReportTemplateSearchIndex mrrtReportTemplateSearchIndex;
+    
+    @Autowired
+    private MrrtReportTemplateService mrrtReportTemplateService;
+    
+    @Before
+    public void setUp() throws Exception {
+        executeDataSet(TEST_DATASET);
+    }
+    
+    @After
+    public void tearDown() throws Exception {
+        mrrtReportTemplateSearchIndex.stopCaching();
+    }
+    
+    /**
+     * @see MrrtReportTemplateSearchIndex#search(MrrtReportTemplateSearchCriteria)
+     */
+    @Test
+    public void shouldReturnIdsOfTemplatesWhoseFieldsContainGivenSearchTermsIgnoringCase() throws Exception {
+        
+        assertThat(mrrtReportTemplateSearchIndex.search(new MrrtReportTemplateSearchCriteria.Builder().withTitle("PULMONARY")
+                .build()),
+            is(Arrays.asList(CT_CHEST_TEMPLATE_ID)));
+        assertThat(mrrtReportTemplateSearchIndex.search(new MrrtReportTemplateSearchCriteria.Builder().withPublisher("cat")
+                .build()),
+            is(Arrays.asList(CT_CARDIAC_TEMPLATE_ID, CT_CHEST_TEMPLATE_ID)));
+        assertThat(mrrtReportTemplateSearchIndex.search(new MrrtReportTemplateSearchCriteria.Builder().withLicense("mozilla")
+                .build()),
+            is(Arrays.asList(CT_CHEST_TEMPLATE_ID)));
+    }
+    
+    /**
+     * @see MrrtReportTemplateSearchIndex#search(MrrtReportTemplateSearchCriteria)
+     */
+    @Test
+    public void shouldReturnIdsOfTemplatesMatchingSearchTermsShorterThanThreeCharacters() throws Exception {
+        
+        assertThat(mrrtReportTemplateSearchIndex.search(new MrrtReportTemplateSearchCriteria.Builder().withTitle("ch")
+                .build()),
+            is(Arrays.asList(CT_CHEST_TEMPLATE_ID)));
+        assertThat(mrrtReportTemplateSearchIndex.search(new MrrtReportTemplateSearchCriteria.Builder().withCreator("2")
+                .build()),
+            is(Arrays.asList(CT_CARDIAC_TEMPLATE_ID)));
+    }
+    
+    /**
+     * @see MrrtReportTemplateSearchIndex#search(MrrtReportTemplateSearchCriteria)
+     */
+    @Test
+    public void shouldReturnIdsOfTemplatesMatchingAllGivenSearchTerms() throws Exception {
+        
+        assertThat(mrrtReportTemplateSearchIndex.search(new MrrtReportTemplateSearchCriteria.Builder().withTitle("ct")
+                .withLicense("general")
+                .build()),
+            is(Arrays.asList(CT_CARDIAC_TEMPLATE_ID)));
+    }
+    
+    /**
+     * @see MrrtReportTemplateSearchIndex#search(MrrtReportTemplateSearchCriteria)
+     */
+    @Test
+    public void shouldRankTemplatesWhoseTitleStartsWithGivenTitleBeforeTemplatesOnlyContainingIt() throws Exception {
+        
+        Integer cardiacCtTemplateId = saveTemplate("Cardiac CT");
+        
+        assertThat(mrrtReportTemplateSearchIndex.search(new MrrtReportTemplateSearchCriteria.Builder().withTitle("cardiac")
+                .build()),
+            is(Arrays.asList(cardiacCtTemplateId, CT_CARDIAC_TEMPLATE_ID)));
+        assertThat(mrrtReportTemplateSearchIndex.search(new MrrtReportTemplateSearchCriteria.Builder().withTitle("ct")
+                .build()),
+            is(Arrays.asList(CT_CARDIAC_TEMPLATE_ID, CT_CHEST_TEMPLATE_ID, cardiacCtTemplateId)));
+    }
+    
+    /**
+     * @see MrrtReportTemplateSearchIndex#search(MrrtReportTemplateSearchCriteria)
+     */
+    @Test
+    public void shouldReturnIdsOfAllTemplatesOrderedByTitleIfNoSearchTermIsGiven() throws Exception {
+        
+        assertThat(mrrtReportTemplateSearchIndex.search(new MrrtReportTemplateSearchCriteria.Builder().build()),
+            is(Arrays.asList(CT_CARDIAC_TEMPLATE_ID, CT_CHEST_TEMPLATE_ID)));
+    }
+    
+    /**
+     * @see MrrtReportTemplateSearchIndex#search(MrrtReportTemplateSearchCriteria)
+     */
+    @Test
+    public void shouldReturnEmptyListIfNoTemplateMatches() throws Exception {
+        
+        List<Integer> result = mrrtReportTemplateSearchIndex.search(new MrrtReportTemplateSearchCriteria.Builder()
+                .withTitle("mri")
+                .build());
+        
+        assertTrue(result.isEmpty());
+    }
+    
+    /**
+     * @see MrrtReportTemplateSearchIndex#startCaching()
+     */
+    @Test
+    public void shouldKeepIndexUntilInvalidated() throws Exception {
+        
+        mrrtReportTemplateSearchIndex.startCaching();
+        assertThat(searchByTitle("bypass"), is(Arrays.asList(CT_CARDIAC_TEMPLATE_ID)));
+        
+        renameCtCardiacTemplate("MR Cardiac Function");
+        
+        assertThat(searchByTitle("bypass"), is(Arrays.asList(CT_CARDIAC_TEMPLATE_ID)));
+        assertTrue(searchByTitle("function").isEmpty());
+    }
+    
+    /**
+     * @see MrrtReportTemplateSearchIndex#stopCaching()
+     */
+    @Test
+    public void shouldRebuildIndexForEverySearch() throws Exception {
+        
+        mrrtReportTemplateSearchIndex.startCaching();
+        assertThat(searchByTitle("bypass"), is(Arrays.asList(CT_CARDIAC_TEMPLATE_ID)));
+        mrrtReportTemplateSearchIndex.stopCaching();
+        
+        renameCtCardiacTemplate("MR Cardiac Function");
+        
+        assertTrue(searchByTitle("bypass").isEmpty());
+        assertThat(searchByTitle("function"), is(Arrays.asList(CT_CARDIAC_TEMPLATE_ID)));
+    }
+    
+    /**
+     * @see MrrtReportTemplateSearchIndex#invalidate()
+     */
+    @Test
+    public void shouldRebuildIndexOnNextUse() throws Exception {
+        
+        mrrtReportTemplateSearchIndex.startCaching();
+        assertThat(searchByTitle("bypass"), is(Arrays.asList(CT_CARDIAC_TEMPLATE_ID)));
+        renameCtCardiacTemplate("MR Cardiac Function");
+        
+        mrrtReportTemplateSearchIndex.invalidate();
+        
+        assertTrue(searchByTitle("bypass").isEmpty());
+        assertThat(searchByTitle("function"), is(Arrays.asList(CT_CARDIAC_TEMPLATE_ID)));
+    }
+    
+    private List<Integer> searchByTitle(String title) {
+        return mrrtReportTemplateSearchIndex.search(new MrrtReportTemplateSearchCriteria.Builder().withTitle(title)
+                .build());
+    }
+    
+    private Integer saveTemplate(String title) {
+        
+        MrrtReportTemplate template = new MrrtReportTemplate();
+        template.setDcTermsIdentifier("identifier3");
+        template.setDcTermsTitle(title);
+        return mrrtReportTemplateService.saveMrrtReportTemplate(template)
+                .getTemplateId();
+    }
+    
+    private void renameCtCardiacTemplate(String title) {
+        
+        mrrtReportTemplateService.getMrrtReportTemplate(CT_CARDIAC_TEMPLATE_ID)
+                .setDcTermsTitle(title);
+        Context.flushSession();
+    }
+}
@@ -11,8 +11,10 @@ package org.openmrs.module.radiology.report.template;
 
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
@@ -20,15 +22,25 @@ import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.hibernate.Hibernate;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -36,6 +48,7 @@ import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
 import org.openmrs.api.APIException;
 import org.openmrs.api.AdministrationService;
+import org.openmrs.api.context.Context;
 import org.openmrs.module.radiology.RadiologyConstants;
 import org.openmrs.module.radiology.RadiologyProperties;
 import org.openmrs.test.BaseModuleContextSensitiveTest;
@@ -87,8 +100,12 @@ public class MrrtReportTemplateServiceComponentTest extends BaseModuleContextSen
     
     private static final String TEMPLATE_IDENTIFIER = "1.3.6.1.4.1.21367.13.199.1015";
     
+    private static final String VALID_TEMPLATE_PATH = "mrrttemplates/ihe/connectathon/2015/CTChestAbdomen.html";
+    
     private static final String NON_EXISTING_PUBLISHER = "Non existing publisher";
     
+    private static final String EXISTING_TERM_CODE = "RID10321";
+    
     private static final String UUID_FOR_TEMPLATE_ONE = "aa551445-def0-4f93-9047-95f0a9afbdce";
     
     private static final String UUID_FOR_TEMPLATE_TWO = "59273e52-33b1-4fcb-8c1f-9b670bb11259";
@@ -96,11 +113,19 @@ public class MrrtReportTemplateServiceComponentTest extends BaseModuleContextSen
     @Autowired
     private MrrtReportTemplateService mrrtReportTemplateService;
     
+    @Autowired
+    private MrrtReportTemplateSearchIndex mrrtReportTemplateSearchIndex;
+    
     @Before
     public void setUp() throws Exception {
         executeDataSet(TEST_DATASET);
     }
     
+    @After
+    public void tearDown() throws Exception {
+        mrrtReportTemplateSearchIndex.stopCaching();
+    }
+    
     /**
      * Get a files content as string.
      *
@@ -220,6 +245,33 @@ public class MrrtReportTemplateServiceComponentTest extends BaseModuleContextSen
         mrrtReportTemplateService.getMrrtReportTemplateByIdentifier(null);
     }
     
+    @Test
+    public void shouldGetTemplateMatchingGivenContentHash() throws Exception {
+        
+        String contentHash = sha256Hex("content of template one");
+        mrrtReportTemplateService.getMrrtReportTemplate(EXISTING_TEMPLATE_ID)
+                .setContentHash(contentHash);
+        
+        MrrtReportTemplate template = mrrtReportTemplateService.getMrrtReportTemplateByContentHash(contentHash);
+        
+        assertNotNull(template);
+        assertThat(template.getTemplateId(), is(EXISTING_TEMPLATE_ID));
+    }
+    
+    @Test
+    public void shouldReturnNullIfNoTemplateWithGivenContentHashWasFound() throws Exception {
+        
+        assertNull(mrrtReportTemplateService.getMrrtReportTemplateByContentHash(sha256Hex("unknown content")));
+    }
+    
+    @Test
+    public void shouldFailToGetTemplateByContentHashIfGivenNull() throws Exception {
+        
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("contentHash cannot be null");
+        mrrtReportTemplateService.getMrrtReportTemplateByContentHash(null);
+    }
+    
     @Test
     public void shouldDeleteReportTemplateFromDatabaseAndAlsoDeleteTemplateFileFromTheSystem() throws Exception {
         
@@ -316,6 +368,200 @@ public class MrrtReportTemplateServiceComponentTest extends BaseModuleContextSen
         assertTrue(FileUtils.contentEquals(getFile(sourcePath), templatePath.getAbsoluteFile()));
     }
     
+    @Test
+    public void shouldStoreTheTemplateFileNamedByTheSha256HashOfItsContent() throws Exception {
+        
+        setUpTemporaryFolder();
+        String template = getFileContent(VALID_TEMPLATE_PATH);
+        
+        MrrtReportTemplate saved = mrrtReportTemplateService.importMrrtReportTemplate(template);
+        
+        String contentHash = sha256Hex(template);
+        assertThat(saved.getContentHash(), is(contentHash));
+        assertThat(new File(saved.getPath()).getName(), is(contentHash));
+        assertThat(radiologyProperties.getReportTemplateHome()
+                .list().length,
+            is(1));
+    }
+    
+    @Test
+    public void shouldReuseTheTemplateFileIfATemplateFileWithTheSameContentExists() throws Exception {
+        
+        setUpTemporaryFolder();
+        String template = getFileContent(VALID_TEMPLATE_PATH);
+        File existingFile = new File(radiologyProperties.getReportTemplateHome(), sha256Hex(template));
+        FileUtils.writeStringToFile(existingFile, template, StandardCharsets.UTF_8);
+        
+        MrrtReportTemplate saved = mrrtReportTemplateService.importMrrtReportTemplate(template);
+        
+        assertThat(saved.getPath(), is(existingFile.getAbsolutePath()));
+        assertThat(radiologyProperties.getReportTemplateHome()
+                .list().length,
+            is(1));
+    }
+    
+    @Test
+    public void shouldFailToImportTemplateWithTheContentOfAnExistingTemplateBeforeParsingIt() throws Exception {
+        
+        setUpTemporaryFolder();
+        String template = getFileContent(
+            "mrrttemplates/ihe/connectathon/2015/invalidMrrtReportTemplate-noMetaElementWithCharsetAttribute.html");
+        mrrtReportTemplateService.getMrrtReportTemplate(EXISTING_TEMPLATE_ID)
+                .setContentHash(sha256Hex(template));
+        
+        expectedException.expect(APIException.class);
+        expectedException.expectMessage("Template already exist in the system.");
+        mrrtReportTemplateService.importMrrtReportTemplate(template);
+    }
+    
+    @Test
+    public void shouldCreateMrrtReportTemplateInTheDatabaseAndOnTheFileSystemGivenStream() throws Exception {
+        
+        setUpTemporaryFolder();
+        
+        MrrtReportTemplate saved;
+        try (InputStream in = new FileInputStream(getFile(VALID_TEMPLATE_PATH))) {
+            saved = mrrtReportTemplateService.importMrrtReportTemplate(in, StandardCharsets.UTF_8);
+        }
+        
+        assertNotNull(saved);
+        assertThat(saved.getDcTermsIdentifier(), is(TEMPLATE_IDENTIFIER));
+        assertThat(saved.getContentHash(), is(sha256Hex(getFileContent(VALID_TEMPLATE_PATH))));
+        assertTrue(FileUtils.contentEquals(getFile(VALID_TEMPLATE_PATH), new File(saved.getPath())));
+    }
+    
+    @Test
+    public void shouldDecodeTemplateWithGivenCharset() throws Exception {
+        
+        setUpTemporaryFolder();
+        byte[] template = getFileContent(VALID_TEMPLATE_PATH).getBytes(StandardCharsets.UTF_16);
+        
+        MrrtReportTemplate saved = mrrtReportTemplateService
+                .importMrrtReportTemplate(new ByteArrayInputStream(template), StandardCharsets.UTF_16);
+        
+        assertThat(saved.getDcTermsIdentifier(), is(TEMPLATE_IDENTIFIER));
+        assertThat(saved.getDcTermsTitle(), is("CT Chest-Abdomen"));
+    }
+    
+    @Test
+    public void shouldFailToImportTemplateLargerThanTheMaximumSize() throws Exception {
+        
+        setUpTemporaryFolder();
+        administrationService.setGlobalProperty(RadiologyConstants.GP_MRRT_REPORT_TEMPLATE_MAX_SIZE, "1024");
+        
+        expectedException.expect(APIException.class);
+        try (InputStream in = new FileInputStream(getFile(VALID_TEMPLATE_PATH))) {
+            mrrtReportTemplateService.importMrrtReportTemplate(in, StandardCharsets.UTF_8);
+        }
+        finally {
+            assertThat(radiologyProperties.getReportTemplateHome()
+                    .list().length,
+                is(0));
+        }
+    }
+    
+    @Test
+    public void shouldFailToImportTemplateStreamWithTheContentOfAnExistingTemplateBeforeParsingIt() throws Exception {
+        
+        setUpTemporaryFolder();
+        String template = getFileContent(
+            "mrrttemplates/ihe/connectathon/2015/invalidMrrtReportTemplate-noMetaElementWithCharsetAttribute.html");
+        mrrtReportTemplateService.getMrrtReportTemplate(EXISTING_TEMPLATE_ID)
+                .setContentHash(sha256Hex(template));
+        
+        expectedException.expect(APIException.class);
+        expectedException.expectMessage("Template already exist in the system.");
+        mrrtReportTemplateService.importMrrtReportTemplate(
+            new ByteArrayInputStream(template.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
+    }
+    
+    @Test
+    public void shouldFailToImportTemplateStreamIfGivenNull() throws Exception {
+        
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("mrrtTemplate cannot be null");
+        mrrtReportTemplateService.importMrrtReportTemplate(null, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Get the hex encoded SHA-256 hash of given template.
+     *
+     * @param template the template to hash
+     * @return the hex encoded hash of the UTF-8 encoded template
+     */
+    private String sha256Hex(String template) throws Exception {
+        
+        StringBuilder result = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-256")
+                .digest(template.getBytes(StandardCharsets.UTF_8))) {
+            result.append(String.format("%02x", b));
+        }
+        return result.toString();
+    }
+    
+    @Test
+    public void shouldNotImportTemplateFilesOfGivenArchiveLargerThanTheMaximumSize() throws Exception {
+        
+        setUpTemporaryFolder();
+        administrationService.setGlobalProperty(RadiologyConstants.GP_MRRT_REPORT_TEMPLATE_MAX_SIZE, "1024");
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("CTChestAbdomen.html", getFileContent(VALID_TEMPLATE_PATH));
+        
+        List<MrrtReportTemplateImportResult> results =
+                mrrtReportTemplateService.importMrrtReportTemplates(createZipArchive(entries));
+        
+        assertThat(results.size(), is(1));
+        assertFalse(results.get(0)
+                .isImported());
+        assertThat(results.get(0)
+                .getError(),
+            is(instanceOf(APIException.class)));
+        assertThat(radiologyProperties.getReportTemplateHome()
+                .list().length,
+            is(0));
+    }
+    
+    @Test
+    public void shouldFailIfGivenArchiveContainsTooManyTemplateFiles() throws Exception {
+        
+        setUpTemporaryFolder();
+        Map<String, String> entries = new LinkedHashMap<>();
+        for (int i = 0; i <= MrrtReportTemplateServiceImpl.MAX_ARCHIVE_TEMPLATE_FILES; i++) {
+            entries.put("template" + i + ".html", "<html></html>");
+        }
+        
+        expectedException.expect(APIException.class);
+        mrrtReportTemplateService.importMrrtReportTemplates(createZipArchive(entries));
+    }
+    
+    @Test
+    public void shouldFailToImportTemplatesIfGivenNull() throws Exception {
+        
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("zipArchive cannot be null");
+        mrrtReportTemplateService.importMrrtReportTemplates(null);
+    }
+    
+    /**
+     * Creates a zip archive with given entries.
+     *
+     * @param entries the content of each entry by its name
+     * @return the zip archive
+     */
+    private InputStream createZipArchive(Map<String, String> entries) throws IOException {
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(entry.getValue()
+                        .getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+    
     @Test
     public void shouldNotCreateAnMrrtReportTemplateInTheDatabaseAndStoreTheTemplateAsFileIfGivenTemplateIsInvalid()
             throws Exception {
@@ -348,6 +594,136 @@ public class MrrtReportTemplateServiceComponentTest extends BaseModuleContextSen
             is("CT Chest Pulmonary Embolism"));
     }
     
+    @Test
+    public void shouldReturnMrrtReportTemplatesWhoseTitleStartsWithGivenTitleBeforeThoseOnlyContainingIt()
+            throws Exception {
+        
+        MrrtReportTemplate template = new MrrtReportTemplate();
+        template.setDcTermsIdentifier("identifier3");
+        template.setDcTermsTitle("Cardiac CT");
+        mrrtReportTemplateService.saveMrrtReportTemplate(template);
+        
+        MrrtReportTemplateSearchCriteria searchCriteria = new MrrtReportTemplateSearchCriteria.Builder().withTitle("cardiac")
+                .build();
+        
+        List<MrrtReportTemplate> templates = mrrtReportTemplateService.getMrrtReportTemplates(searchCriteria);
+        
+        assertThat(templates.size(), is(2));
+        assertThat(templates.get(0)
+                .getDcTermsTitle(),
+            is("Cardiac CT"));
+        assertThat(templates.get(1)
+                .getDcTermsTitle(),
+            is("CT Cardiac Bypass Graft"));
+    }
+    
+    @Test
+    public void shouldReturnAllMrrtReportTemplatesCodedWithATermOfGivenCode() throws Exception {
+        
+        MrrtReportTemplateSearchCriteria searchCriteria = new MrrtReportTemplateSearchCriteria.Builder()
+                .withTermCode(EXISTING_TERM_CODE)
+                .build();
+        
+        List<MrrtReportTemplate> templates = mrrtReportTemplateService.getMrrtReportTemplates(searchCriteria);
+        
+        assertThat(templates.size(), is(1));
+        assertThat(templates.get(0)
+                .getUuid(),
+            is(UUID_FOR_TEMPLATE_ONE));
+    }
+    
+    @Test
+    public void shouldReturnAllMrrtReportTemplatesCodedWithATermOfGivenConceptSourceIgnoringCase() throws Exception {
+        
+        MrrtReportTemplateSearchCriteria searchCriteria = new MrrtReportTemplateSearchCriteria.Builder()
+                .withConceptSource("radlex")
+                .build();
+        
+        List<MrrtReportTemplate> templates = mrrtReportTemplateService.getMrrtReportTemplates(searchCriteria);
+        
+        assertThat(templates.size(), is(1));
+        assertThat(templates.get(0)
+                .getUuid(),
+            is(UUID_FOR_TEMPLATE_ONE));
+    }
+    
+    @Test
+    public void shouldReturnAllMrrtReportTemplatesCodedWithATermOfGivenCodeAndConceptSource() throws Exception {
+        
+        MrrtReportTemplateSearchCriteria searchCriteria = new MrrtReportTemplateSearchCriteria.Builder()
+                .withTermCode(EXISTING_TERM_CODE)
+                .withConceptSource("RADLEX")
+                .withTitle("CT")
+                .build();
+        
+        List<MrrtReportTemplate> templates = mrrtReportTemplateService.getMrrtReportTemplates(searchCriteria);
+        
+        assertThat(templates.size(), is(1));
+        assertThat(templates.get(0)
+                .getUuid(),
+            is(UUID_FOR_TEMPLATE_ONE));
+        
+        searchCriteria = new MrrtReportTemplateSearchCriteria.Builder().withTermCode("RID0")
+                .withConceptSource("RADLEX")
+                .build();
+        assertTrue(mrrtReportTemplateService.getMrrtReportTemplates(searchCriteria)
+                .isEmpty());
+    }
+    
+    @Test
+    public void shouldReturnAnEmptyListIfGivenConceptSourceDoesNotExist() throws Exception {
+        
+        MrrtReportTemplateSearchCriteria searchCriteria = new MrrtReportTemplateSearchCriteria.Builder()
+                .withTermCode(EXISTING_TERM_CODE)
+                .withConceptSource("LOINC")
+                .build();
+        
+        assertTrue(mrrtReportTemplateService.getMrrtReportTemplates(searchCriteria)
+                .isEmpty());
+    }
+    
+    @Test
+    public void shouldNotLoadTheTermsOfTheReturnedMrrtReportTemplatesUntilTheyAreAccessed() throws Exception {
+        
+        Context.clearSession();
+        MrrtReportTemplateSearchCriteria searchCriteria =
+                new MrrtReportTemplateSearchCriteria.Builder().withTitle(EXISTING_TEMPLATE_TITLE)
+                        .build();
+        
+        List<MrrtReportTemplate> templates = mrrtReportTemplateService.getMrrtReportTemplates(searchCriteria);
+        
+        assertThat(templates.size(), is(2));
+        assertFalse(Hibernate.isInitialized(templates.get(0)
+                .getTerms()));
+        assertFalse(Hibernate.isInitialized(templates.get(1)
+                .getTerms()));
+        assertThat(templates.get(1)
+                .getTerms()
+                .size(),
+            is(1));
+    }
+    
+    @Test
+    public void shouldMakeSavedTemplateSearchable() throws Exception {
+        
+        mrrtReportTemplateSearchIndex.startCaching();
+        MrrtReportTemplateSearchCriteria searchCriteria = new MrrtReportTemplateSearchCriteria.Builder().withTitle("MRI")
+                .build();
+        assertTrue(mrrtReportTemplateService.getMrrtReportTemplates(searchCriteria)
+                .isEmpty());
+        
+        MrrtReportTemplate template = new MrrtReportTemplate();
+        template.setDcTermsIdentifier("identifier3");
+        template.setDcTermsTitle("Cardiac MRI");
+        mrrtReportTemplateService.saveMrrtReportTemplate(template);
+        
+        List<MrrtReportTemplate> templates = mrrtReportTemplateService.getMrrtReportTemplates(searchCriteria);
+        assertThat(templates.size(), is(1));
+        assertThat(templates.get(0)
+                .getDcTermsTitle(),
+            is("Cardiac MRI"));
+    }
+    
     @Test
     public void shouldNotGetAllTemplatesButReturnAnEmptyListOfNoMatchForTitleWasFound() throws Exception {
         
@@ -510,6 +886,27 @@ public class MrrtReportTemplateServiceComponentTest extends BaseModuleContextSen
         assertThat(bodyContentReturned, is("<p>Sample Template</p>"));
     }
     
+    @Test
+    public void shouldReturnCachedBodyContentUntilTheMrrtReportTemplateFileIsModified() throws Exception {
+        
+        File tmpTemplateFile = temporaryFolder.newFile();
+        FileUtils.writeStringToFile(tmpTemplateFile,
+            "<html>" + "<head><title>Sample Template</title></head>" + "<body><p>Sample Template</p></body>" + "</html>");
+        long lastModified = tmpTemplateFile.lastModified();
+        MrrtReportTemplate mockTemplate = mock(MrrtReportTemplate.class);
+        when(mockTemplate.getUuid()).thenReturn("2e6b4b4a-5bd4-4d4a-8a4b-3b1c1e0f6d2a");
+        when(mockTemplate.getPath()).thenReturn(tmpTemplateFile.getAbsolutePath());
+        assertThat(mrrtReportTemplateService.getMrrtReportTemplateHtmlBody(mockTemplate), is("<p>Sample Template</p>"));
+        
+        FileUtils.writeStringToFile(tmpTemplateFile,
+            "<html>" + "<head><title>Sample Template</title></head>" + "<body><p>Changed Template</p></body>" + "</html>");
+        tmpTemplateFile.setLastModified(lastModified);
+        assertThat(mrrtReportTemplateService.getMrrtReportTemplateHtmlBody(mockTemplate), is("<p>Sample Template</p>"));
+        
+        tmpTemplateFile.setLastModified(lastModified + 2000);
+        assertThat(mrrtReportTemplateService.getMrrtReportTemplateHtmlBody(mockTemplate), is("<p>Changed Template</p>"));
+    }
+    
     @Test
     public void shouldThrowIllegalArgumentExceptionIfGivenNull() throws Exception {
         
@@ -17,6 +17,12 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.io.IOUtils;
 import org.junit.Rule;
@@ -25,6 +31,7 @@ import org.junit.rules.ExpectedException;
 import org.openmrs.api.APIException;
 import org.openmrs.test.BaseModuleContextSensitiveTest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.w3c.dom.Document;
 
 /**
  * Tests {@link MrrtReportTemplateValidator}.
@@ -84,6 +91,76 @@ public class MrrtReportTemplateValidatorComponentTest extends BaseModuleContextS
         validator.validate(templateContent);
     }
     
+    @Test
+    public void shouldReturnTheParsedTemplateGivenAValidTemplate() throws Exception {
+        
+        String templateContent = getFileContent("mrrttemplates/ihe/connectathon/2015/CTChestAbdomen.html");
+        
+        Document document = validator.validate(templateContent);
+        
+        assertThat(document.getDocumentElement()
+                .getTagName(),
+            is("html"));
+        assertThat(document.getElementsByTagName("meta")
+                .getLength(),
+            is(11));
+        assertThat(document.getElementsByTagName("term")
+                .getLength(),
+            is(3));
+    }
+    
+    @Test
+    public void shouldReturnTheParsedTemplateGivenAValidEncodedTemplate() throws Exception {
+        
+        byte[] templateContent = getFileContent("mrrttemplates/ihe/connectathon/2015/CTChestAbdomen.html")
+                .getBytes(StandardCharsets.UTF_8);
+        
+        Document document = validator.validate(templateContent, StandardCharsets.UTF_8);
+        
+        assertThat(document.getDocumentElement()
+                .getTagName(),
+            is("html"));
+        assertThat(document.getElementsByTagName("term")
+                .getLength(),
+            is(3));
+    }
+    
+    @Test
+    public void shouldFailIfTemplateDoctypeDeclaresAnEntity() throws Exception {
+        
+        String templateContent = getFileContent("mrrttemplates/ihe/connectathon/2015/CTChestAbdomen.html")
+                .replace("<!DOCTYPE html>", "<!DOCTYPE html [<!ENTITY xxe SYSTEM \"file:///etc/passwd\">]>")
+                .replace("<title>CT Chest-Abdomen</title>", "<title>&xxe;</title>");
+        
+        expectedException.expect(APIException.class);
+        validator.validate(templateContent);
+    }
+    
+    @Test
+    public void shouldDecodeTemplateWithGivenCharset() throws Exception {
+        
+        byte[] templateContent = getFileContent("mrrttemplates/ihe/connectathon/2015/CTChestAbdomen.html")
+                .getBytes(StandardCharsets.UTF_16);
+        
+        Document document = validator.validate(templateContent, StandardCharsets.UTF_16);
+        
+        assertThat(document.getElementsByTagName("title")
+                .item(0)
+                .getTextContent(),
+            is("CT Chest-Abdomen"));
+    }
+    
+    @Test
+    public void shouldFailIfEncodedTemplateIsInvalid() throws Exception {
+        
+        byte[] templateContent = getFileContent(
+            "mrrttemplates/ihe/connectathon/2015/invalidMrrtReportTemplate-noMetaElementWithCharsetAttribute.html")
+                    .getBytes(StandardCharsets.UTF_8);
+        
+        expectedException.expect(APIException.class);
+        validator.validate(templateContent, StandardCharsets.UTF_8);
+    }
+    
     @Test
     public void shouldFailIfTemplateDoesNotHaveAnHtmlElement() throws Exception {
         
@@ -311,4 +388,38 @@ public class MrrtReportTemplateValidatorComponentTest extends BaseModuleContextS
                 is(4));
         }
     }
+    
+    @Test
+    public void shouldValidateTemplatesConcurrently() throws Exception {
+        
+        final String validTemplate = getFileContent("mrrttemplates/ihe/connectathon/2015/CTChestAbdomen.html");
+        final String invalidTemplate =
+                getFileContent("mrrttemplates/ihe/connectathon/2015/invalidMrrtReportTemplate-noBodyElement.html");
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                final String template = i % 2 == 0 ? validTemplate : invalidTemplate;
+                results.add(executor.submit(() -> {
+                    try {
+                        validator.validate(template);
+                        return 0;
+                    }
+                    catch (MrrtReportTemplateValidationException e) {
+                        return e.getValidationResult()
+                                .getErrors()
+                                .size();
+                    }
+                }));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertThat(results.get(i)
+                        .get(),
+                    is(i % 2 == 0 ? 0 : 1));
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
 }
@@ -9,33 +9,58 @@
  */
 package org.openmrs.module.radiology.order.web.resource;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 import org.openmrs.api.context.Context;
+import org.openmrs.module.radiology.RadiologyPrivileges;
+import org.openmrs.module.radiology.dicom.code.PerformedProcedureStepStatus;
 import org.openmrs.module.radiology.order.RadiologyOrder;
+import org.openmrs.module.radiology.order.RadiologyOrderPlacementResult;
 import org.openmrs.module.radiology.order.RadiologyOrderService;
+import org.openmrs.module.radiology.order.RadiologyOrderWorklistItem;
+import org.openmrs.module.radiology.report.RadiologyReportService;
+import org.openmrs.module.radiology.report.RadiologyReportStatus;
+import org.openmrs.module.radiology.study.RadiologyStudy;
+import org.openmrs.module.webservices.rest.SimpleObject;
+import org.openmrs.module.webservices.rest.web.ConversionUtil;
 import org.openmrs.module.webservices.rest.web.RequestContext;
 import org.openmrs.module.webservices.rest.web.RestConstants;
 import org.openmrs.module.webservices.rest.web.annotation.PropertyGetter;
 import org.openmrs.module.webservices.rest.web.annotation.Resource;
 import org.openmrs.module.webservices.rest.web.representation.DefaultRepresentation;
 import org.openmrs.module.webservices.rest.web.representation.FullRepresentation;
+import org.openmrs.module.webservices.rest.web.representation.NamedRepresentation;
 import org.openmrs.module.webservices.rest.web.representation.Representation;
 import org.openmrs.module.webservices.rest.web.resource.impl.DataDelegatingCrudResource;
 import org.openmrs.module.webservices.rest.web.resource.impl.DelegatingResourceDescription;
+import org.openmrs.module.webservices.rest.web.response.ConversionException;
+import org.openmrs.module.webservices.rest.web.response.IllegalRequestException;
 import org.openmrs.module.webservices.rest.web.response.ResourceDoesNotSupportOperationException;
 import org.openmrs.module.webservices.rest.web.v1_0.resource.openmrs2_0.RestConstants2_0;
 
 /**
- * {@link Resource} for {@link RadiologyOrder}, supporting GET operations.
+ * {@link Resource} for {@link RadiologyOrder}, supporting GET operations and placing batches of radiology orders.
  */
 @Resource(name = RestConstants.VERSION_1 + "/radiologyorder", supportedClass = RadiologyOrder.class,
         supportedOpenmrsVersions = { "2.0.*" })
 public class RadiologyOrderResource extends DataDelegatingCrudResource<RadiologyOrder> {
     
     
+    /**
+     * Name of the representation holding only the properties a worklist displays.
+     * 
+     * @see org.openmrs.module.radiology.order.RadiologyOrderWorklistItem
+     */
+    public static final String WORKLIST_REPRESENTATION = "worklist";
+    
     /**
      * @see org.openmrs.module.webservices.rest.web.resource.impl.DelegatingCrudResource#getRepresentationDescription(org.openmrs.module.webservices.rest.web.representation.Representation)
      * @should return default representation given instance of defaultrepresentation
      * @should return full representation given instance of fullrepresentation
+     * @should return worklist representation given named representation worklist
      * @should return null for representation other then default or full
      */
     @Override
@@ -90,11 +115,77 @@ public class RadiologyOrderResource extends DataDelegatingCrudResource<Radiology
             description.addProperty("auditInfo");
             description.addSelfLink();
             return description;
+        } else if (isWorklistRepresentation(rep)) {
+            final DelegatingResourceDescription description = new DelegatingResourceDescription();
+            description.addProperty("uuid");
+            description.addProperty("accessionNumber");
+            description.addProperty("patientName");
+            description.addProperty("conceptName");
+            description.addProperty("urgency");
+            description.addProperty("effectiveStartDate");
+            description.addProperty("performedStatus");
+            description.addProperty("reportStatus");
+            return description;
         } else {
             return null;
         }
     }
     
+    /**
+     * Returns true if given representation is the worklist representation and false otherwise.
+     * 
+     * @param rep the representation
+     * @return true if given representation is the worklist representation and false otherwise
+     */
+    public static boolean isWorklistRepresentation(Representation rep) {
+        
+        return rep instanceof NamedRepresentation && WORKLIST_REPRESENTATION.equals(rep.getRepresentation());
+    }
+    
+    /**
+     * Converts given worklist item to the worklist representation of its radiology order.
+     * 
+     * @param worklistItem the worklist item to be converted
+     * @param reportStatus the status of the active radiology report of the radiology order or null if it has none
+     * @return the worklist representation of given worklist item
+     * @should convert given worklist item to worklist representation
+     */
+    public static SimpleObject asWorklistRepresentation(RadiologyOrderWorklistItem worklistItem,
+            RadiologyReportStatus reportStatus) {
+        
+        return new SimpleObject().add("uuid", worklistItem.getUuid())
+                .add("accessionNumber", worklistItem.getAccessionNumber())
+                .add("patientName", worklistItem.getPatientName())
+                .add("conceptName", worklistItem.getConceptName())
+                .add("urgency", worklistItem.getUrgency() == null ? null : worklistItem.getUrgency()
+                        .name())
+                .add("effectiveStartDate",
+                    ConversionUtil.convertToRepresentation(worklistItem.getEffectiveStartDate(), Representation.DEFAULT))
+                .add("performedStatus", worklistItem.getPerformedStatus() == null ? null : worklistItem.getPerformedStatus()
+                        .name())
+                .add("reportStatus", reportStatus == null ? null : reportStatus.name());
+    }
+    
+    /**
+     * @see org.openmrs.module.webservices.rest.web.resource.impl.BaseDelegatingResource#getCreatableProperties()
+     * @should return creatable properties of radiology order
+     */
+    @Override
+    public DelegatingResourceDescription getCreatableProperties() {
+        
+        final DelegatingResourceDescription description = new DelegatingResourceDescription();
+        description.addRequiredProperty("patient");
+        description.addRequiredProperty("concept");
+        description.addRequiredProperty("orderer");
+        description.addProperty("urgency");
+        description.addProperty("scheduledDate");
+        description.addProperty("instructions");
+        description.addProperty("orderReason");
+        description.addProperty("orderReasonNonCoded");
+        description.addProperty("commentToFulfiller");
+        return description;
+    }
+    
     /**
      * @see org.openmrs.module.webservices.rest.web.resource.impl.BaseDelegatingResource#getResourceVersion()
      * @should return supported resource version
@@ -136,6 +227,138 @@ public class RadiologyOrderResource extends DataDelegatingCrudResource<Radiology
         }
     }
     
+    /**
+     * Places a batch of radiology orders.
+     * <p>
+     * Expects the radiology orders as list of creatable properties under {@code radiologyOrders}. The result contains one
+     * entry per radiology order in the order they were given, holding the {@code uuid} and {@code accessionNumber} of a
+     * placed radiology order or the {@code error} why it could not be placed.
+     * </p>
+     * 
+     * @param batch the radiology orders to be placed
+     * @param context the request context
+     * @return the outcome of placing each radiology order of the batch
+     * @throws IllegalRequestException if batch contains no list of radiology orders
+     * @should return error for radiology orders which cannot be converted without aborting the batch
+     * @should throw illegal request exception if batch contains no list of radiology orders
+     */
+    @SuppressWarnings("unchecked")
+    public SimpleObject placeRadiologyOrders(SimpleObject batch, RequestContext context) {
+        
+        final Object items = batch.get("radiologyOrders");
+        if (!(items instanceof List)) {
+            throw new IllegalRequestException("radiologyOrders must be a list of radiology orders");
+        }
+        
+        final List<Object> radiologyOrderProperties = (List<Object>) items;
+        final List<SimpleObject> results = new ArrayList<SimpleObject>(radiologyOrderProperties.size());
+        final List<RadiologyOrder> radiologyOrders = new ArrayList<RadiologyOrder>(radiologyOrderProperties.size());
+        final List<Integer> radiologyOrderIndexes = new ArrayList<Integer>(radiologyOrderProperties.size());
+        for (int i = 0; i < radiologyOrderProperties.size(); i++) {
+            results.add(new SimpleObject().add("index", i));
+            try {
+                if (!(radiologyOrderProperties.get(i) instanceof Map)) {
+                    throw new ConversionException("radiology order must be an object");
+                }
+                final RadiologyOrder radiologyOrder = new RadiologyOrder();
+                radiologyOrder.setStudy(new RadiologyStudy());
+                setConvertedProperties(radiologyOrder, (Map<String, Object>) radiologyOrderProperties.get(i),
+                    getCreatableProperties(), true);
+                radiologyOrders.add(radiologyOrder);
+                radiologyOrderIndexes.add(i);
+            }
+            catch (ConversionException e) {
+                results.get(i)
+                        .add("error", e.getMessage());
+            }
+        }
+        
+        final List<RadiologyOrderPlacementResult> placementResults =
+                Context.getService(RadiologyOrderService.class)
+                        .placeRadiologyOrders(radiologyOrders);
+        for (int i = 0; i < placementResults.size(); i++) {
+            final RadiologyOrderPlacementResult placementResult = placementResults.get(i);
+            final SimpleObject result = results.get(radiologyOrderIndexes.get(i));
+            if (placementResult.isPlaced()) {
+                result.add("uuid", placementResult.getRadiologyOrder()
+                        .getUuid());
+                result.add("accessionNumber", placementResult.getRadiologyOrder()
+                        .getAccessionNumber());
+            } else {
+                result.add("error", placementResult.getError()
+                        .getMessage());
+            }
+        }
+        return new SimpleObject().add("results", results);
+    }
+    
+    /**
+     * Get the name of the patient of a {@link RadiologyOrder}.
+     * 
+     * @param radiologyOrder the radiology order of which the patient name shall be returned
+     * @return the full name of the patient of given radiology order
+     */
+    @PropertyGetter("patientName")
+    public String getPatientName(RadiologyOrder radiologyOrder) {
+        
+        return radiologyOrder.getPatient()
+                .getPersonName()
+                .getFullName();
+    }
+    
+    /**
+     * Get the name of the concept of a {@link RadiologyOrder}.
+     * 
+     * @param radiologyOrder the radiology order of which the concept name shall be returned
+     * @return the concept name of given radiology order or null if it has no concept
+     */
+    @PropertyGetter("conceptName")
+    public String getConceptName(RadiologyOrder radiologyOrder) {
+        
+        if (radiologyOrder.getConcept() == null) {
+            return null;
+        }
+        return radiologyOrder.getConcept()
+                .getName()
+                .getName();
+    }
+    
+    /**
+     * Get the performed status of the study of a {@link RadiologyOrder}.
+     * 
+     * @param radiologyOrder the radiology order of which the performed status shall be returned
+     * @return the performed status of the study of given radiology order or null if it has no study
+     */
+    @PropertyGetter("performedStatus")
+    public PerformedProcedureStepStatus getPerformedStatus(RadiologyOrder radiologyOrder) {
+        
+        if (radiologyOrder.getStudy() == null) {
+            return null;
+        }
+        return radiologyOrder.getStudy()
+                .getPerformedStatus();
+    }
+    
+    /**
+     * Get the status of the active radiology report of a {@link RadiologyOrder}.
+     * 
+     * @param radiologyOrder the radiology order of which the report status shall be returned
+     * @return the status of the active radiology report of given radiology order or null if it has none or the
+     *         authenticated user is not allowed to get radiology reports
+     * @should return the status of the active radiology report of given radiology order
+     * @should return null if the authenticated user is not allowed to get radiology reports
+     */
+    @PropertyGetter("reportStatus")
+    public RadiologyReportStatus getReportStatus(RadiologyOrder radiologyOrder) {
+        
+        if (!Context.hasPrivilege(RadiologyPrivileges.GET_RADIOLOGY_REPORTS)) {
+            return null;
+        }
+        return Context.getService(RadiologyReportService.class)
+                .getReportStatusByOrders(Collections.singleton(radiologyOrder))
+                .get(radiologyOrder);
+    }
+    
     /**
      * @see org.openmrs.module.webservices.rest.web.resource.impl.BaseDelegatingResource#newDelegate()
      * @should throw ResourceDoesNotSupportOperationException
@@ -9,17 +9,27 @@
  */
 package org.openmrs.module.radiology.order.web.search;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
 
 import org.apache.commons.lang3.StringUtils;
 import org.openmrs.Order.Urgency;
 import org.openmrs.Patient;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.radiology.RadiologyPrivileges;
 import org.openmrs.module.radiology.order.RadiologyOrder;
 import org.openmrs.module.radiology.order.RadiologyOrderSearchCriteria;
 import org.openmrs.module.radiology.order.RadiologyOrderService;
+import org.openmrs.module.radiology.order.RadiologyOrderWorklistItem;
+import org.openmrs.module.radiology.order.web.resource.RadiologyOrderResource;
+import org.openmrs.module.radiology.report.RadiologyReportService;
+import org.openmrs.module.radiology.report.RadiologyReportStatus;
 import org.openmrs.module.webservices.rest.web.ConversionUtil;
 import org.openmrs.module.webservices.rest.web.RequestContext;
 import org.openmrs.module.webservices.rest.web.RestConstants;
@@ -28,8 +38,8 @@ import org.openmrs.module.webservices.rest.web.resource.api.PageableResult;
 import org.openmrs.module.webservices.rest.web.resource.api.SearchConfig;
 import org.openmrs.module.webservices.rest.web.resource.api.SearchHandler;
 import org.openmrs.module.webservices.rest.web.resource.api.SearchQuery;
+import org.openmrs.module.webservices.rest.web.resource.impl.AlreadyPaged;
 import org.openmrs.module.webservices.rest.web.resource.impl.EmptySearchResult;
-import org.openmrs.module.webservices.rest.web.resource.impl.NeedsPaging;
 import org.openmrs.module.webservices.rest.web.response.ResponseException;
 import org.openmrs.module.webservices.rest.web.v1_0.resource.openmrs1_9.PatientResource1_9;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -54,13 +64,18 @@ public class RadiologyOrderSearchHandler implements SearchHandler {
     
     public static final String REQUEST_PARAM_TOTAL_COUNT = "totalCount";
     
+    public static final String REQUEST_PARAM_START_AFTER = "startAfter";
+    
     @Autowired
     RadiologyOrderService radiologyOrderService;
     
+    @Autowired
+    RadiologyReportService radiologyReportService;
+    
     SearchQuery searchQuery = new SearchQuery.Builder("Allows you to search for RadiologyOrder's by patient and urgency")
             .withOptionalParameters(REQUEST_PARAM_ACCESSION_NUMBER, REQUEST_PARAM_PATIENT,
                 REQUEST_PARAM_EFFECTIVE_START_DATE_FROM, REQUEST_PARAM_EFFECTIVE_START_DATE_TO, REQUEST_PARAM_URGENCY,
-                REQUEST_PARAM_TOTAL_COUNT)
+                REQUEST_PARAM_TOTAL_COUNT, REQUEST_PARAM_START_AFTER)
             .build();
     
     private final SearchConfig searchConfig =
@@ -91,58 +106,146 @@ public class RadiologyOrderSearchHandler implements SearchHandler {
      * @should throw illegal argument exception if urgency doesn't exist
      * @should return all radiology orders matching the search query and totalCount if
      *         requested
+     * @should return the page of radiology orders given start index and limit
+     * @should return radiology orders after the radiology order given as start after
+     * @should return empty search result if start after radiology order cannot be found
+     * @should return worklist representation of radiology orders given worklist representation
+     * @should return worklist representation without report status if user cannot get radiology reports
      */
     @Override
     public PageableResult search(RequestContext context) throws ResponseException {
         
-        final String patientUuid = context.getRequest()
-                .getParameter(REQUEST_PARAM_PATIENT);
+        final RadiologyOrderSearchCriteria.Builder radiologyOrderSearchCriteriaBuilder =
+                getRadiologyOrderSearchCriteriaBuilder(context.getRequest());
+        if (radiologyOrderSearchCriteriaBuilder == null) {
+            return new EmptySearchResult();
+        }
+        
+        // fetch one radiology order more than requested to know if there are more results without counting them
+        final RadiologyOrderSearchCriteria pageSearchCriteria =
+                radiologyOrderSearchCriteriaBuilder.withStartIndex(context.getStartIndex())
+                        .withLimit(context.getLimit() + 1)
+                        .build();
+        
+        if (RadiologyOrderResource.isWorklistRepresentation(context.getRepresentation())) {
+            final List<RadiologyOrderWorklistItem> result =
+                    radiologyOrderService.getRadiologyOrderWorklistItems(pageSearchCriteria);
+            if (result.isEmpty()) {
+                return new EmptySearchResult();
+            }
+            final boolean hasMoreResults = result.size() > context.getLimit();
+            final List<RadiologyOrderWorklistItem> page = hasMoreResults ? result.subList(0, context.getLimit()) : result;
+            return new RadiologyOrderWorklistResult(context, page, getReportStatusByOrderUuid(page), hasMoreResults,
+                    getTotalCount(context, radiologyOrderSearchCriteriaBuilder.build()));
+        }
+        
+        final List<RadiologyOrder> result = radiologyOrderService.getRadiologyOrders(pageSearchCriteria);
+        if (result.isEmpty()) {
+            return new EmptySearchResult();
+        }
+        final boolean hasMoreResults = result.size() > context.getLimit();
+        return new AlreadyPaged<RadiologyOrder>(context, hasMoreResults ? result.subList(0, context.getLimit()) : result,
+                hasMoreResults, getTotalCount(context, radiologyOrderSearchCriteriaBuilder.build()));
+    }
+    
+    /**
+     * Get the radiology order search criteria given by the parameters of given request.
+     * <p>
+     * Reused by all requests filtering radiology orders like the radiology order search and export.
+     * </p>
+     * 
+     * @param request the request holding the search parameters
+     * @return the builder of the search criteria or null if the patient or start after radiology order given by the
+     *         request cannot be found
+     * @throws IllegalArgumentException if urgency doesn't exist
+     */
+    public RadiologyOrderSearchCriteria.Builder getRadiologyOrderSearchCriteriaBuilder(HttpServletRequest request) {
+        
+        final String patientUuid = request.getParameter(REQUEST_PARAM_PATIENT);
         Patient patient = null;
         if (StringUtils.isNotBlank(patientUuid)) {
             patient = ((PatientResource1_9) Context.getService(RestService.class)
                     .getResourceBySupportedClass(Patient.class)).getByUniqueId(patientUuid);
             if (patient == null) {
-                return new EmptySearchResult();
+                return null;
             }
         }
         
-        final String fromEffectiveStartDateString = context.getRequest()
-                .getParameter(REQUEST_PARAM_EFFECTIVE_START_DATE_FROM);
+        final String fromEffectiveStartDateString = request.getParameter(REQUEST_PARAM_EFFECTIVE_START_DATE_FROM);
         Date fromEffectiveStartDate = null;
         if (StringUtils.isNotBlank(fromEffectiveStartDateString)) {
             fromEffectiveStartDate = (Date) ConversionUtil.convert(fromEffectiveStartDateString, java.util.Date.class);
         }
         
-        final String toEffectiveStartDateString = context.getRequest()
-                .getParameter(REQUEST_PARAM_EFFECTIVE_START_DATE_TO);
+        final String toEffectiveStartDateString = request.getParameter(REQUEST_PARAM_EFFECTIVE_START_DATE_TO);
         Date toEffectiveStartDate = null;
         if (StringUtils.isNotBlank(toEffectiveStartDateString)) {
             toEffectiveStartDate = (Date) ConversionUtil.convert(toEffectiveStartDateString, java.util.Date.class);
         }
         
-        final String urgencyString = context.getRequest()
-                .getParameter(REQUEST_PARAM_URGENCY);
+        final String urgencyString = request.getParameter(REQUEST_PARAM_URGENCY);
         Urgency urgency = null;
         if (StringUtils.isNotBlank(urgencyString)) {
             urgency = Urgency.valueOf(urgencyString);
         }
         
-        final String accessionNumber = context.getRequest()
-                .getParameter(REQUEST_PARAM_ACCESSION_NUMBER);
+        final String accessionNumber = request.getParameter(REQUEST_PARAM_ACCESSION_NUMBER);
         
-        final RadiologyOrderSearchCriteria radiologyOrderSearchCriteria =
-                new RadiologyOrderSearchCriteria.Builder().withAccessionNumber(accessionNumber)
-                        .withPatient(patient)
-                        .fromEffectiveStartDate(fromEffectiveStartDate)
-                        .toEffectiveStartDate(toEffectiveStartDate)
-                        .withUrgency(urgency)
-                        .build();
+        final String startAfterUuid = request.getParameter(REQUEST_PARAM_START_AFTER);
+        RadiologyOrder startAfter = null;
+        if (StringUtils.isNotBlank(startAfterUuid)) {
+            startAfter = radiologyOrderService.getRadiologyOrderByUuid(startAfterUuid);
+            if (startAfter == null) {
+                return null;
+            }
+        }
         
-        final List<RadiologyOrder> result = radiologyOrderService.getRadiologyOrders(radiologyOrderSearchCriteria);
+        return new RadiologyOrderSearchCriteria.Builder().withAccessionNumber(accessionNumber)
+                .withPatient(patient)
+                .fromEffectiveStartDate(fromEffectiveStartDate)
+                .toEffectiveStartDate(toEffectiveStartDate)
+                .withUrgency(urgency)
+                .startAfter(startAfter);
+    }
+    
+    /**
+     * Get the status of the active radiology report of the radiology orders of given worklist items if the authenticated
+     * user may get radiology reports.
+     * <p>
+     * Listing the worklist only requires the privilege to get radiology orders, users who cannot get radiology reports
+     * get the worklist without report status.
+     * </p>
+     * 
+     * @param worklistItems the worklist items
+     * @return the status of the active radiology report by radiology order uuid, empty if the user may not get radiology
+     *         reports
+     */
+    private Map<String, RadiologyReportStatus> getReportStatusByOrderUuid(List<RadiologyOrderWorklistItem> worklistItems) {
         
-        if (result.isEmpty()) {
-            return new EmptySearchResult();
+        if (!Context.hasPrivilege(RadiologyPrivileges.GET_RADIOLOGY_REPORTS)) {
+            return Collections.emptyMap();
+        }
+        // look up the report status of the whole page at once instead of order by order
+        final List<String> radiologyOrderUuids = new ArrayList<String>(worklistItems.size());
+        for (RadiologyOrderWorklistItem worklistItem : worklistItems) {
+            radiologyOrderUuids.add(worklistItem.getUuid());
+        }
+        return radiologyReportService.getReportStatusByOrderUuids(radiologyOrderUuids);
+    }
+    
+    /**
+     * Get the number of radiology orders matching given criteria if requested.
+     * 
+     * @param context the request context
+     * @param radiologyOrderSearchCriteria the search criteria
+     * @return the number of radiology orders matching given criteria if the total count is requested and null otherwise
+     */
+    private Long getTotalCount(RequestContext context, RadiologyOrderSearchCriteria radiologyOrderSearchCriteria) {
+        
+        if (Boolean.parseBoolean(context.getRequest()
+                .getParameter(REQUEST_PARAM_TOTAL_COUNT))) {
+            return radiologyOrderService.getCountOfRadiologyOrders(radiologyOrderSearchCriteria);
         }
-        return new NeedsPaging<RadiologyOrder>(result, context);
+        return null;
     }
 }
@@ -0,0 +1,90 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.radiology.order.web.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.openmrs.module.radiology.order.RadiologyOrderWorklistItem;
+import org.openmrs.module.radiology.order.web.resource.RadiologyOrderResource;
+import org.openmrs.module.radiology.report.RadiologyReportStatus;
+import org.openmrs.module.webservices.rest.SimpleObject;
+import org.openmrs.module.webservices.rest.web.RequestContext;
+import org.openmrs.module.webservices.rest.web.resource.api.Converter;
+import org.openmrs.module.webservices.rest.web.resource.api.PageableResult;
+import org.openmrs.module.webservices.rest.web.response.ResponseException;
+
+/**
+ * {@link PageableResult} of an already paged list of {@link RadiologyOrderWorklistItem}'s converted to the worklist
+ * representation of {@link RadiologyOrderResource}.
+ */
+class RadiologyOrderWorklistResult implements PageableResult {
+    
+    
+    private static final long serialVersionUID = 1L;
+    
+    private final RequestContext context;
+    
+    private final List<RadiologyOrderWorklistItem> worklistItems;
+    
+    private final Map<String, RadiologyReportStatus> reportStatusByOrderUuid;
+    
+    private final boolean hasMoreResults;
+    
+    private final Long totalCount;
+    
+    /**
+     * @param context the request context
+     * @param worklistItems the page of worklist items
+     * @param reportStatusByOrderUuid the status of the active radiology report by radiology order uuid
+     * @param hasMoreResults true if there are more worklist items after given page
+     * @param totalCount the number of all matching worklist items or null if not requested
+     */
+    RadiologyOrderWorklistResult(RequestContext context, List<RadiologyOrderWorklistItem> worklistItems,
+            Map<String, RadiologyReportStatus> reportStatusByOrderUuid, boolean hasMoreResults, Long totalCount) {
+        this.context = context;
+        this.worklistItems = worklistItems;
+        this.reportStatusByOrderUuid = reportStatusByOrderUuid;
+        this.hasMoreResults = hasMoreResults;
+        this.totalCount = totalCount;
+    }
+    
+    /**
+     * @see PageableResult#toSimpleObject(Converter)
+     */
+    @Override
+    public SimpleObject toSimpleObject(Converter preferredConverter) throws ResponseException {
+        
+        final List<SimpleObject> results = new ArrayList<SimpleObject>(worklistItems.size());
+        for (RadiologyOrderWorklistItem worklistItem : worklistItems) {
+            results.add(RadiologyOrderResource.asWorklistRepresentation(worklistItem,
+                reportStatusByOrderUuid.get(worklistItem.getUuid())));
+        }
+        
+        final SimpleObject result = new SimpleObject().add("results", results);
+        final List<SimpleObject> links = new ArrayList<SimpleObject>();
+        if (hasMoreResults) {
+            links.add(new SimpleObject().add("rel", "next")
+                    .add("uri", context.getNextLink()));
+        }
+        if (context.getStartIndex() > 0) {
+            links.add(new SimpleObject().add("rel", "prev")
+                    .add("uri", context.getPreviousLink()));
+        }
+        if (!links.isEmpty()) {
+            result.add("links", links);
+        }
+        if (totalCount != null) {
+            result.add("totalCount", totalCount);
+        }
+        return result;
+    }
+}
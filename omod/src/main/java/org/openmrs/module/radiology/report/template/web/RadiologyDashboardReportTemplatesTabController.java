@@ -11,14 +11,21 @@ package org.openmrs.module.radiology.report.template.web;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
 
-import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.openmrs.api.APIException;
 import org.openmrs.module.radiology.report.template.MrrtReportTemplate;
+import org.openmrs.module.radiology.report.template.MrrtReportTemplateImportResult;
 import org.openmrs.module.radiology.report.template.MrrtReportTemplateService;
 import org.openmrs.module.radiology.report.template.MrrtReportTemplateValidationException;
+import org.openmrs.module.radiology.report.template.ValidationError;
 import org.openmrs.module.radiology.web.RadiologyWebConstants;
 import org.openmrs.web.WebConstants;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -88,8 +95,8 @@ public class RadiologyDashboardReportTemplatesTabController {
         }
         
         try (InputStream in = templateFile.getInputStream()) {
-            String mrrtTemplate = IOUtils.toString(in);
-            mrrtReportTemplateService.importMrrtReportTemplate(mrrtTemplate);
+            // mrrt templates are required to be utf-8 encoded
+            mrrtReportTemplateService.importMrrtReportTemplate(in, StandardCharsets.UTF_8);
             request.getSession()
                     .setAttribute(WebConstants.OPENMRS_MSG_ATTR, "radiology.MrrtReportTemplate.imported");
         }
@@ -113,6 +120,74 @@ public class RadiologyDashboardReportTemplatesTabController {
         return modelAndView;
     }
     
+    /**
+     * Handle request for importing all {@code MrrtReportTemplate's} of a ZIP archive.
+     * 
+     * @param request the HttpServletRequest to import MrrtReportTemplates
+     * @param templateArchive the ZIP archive containing the MrrtReportTemplate files to be imported
+     * @return model and view of the radiology dashboard report templates page with success or failure message in session
+     *         attribute and the errors of the template files which could not be imported
+     * @should give error message when template archive is empty
+     * @should give success message when all template files were imported
+     * @should add errors of template files which could not be imported to model and give error message
+     * @should set error message in session when io exception is thrown
+     */
+    @RequestMapping(method = RequestMethod.POST, params = "uploadReportTemplateArchive")
+    protected ModelAndView uploadReportTemplateArchive(HttpServletRequest request,
+            @RequestParam MultipartFile templateArchive) {
+        
+        final ModelAndView modelAndView = new ModelAndView(RADIOLOGY_REPORT_TEMPLATES_TAB_VIEW);
+        
+        if (templateArchive.isEmpty()) {
+            request.getSession()
+                    .setAttribute(WebConstants.OPENMRS_ERROR_ATTR,
+                        "radiology.MrrtReportTemplate.archive.not.imported.empty");
+            return modelAndView;
+        }
+        
+        try (InputStream in = templateArchive.getInputStream()) {
+            final Map<String, String> importErrors = new LinkedHashMap<>();
+            for (MrrtReportTemplateImportResult importResult : mrrtReportTemplateService.importMrrtReportTemplates(in)) {
+                if (!importResult.isImported()) {
+                    importErrors.put(importResult.getFileName(), getImportErrorMessage(importResult.getError()));
+                }
+            }
+            if (importErrors.isEmpty()) {
+                request.getSession()
+                        .setAttribute(WebConstants.OPENMRS_MSG_ATTR, "radiology.MrrtReportTemplate.archive.imported");
+            } else {
+                modelAndView.addObject("mrrtReportTemplateImportErrors", importErrors);
+                request.getSession()
+                        .setAttribute(WebConstants.OPENMRS_ERROR_ATTR,
+                            "radiology.MrrtReportTemplate.archive.imported.partially");
+            }
+        }
+        catch (IOException | APIException exception) {
+            request.getSession()
+                    .setAttribute(WebConstants.OPENMRS_ERROR_ATTR,
+                        "Failed to import " + templateArchive.getOriginalFilename() + " => " + exception.getMessage());
+        }
+        
+        return modelAndView;
+    }
+    
+    /**
+     * Get the message describing why a template file could not be imported listing all violations of an invalid
+     * template.
+     */
+    private static String getImportErrorMessage(Exception error) {
+        
+        if (error instanceof MrrtReportTemplateValidationException) {
+            final List<String> violations = new ArrayList<>();
+            for (ValidationError validationError : ((MrrtReportTemplateValidationException) error).getValidationResult()
+                    .getErrors()) {
+                violations.add(validationError.getDescription());
+            }
+            return StringUtils.join(violations, "; ");
+        }
+        return error.getMessage();
+    }
+    
     /**
      * Handles request for deleting {@code MrrtReportTemplate}
      * 
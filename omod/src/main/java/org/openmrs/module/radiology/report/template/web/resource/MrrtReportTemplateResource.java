@@ -38,6 +38,7 @@ public class MrrtReportTemplateResource extends DataDelegatingCrudResource<MrrtR
     /**
      * @see org.openmrs.module.webservices.rest.web.resource.impl.DelegatingCrudResource#getRepresentationDescription(org.openmrs.module.webservices.rest.web.representation.Representation)
      * @should return default representation given instance of defaultrepresentation
+     * @should return default representation without terms given instance of defaultrepresentation
      * @should return full representation given instance of fullrepresentation
      * @should return null for representation other then default or full
      */
@@ -46,15 +47,12 @@ public class MrrtReportTemplateResource extends DataDelegatingCrudResource<MrrtR
         if (rep instanceof DefaultRepresentation) {
             final DelegatingResourceDescription description = new DelegatingResourceDescription();
             
+            // only the header of a template so that listing templates does not load their terms
             description.addProperty("uuid");
             description.addProperty("templateId");
             description.addProperty("dcTermsIdentifier");
             description.addProperty("dcTermsTitle");
-            description.addProperty("dcTermsType");
             description.addProperty("dcTermsPublisher");
-            description.addProperty("dcTermsCreator");
-            description.addProperty("dcTermsRights");
-            description.addProperty("terms", Representation.REF);
             description.addProperty("display");
             description.addSelfLink();
             description.addLink("full", ".?v=" + RestConstants.REPRESENTATION_FULL);
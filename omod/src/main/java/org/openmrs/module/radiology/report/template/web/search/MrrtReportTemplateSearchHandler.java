@@ -44,12 +44,17 @@ public class MrrtReportTemplateSearchHandler implements SearchHandler {
     
     public static final String REQUEST_PARAM_CREATOR = "creator";
     
+    public static final String REQUEST_PARAM_TERM_CODE = "termCode";
+    
+    public static final String REQUEST_PARAM_CONCEPT_SOURCE = "conceptSource";
+    
     @Autowired
     private MrrtReportTemplateService mrrtReportTemplateService;
     
     SearchQuery searchQuery = new SearchQuery.Builder("Allows you to search for MrrtReportTemplate's by title")
             .withOptionalParameters(new String[] { REQUEST_PARAM_TITLE, REQUEST_PARAM_PUBLISHER, REQUEST_PARAM_LICENSE,
-                    REQUEST_PARAM_CREATOR, REQUEST_PARAM_TOTAL_COUNT })
+                    REQUEST_PARAM_CREATOR, REQUEST_PARAM_TERM_CODE, REQUEST_PARAM_CONCEPT_SOURCE,
+                    REQUEST_PARAM_TOTAL_COUNT })
             .build();
     
     private final SearchConfig searchConfig = new SearchConfig("default", RestConstants.VERSION_1 + "/mrrtreporttemplate",
@@ -74,6 +79,8 @@ public class MrrtReportTemplateSearchHandler implements SearchHandler {
      * @should return empty search result if license does not exist
      * @should return all report templates that match given creator
      * @should return empty search result if creator does not exist
+     * @should return all report templates coded with a term of given code and concept source
+     * @should return empty search result if no report template is coded with a term of given code
      */
     @Override
     public PageableResult search(RequestContext context) throws ResponseException {
@@ -82,12 +89,16 @@ public class MrrtReportTemplateSearchHandler implements SearchHandler {
         final String publisher = context.getParameter("publisher");
         final String templateLicense = context.getParameter("license");
         final String templateCreator = context.getParameter("creator");
+        final String termCode = context.getParameter(REQUEST_PARAM_TERM_CODE);
+        final String conceptSource = context.getParameter(REQUEST_PARAM_CONCEPT_SOURCE);
         
         final MrrtReportTemplateSearchCriteria searchCriteria =
                 new MrrtReportTemplateSearchCriteria.Builder().withTitle(templateTitle)
                         .withPublisher(publisher)
                         .withLicense(templateLicense)
                         .withCreator(templateCreator)
+                        .withTermCode(termCode)
+                        .withConceptSource(conceptSource)
                         .build();
         
         final List<MrrtReportTemplate> result = mrrtReportTemplateService.getMrrtReportTemplates(searchCriteria);
@@ -50,6 +50,8 @@ public class RadiologyReportResource extends DataDelegatingCrudResource<Radiolog
         } else if (rep instanceof FullRepresentation) {
             final DelegatingResourceDescription description = new DelegatingResourceDescription();
             addDefaultProperties(description);
+            // the body is stored apart from the report, only load it if a single report is requested in full
+            description.addProperty("body");
             description.addProperty("auditInfo");
             description.addSelfLink();
             return description;
@@ -65,7 +67,6 @@ public class RadiologyReportResource extends DataDelegatingCrudResource<Radiolog
         description.addProperty("date");
         description.addProperty("principalResultsInterpreter", Representation.REF);
         description.addProperty("status");
-        description.addProperty("body");
         description.addProperty("display");
         description.addProperty("voided");
     }
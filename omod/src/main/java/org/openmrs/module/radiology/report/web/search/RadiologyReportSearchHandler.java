@@ -13,6 +13,8 @@ import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
+import javax.servlet.http.HttpServletRequest;
+
 import org.apache.commons.lang3.StringUtils;
 import org.openmrs.Provider;
 import org.openmrs.api.context.Context;
@@ -54,14 +56,16 @@ public class RadiologyReportSearchHandler implements SearchHandler {
     
     public static final String REQUEST_PARAM_TOTAL_COUNT = "totalCount";
     
+    public static final String REQUEST_PARAM_TEXT = "text";
+    
     @Autowired
     RadiologyReportService radiologyReportService;
     
     SearchQuery searchQuery = new SearchQuery.Builder(
-            "Allows you to search for RadiologyReport's by from date, to date and principal results interpreter")
+            "Allows you to search for RadiologyReport's by from date, to date, principal results interpreter and text")
                     .withOptionalParameters(RestConstants.REQUEST_PROPERTY_FOR_INCLUDE_ALL, REQUEST_PARAM_DATE_FROM,
                         REQUEST_PARAM_DATE_TO, REQUEST_PARAM_PRINCIPAL_RESULT_INTERPRETER, REQUEST_PARAM_STATUS,
-                        REQUEST_PARAM_TOTAL_COUNT)
+                        REQUEST_PARAM_TOTAL_COUNT, REQUEST_PARAM_TEXT)
                     .build();
     
     private final SearchConfig searchConfig =
@@ -91,58 +95,79 @@ public class RadiologyReportSearchHandler implements SearchHandler {
      * @should return empty search result if no report exists for given status
      * @should throw illegal argument exception if report status doesn't exist
      * @should return all radiology reports matching the search query and totalCount if requested
+     * @should return completed radiology reports whose body matches given text ranked by relevance
+     * @should return empty search result if no report body matches given text
      */
     @Override
     public PageableResult search(RequestContext context) throws ResponseException {
         
-        final String principalResultsInterpreterUuid = context.getRequest()
-                .getParameter(REQUEST_PARAM_PRINCIPAL_RESULT_INTERPRETER);
+        final RadiologyReportSearchCriteria.Builder radiologyReportSearchCriteriaBuilder =
+                getRadiologyReportSearchCriteriaBuilder(context.getRequest());
+        if (radiologyReportSearchCriteriaBuilder == null) {
+            return new EmptySearchResult();
+        }
+        if (context.getIncludeAll()) {
+            radiologyReportSearchCriteriaBuilder.includeVoided();
+        }
+        
+        final List<RadiologyReport> result =
+                radiologyReportService.getRadiologyReports(radiologyReportSearchCriteriaBuilder.build());
+        
+        if (result.isEmpty()) {
+            return new EmptySearchResult();
+        }
+        return new NeedsPaging<RadiologyReport>(result, context);
+    }
+    
+    /**
+     * Get the radiology report search criteria given by the parameters of given request.
+     * <p>
+     * Reused by all requests filtering radiology reports like the radiology report search and export. Voided radiology
+     * reports are excluded unless the caller includes them. Given a text only completed radiology reports whose body
+     * matches it are found, ranked by relevance.
+     * </p>
+     * 
+     * @param request the request holding the search parameters
+     * @return the builder of the search criteria or null if the principal results interpreter given by the request
+     *         cannot be found
+     * @throws IllegalArgumentException if report status doesn't exist
+     */
+    public RadiologyReportSearchCriteria.Builder getRadiologyReportSearchCriteriaBuilder(HttpServletRequest request) {
+        
+        final String principalResultsInterpreterUuid = request.getParameter(REQUEST_PARAM_PRINCIPAL_RESULT_INTERPRETER);
         Provider principalResultsInterpreter = null;
         if (StringUtils.isNotBlank(principalResultsInterpreterUuid)) {
             principalResultsInterpreter = ((ProviderResource1_9) Context.getService(RestService.class)
                     .getResourceBySupportedClass(Provider.class)).getByUniqueId(principalResultsInterpreterUuid);
             if (principalResultsInterpreter == null) {
-                return new EmptySearchResult();
+                return null;
             }
         }
         
-        final String fromDateString = context.getRequest()
-                .getParameter(REQUEST_PARAM_DATE_FROM);
+        final String fromDateString = request.getParameter(REQUEST_PARAM_DATE_FROM);
         Date fromDate = null;
         if (StringUtils.isNotBlank(fromDateString)) {
             fromDate = (Date) ConversionUtil.convert(fromDateString, java.util.Date.class);
         }
         
-        final String toDateString = context.getRequest()
-                .getParameter(REQUEST_PARAM_DATE_TO);
+        final String toDateString = request.getParameter(REQUEST_PARAM_DATE_TO);
         Date toDate = null;
         if (StringUtils.isNotBlank(toDateString)) {
             toDate = (Date) ConversionUtil.convert(toDateString, java.util.Date.class);
         }
         
-        final String statusString = context.getRequest()
-                .getParameter(REQUEST_PARAM_STATUS);
+        final String statusString = request.getParameter(REQUEST_PARAM_STATUS);
         RadiologyReportStatus status = null;
         if (StringUtils.isNotBlank(statusString)) {
             status = RadiologyReportStatus.valueOf(statusString);
         }
         
-        RadiologyReportSearchCriteria.Builder radiologyReportSearchCriteriaBuilder =
-                new RadiologyReportSearchCriteria.Builder();
-        if (context.getIncludeAll()) {
-            radiologyReportSearchCriteriaBuilder.includeVoided();
-        }
-        RadiologyReportSearchCriteria radiologyReportSearchCriteria = radiologyReportSearchCriteriaBuilder.fromDate(fromDate)
+        final String text = request.getParameter(REQUEST_PARAM_TEXT);
+        
+        return new RadiologyReportSearchCriteria.Builder().fromDate(fromDate)
                 .toDate(toDate)
                 .withPrincipalResultsInterpreter(principalResultsInterpreter)
                 .withStatus(status)
-                .build();
-        
-        final List<RadiologyReport> result = radiologyReportService.getRadiologyReports(radiologyReportSearchCriteria);
-        
-        if (result.isEmpty()) {
-            return new EmptySearchResult();
-        }
-        return new NeedsPaging<RadiologyReport>(result, context);
+                .withText(StringUtils.isNotBlank(text) ? text.trim() : null);
     }
 }
@@ -0,0 +1,221 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.radiology.web;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.openmrs.module.webservices.rest.web.response.IllegalRequestException;
+
+/**
+ * Writes the rows of an export one at a time either as newline delimited JSON or as CSV.
+ * <p>
+ * Rows are written to the underlying writer as soon as they are given so an export never holds more than one row in
+ * memory.
+ * </p>
+ */
+public class RadiologyExportWriter {
+    
+    
+    /**
+     * Formats of an export.
+     */
+    public enum Format {
+        
+        /**
+         * One JSON object per line keyed by column.
+         */
+        NDJSON("application/x-ndjson", "ndjson"),
+        
+        /**
+         * Comma separated values with a header line holding the columns.
+         */
+        CSV("text/csv", "csv");
+        
+        private final String contentType;
+        
+        private final String fileExtension;
+        
+        private Format(String contentType, String fileExtension) {
+            this.contentType = contentType;
+            this.fileExtension = fileExtension;
+        }
+        
+        /**
+         * @return the content type of an export in this format
+         */
+        public String getContentType() {
+            return contentType;
+        }
+        
+        /**
+         * @return the file extension of an export in this format
+         */
+        public String getFileExtension() {
+            return fileExtension;
+        }
+        
+        /**
+         * Get the format given as request parameter.
+         *
+         * @param format the name of the format or null
+         * @return the format with given case insensitive name or {@link #NDJSON} if given null or blank
+         * @throws IllegalRequestException if no format has given name
+         * @should return ndjson if given null or blank
+         * @should return format with given name ignoring case
+         * @should throw illegal request exception given unknown format
+         */
+        public static Format fromParameter(String format) {
+            
+            if (StringUtils.isBlank(format)) {
+                return NDJSON;
+            }
+            for (Format each : values()) {
+                if (each.name()
+                        .equalsIgnoreCase(format.trim())) {
+                    return each;
+                }
+            }
+            throw new IllegalRequestException("Unknown export format " + format);
+        }
+    }
+    
+    private static final String CSV_SEPARATOR = ",";
+    
+    private static final String LINE_SEPARATOR = "\n";
+    
+    private final Writer writer;
+    
+    private final Format format;
+    
+    private final List<String> columns;
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    /**
+     * Creates an export writer writing rows with given columns in given format.
+     *
+     * @param writer the writer the rows are written to
+     * @param format the format of the rows
+     * @param columns the names of the columns of each row
+     */
+    public RadiologyExportWriter(Writer writer, Format format, List<String> columns) {
+        this.writer = writer;
+        this.format = format;
+        this.columns = columns;
+    }
+    
+    /**
+     * Writes the header line holding the columns if the format has one.
+     *
+     * @throws UncheckedIOException if the header cannot be written
+     * @should write columns as header given csv
+     * @should write nothing given ndjson
+     */
+    public void writeHeader() {
+        
+        if (format == Format.CSV) {
+            writeCsvLine(columns.toArray());
+        }
+    }
+    
+    /**
+     * Writes a row holding given values in the order of the columns.
+     * <p>
+     * Values are expected to be strings, numbers, booleans or null, they are written as is.
+     * </p>
+     *
+     * @param values the values of the row
+     * @throws IllegalArgumentException if the number of values does not match the number of columns
+     * @throws UncheckedIOException if the row cannot be written
+     * @should write row as json object on a single line given ndjson
+     * @should write row as comma separated values quoting values where needed given csv
+     * @should throw illegal argument exception if number of values does not match number of columns
+     */
+    public void writeRow(Object... values) {
+        
+        if (values.length != columns.size()) {
+            throw new IllegalArgumentException(
+                    "expected " + columns.size() + " values but got " + values.length + " values");
+        }
+        if (format == Format.CSV) {
+            writeCsvLine(values);
+        } else {
+            writeJsonLine(values);
+        }
+    }
+    
+    /**
+     * Flushes the rows written so far to the underlying writer.
+     *
+     * @throws UncheckedIOException if the rows cannot be flushed
+     */
+    public void flush() {
+        
+        try {
+            writer.flush();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private void writeJsonLine(Object[] values) {
+        
+        final Map<String, Object> row = new LinkedHashMap<String, Object>(columns.size());
+        for (int i = 0; i < values.length; i++) {
+            row.put(columns.get(i), values[i]);
+        }
+        try {
+            writer.write(objectMapper.writeValueAsString(row));
+            writer.write(LINE_SEPARATOR);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private void writeCsvLine(Object[] values) {
+        
+        try {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(CSV_SEPARATOR);
+                }
+                writer.write(toCsvValue(values[i]));
+            }
+            writer.write(LINE_SEPARATOR);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * Quotes given value if it contains a separator, a quote or a line break as defined by RFC 4180.
+     */
+    private static String toCsvValue(Object value) {
+        
+        if (value == null) {
+            return "";
+        }
+        final String result = String.valueOf(value);
+        if (StringUtils.containsAny(result, ',', '"', '\r', '\n')) {
+            return "\"" + result.replace("\"", "\"\"") + "\"";
+        }
+        return result;
+    }
+}
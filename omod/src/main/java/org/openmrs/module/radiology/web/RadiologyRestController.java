@@ -9,10 +9,40 @@
  */
 package org.openmrs.module.radiology.web;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.openmrs.Provider;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.radiology.order.RadiologyOrder;
+import org.openmrs.module.radiology.order.RadiologyOrderSearchCriteria;
+import org.openmrs.module.radiology.order.RadiologyOrderService;
+import org.openmrs.module.radiology.order.RadiologyOrderWorklistItem;
+import org.openmrs.module.radiology.order.web.resource.RadiologyOrderResource;
+import org.openmrs.module.radiology.order.web.search.RadiologyOrderSearchHandler;
+import org.openmrs.module.radiology.report.RadiologyReport;
+import org.openmrs.module.radiology.report.RadiologyReportSearchCriteria;
+import org.openmrs.module.radiology.report.RadiologyReportService;
+import org.openmrs.module.radiology.report.web.search.RadiologyReportSearchHandler;
+import org.openmrs.module.webservices.rest.SimpleObject;
+import org.openmrs.module.webservices.rest.web.ConversionUtil;
 import org.openmrs.module.webservices.rest.web.RestConstants;
+import org.openmrs.module.webservices.rest.web.RestUtil;
+import org.openmrs.module.webservices.rest.web.api.RestService;
+import org.openmrs.module.webservices.rest.web.representation.Representation;
 import org.openmrs.module.webservices.rest.web.v1_0.controller.MainResourceController;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
 
 /**
  * Controller for Radiology Rest Services.
@@ -24,6 +54,27 @@ public class RadiologyRestController extends MainResourceController {
     
     public static final String RADIOLOGY_REST_NAMESPACE = "/radiology";
     
+    public static final String REQUEST_PARAM_EXPORT_FORMAT = "format";
+    
+    private static final List<String> RADIOLOGY_ORDER_EXPORT_COLUMNS =
+            Arrays.asList("uuid", "accessionNumber", "patientUuid", "patientName", "conceptUuid", "conceptName", "urgency",
+                "effectiveStartDate", "performedStatus");
+    
+    private static final List<String> RADIOLOGY_REPORT_EXPORT_COLUMNS = Arrays.asList("uuid", "radiologyOrderUuid",
+        "accessionNumber", "status", "date", "principalResultsInterpreterUuid", "voided");
+    
+    @Autowired
+    private RadiologyOrderService radiologyOrderService;
+    
+    @Autowired
+    private RadiologyReportService radiologyReportService;
+    
+    @Autowired
+    private RadiologyOrderSearchHandler radiologyOrderSearchHandler;
+    
+    @Autowired
+    private RadiologyReportSearchHandler radiologyReportSearchHandler;
+    
     /**
      * @see org.openmrs.module.webservices.rest.web.v1_0.controller.BaseRestController#getNamespace()
      */
@@ -31,4 +82,143 @@ public class RadiologyRestController extends MainResourceController {
     public String getNamespace() {
         return RestConstants.VERSION_1 + RADIOLOGY_REST_NAMESPACE;
     }
+    
+    /**
+     * Places a batch of radiology orders.
+     * 
+     * @param batch the radiology orders to be placed
+     * @param request the http request
+     * @param response the http response
+     * @return the outcome of placing each radiology order of the batch
+     * @see RadiologyOrderResource#placeRadiologyOrders(SimpleObject, org.openmrs.module.webservices.rest.web.RequestContext)
+     */
+    @RequestMapping(value = "/radiologyorder/batch", method = RequestMethod.POST)
+    @ResponseBody
+    public SimpleObject placeRadiologyOrders(@RequestBody SimpleObject batch, HttpServletRequest request,
+            HttpServletResponse response) {
+        
+        final RadiologyOrderResource radiologyOrderResource = (RadiologyOrderResource) Context.getService(RestService.class)
+                .getResourceBySupportedClass(RadiologyOrder.class);
+        return radiologyOrderResource.placeRadiologyOrders(batch, RestUtil.getRequestContext(request, response));
+    }
+    
+    /**
+     * Exports the radiology orders matching the parameters of the radiology order search.
+     * <p>
+     * Radiology orders are streamed from the database and written to the response as they are read, so exports of any
+     * size use the same amount of memory. Each row holds the columns of the worklist representation of a radiology order.
+     * The export is written as newline delimited JSON unless the parameter {@value #REQUEST_PARAM_EXPORT_FORMAT} is csv.
+     * </p>
+     * 
+     * @param request the http request holding the search parameters
+     * @param response the http response the export is written to
+     * @throws IOException if the export cannot be written
+     * @see RadiologyOrderSearchHandler#getRadiologyOrderSearchCriteriaBuilder(HttpServletRequest)
+     */
+    @RequestMapping(value = "/radiologyorder/export", method = RequestMethod.GET)
+    public void exportRadiologyOrders(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        
+        final RadiologyExportWriter.Format format =
+                RadiologyExportWriter.Format.fromParameter(request.getParameter(REQUEST_PARAM_EXPORT_FORMAT));
+        final RadiologyOrderSearchCriteria.Builder radiologyOrderSearchCriteriaBuilder =
+                radiologyOrderSearchHandler.getRadiologyOrderSearchCriteriaBuilder(request);
+        
+        final RadiologyExportWriter exportWriter =
+                startExport(response, format, "radiologyorders", RADIOLOGY_ORDER_EXPORT_COLUMNS);
+        try {
+            if (radiologyOrderSearchCriteriaBuilder != null) {
+                radiologyOrderService.exportRadiologyOrderWorklistItems(radiologyOrderSearchCriteriaBuilder.build(),
+                    worklistItem -> writeRadiologyOrder(exportWriter, worklistItem));
+            }
+            exportWriter.flush();
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+    
+    /**
+     * Exports the radiology reports matching the parameters of the radiology report search.
+     * <p>
+     * Radiology reports are streamed from the database and written to the response as they are read, so exports of any
+     * size use the same amount of memory. Voided radiology reports are only exported if the parameter includeAll is true.
+     * The export is written as newline delimited JSON unless the parameter {@value #REQUEST_PARAM_EXPORT_FORMAT} is csv.
+     * </p>
+     * 
+     * @param request the http request holding the search parameters
+     * @param response the http response the export is written to
+     * @throws IOException if the export cannot be written
+     * @see RadiologyReportSearchHandler#getRadiologyReportSearchCriteriaBuilder(HttpServletRequest)
+     */
+    @RequestMapping(value = "/radiologyreport/export", method = RequestMethod.GET)
+    public void exportRadiologyReports(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        
+        final RadiologyExportWriter.Format format =
+                RadiologyExportWriter.Format.fromParameter(request.getParameter(REQUEST_PARAM_EXPORT_FORMAT));
+        final RadiologyReportSearchCriteria.Builder radiologyReportSearchCriteriaBuilder =
+                radiologyReportSearchHandler.getRadiologyReportSearchCriteriaBuilder(request);
+        if (radiologyReportSearchCriteriaBuilder != null
+                && Boolean.parseBoolean(request.getParameter(RestConstants.REQUEST_PROPERTY_FOR_INCLUDE_ALL))) {
+            radiologyReportSearchCriteriaBuilder.includeVoided();
+        }
+        
+        final RadiologyExportWriter exportWriter =
+                startExport(response, format, "radiologyreports", RADIOLOGY_REPORT_EXPORT_COLUMNS);
+        try {
+            if (radiologyReportSearchCriteriaBuilder != null) {
+                radiologyReportService.exportRadiologyReports(radiologyReportSearchCriteriaBuilder.build(),
+                    radiologyReport -> writeRadiologyReport(exportWriter, radiologyReport));
+            }
+            exportWriter.flush();
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+    
+    /**
+     * Prepares given response for an export and writes the header of the export.
+     * 
+     * @param response the http response the export is written to
+     * @param format the format of the export
+     * @param fileName the name of the exported file without extension
+     * @param columns the columns of the export
+     * @return the writer of the export rows
+     * @throws IOException if the writer of the response cannot be obtained
+     */
+    private RadiologyExportWriter startExport(HttpServletResponse response, RadiologyExportWriter.Format format,
+            String fileName, List<String> columns) throws IOException {
+        
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setContentType(format.getContentType());
+        response.setHeader("Content-Disposition",
+            "attachment; filename=\"" + fileName + "." + format.getFileExtension() + "\"");
+        final RadiologyExportWriter result = new RadiologyExportWriter(response.getWriter(), format, columns);
+        result.writeHeader();
+        return result;
+    }
+    
+    private static void writeRadiologyOrder(RadiologyExportWriter exportWriter, RadiologyOrderWorklistItem worklistItem) {
+        
+        exportWriter.writeRow(worklistItem.getUuid(), worklistItem.getAccessionNumber(), worklistItem.getPatientUuid(),
+            worklistItem.getPatientName(), worklistItem.getConceptUuid(), worklistItem.getConceptName(),
+            nameOf(worklistItem.getUrgency()),
+            ConversionUtil.convertToRepresentation(worklistItem.getEffectiveStartDate(), Representation.DEFAULT),
+            nameOf(worklistItem.getPerformedStatus()));
+    }
+    
+    private static void writeRadiologyReport(RadiologyExportWriter exportWriter, RadiologyReport radiologyReport) {
+        
+        final RadiologyOrder radiologyOrder = radiologyReport.getRadiologyOrder();
+        final Provider principalResultsInterpreter = radiologyReport.getPrincipalResultsInterpreter();
+        exportWriter.writeRow(radiologyReport.getUuid(), radiologyOrder.getUuid(), radiologyOrder.getAccessionNumber(),
+            nameOf(radiologyReport.getStatus()),
+            ConversionUtil.convertToRepresentation(radiologyReport.getDate(), Representation.DEFAULT),
+            principalResultsInterpreter == null ? null : principalResultsInterpreter.getUuid(),
+            radiologyReport.getVoided());
+    }
+    
+    private static String nameOf(Enum<?> value) {
+        return value == null ? null : value.name();
+    }
 }
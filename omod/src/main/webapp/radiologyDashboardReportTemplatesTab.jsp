@@ -36,7 +36,8 @@
                                           return {
                                             startIndex: data.start,
                                             limit: data.length,
-                                            v: "full",
+                                            v: "custom:(uuid,templateId,dcTermsTitle,dcTermsCreator,"
+                                                    + "dcTermsPublisher,dcTermsRights,dcTermsDescription)",
                                             title: templateTitle.val(),
                                             totalCount: true,
                                           };
@@ -198,6 +199,18 @@
     </div>
 </c:if>
 
+<c:if test="${not empty mrrtReportTemplateImportErrors}" >
+    </br>
+    <div class="error">
+        <spring:message code="radiology.report.template.import.error.list.header" />
+        <ul>
+        <c:forEach items="${mrrtReportTemplateImportErrors}" var="importError">
+            <li><c:out value="${importError.key}" />: <c:out value="${importError.value}" /></li>
+        </c:forEach>
+        </ul>
+    </div>
+</c:if>
+
 <openmrs:hasPrivilege privilege="View Radiology Report Templates">
   <div id="radiologyReportTemplates">
     <br />
@@ -213,6 +226,14 @@
               <input type="file" name="templateFile" size="40" /> <input type="submit" name="uploadReportTemplate"
                 value='<openmrs:message code="radiology.reportTemplates.import.popup.upload"/>' />
             </form>
+            <br />
+            <form id="templateArchiveAddForm" action="radiologyDashboardReportTemplatesTab.htm" method="post"
+              enctype="multipart/form-data">
+              <openmrs:message code="radiology.reportTemplates.import.popup.archive" />
+              <input type="file" name="templateArchive" accept=".zip" size="40" /> <input type="submit"
+                name="uploadReportTemplateArchive"
+                value='<openmrs:message code="radiology.reportTemplates.import.popup.upload"/>' />
+            </form>
           </div>
           <br />
         </div>
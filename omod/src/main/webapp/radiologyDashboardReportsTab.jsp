@@ -99,7 +99,8 @@
                                           return {
                                             startIndex: data.start,
                                             limit: data.length,
-                                            v: "full",
+                                            // only what is listed, the full representation would load every report body
+                                            v: "custom:(uuid,radiologyOrder:ref,principalResultsInterpreter:ref,date,status,voided,auditInfo)",
                                             fromdate: fromDate.val() === ""
                                                     ? ""
                                                     : moment(fromDate.val(),
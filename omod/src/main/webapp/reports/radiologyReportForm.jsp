@@ -100,6 +100,7 @@
         <%-- if you delete for example the dateCreated it will change on every update of the RadiologyReport  --%>
         <form:hidden path="radiologyOrder" />
         <form:hidden path="uuid" />
+        <form:hidden path="version" />
         <form:hidden path="date" />
         <form:hidden path="status" />
         <form:hidden path="creator" />
@@ -13,9 +13,15 @@ import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsNull.nullValue;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Set;
 
@@ -25,9 +31,17 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.openmrs.Concept;
 import org.openmrs.ConceptName;
+import org.openmrs.Order.Urgency;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.radiology.RadiologyPrivileges;
+import org.openmrs.module.radiology.dicom.code.PerformedProcedureStepStatus;
 import org.openmrs.module.radiology.order.RadiologyOrder;
+import org.openmrs.module.radiology.order.RadiologyOrderPlacementResult;
 import org.openmrs.module.radiology.order.RadiologyOrderService;
+import org.openmrs.module.radiology.order.RadiologyOrderWorklistItem;
+import org.openmrs.module.radiology.report.RadiologyReportService;
+import org.openmrs.module.radiology.report.RadiologyReportStatus;
+import org.openmrs.module.webservices.rest.SimpleObject;
 import org.openmrs.module.webservices.rest.web.RequestContext;
 import org.openmrs.module.webservices.rest.web.RestUtil;
 import org.openmrs.module.webservices.rest.web.representation.CustomRepresentation;
@@ -37,6 +51,7 @@ import org.openmrs.module.webservices.rest.web.representation.NamedRepresentatio
 import org.openmrs.module.webservices.rest.web.representation.RefRepresentation;
 import org.openmrs.module.webservices.rest.web.representation.Representation;
 import org.openmrs.module.webservices.rest.web.resource.impl.DelegatingResourceDescription;
+import org.openmrs.module.webservices.rest.web.response.IllegalRequestException;
 import org.openmrs.module.webservices.rest.web.response.ResourceDoesNotSupportOperationException;
 import org.openmrs.module.webservices.rest.web.v1_0.resource.openmrs2_0.RestConstants2_0;
 import org.openmrs.util.LocaleUtility;
@@ -57,6 +72,9 @@ public class RadiologyOrderResourceTest {
     @Mock
     RadiologyOrderService radiologyOrderService;
     
+    @Mock
+    RadiologyReportService radiologyReportService;
+    
     RadiologyOrderResource radiologyOrderResource = new RadiologyOrderResource();
     
     RadiologyOrder radiologyOrder = new RadiologyOrder();
@@ -78,6 +96,7 @@ public class RadiologyOrderResourceTest {
         
         PowerMockito.mockStatic(Context.class);
         when(Context.getService(RadiologyOrderService.class)).thenReturn(radiologyOrderService);
+        when(Context.getService(RadiologyReportService.class)).thenReturn(radiologyReportService);
         when(radiologyOrderService.getRadiologyOrderByUuid(RADIOLOGY_ORDER_UUID)).thenReturn(radiologyOrder);
     }
     
@@ -166,6 +185,73 @@ public class RadiologyOrderResourceTest {
             is(Representation.REF));
     }
     
+    @Test
+    public void shouldReturnWorklistRepresentationGivenNamedRepresentationWorklist() throws Exception {
+        
+        NamedRepresentation worklistRepresentation =
+                new NamedRepresentation(RadiologyOrderResource.WORKLIST_REPRESENTATION);
+        
+        DelegatingResourceDescription resourceDescription =
+                radiologyOrderResource.getRepresentationDescription(worklistRepresentation);
+        assertThat(resourceDescription.getProperties()
+                .keySet(),
+            contains("uuid", "accessionNumber", "patientName", "conceptName", "urgency", "effectiveStartDate",
+                "performedStatus", "reportStatus"));
+    }
+    
+    /**
+     * @see RadiologyOrderResource#asWorklistRepresentation(RadiologyOrderWorklistItem, RadiologyReportStatus)
+     */
+    @Test
+    public void shouldConvertGivenWorklistItemToWorklistRepresentation() throws Exception {
+        
+        RadiologyOrderWorklistItem worklistItem = mock(RadiologyOrderWorklistItem.class);
+        when(worklistItem.getUuid()).thenReturn(RADIOLOGY_ORDER_UUID);
+        when(worklistItem.getAccessionNumber()).thenReturn("1");
+        when(worklistItem.getPatientName()).thenReturn("John Francis Doe");
+        when(worklistItem.getConceptName()).thenReturn("FRACTURE");
+        when(worklistItem.getUrgency()).thenReturn(Urgency.STAT);
+        when(worklistItem.getPerformedStatus()).thenReturn(PerformedProcedureStepStatus.IN_PROGRESS);
+        
+        SimpleObject result = RadiologyOrderResource.asWorklistRepresentation(worklistItem, RadiologyReportStatus.DRAFT);
+        
+        assertThat(result.keySet(), contains("uuid", "accessionNumber", "patientName", "conceptName", "urgency",
+            "effectiveStartDate", "performedStatus", "reportStatus"));
+        assertThat((String) result.get("uuid"), is(RADIOLOGY_ORDER_UUID));
+        assertThat((String) result.get("accessionNumber"), is("1"));
+        assertThat((String) result.get("patientName"), is("John Francis Doe"));
+        assertThat((String) result.get("conceptName"), is("FRACTURE"));
+        assertThat((String) result.get("urgency"), is("STAT"));
+        assertThat(result.get("effectiveStartDate"), is(nullValue()));
+        assertThat((String) result.get("performedStatus"), is("IN_PROGRESS"));
+        assertThat((String) result.get("reportStatus"), is("DRAFT"));
+    }
+    
+    /**
+     * @see RadiologyOrderResource#getReportStatus(RadiologyOrder)
+     */
+    @Test
+    public void shouldReturnTheStatusOfTheActiveRadiologyReportOfGivenRadiologyOrder() throws Exception {
+        
+        when(Context.hasPrivilege(RadiologyPrivileges.GET_RADIOLOGY_REPORTS)).thenReturn(true);
+        when(radiologyReportService.getReportStatusByOrders(Collections.singleton(radiologyOrder)))
+                .thenReturn(Collections.singletonMap(radiologyOrder, RadiologyReportStatus.COMPLETED));
+        
+        assertThat(radiologyOrderResource.getReportStatus(radiologyOrder), is(RadiologyReportStatus.COMPLETED));
+    }
+    
+    /**
+     * @see RadiologyOrderResource#getReportStatus(RadiologyOrder)
+     */
+    @Test
+    public void shouldReturnNullIfTheAuthenticatedUserIsNotAllowedToGetRadiologyReports() throws Exception {
+        
+        when(Context.hasPrivilege(RadiologyPrivileges.GET_RADIOLOGY_REPORTS)).thenReturn(false);
+        
+        assertThat(radiologyOrderResource.getReportStatus(radiologyOrder), is(nullValue()));
+        verifyZeroInteractions(radiologyReportService);
+    }
+    
     @Test
     public void shouldReturnNullForRepresentationOtherThenDefaultOrFull() throws Exception {
         
@@ -184,6 +270,67 @@ public class RadiologyOrderResourceTest {
         assertThat(radiologyOrderResource.getRepresentationDescription(refRepresentation), is(nullValue()));
     }
     
+    /**
+     * @see RadiologyOrderResource#getCreatableProperties()
+     */
+    @Test
+    public void shouldReturnCreatablePropertiesOfRadiologyOrder() throws Exception {
+        
+        DelegatingResourceDescription resourceDescription = radiologyOrderResource.getCreatableProperties();
+        assertThat(resourceDescription.getProperties()
+                .keySet(),
+            contains("patient", "concept", "orderer", "urgency", "scheduledDate", "instructions", "orderReason",
+                "orderReasonNonCoded", "commentToFulfiller"));
+        assertThat(resourceDescription.getProperties()
+                .get("patient")
+                .isRequired(),
+            is(true));
+        assertThat(resourceDescription.getProperties()
+                .get("concept")
+                .isRequired(),
+            is(true));
+        assertThat(resourceDescription.getProperties()
+                .get("orderer")
+                .isRequired(),
+            is(true));
+        assertThat(resourceDescription.getProperties()
+                .get("urgency")
+                .isRequired(),
+            is(false));
+    }
+    
+    /**
+     * @see RadiologyOrderResource#placeRadiologyOrders(SimpleObject, RequestContext)
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldReturnErrorForRadiologyOrdersWhichCannotBeConvertedWithoutAbortingTheBatch() throws Exception {
+        
+        when(radiologyOrderService.placeRadiologyOrders(new ArrayList<RadiologyOrder>()))
+                .thenReturn(new ArrayList<RadiologyOrderPlacementResult>());
+        SimpleObject batch = new SimpleObject().add("radiologyOrders", Arrays.asList("not a radiology order"));
+        
+        SimpleObject result = radiologyOrderResource.placeRadiologyOrders(batch, new RequestContext());
+        
+        List<SimpleObject> results = (List<SimpleObject>) result.get("results");
+        assertThat(results.size(), is(1));
+        assertThat((Integer) results.get(0)
+                .get("index"),
+            is(0));
+        assertThat((String) results.get(0)
+                .get("error"),
+            is("radiology order must be an object"));
+    }
+    
+    /**
+     * @see RadiologyOrderResource#placeRadiologyOrders(SimpleObject, RequestContext)
+     */
+    @Test(expected = IllegalRequestException.class)
+    public void shouldThrowIllegalRequestExceptionIfBatchContainsNoListOfRadiologyOrders() throws Exception {
+        
+        radiologyOrderResource.placeRadiologyOrders(new SimpleObject(), new RequestContext());
+    }
+    
     /**
      * @see RadiologyOrderResource#getResourceVersion()
      */
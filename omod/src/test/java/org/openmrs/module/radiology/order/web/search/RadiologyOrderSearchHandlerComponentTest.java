@@ -25,15 +25,19 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.openmrs.Order.Urgency;
 import org.openmrs.api.PatientService;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.radiology.RadiologyPrivileges;
 import org.openmrs.module.radiology.order.RadiologyOrder;
 import org.openmrs.module.radiology.order.RadiologyOrderSearchCriteria;
 import org.openmrs.module.radiology.order.RadiologyOrderService;
+import org.openmrs.module.radiology.order.web.resource.RadiologyOrderResource;
 import org.openmrs.module.webservices.rest.SimpleObject;
 import org.openmrs.module.webservices.rest.test.Util;
 import org.openmrs.module.webservices.rest.web.RequestContext;
 import org.openmrs.module.webservices.rest.web.representation.Representation;
 import org.openmrs.module.webservices.rest.web.response.ResourceDoesNotSupportOperationException;
 import org.openmrs.module.webservices.rest.web.v1_0.controller.MainResourceControllerTest;
+import org.openmrs.util.PrivilegeConstants;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.web.bind.annotation.RequestMethod;
@@ -66,6 +70,8 @@ public class RadiologyOrderSearchHandlerComponentTest extends MainResourceContro
     
     private static final String RADIOLOGY_ORDER_UUID = "1bae735a-fca0-11e5-9e59-08002719a237";
     
+    private static final String UNKNOWN_RADIOLOGY_ORDER = "99999999-fca0-11e5-9e59-08002719a237";
+    
     @Autowired
     PatientService patientService;
     
@@ -465,4 +471,126 @@ public class RadiologyOrderSearchHandlerComponentTest extends MainResourceContro
         assertNotNull(resultPatientAndUrgencyWithTwoOrders);
         assertThat(PropertyUtils.getProperty(resultPatientAndUrgencyWithTwoOrders, "totalCount"), is(2));
     }
+    
+    /**
+     * @see RadiologyOrderSearchHandler#search(RequestContext)
+     */
+    @Test
+    public void shouldReturnThePageOfRadiologyOrdersGivenStartIndexAndLimit() throws Exception {
+        
+        MockHttpServletRequest requestFirstPage = request(RequestMethod.GET, getURI());
+        requestFirstPage.setParameter(RadiologyOrderSearchHandler.REQUEST_PARAM_PATIENT, PATIENT_WITH_TWO_ORDERS);
+        requestFirstPage.setParameter("limit", "1");
+        requestFirstPage.setParameter(RadiologyOrderSearchHandler.REQUEST_PARAM_TOTAL_COUNT, "true");
+        
+        SimpleObject resultFirstPage = deserialize(handle(requestFirstPage));
+        
+        List<Object> hits = (List<Object>) resultFirstPage.get("results");
+        assertThat(hits.size(), is(1));
+        assertThat(PropertyUtils.getProperty(hits.get(0), "accessionNumber"), is("1"));
+        assertThat(PropertyUtils.getProperty(resultFirstPage, "totalCount"), is(2));
+        
+        MockHttpServletRequest requestSecondPage = request(RequestMethod.GET, getURI());
+        requestSecondPage.setParameter(RadiologyOrderSearchHandler.REQUEST_PARAM_PATIENT, PATIENT_WITH_TWO_ORDERS);
+        requestSecondPage.setParameter("limit", "1");
+        requestSecondPage.setParameter("startIndex", "1");
+        
+        SimpleObject resultSecondPage = deserialize(handle(requestSecondPage));
+        
+        hits = (List<Object>) resultSecondPage.get("results");
+        assertThat(hits.size(), is(1));
+        assertThat(PropertyUtils.getProperty(hits.get(0), "accessionNumber"), is("2"));
+    }
+    
+    /**
+     * @see RadiologyOrderSearchHandler#search(RequestContext)
+     */
+    @Test
+    public void shouldReturnRadiologyOrdersAfterTheRadiologyOrderGivenAsStartAfter() throws Exception {
+        
+        MockHttpServletRequest request = request(RequestMethod.GET, getURI());
+        request.setParameter(RadiologyOrderSearchHandler.REQUEST_PARAM_PATIENT, PATIENT_WITH_TWO_ORDERS);
+        request.setParameter(RadiologyOrderSearchHandler.REQUEST_PARAM_START_AFTER,
+            radiologyOrderService.getRadiologyOrder(2001)
+                    .getUuid());
+        
+        SimpleObject result = deserialize(handle(request));
+        
+        List<Object> hits = (List<Object>) result.get("results");
+        assertThat(hits.size(), is(1));
+        assertThat(PropertyUtils.getProperty(hits.get(0), "accessionNumber"), is("2"));
+    }
+    
+    /**
+     * @see RadiologyOrderSearchHandler#search(RequestContext)
+     */
+    @Test
+    public void shouldReturnEmptySearchResultIfStartAfterRadiologyOrderCannotBeFound() throws Exception {
+        
+        MockHttpServletRequest request = request(RequestMethod.GET, getURI());
+        request.setParameter(RadiologyOrderSearchHandler.REQUEST_PARAM_START_AFTER, UNKNOWN_RADIOLOGY_ORDER);
+        
+        SimpleObject result = deserialize(handle(request));
+        
+        assertThat(Util.getResultsSize(result), is(0));
+    }
+    
+    /**
+     * @see RadiologyOrderSearchHandler#search(RequestContext)
+     */
+    @Test
+    public void shouldReturnWorklistRepresentationOfRadiologyOrdersGivenWorklistRepresentation() throws Exception {
+        
+        MockHttpServletRequest request = request(RequestMethod.GET, getURI());
+        request.setParameter(RadiologyOrderSearchHandler.REQUEST_PARAM_PATIENT, PATIENT_WITH_TWO_ORDERS);
+        request.setParameter("v", RadiologyOrderResource.WORKLIST_REPRESENTATION);
+        request.setParameter("limit", "1");
+        request.setParameter(RadiologyOrderSearchHandler.REQUEST_PARAM_TOTAL_COUNT, "true");
+        
+        SimpleObject result = deserialize(handle(request));
+        
+        List<Object> hits = (List<Object>) result.get("results");
+        assertThat(hits.size(), is(1));
+        assertThat(PropertyUtils.getProperty(hits.get(0), "uuid"), is(radiologyOrderService.getRadiologyOrder(2001)
+                .getUuid()));
+        assertThat(PropertyUtils.getProperty(hits.get(0), "accessionNumber"), is("1"));
+        assertThat(PropertyUtils.getProperty(hits.get(0), "patientName"), is("John Francis Doe"));
+        assertThat(PropertyUtils.getProperty(hits.get(0), "conceptName"), is("FRACTURE"));
+        assertThat(PropertyUtils.getProperty(hits.get(0), "urgency"), is("ROUTINE"));
+        assertThat(PropertyUtils.getProperty(hits.get(0), "performedStatus"), is("IN_PROGRESS"));
+        assertThat(PropertyUtils.getProperty(hits.get(0), "reportStatus"), is("DRAFT"));
+        assertNull(PropertyUtils.getProperty(hits.get(0), "patient"));
+        assertThat(PropertyUtils.getProperty(result, "totalCount"), is(2));
+        List<Object> links = (List<Object>) result.get("links");
+        assertThat(PropertyUtils.getProperty(links.get(0), "rel"), is("next"));
+    }
+    
+    /**
+     * @see RadiologyOrderSearchHandler#search(RequestContext)
+     */
+    @Test
+    public void shouldReturnWorklistRepresentationWithoutReportStatusIfUserCannotGetRadiologyReports() throws Exception {
+        
+        MockHttpServletRequest request = request(RequestMethod.GET, getURI());
+        request.setParameter(RadiologyOrderSearchHandler.REQUEST_PARAM_ACCESSION_NUMBER, "1");
+        request.setParameter("v", RadiologyOrderResource.WORKLIST_REPRESENTATION);
+        
+        Context.logout();
+        Context.addProxyPrivilege(RadiologyPrivileges.GET_RADIOLOGY_ORDERS);
+        Context.addProxyPrivilege(PrivilegeConstants.GET_CONCEPTS);
+        SimpleObject result;
+        try {
+            result = deserialize(handle(request));
+        }
+        finally {
+            Context.removeProxyPrivilege(RadiologyPrivileges.GET_RADIOLOGY_ORDERS);
+            Context.removeProxyPrivilege(PrivilegeConstants.GET_CONCEPTS);
+            authenticate();
+        }
+        
+        List<Object> hits = (List<Object>) result.get("results");
+        assertThat(hits.size(), is(1));
+        assertThat(PropertyUtils.getProperty(hits.get(0), "accessionNumber"), is("1"));
+        assertNull(PropertyUtils.getProperty(hits.get(0), "reportStatus"));
+    }
 }
@@ -10,8 +10,11 @@
 package org.openmrs.module.radiology.report.template.web;
 
 import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -21,6 +24,9 @@ import static org.mockito.Mockito.when;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -31,6 +37,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.openmrs.api.APIException;
 import org.openmrs.module.radiology.report.template.MrrtReportTemplate;
+import org.openmrs.module.radiology.report.template.MrrtReportTemplateImportResult;
 import org.openmrs.module.radiology.report.template.MrrtReportTemplateService;
 import org.openmrs.module.radiology.report.template.MrrtReportTemplateValidationException;
 import org.openmrs.module.radiology.report.template.ValidationError;
@@ -98,7 +105,7 @@ public class RadiologyDashboardReportTemplatesTabControllerTest extends BaseCont
         ModelAndView modelAndView =
                 radiologyDashboardReportTemplatesTabController.uploadReportTemplate(request, multipartFile);
         
-        verify(mrrtReportTemplateService).importMrrtReportTemplate(MOCK_TEMPLATE_CONTENT);
+        verify(mrrtReportTemplateService).importMrrtReportTemplate(any(InputStream.class), eq(StandardCharsets.UTF_8));
         verifyNoMoreInteractions(mrrtReportTemplateService);
         
         assertNotNull(modelAndView);
@@ -139,12 +146,12 @@ public class RadiologyDashboardReportTemplatesTabControllerTest extends BaseCont
         MrrtReportTemplateValidationException mrrtReportTemplateValidationException =
                 new MrrtReportTemplateValidationException(validationResult);
         doThrow(mrrtReportTemplateValidationException).when(mrrtReportTemplateService)
-                .importMrrtReportTemplate(MOCK_TEMPLATE_CONTENT);
+                .importMrrtReportTemplate(any(InputStream.class), eq(StandardCharsets.UTF_8));
         
         ModelAndView modelAndView =
                 radiologyDashboardReportTemplatesTabController.uploadReportTemplate(request, multipartFile);
         
-        verify(mrrtReportTemplateService).importMrrtReportTemplate(MOCK_TEMPLATE_CONTENT);
+        verify(mrrtReportTemplateService).importMrrtReportTemplate(any(InputStream.class), eq(StandardCharsets.UTF_8));
         verifyNoMoreInteractions(mrrtReportTemplateService);
         
         assertNotNull(modelAndView);
@@ -163,12 +170,12 @@ public class RadiologyDashboardReportTemplatesTabControllerTest extends BaseCont
     public void shouldSetErrorMessageInSessionWhenApiExceptionIsThrown() throws Exception {
         
         doThrow(new APIException("Cannot import the same template twice.")).when(mrrtReportTemplateService)
-                .importMrrtReportTemplate(MOCK_TEMPLATE_CONTENT);
+                .importMrrtReportTemplate(any(InputStream.class), eq(StandardCharsets.UTF_8));
         
         ModelAndView modelAndView =
                 radiologyDashboardReportTemplatesTabController.uploadReportTemplate(request, multipartFile);
         
-        verify(mrrtReportTemplateService).importMrrtReportTemplate(MOCK_TEMPLATE_CONTENT);
+        verify(mrrtReportTemplateService).importMrrtReportTemplate(any(InputStream.class), eq(StandardCharsets.UTF_8));
         verifyNoMoreInteractions(mrrtReportTemplateService);
         
         assertNotNull(modelAndView);
@@ -184,12 +191,12 @@ public class RadiologyDashboardReportTemplatesTabControllerTest extends BaseCont
     public void shouldSetErrorMessageInSessionWhenIoExceptionIsThrown() throws Exception {
         
         doThrow(new IOException("File could not be read.")).when(mrrtReportTemplateService)
-                .importMrrtReportTemplate(MOCK_TEMPLATE_CONTENT);
+                .importMrrtReportTemplate(any(InputStream.class), eq(StandardCharsets.UTF_8));
         
         ModelAndView modelAndView =
                 radiologyDashboardReportTemplatesTabController.uploadReportTemplate(request, multipartFile);
         
-        verify(mrrtReportTemplateService).importMrrtReportTemplate(MOCK_TEMPLATE_CONTENT);
+        verify(mrrtReportTemplateService).importMrrtReportTemplate(any(InputStream.class), eq(StandardCharsets.UTF_8));
         verifyNoMoreInteractions(mrrtReportTemplateService);
         
         assertNotNull(modelAndView);
@@ -241,4 +248,110 @@ public class RadiologyDashboardReportTemplatesTabControllerTest extends BaseCont
         assertNotNull(errorMessage);
         assertThat(errorMessage, is("Failed to delete template file => File could not be deleted."));
     }
+    
+    /**
+     * @see RadiologyDashboardReportTemplatesTabController#uploadReportTemplateArchive(HttpServletRequest,MultipartFile)
+     */
+    @Test
+    public void shouldGiveErrorMessageWhenTemplateArchiveIsEmpty() throws Exception {
+        
+        MultipartFile emptyArchive = mock(MultipartFile.class);
+        when(emptyArchive.isEmpty()).thenReturn(true);
+        
+        ModelAndView modelAndView =
+                radiologyDashboardReportTemplatesTabController.uploadReportTemplateArchive(request, emptyArchive);
+        
+        verifyZeroInteractions(mrrtReportTemplateService);
+        
+        assertNotNull(modelAndView);
+        assertThat(modelAndView.getViewName(),
+            is(RadiologyDashboardReportTemplatesTabController.RADIOLOGY_REPORT_TEMPLATES_TAB_VIEW));
+        String message = (String) request.getSession()
+                .getAttribute(WebConstants.OPENMRS_ERROR_ATTR);
+        assertThat(message, is("radiology.MrrtReportTemplate.archive.not.imported.empty"));
+    }
+    
+    /**
+     * @see RadiologyDashboardReportTemplatesTabController#uploadReportTemplateArchive(HttpServletRequest,MultipartFile)
+     */
+    @Test
+    public void shouldGiveSuccessMessageWhenAllTemplateFilesWereImported() throws Exception {
+        
+        MockMultipartFile archive = new MockMultipartFile("templateArchive", "templates.zip", "application/zip",
+                MOCK_TEMPLATE_CONTENT.getBytes());
+        when(mrrtReportTemplateService.importMrrtReportTemplates(any(InputStream.class))).thenReturn(
+            Arrays.asList(MrrtReportTemplateImportResult.imported("template1.html", mock(MrrtReportTemplate.class))));
+        
+        ModelAndView modelAndView =
+                radiologyDashboardReportTemplatesTabController.uploadReportTemplateArchive(request, archive);
+        
+        verify(mrrtReportTemplateService).importMrrtReportTemplates(any(InputStream.class));
+        verifyNoMoreInteractions(mrrtReportTemplateService);
+        
+        assertNotNull(modelAndView);
+        assertThat(modelAndView.getViewName(),
+            is(RadiologyDashboardReportTemplatesTabController.RADIOLOGY_REPORT_TEMPLATES_TAB_VIEW));
+        assertFalse(modelAndView.getModelMap()
+                .containsKey("mrrtReportTemplateImportErrors"));
+        String message = (String) request.getSession()
+                .getAttribute(WebConstants.OPENMRS_MSG_ATTR);
+        assertThat(message, is("radiology.MrrtReportTemplate.archive.imported"));
+    }
+    
+    /**
+     * @see RadiologyDashboardReportTemplatesTabController#uploadReportTemplateArchive(HttpServletRequest,MultipartFile)
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldAddErrorsOfTemplateFilesWhichCouldNotBeImportedToModelAndGiveErrorMessage() throws Exception {
+        
+        MockMultipartFile archive = new MockMultipartFile("templateArchive", "templates.zip", "application/zip",
+                MOCK_TEMPLATE_CONTENT.getBytes());
+        ValidationResult validationResult = new ValidationResult();
+        validationResult.addError("Missing header", "err.missing.header");
+        validationResult.addError("Missing title", "err.missing.title");
+        when(mrrtReportTemplateService.importMrrtReportTemplates(any(InputStream.class))).thenReturn(Arrays.asList(
+            MrrtReportTemplateImportResult.imported("template1.html", mock(MrrtReportTemplate.class)),
+            MrrtReportTemplateImportResult.failed("template2.html",
+                new MrrtReportTemplateValidationException(validationResult)),
+            MrrtReportTemplateImportResult.failed("template3.html",
+                new APIException("Template already exist in the system."))));
+        
+        ModelAndView modelAndView =
+                radiologyDashboardReportTemplatesTabController.uploadReportTemplateArchive(request, archive);
+        
+        assertNotNull(modelAndView);
+        assertThat(modelAndView.getViewName(),
+            is(RadiologyDashboardReportTemplatesTabController.RADIOLOGY_REPORT_TEMPLATES_TAB_VIEW));
+        Map<String, String> importErrors = (Map<String, String>) modelAndView.getModelMap()
+                .get("mrrtReportTemplateImportErrors");
+        assertThat(importErrors.size(), is(2));
+        assertThat(importErrors.get("template2.html"), is("Missing header; Missing title"));
+        assertThat(importErrors.get("template3.html"), is("Template already exist in the system."));
+        String errorMessage = (String) request.getSession()
+                .getAttribute(WebConstants.OPENMRS_ERROR_ATTR);
+        assertThat(errorMessage, is("radiology.MrrtReportTemplate.archive.imported.partially"));
+    }
+    
+    /**
+     * @see RadiologyDashboardReportTemplatesTabController#uploadReportTemplateArchive(HttpServletRequest,MultipartFile)
+     */
+    @Test
+    public void shouldSetErrorMessageInSessionWhenIoExceptionIsThrownImportingArchive() throws Exception {
+        
+        MockMultipartFile archive = new MockMultipartFile("templateArchive", "templates.zip", "application/zip",
+                MOCK_TEMPLATE_CONTENT.getBytes());
+        when(mrrtReportTemplateService.importMrrtReportTemplates(any(InputStream.class)))
+                .thenThrow(new IOException("Archive could not be read."));
+        
+        ModelAndView modelAndView =
+                radiologyDashboardReportTemplatesTabController.uploadReportTemplateArchive(request, archive);
+        
+        assertNotNull(modelAndView);
+        assertThat(modelAndView.getViewName(),
+            is(RadiologyDashboardReportTemplatesTabController.RADIOLOGY_REPORT_TEMPLATES_TAB_VIEW));
+        String errorMessage = (String) request.getSession()
+                .getAttribute(WebConstants.OPENMRS_ERROR_ATTR);
+        assertThat(errorMessage, is("Failed to import templates.zip => Archive could not be read."));
+    }
 }
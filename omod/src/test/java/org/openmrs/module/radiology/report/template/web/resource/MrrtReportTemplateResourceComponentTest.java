@@ -66,12 +66,12 @@ public class MrrtReportTemplateResourceComponentTest
         assertPropPresent("templateId");
         assertPropPresent("dcTermsIdentifier");
         assertPropPresent("dcTermsTitle");
-        assertPropPresent("dcTermsType");
         assertPropPresent("dcTermsPublisher");
-        assertPropPresent("dcTermsCreator");
-        assertPropPresent("dcTermsRights");
-        assertPropPresent("terms");
         assertPropPresent("display");
+        assertPropNotPresent("dcTermsType");
+        assertPropNotPresent("dcTermsCreator");
+        assertPropNotPresent("dcTermsRights");
+        assertPropNotPresent("terms");
     }
     
     /**
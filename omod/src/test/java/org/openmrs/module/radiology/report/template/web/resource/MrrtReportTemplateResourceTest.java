@@ -12,6 +12,7 @@ package org.openmrs.module.radiology.report.template.web.resource;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.when;
@@ -73,8 +74,17 @@ public class MrrtReportTemplateResourceTest {
                 mrrtReportTemplateResource.getRepresentationDescription(defaultRepresentation);
         assertThat(resourceDescription.getProperties()
                 .keySet(),
-            contains("uuid", "templateId", "dcTermsIdentifier", "dcTermsTitle", "dcTermsType", "dcTermsPublisher",
-                "dcTermsCreator", "dcTermsRights", "terms", "display"));
+            contains("uuid", "templateId", "dcTermsIdentifier", "dcTermsTitle", "dcTermsPublisher", "display"));
+    }
+    
+    @Test
+    public void shouldReturnDefaultRepresentationWithoutTermsGivenInstanceOfDefaultrepresentation() throws Exception {
+        
+        DelegatingResourceDescription resourceDescription =
+                mrrtReportTemplateResource.getRepresentationDescription(new DefaultRepresentation());
+        
+        assertFalse(resourceDescription.getProperties()
+                .containsKey("terms"));
     }
     
     @Test
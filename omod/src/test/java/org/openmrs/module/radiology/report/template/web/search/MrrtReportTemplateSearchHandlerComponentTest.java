@@ -56,6 +56,14 @@ public class MrrtReportTemplateSearchHandlerComponentTest extends MainResourceCo
     
     private static final String NON_EXISTING_CREATOR = "Non existing creator";
     
+    private static final String CODED_MRRT_REPORT_TEMPLATE_UUID = "59273e52-33b1-4fcb-8c1f-9b670bb11259";
+    
+    private static final String TERM_CODE_QUERY = "RID10321";
+    
+    private static final String CONCEPT_SOURCE_QUERY = "RADLEX";
+    
+    private static final String NON_EXISTING_TERM_CODE = "RID0";
+    
     @Autowired
     MrrtReportTemplateService mrrtReportTemplateService;
     
@@ -235,4 +243,37 @@ public class MrrtReportTemplateSearchHandlerComponentTest extends MainResourceCo
         List<Object> hits = (List<Object>) resultMrrtReportTemplate.get("results");
         assertThat(hits.size(), is(0));
     }
+    
+    /**
+     * @see MrrtReportTemplateSearchHandler#search(RequestContext)
+     */
+    @Test
+    public void shouldReturnAllReportTemplatesCodedWithATermOfGivenCodeAndConceptSource() throws Exception {
+        
+        MockHttpServletRequest mrrtReportTemplateRequest = request(RequestMethod.GET, getURI());
+        mrrtReportTemplateRequest.setParameter(MrrtReportTemplateSearchHandler.REQUEST_PARAM_TERM_CODE, TERM_CODE_QUERY);
+        mrrtReportTemplateRequest.setParameter(MrrtReportTemplateSearchHandler.REQUEST_PARAM_CONCEPT_SOURCE,
+            CONCEPT_SOURCE_QUERY);
+        SimpleObject resultMrrtReportTemplate = deserialize(handle(mrrtReportTemplateRequest));
+        
+        assertNotNull(resultMrrtReportTemplate);
+        List<Object> hits = (List<Object>) resultMrrtReportTemplate.get("results");
+        assertThat(hits.size(), is(1));
+        assertThat(PropertyUtils.getProperty(hits.get(0), "uuid"), is(CODED_MRRT_REPORT_TEMPLATE_UUID));
+    }
+    
+    /**
+     * @see MrrtReportTemplateSearchHandler#search(RequestContext)
+     */
+    @Test
+    public void shouldReturnEmptySearchResultIfNoReportTemplateIsCodedWithATermOfGivenCode() throws Exception {
+        
+        MockHttpServletRequest mockRequest = request(RequestMethod.GET, getURI());
+        mockRequest.setParameter(MrrtReportTemplateSearchHandler.REQUEST_PARAM_TERM_CODE, NON_EXISTING_TERM_CODE);
+        SimpleObject resultMrrtReportTemplate = deserialize(handle(mockRequest));
+        
+        assertNotNull(resultMrrtReportTemplate);
+        List<Object> hits = (List<Object>) resultMrrtReportTemplate.get("results");
+        assertThat(hits.size(), is(0));
+    }
 }
@@ -70,7 +70,7 @@ public class RadiologyReportResourceComponentTest
         assertPropPresent("date");
         assertPropPresent("principalResultsInterpreter");
         assertPropPresent("status");
-        assertPropPresent("body");
+        assertPropNotPresent("body");
         assertPropPresent("display");
         assertPropPresent("voided");
     }
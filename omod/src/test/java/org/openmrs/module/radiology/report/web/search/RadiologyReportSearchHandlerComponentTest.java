@@ -24,7 +24,10 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 import org.openmrs.api.ProviderService;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.radiology.RadiologyConstants;
 import org.openmrs.module.radiology.report.RadiologyReport;
 import org.openmrs.module.radiology.report.RadiologyReportSearchCriteria;
 import org.openmrs.module.radiology.report.RadiologyReportService;
@@ -61,6 +64,8 @@ public class RadiologyReportSearchHandlerComponentTest extends MainResourceContr
     
     private static final String RADIOLOGY_REPORT_UUID = "82d3fb80-e403-4b9b-982c-22161ec29811";
     
+    private static final String RADIOLOGY_REPORT_UUID_WITH_SOLITARY_NODULE = "82d3fb80-e403-4b9b-982c-22161ec29810";
+    
     @Autowired
     RadiologyReportService radiologyReportService;
     
@@ -74,6 +79,9 @@ public class RadiologyReportSearchHandlerComponentTest extends MainResourceContr
     @Rule
     public ExpectedException expectedException = ExpectedException.none();
     
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
     @Before
     public void setUp() throws Exception {
         
@@ -344,4 +352,45 @@ public class RadiologyReportSearchHandlerComponentTest extends MainResourceContr
         assertNotNull(resultDateRangeWithTwoReport);
         assertThat(PropertyUtils.getProperty(resultDateRangeWithTwoReport, "totalCount"), is(2));
     }
+    
+    /**
+     * Builds the report text index in a temporary directory.
+     */
+    private void rebuildTemporaryTextIndex() throws Exception {
+        
+        Context.getAdministrationService()
+                .setGlobalProperty(RadiologyConstants.GP_REPORT_TEXT_INDEX_DIR, temporaryFolder.newFolder()
+                        .getAbsolutePath());
+        radiologyReportService.rebuildRadiologyReportTextIndex();
+    }
+    
+    @Test
+    public void shouldReturnCompletedRadiologyReportsWhoseBodyMatchesGivenTextRankedByRelevance() throws Exception {
+        
+        rebuildTemporaryTextIndex();
+        MockHttpServletRequest request = request(RequestMethod.GET, getURI());
+        request.setParameter(RadiologyReportSearchHandler.REQUEST_PARAM_TEXT, "nodule OR lobe");
+        
+        SimpleObject result = deserialize(handle(request));
+        
+        assertNotNull(result);
+        List<Object> hits = (List<Object>) result.get("results");
+        assertThat(hits.size(), is(2));
+        assertThat(PropertyUtils.getProperty(hits.get(0), "uuid"), is(RADIOLOGY_REPORT_UUID_WITH_SOLITARY_NODULE));
+        assertThat(PropertyUtils.getProperty(hits.get(1), "uuid"), is(RADIOLOGY_REPORT_UUID));
+    }
+    
+    @Test
+    public void shouldReturnEmptySearchResultIfNoReportBodyMatchesGivenText() throws Exception {
+        
+        rebuildTemporaryTextIndex();
+        MockHttpServletRequest request = request(RequestMethod.GET, getURI());
+        request.setParameter(RadiologyReportSearchHandler.REQUEST_PARAM_TEXT, "fracture");
+        
+        SimpleObject result = deserialize(handle(request));
+        
+        assertNotNull(result);
+        List<Object> hits = (List<Object>) result.get("results");
+        assertTrue(hits.isEmpty());
+    }
 }
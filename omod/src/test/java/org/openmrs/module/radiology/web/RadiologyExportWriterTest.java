@@ -0,0 +1,139 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.radiology.web;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.openmrs.module.webservices.rest.web.response.IllegalRequestException;
+
+/**
+ * Tests {@link RadiologyExportWriter}.
+ */
+public class RadiologyExportWriterTest {
+    
+    
+    private static final List<String> COLUMNS = Arrays.asList("uuid", "accessionNumber", "voided");
+    
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+    
+    StringWriter stringWriter = new StringWriter();
+    
+    /**
+     * @see RadiologyExportWriter.Format#fromParameter(String)
+     */
+    @Test
+    public void shouldReturnNdjsonIfGivenNullOrBlank() throws Exception {
+        
+        assertThat(RadiologyExportWriter.Format.fromParameter(null), is(RadiologyExportWriter.Format.NDJSON));
+        assertThat(RadiologyExportWriter.Format.fromParameter(" "), is(RadiologyExportWriter.Format.NDJSON));
+    }
+    
+    /**
+     * @see RadiologyExportWriter.Format#fromParameter(String)
+     */
+    @Test
+    public void shouldReturnFormatWithGivenNameIgnoringCase() throws Exception {
+        
+        assertThat(RadiologyExportWriter.Format.fromParameter("csv"), is(RadiologyExportWriter.Format.CSV));
+        assertThat(RadiologyExportWriter.Format.fromParameter("NDJSON"), is(RadiologyExportWriter.Format.NDJSON));
+    }
+    
+    /**
+     * @see RadiologyExportWriter.Format#fromParameter(String)
+     */
+    @Test
+    public void shouldThrowIllegalRequestExceptionGivenUnknownFormat() throws Exception {
+        
+        expectedException.expect(IllegalRequestException.class);
+        RadiologyExportWriter.Format.fromParameter("xml");
+    }
+    
+    /**
+     * @see RadiologyExportWriter#writeHeader()
+     */
+    @Test
+    public void shouldWriteColumnsAsHeaderGivenCsv() throws Exception {
+        
+        RadiologyExportWriter exportWriter =
+                new RadiologyExportWriter(stringWriter, RadiologyExportWriter.Format.CSV, COLUMNS);
+        
+        exportWriter.writeHeader();
+        
+        assertThat(stringWriter.toString(), is("uuid,accessionNumber,voided\n"));
+    }
+    
+    /**
+     * @see RadiologyExportWriter#writeHeader()
+     */
+    @Test
+    public void shouldWriteNothingGivenNdjson() throws Exception {
+        
+        RadiologyExportWriter exportWriter =
+                new RadiologyExportWriter(stringWriter, RadiologyExportWriter.Format.NDJSON, COLUMNS);
+        
+        exportWriter.writeHeader();
+        
+        assertThat(stringWriter.toString(), is(""));
+    }
+    
+    /**
+     * @see RadiologyExportWriter#writeRow(Object...)
+     */
+    @Test
+    public void shouldWriteRowAsJsonObjectOnASingleLineGivenNdjson() throws Exception {
+        
+        RadiologyExportWriter exportWriter =
+                new RadiologyExportWriter(stringWriter, RadiologyExportWriter.Format.NDJSON, COLUMNS);
+        
+        exportWriter.writeRow("a1", "line\nbreak", false);
+        exportWriter.writeRow("a2", null, true);
+        
+        assertThat(stringWriter.toString(), is("{\"uuid\":\"a1\",\"accessionNumber\":\"line\\nbreak\",\"voided\":false}\n"
+                + "{\"uuid\":\"a2\",\"accessionNumber\":null,\"voided\":true}\n"));
+    }
+    
+    /**
+     * @see RadiologyExportWriter#writeRow(Object...)
+     */
+    @Test
+    public void shouldWriteRowAsCommaSeparatedValuesQuotingValuesWhereNeededGivenCsv() throws Exception {
+        
+        RadiologyExportWriter exportWriter =
+                new RadiologyExportWriter(stringWriter, RadiologyExportWriter.Format.CSV, COLUMNS);
+        
+        exportWriter.writeRow("a1", "Doe, \"John\"", false);
+        exportWriter.writeRow("a2", null, true);
+        
+        assertThat(stringWriter.toString(), is("a1,\"Doe, \"\"John\"\"\",false\na2,,true\n"));
+    }
+    
+    /**
+     * @see RadiologyExportWriter#writeRow(Object...)
+     */
+    @Test
+    public void shouldThrowIllegalArgumentExceptionIfNumberOfValuesDoesNotMatchNumberOfColumns() throws Exception {
+        
+        RadiologyExportWriter exportWriter =
+                new RadiologyExportWriter(stringWriter, RadiologyExportWriter.Format.CSV, COLUMNS);
+        
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("expected 3 values but got 2 values");
+        exportWriter.writeRow("a1", "1");
+    }
+}